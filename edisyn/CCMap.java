@@ -8,6 +8,7 @@ package edisyn;
 import java.util.*;
 import java.io.*;
 import java.util.prefs.*;
+import edisyn.gui.*;
 
 /**        
            @author Sean Luke
@@ -29,6 +30,99 @@ public class CCMap
     public static final int TYPE_RELATIVE_CC_0 = 2;
     public static final int TYPE_NRPN = 3;
     
+    /** A compiled, read-only snapshot of the map, for dispatching incoming CCs and NRPNs
+        without boxing or hashing Strings.  It's an open-addressed hash table from munged 
+        CC/pane to the key and type mapped to it.  The map rebuilds it whenever it changes, 
+        so hang onto one only for the duration of a single message.  Each entry also caches 
+        the key's slot in the Model most recently asked about.  */
+    public static class Dispatch
+        {
+        int mask;
+        int[] munges;                   // -1 if the entry is empty
+        String[] keys;
+        int[] types;
+        int[] slots;                    // the cached slot of each key, or -1 if we don't know it
+        
+        Dispatch(HashMap map, HashMap typeMap)
+            {
+            int capacity = 16;
+            while(capacity < map.size() * 2) capacity *= 2;         // at most half full
+            mask = capacity - 1;
+            munges = new int[capacity];
+            keys = new String[capacity];
+            types = new int[capacity];
+            slots = new int[capacity];
+            Arrays.fill(munges, -1);
+            Arrays.fill(slots, -1);
+            
+            Iterator iterator = map.keySet().iterator();
+            while(iterator.hasNext())
+                {
+                Integer munge = (Integer)(iterator.next());
+                int i = index(munge.intValue());
+                while(munges[i] != -1) i = (i + 1) & mask;
+                munges[i] = munge.intValue();
+                keys[i] = (String)(map.get(munge));
+                Integer type = (Integer)(typeMap.get(munge));
+                types[i] = (type == null ? -1 : type.intValue());
+                }
+            }
+            
+        int index(int munge)
+            {
+            munge *= 0x9E3779B9;                // spread the bits, since the low ones are mostly pane
+            return (munge ^ (munge >>> 16)) & mask;
+            }
+        
+        /** Returns the entry for the given CC (or NRPN + NRPN_OFFSET) and pane, or -1 if none is mapped. */
+        public int find(int cc, int pane)
+            {
+            int munge = (cc << 8) | pane;
+            int i = index(munge);
+            while(true)
+                {
+                int m = munges[i];
+                if (m == munge) return i;
+                if (m == -1) return -1;
+                i = (i + 1) & mask;
+                }
+            }
+            
+        /** Returns the model key for the given entry. */
+        public String getKey(int entry) { return keys[entry]; }
+        
+        /** Returns the type for the given entry, or -1 if none has been set. */
+        public int getType(int entry) { return types[entry]; }
+        
+        /** Returns the slot in the given model of the key for the given entry, or -1 if the model doesn't have the key.  */
+        public int getSlot(int entry, Model model)
+            {
+            int slot = slots[entry];
+            if (slot < 0 || slot >= model.getNumSlots() || !keys[entry].equals(model.getSlotKey(slot)))
+                {
+                slot = model.slot(keys[entry]);
+                slots[entry] = slot;
+                }
+            return slot;
+            }
+        }
+        
+    volatile Dispatch dispatch = null;
+    
+    /** Returns the present dispatch table, compiling it if the map has changed. */
+    public Dispatch getDispatch()
+        {
+        Dispatch d = dispatch;
+        return (d == null ? compile() : d);
+        }
+        
+    synchronized Dispatch compile()
+        {
+        if (dispatch == null)
+            dispatch = new Dispatch(map, typeMap);
+        return dispatch;
+        }
+    
     public Integer munge(int cc, int pane)
         {
         return Integer.valueOf((cc << 8) | pane);
@@ -87,33 +181,27 @@ public class CCMap
         
     public void setTypeForCCPane(int cc, int pane, int type)
         {
-        typeMap.put(munge(cc, pane), Integer.valueOf(type));
-        typePrefs.put("" + munge(cc, pane).intValue(), "" + type);
-        try 
+        synchronized(this)
             {
-            typePrefs.sync();
-            }
-        catch (Exception ex)
-            {
-            Synth.handleException(ex);
+            typeMap.put(munge(cc, pane), Integer.valueOf(type));
+            dispatch = null;
             }
+        typePrefs.put("" + munge(cc, pane).intValue(), "" + type);
+        Prefs.save(typePrefs);
         }
     
-    /** Sets the model key for the given CC value, and syncs the Preferences (which isn't cheap). */
+    /** Sets the model key for the given CC value, and schedules the Preferences to be saved. */
     public void setKeyForInteger(Integer munge, String key)
         {
-        map.put(munge, key);
-        reverseMap.put(key, munge);
-                
-        keyPrefs.put("" + munge.intValue(), key);
-        try 
+        synchronized(this)
             {
-            keyPrefs.sync();
-            }
-        catch (Exception ex)
-            {
-            Synth.handleException(ex);
+            map.put(munge, key);
+            reverseMap.put(key, munge);
+            dispatch = null;
             }
+                
+        keyPrefs.put("" + munge.intValue(), key);
+        Prefs.save(keyPrefs);
         }
 
     
@@ -177,12 +265,18 @@ public class CCMap
             {
             keyPrefs.clear();
             typePrefs.clear();
+            Prefs.save(keyPrefs);
+            Prefs.save(typePrefs);
             }
         catch (Exception ex)
             {
             Synth.handleException(ex);
             }
-        map = new HashMap();
-        reverseMap = new HashMap();
+        synchronized(this)
+            {
+            map = new HashMap();
+            reverseMap = new HashMap();
+            dispatch = null;
+            }
         }
     }
@@ -14,6 +14,7 @@ import javax.swing.border.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 /***
@@ -1310,18 +1311,23 @@ public class HillClimb extends SynthPanel
                 // Fall Thru
             case OPERATION_SEED_FROM_MORPH:
             {
-            Model newSeed = seed.copy();                
+            final Model newSeed = seed.copy();                
             double weight = blank.getModel().get("hillclimbrate", 0) / 100.0;
             weight = weight * weight * weight;  // make more sensitive at low end
-            int numMutations = 1;
+            final double _weight = weight;
+            final String[] _keys = keys;
                 
-            for(int i = 0; i < NUM_CANDIDATES; i++)
+            produceInParallel(random, NUM_CANDIDATES, currentModels, new CandidateProducer()
                 {
-                currentModels[i] = newSeed.copy();
-                for(int j = 0; j < numMutations; j++)
-                    currentModels[i] = currentModels[i].mutate(random, keys, weight);
-                if (i % 4 == 3) numMutations++;
-                }
+                public Model produce(Random random, int index)
+                    {
+                    int numMutations = index / 4 + 1;
+                    Model model = newSeed.copy();
+                    for(int j = 0; j < numMutations; j++)
+                        model = model.mutate(random, _keys, _weight);
+                    return model;
+                    }
+                });
 
             for(int i = 0; i < selected.length; i++)
                 selected[i].setSelected(true);
@@ -1436,8 +1442,17 @@ public class HillClimb extends SynthPanel
             }
         }
 
+    // Decodes the latent vectors of all the candidates in a single batch
+    void decodeNN(double[][] vectors)
+        {
+        Model[] models = ((ProvidesNN)synth).decode(vectors);
+        for(int i = 0; i < models.length; i++)
+            currentModels[i] = models[i];
+        }
+
     void produceNN(Random random, String[] keys, double weight, Model a)
         {
+        double[][] vectors = new double[NUM_CANDIDATES][];
         if(a.latentVector == null)
             {
             a.latentVector = ((ProvidesNN)synth).encode(a);
@@ -1445,14 +1460,16 @@ public class HillClimb extends SynthPanel
         for(int i = 0; i < NUM_CANDIDATES; i++)
             {
             // A
-            currentModels[i] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[i] = Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
             }
+        decodeNN(vectors);
         shuffle(random, currentModels, 0, NUM_CANDIDATES);
         }
 
     void produceNN(Random random, String[] keys, double weight, Model a, Model b)
         {
         int numStages = NUM_CANDIDATES / STAGE_SIZE;
+        double[][] vectors = new double[NUM_CANDIDATES][];
         if(a.latentVector == null)
             {
             a.latentVector = ((ProvidesNN)synth).encode(a);
@@ -1467,19 +1484,20 @@ public class HillClimb extends SynthPanel
             for(int i = 0; i < STAGE_SIZE/2; i++)
                 {
                 // A
-                currentModels[j*STAGE_SIZE + i] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
+                vectors[j*STAGE_SIZE + i] = Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
                 }
             for(int i = STAGE_SIZE/2; i < 3*STAGE_SIZE/4; i++)
                 {
                 // B
-                currentModels[j*STAGE_SIZE + i] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
+                vectors[j*STAGE_SIZE + i] = Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
                 }
             for(int i = 3*STAGE_SIZE/4; i < STAGE_SIZE; i++)
                 {
                 // C
-                currentModels[j*STAGE_SIZE + i] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
+                vectors[j*STAGE_SIZE + i] = Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
                 }
             }
+        decodeNN(vectors);
         shuffle(random, currentModels, 0, STAGE_SIZE);
         shuffle(random, currentModels, STAGE_SIZE, STAGE_SIZE);
         
@@ -1489,6 +1507,7 @@ public class HillClimb extends SynthPanel
     void produceNN(Random random, String[] keys, double weight, Model a, Model b, Model c)
         {
         int numStages = NUM_CANDIDATES / STAGE_SIZE;
+        double[][] vectors = new double[NUM_CANDIDATES][];
         if(a.latentVector == null)
             {
             a.latentVector = ((ProvidesNN)synth).encode(a);
@@ -1505,35 +1524,36 @@ public class HillClimb extends SynthPanel
         for(int j = 0; j < numStages; j++)
             {
             // A
-            currentModels[j*STAGE_SIZE + 0] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 1] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 2] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 3] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 0] = Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 1] = Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 2] = Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 3] = Network.shiftVectorGaussian(a.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
 
             // B
-            currentModels[j*STAGE_SIZE + 4] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 5] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 6] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 4] = Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 5] = Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 6] = Network.shiftVectorGaussian(b.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
 
             // C
-            currentModels[j*STAGE_SIZE + 7] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(c.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 8] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(c.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 7] = Network.shiftVectorGaussian(c.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 8] = Network.shiftVectorGaussian(c.latentVector, random, weight * ProvidesNN.WEIGHT_SCALING);
 
             // Mean(A, B)
-            currentModels[j*STAGE_SIZE + 9] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 10] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 9] = Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 10] = Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
 
             // Mean(A, C)
-            currentModels[j*STAGE_SIZE + 11] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 12] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 11] = Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 12] = Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
 
             // Mean(B, C)
-            currentModels[j*STAGE_SIZE + 13] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(b.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
-            currentModels[j*STAGE_SIZE + 14] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(b.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 13] = Network.shiftVectorGaussian(Network.vectorMean(b.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
+            vectors[j*STAGE_SIZE + 14] = Network.shiftVectorGaussian(Network.vectorMean(b.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
 
             // Mean(A,B,C)
-            currentModels[j*STAGE_SIZE + 15] = ((ProvidesNN)synth).decode(Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING));
+            vectors[j*STAGE_SIZE + 15] = Network.shiftVectorGaussian(Network.vectorMean(a.latentVector, b.latentVector, c.latentVector), random, weight * ProvidesNN.WEIGHT_SCALING);
             }
+        decodeNN(vectors);
         shuffle(random, currentModels, 0, STAGE_SIZE);
         shuffle(random, currentModels, STAGE_SIZE, STAGE_SIZE);
         
@@ -1542,158 +1562,239 @@ public class HillClimb extends SynthPanel
 
     public static final double MUTATION_WEIGHT = 1.0;
     
-    void produce(Random random, String[] keys, double recombination, double weight, Model a, Model b, Model c, Model oldA)
+    /** Produces a single candidate, given its index and a Random of its own. */
+    interface CandidateProducer
         {
-        int numStages = NUM_CANDIDATES / STAGE_SIZE;
+        public Model produce(Random random, int index);
+        }
+        
+    // Threads shared by all hill-climbers for producing candidates, built when first needed
+    static ExecutorService executor = null;
+    static int threads = Runtime.getRuntime().availableProcessors();
+    
+    /** Sets the number of threads used to produce candidates.  If 1, candidates are produced in the Swing thread. */
+    public static synchronized void setThreads(int val)
+        {
+        if (val < 1) val = 1;
+        if (val == threads) return;
+        threads = val;
+        if (executor != null) executor.shutdown();
+        executor = null;
+        }
         
-        for(int i = 0; i < numStages; i++)
+    /** Returns the number of threads used to produce candidates. */
+    public static synchronized int getThreads() { return threads; }
+    
+    static synchronized ExecutorService getExecutor()
+        {
+        if (executor == null)
+            {
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+                {
+                public Thread newThread(Runnable r)
+                    {
+                    Thread thread = new Thread(r, "HillClimb");
+                    thread.setDaemon(true);
+                    return thread;
+                    }
+                });
+            }
+        return executor;
+        }
+
+    /** Produces candidates 0 ... count - 1 and stores them in the corresponding slots of results.
+        Each candidate gets its own Random, seeded in turn from the given one, so the candidates 
+        depend only on the state of the given Random, not on how the candidates are scheduled.
+        They are produced in parallel unless the synth forbids it (see Synth.getMutatesInParallel()).  
+        The parent Models are shared among the threads, but they are only read: copy() marks their arrays 
+        as shared, but every thread does so identically. */
+    void produceInParallel(Random random, int count, final Model[] results, final CandidateProducer producer)
+        {
+        final Random[] randoms = new Random[count];
+        for(int i = 0; i < count; i++)
+            randoms[i] = new Random(random.nextLong());
+
+        if (!synth.getMutatesInParallel() || getThreads() == 1)
             {
-            produce(random, keys, recombination, weight, a, b, c, oldA, i * STAGE_SIZE);
+            for(int i = 0; i < count; i++)
+                results[i] = producer.produce(randoms[i], i);
+            return;
             }
 
+        ArrayList<Callable<Model>> tasks = new ArrayList<Callable<Model>>();
+        for(int i = 0; i < count; i++)
+            {
+            final int index = i;
+            tasks.add(new Callable<Model>()
+                {
+                public Model call() { return producer.produce(randoms[index], index); }
+                });
+            }
+        try
+            {
+            java.util.List<Future<Model>> futures = getExecutor().invokeAll(tasks);
+            for(int i = 0; i < count; i++)
+                results[i] = futures.get(i).get();
+            }
+        catch (InterruptedException ex)
+            {
+            throw new RuntimeException(ex);
+            }
+        catch (ExecutionException ex)
+            {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw new RuntimeException(cause);
+            }
+        }
+    
+    void produce(final Random random, final String[] keys, final double recombination, final double weight, final Model a, final Model b, final Model c, final Model oldA)
+        {
+        produceInParallel(random, NUM_CANDIDATES, currentModels, new CandidateProducer()
+            {
+            public Model produce(Random random, int index)
+                {
+                return HillClimb.this.produce(random, keys, recombination, weight, a, b, c, oldA, index - index % STAGE_SIZE, index % STAGE_SIZE);
+                }
+            });
+
         shuffle(random, currentModels, 0, STAGE_SIZE);
         shuffle(random, currentModels, STAGE_SIZE, STAGE_SIZE);
         }
         
-    void produce(Random random, String[] keys, double recombination, double weight, Model a, Model b, Model c, Model oldA, int stage)
+    Model produce(Random random, String[] keys, double recombination, double weight, Model a, Model b, Model c, Model oldA, int stage, int candidate)
         {
         double mutationWeight = (stage/STAGE_SIZE + 1) * MUTATION_WEIGHT * weight;
         
-        // A + B
-        currentModels[stage + 0] = a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight);
-        // A + C
-        currentModels[stage + 1] = a.copy().recombine(random, c, keys, recombination).mutate(random, keys, mutationWeight);
-        // A + (B + C)
-        currentModels[stage + 2] = a.copy().recombine(random, b.copy().recombine(random, c, keys, recombination), keys, recombination).mutate(random, keys, mutationWeight);
-        // A - B
-        currentModels[stage + 3] = a.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        // A - C
-        currentModels[stage + 4] = a.copy().opposite(random, c, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        // A
-        currentModels[stage + 5] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        // B
-        currentModels[stage + 6] = b.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        // C
-        currentModels[stage + 7] = c.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-
-        if ((stage + 8) < currentModels.length)
-            {
+        switch(candidate)
+            {
+            // A + B
+            case 0: return a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight);
+            // A + C
+            case 1: return a.copy().recombine(random, c, keys, recombination).mutate(random, keys, mutationWeight);
+            // A + (B + C)
+            case 2: return a.copy().recombine(random, b.copy().recombine(random, c, keys, recombination), keys, recombination).mutate(random, keys, mutationWeight);
+            // A - B
+            case 3: return a.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // A - C
+            case 4: return a.copy().opposite(random, c, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // A
+            case 5: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // B
+            case 6: return b.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // C
+            case 7: return c.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // A - Z
-            currentModels[stage + 8] = a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
+            case 8: return a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
             // B - A
-            currentModels[stage + 9] = b.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 9: return b.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // C - A
-            currentModels[stage + 10] = c.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 10: return c.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // B - C
-            currentModels[stage + 11] = b.copy().opposite(random, c, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 11: return b.copy().opposite(random, c, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // C - B
-            currentModels[stage + 12] = c.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 12: return c.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // B - Z
-            currentModels[stage + 13] = b.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
+            case 13: return b.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
             // C - Z
-            currentModels[stage + 14] = c.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
+            case 14: return c.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
             // B + C
-            currentModels[stage + 15] = b.copy().recombine(random, c, keys, recombination).mutate(random, keys, mutationWeight);
+            case 15: return b.copy().recombine(random, c, keys, recombination).mutate(random, keys, mutationWeight);
+            default: return null;         // never happens
             }
         }
         
-    void produce(Random random, String[] keys, double recombination, double weight, Model a, Model b, Model oldA)
+    void produce(final Random random, final String[] keys, final double recombination, final double weight, final Model a, final Model b, final Model oldA)
         {
-        int numStages = NUM_CANDIDATES / STAGE_SIZE;
-        
-        for(int i = 0; i < numStages; i++)
+        produceInParallel(random, NUM_CANDIDATES, currentModels, new CandidateProducer()
             {
-            produce(random, keys, recombination, weight, a, b, oldA, i * STAGE_SIZE);
-            }
-        
+            public Model produce(Random random, int index)
+                {
+                return HillClimb.this.produce(random, keys, recombination, weight, a, b, oldA, index - index % STAGE_SIZE, index % STAGE_SIZE);
+                }
+            });
+
         shuffle(random, currentModels, 0, STAGE_SIZE);
         shuffle(random, currentModels, STAGE_SIZE, STAGE_SIZE);
         }
         
-    void produce(Random random, String[] keys, double recombination, double weight, Model a, Model b, Model oldA, int stage)
+    Model produce(Random random, String[] keys, double recombination, double weight, Model a, Model b, Model oldA, int stage, int candidate)
         {
         double mutationWeight = (stage/STAGE_SIZE + 1) * MUTATION_WEIGHT * weight;
         
-        // A + B
-        currentModels[stage + 0] = a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight);
-        currentModels[stage + 1] = a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 2] = a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
-        // A - B
-        currentModels[stage + 3] = a.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 4] = a.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
-        // B - A
-        currentModels[stage + 5] = b.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 6] = b.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
-        // A - Z
-        currentModels[stage + 7] = a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
-
-        if ((stage + 8) < currentModels.length)
+        switch(candidate)
             {
-            currentModels[stage + 8] = a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
+            // A + B
+            case 0: return a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight);
+            case 1: return a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 2: return a.copy().recombine(random, b, keys, recombination).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // A - B
+            case 3: return a.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 4: return a.copy().opposite(random, b, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // B - A
+            case 5: return b.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 6: return b.copy().opposite(random, a, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            // A - Z
+            case 7: return a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
+            case 8: return a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // B - Z
-            currentModels[stage + 9] = b.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
-            currentModels[stage + 10] = b.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-
+            case 9: return b.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
+            case 10: return b.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // (A - Z) + (B - Z)
-            currentModels[stage + 11] = a.copy().opposite(random, oldA, keys, recombination, false).recombine(random, 
-                b.copy().opposite(random, oldA, keys, recombination, false), keys, recombination).mutate(random, keys, mutationWeight);
-
+            case 11: return a.copy().opposite(random, oldA, keys, recombination, false).recombine(random, b.copy().opposite(random, oldA, keys, recombination, false), keys, recombination).mutate(random, keys, mutationWeight);
             // A
-            currentModels[stage + 12] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 13] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
+            case 12: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 13: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // B
-            currentModels[stage + 14] = b.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 15] = b.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 14: return b.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 15: return b.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            default: return null;         // never happens
             }
         }
-                
-    void produce(Random random, String[] keys, double recombination, double weight, Model a, Model oldA)
-        {
-        int numStages = NUM_CANDIDATES / STAGE_SIZE;
         
-        for(int i = 0; i < numStages; i++)
+    void produce(final Random random, final String[] keys, final double recombination, final double weight, final Model a, final Model oldA)
+        {
+        produceInParallel(random, NUM_CANDIDATES, currentModels, new CandidateProducer()
             {
-            produce(random, keys, recombination, weight, a, oldA, i * STAGE_SIZE);
-            }
+            public Model produce(Random random, int index)
+                {
+                return HillClimb.this.produce(random, keys, recombination, weight, a, oldA, index - index % STAGE_SIZE, index % STAGE_SIZE);
+                }
+            });
 
         shuffle(random, currentModels, 0, STAGE_SIZE);
         shuffle(random, currentModels, STAGE_SIZE, STAGE_SIZE);
         }
         
-    void produce(Random random, String[] keys, double recombination, double weight, Model a, Model oldA, int stage)
+    Model produce(Random random, String[] keys, double recombination, double weight, Model a, Model oldA, int stage, int candidate)
         {
         double mutationWeight = (stage/STAGE_SIZE + 1) * MUTATION_WEIGHT * weight;
         
-        // A
-        currentModels[stage + 0] = a.copy().mutate(random, keys, mutationWeight);
-        currentModels[stage + 1] = a.copy().mutate(random, keys, mutationWeight);
-        currentModels[stage + 2] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 3] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 4] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 5] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 6] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        currentModels[stage + 7] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
-        if ((stage + 8) < currentModels.length)
+        switch(candidate)
             {
-            currentModels[stage + 8] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 9] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 10] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 11] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 12] = a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-        
+            // A
+            case 0: return a.copy().mutate(random, keys, mutationWeight);
+            case 1: return a.copy().mutate(random, keys, mutationWeight);
+            case 2: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 3: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 4: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 5: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 6: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 7: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 8: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 9: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 10: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 11: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 12: return a.copy().mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
             // A - Z
-            currentModels[stage + 13] = a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
-            currentModels[stage + 14] = a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
-            currentModels[stage + 15] = a.copy().opposite(random, oldA, keys, recombination, false).opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 13: return a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight);
+            case 14: return a.copy().opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            case 15: return a.copy().opposite(random, oldA, keys, recombination, false).opposite(random, oldA, keys, recombination, false).mutate(random, keys, mutationWeight).mutate(random, keys, mutationWeight);
+            default: return null;         // never happens
             }
         }
-    
+        
     
     void constrict()
         {
@@ -1729,28 +1830,42 @@ public class HillClimb extends SynthPanel
         operation = OPERATION_CONSTRICT;
                 
         // Now replace the individuals
-        for(int i = 0; i < replace.length; i++)
-            {
-            // pick two parents, try to make them different from one another
-            int p1 = random.nextInt(keep.length);
-            int p2 = 0;
-            for(int j = 0; j < 100; j++)
+        final int[] _keep = keep;
+        final int[] _replace = replace;
+        final String[] _keys = keys;
+        final double _weight = weight;
+        final boolean recombine = (method.getSelectedIndex() == 1);
+        final Model[] parents = (Model[])(currentModels.clone());
+        Model[] children = new Model[replace.length];
+        produceInParallel(random, replace.length, children, new CandidateProducer()
+            {
+            public Model produce(Random random, int index)
                 {
-                p2 = random.nextInt(keep.length);
-                if (p2 != p1) break;
-                }
+                // pick two parents, try to make them different from one another
+                int p1 = random.nextInt(_keep.length);
+                int p2 = 0;
+                for(int j = 0; j < 100; j++)
+                    {
+                    p2 = random.nextInt(_keep.length);
+                    if (p2 != p1) break;
+                    }
                 
-            if (method.getSelectedIndex() == 1)
-                {
-                // our recombination works as follows: 50% of the time we'll do crossover with a 1/2 rate.  Otherwise we'll do it with a 3/4 rate.
-                double rate = CONSTRICT_RECOMBINATION_RATE;
-                // recombine
-                if (random.nextBoolean())
-                    rate = 0.5;
-                currentModels[replace[i]] = currentModels[keep[p1]].copy().recombine(random, currentModels[keep[p2]], keys, rate).mutate(random, keys, weight);
+                if (recombine)
+                    {
+                    // our recombination works as follows: 50% of the time we'll do crossover with a 1/2 rate.  Otherwise we'll do it with a 3/4 rate.
+                    double rate = CONSTRICT_RECOMBINATION_RATE;
+                    // recombine
+                    if (random.nextBoolean())
+                        rate = 0.5;
+                    return parents[_keep[p1]].copy().recombine(random, parents[_keep[p2]], _keys, rate).mutate(random, _keys, _weight);
+                    }
+                else return parents[_replace[index]];
                 }
+            });
+        for(int i = 0; i < replace.length; i++)
+            {
+            currentModels[replace[i]] = children[i];
             }
-                
         // Move the new ones to the beginning
         Model[] old = (Model[])(currentModels.clone());
         int count = 0;
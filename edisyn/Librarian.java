@@ -13,6 +13,8 @@ import java.awt.dnd.*;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
    LIBRARIAN is a JComponent implementing a JTable backed by a LIBRARY as its model.
@@ -1531,6 +1533,8 @@ public class Librarian extends JPanel
         synth.undo.setWillPush(true);
         synth.sendAllParameters();
 
+        System.out.println("Librarian: Mix " + getLibrary().getModelCache());
+
         // Switch to patch editor
         getLibrary().getSynth().setCurrentTab(0);
         lastMixType = mixType;
@@ -1538,12 +1542,45 @@ public class Librarian extends JPanel
     
     public static final int NUM_MIX_ROWS = 8;
     
-    public void mixBank(int mixType)
+    // Throwaway synths used by mixBank(...) to parse and emit patches off of the Swing event thread
+    ConcurrentLinkedQueue<Synth> mixSynths = new ConcurrentLinkedQueue<Synth>();
+    
+    // Builds throwaway synths of our class until there are at least n of them.  Synths build
+    // their Swing widgets when constructed, so this must be called on the Swing event thread, 
+    // before any work is handed to other threads.  Returns false if a synth couldn't be built.
+    boolean buildMixSynths(int n)
+        {
+        for(int i = mixSynths.size(); i < n; i++)
+            {
+            Synth mixSynth = Synth.instantiate(getLibrary().synth.getClass(), true, false, null);
+            if (mixSynth == null) return false;
+            mixSynth.setSendMIDI(false);
+            mixSynth.getUndo().setWillPush(false);
+            mixSynths.add(mixSynth);
+            }
+        return true;
+        }
+    
+    // Returns a throwaway synth for the given thread to use, or null if there are none left.
+    // It never builds one: see buildMixSynths(...).  Return it with mixSynths.add(...) when you're done.
+    Synth getMixSynth()
+        {
+        return mixSynths.poll();
+        }
+    
+    volatile boolean mixCanceled = false;
+        
+    /** Fills the Scratch bank with remixes of random patches from the selected bank.
+        The remixes are done in the background, in parallel, with a progress bar and a Stop button,
+        unless the synth can't parse in parallel (see Synth.getParsesInParallel()), in which case they
+        are done in the Swing event thread.  If the user stops it, the Scratch bank is left alone.  Otherwise all the remixes are
+        placed in the Scratch bank as a single undoable step. */
+    public void mixBank(final int mixType)
         {
         int column = col(table, table.getSelectedColumn());
         int row = table.getSelectedRow();
         int len = table.getSelectedRowCount();
-        Library library = getLibrary();
+        final Library library = getLibrary();
         Synth synth = library.synth;
 
         if (column < 0 || row < 0 || len == 0)
@@ -1557,16 +1594,23 @@ public class Librarian extends JPanel
             return;
             }
         
-        library.pushUndo();
-        int banksize = library.patches[0].length;
-        String[] names = library.getPatchNumberNames();
+        final int banksize = library.patches[0].length;
+        final String[] names = library.getPatchNumberNames();
+        final String defaultName = "" + synth.getPatchLocationName(synth.getModel());
+        final String[] mutationKeys = synth.getMutationKeys();
+        
+        // Gather the source patches, and pick the rows and random number generator for each remix here, 
+        // so that the workers needn't touch the library or synth.random
+        final Patch[] bank = new Patch[banksize];
+        for(int i = 0; i < banksize; i++)
+            bank[i] = library.getPatchOrInit(column - 1, i);
+        final int[][] mixRows = new int[banksize][];
+        final java.util.Random[] randoms = new java.util.Random[banksize];
         for(int i = 0; i < banksize; i++)
             {
-            int[] columns = new int[banksize < NUM_MIX_ROWS ? banksize : NUM_MIX_ROWS];
-            int[] rows = new int[columns.length];
-            for(int j = 0; j < columns.length; j++)
+            int[] rows = new int[banksize < NUM_MIX_ROWS ? banksize : NUM_MIX_ROWS];
+            for(int j = 0; j < rows.length; j++)
                 {
-                columns[j] = column;
                 while(true)
                     {
                     rows[j] = synth.random.nextInt(banksize);
@@ -1587,39 +1631,187 @@ public class Librarian extends JPanel
                         }
                     }
                 }
+            mixRows[i] = rows;
+            randoms[i] = new java.util.Random(synth.random.nextLong());
+            }
+        
+        // Editors which can't parse in parallel remix here on the Swing event thread, with the editor
+        // itself, just as a single Mix does
+        if (!synth.getParsesInParallel())
+            {
+            Patch[] results = new Patch[banksize];
+            for(int i = 0; i < banksize; i++)
+                results[i] = performMixBankSlot(synth, randoms[i], mutationKeys, mixType, bank, mixRows[i], names[i], defaultName);
+            loadMixBank(results);
+            return;
+            }
+        
+        // One throwaway synth per thread, built here on the Swing event thread
+        final int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), banksize));
+        if (!buildMixSynths(threads))
+            {
+            synth.showSimpleError("Cannot Remix Bank", "An error occurred while preparing to remix the bank.");
+            return;
+            }
+
+        // We can't use a ProgressMonitor because it's not modal.  So we build it manually, as in Synth.tryToSendMIDI(...)
+        mixCanceled = false;
+        Object f = SwingUtilities.getRoot(this);
+        JFrame frame = null;
+        if (f instanceof JFrame) frame = (JFrame)f;
+        final JDialog dialog = new JDialog(frame, "Remix Bank", true);
+        JPanel outer = new JPanel();
+        outer.setLayout(new BorderLayout());
+        outer.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        dialog.add(outer);
+        
+        final JProgressBar bar = new JProgressBar(0, banksize);
+        JPanel inner = new JPanel();
+        inner.setLayout(new BorderLayout());
+        inner.add(bar, BorderLayout.CENTER);
+        inner.setBorder(BorderFactory.createEmptyBorder(8, 0, 8, 0));
+        outer.add(new JLabel("Remixing " + banksize + " patches into the Scratch bank..."), BorderLayout.NORTH);
+        outer.add(inner, BorderLayout.CENTER);
+        JButton cancelButton = new JButton("Stop");
+        cancelButton.addActionListener(new ActionListener()
+            {
+            public void actionPerformed(ActionEvent e)
+                {
+                mixCanceled = true;
+                }
+            });
+        JPanel panel = new JPanel();
+        panel.setLayout(new BorderLayout());
+        panel.add(cancelButton, BorderLayout.EAST);
+        outer.add(panel, BorderLayout.SOUTH);
+        
+        final Patch[] results = new Patch[banksize];
+        final AtomicInteger done = new AtomicInteger();
+        final Thread thread = new Thread(new Runnable()
+            {
+            public void run()
+                {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                for(int i = 0; i < banksize; i++)
+                    {
+                    final int slot = i;
+                    executor.submit(new Runnable()
+                        {
+                        public void run()
+                            {
+                            if (mixCanceled) return;
+                            Synth mixSynth = getMixSynth();
+                            if (mixSynth == null) { mixCanceled = true; return; }
+                            try
+                                {
+                                results[slot] = performMixBankSlot(mixSynth, randoms[slot], mutationKeys, mixType, bank, mixRows[slot], names[slot], defaultName);
+                                }
+                            catch (Exception ex)
+                                {
+                                Synth.handleException(ex);
+                                mixCanceled = true;
+                                }
+                            mixSynths.add(mixSynth);
+                            final int d = done.incrementAndGet();
+                            SwingUtilities.invokeLater(new Runnable() { public void run() { bar.setValue(d); } });
+                            }
+                        });
+                    }
+                executor.shutdown();
+                try { executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS); }
+                catch (InterruptedException ex) { mixCanceled = true; }
+                SwingUtilities.invokeLater(new Runnable() { public void run() { dialog.dispose(); }  });
+                }
+            });
                 
-            Model result = performMix(synth, mixType, columns, rows);
-                
-            // can we set a name even if the synth doesn't support it?
-            if (result.exists("name"))
+        dialog.addWindowListener(new WindowAdapter()
+            {
+            public void windowOpened(WindowEvent e)
                 {
-                result.set("name", "" + names[i] + "Remix"); 
-                        
-                // revise name
-                synth.undo.setWillPush(false);
-                boolean send = synth.getSendMIDI();
-                synth.setSendMIDI(false);
-                boolean shouldUpdate = synth.model.getUpdateListeners();
-                synth.model.setUpdateListeners(false);
-                Model backup = synth.model;
+                thread.start();
+                }
                         
-                synth.model = result;
-                synth.revise();
-                
-                synth.model = backup;
-                synth.model.setUpdateListeners(shouldUpdate);
-                synth.setSendMIDI(send);
-                synth.undo.setWillPush(true);
+            // windowClosed() isn't called by JDialog -- a Java bug I think
+            // but windowClosing() is called.
+            public void windowClosing(WindowEvent e)
+                {
+                mixCanceled = true;
                 }
+            });
+                
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);            // blocks until the thread is done
+        
+        if (thread.isAlive())               // the user closed the dialog early
+            {
+            try { thread.join(); }
+            catch (InterruptedException ex) { }
+            }
+        
+        if (mixCanceled) return;
+        loadMixBank(results);
+        }
+    
+    // Loads the remixed patches into the Scratch bank all at once, as one undo
+    void loadMixBank(Patch[] results)
+        {
+        Library library = getLibrary();
+        library.pushUndo();
+        for(int i = 0; i < results.length; i++)
+            library.setPatch(results[i], Library.SCRATCH_BANK, i);
+        System.out.println("Librarian: Remix Bank " + library.getModelCache());
+        }
+    
+    // Remixes the given rows of the bank into a patch, using the given synth (a throwaway, or our own) to parse and emit
+    Patch performMixBankSlot(Synth mixSynth, java.util.Random random, String[] mutationKeys, int mixType, Patch[] bank, int[] rows, String name, String defaultName)
+        {
+        Library library = getLibrary();
+        Patch[] patches = new Patch[rows.length];
+        for(int j = 0; j < rows.length; j++)
+            patches[j] = bank[rows[j]];
+        Model result = performMix(mixSynth, random, mutationKeys, mixType, patches);
+                
+        // can we set a name even if the synth doesn't support it?
+        if (result.exists("name"))
+            {
+            result.set("name", "" + name + "Remix"); 
+                        
+            // revise name
+            mixSynth.undo.setWillPush(false);
+            boolean send = mixSynth.getSendMIDI();
+            mixSynth.setSendMIDI(false);
+            boolean shouldUpdate = mixSynth.model.getUpdateListeners();
+            mixSynth.model.setUpdateListeners(false);
+            Model backup = mixSynth.model;
                         
-            library.setPatch(library.getPatch(result), Library.SCRATCH_BANK, i);
+            mixSynth.model = result;
+            mixSynth.revise();
+                
+            mixSynth.model = backup;
+            mixSynth.model.setUpdateListeners(shouldUpdate);
+            mixSynth.setSendMIDI(send);
+            mixSynth.undo.setWillPush(true);
             }
+
+        Patch patch = library.getPatch(result, mixSynth);
+        if (!result.exists("name")) patch.name = defaultName;
+        return patch;
         }
    
     public Model performMix(Synth synth, int mixType, int[] columns, int[] rows)
         {
+        Patch[] patches = new Patch[rows.length];
+        for(int i = 0; i < rows.length; i++)
+            patches[i] = getLibrary().getPatchOrInit(columns[i] - 1, rows[i]);
+        return performMix(synth, synth.random, synth.getMutationKeys(), mixType, patches);
+        }
+        
+    // Mixes the given patches, parsing them with the given synth (which may be a throwaway synth)
+    Model performMix(Synth synth, java.util.Random random, String[] mutationKeys, int mixType, Patch[] patches)
+        {
+        Library library = getLibrary();
         Model model = null;
-        String[] mutationKeys = synth.getMutationKeys();
         double probability = 1.0;
         
         // Recombination is odd: we pick a weighted point p between the original a and the new b, and
@@ -1632,23 +1824,23 @@ public class Librarian extends JPanel
             {
             // descending -- we start with the top patch
             int elt = 0;
-            model = getLibrary().getModel(columns[0] - 1, rows[0]).copy();          // we don't want the listeners etc.
-            for(int i = 1; i < rows.length; i++)
+            model = library.getModel(patches[0], synth).copy();          // we don't want the listeners etc.
+            for(int i = 1; i < patches.length; i++)
                 {
-                if (i == rows.length - 1) // last one, mix half/half
+                if (i == patches.length - 1) // last one, mix half/half
                     probability /= 2.0; 
                 else            // 1/2 -> 1/3 -> 1/4 -> 1/5 etc.
                     probability = 1.0 / ((1.0 / probability) + 1);
-                model = model.crossover(synth.random, getLibrary().getModel(columns[i] - 1, rows[i]), mutationKeys, probability, false);
+                model = model.crossover(random, library.getModel(patches[i], synth), mutationKeys, probability, false);
                 }
             }
         else
             {
             // ascending -- start with the bottom patch and recombine till we get to the big patch up top
-            model = getLibrary().getModel(columns[rows.length - 1] - 1, rows[rows.length - 1]).copy();                // we don't want the listeners etc.
-            for(int i = rows.length - 2; i >= 0; i--)
+            model = library.getModel(patches[patches.length - 1], synth).copy();                // we don't want the listeners etc.
+            for(int i = patches.length - 2; i >= 0; i--)
                 {
-                if (i == rows.length - 2) // first one, mix half/half
+                if (i == patches.length - 2) // first one, mix half/half
                     probability = 1.0 / 2.0;
                 else if (mixType == MIX_TYPE_ONE_THIRD)
                     probability = 1.0 / 3.0;
@@ -1656,7 +1848,7 @@ public class Librarian extends JPanel
                     probability = 1.0 / 2.0;
                 else if (mixType == MIX_TYPE_TWO_THIRDS)
                     probability = 2.0 / 3.0;
-                model = model.crossover(synth.random, getLibrary().getModel(columns[i] - 1, rows[i]), mutationKeys, probability, false);
+                model = model.crossover(random, library.getModel(patches[i], synth), mutationKeys, probability, false);
                 }
             }
         return model;
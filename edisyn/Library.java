@@ -26,8 +26,8 @@ import edisyn.gui.*;
 
 public class Library extends AbstractTableModel
     {
-    ArrayList<Patch[][]> undo = new ArrayList<>();
-    ArrayList<Patch[][]> redo = new ArrayList<>();
+    PatchStack undo = new PatchStack();
+    PatchStack redo = new PatchStack();
     
     // The patches in the library by [bank][number]
     Patch[][] patches;                                      // Note that patches[0] is the "scratch bank"
@@ -47,6 +47,8 @@ public class Library extends AbstractTableModel
     int synthNum;  
     // A counter which lets us provide unique patch names in the library slots when a synthesizer provides no patch names
     int nameCounter = 1;
+    // Models parsed by getModel(...)
+    ModelCache modelCache = new ModelCache();
         
     /** Builds a library model, including undo/redo, given a set of bank names,
         the size (length) of a bank, a default init patch, and a list of names
@@ -264,11 +266,92 @@ public class Library extends AbstractTableModel
         return np;
         }
           
+    // Stores grids of patches as the patch slots which differ from the grid above them (see UndoStack),
+    // so rearranging a few patches in a large library doesn't hold a full copy of the grid for each undo
+    static class PatchStack extends UndoStack<Patch[][]>
+        {
+        static class Delta
+            {
+            int[] banks;
+            int[] numbers;
+            Patch[] patches;
+            }
+                
+        protected Object encode(Patch[][] older, Patch[][] newer)
+            {
+            if (older.length != newer.length) return null;
+            int count = 0;
+            for(int i = 0; i < older.length; i++)
+                {
+                if (older[i].length != newer[i].length) return null;
+                for(int j = 0; j < older[i].length; j++)
+                    if (older[i][j] != newer[i][j]) count++;
+                }
+            Delta delta = new Delta();
+            delta.banks = new int[count];
+            delta.numbers = new int[count];
+            delta.patches = new Patch[count];
+            count = 0;
+            for(int i = 0; i < older.length; i++)
+                for(int j = 0; j < older[i].length; j++)
+                    if (older[i][j] != newer[i][j])
+                        {
+                        delta.banks[count] = i;
+                        delta.numbers[count] = j;
+                        delta.patches[count] = older[i][j];
+                        count++;
+                        }
+            return delta;
+            }
+                
+        protected Patch[][] decode(Patch[][] newer, Object d)
+            {
+            Delta delta = (Delta)d;
+            Patch[][] older = new Patch[newer.length][];
+            for(int i = 0; i < newer.length; i++)
+                older[i] = newer[i].clone();
+            for(int i = 0; i < delta.patches.length; i++)
+                older[delta.banks[i]][delta.numbers[i]] = delta.patches[i];
+            return older;
+            }
+                
+        protected long sizeOf(Patch[][] full)
+            {
+            long bytes = 16 + 16L * full.length;
+            for(int i = 0; i < full.length; i++)
+                bytes += 4L * full[i].length;
+            return bytes;
+            }
+                
+        // A delta's patches may no longer be in the library, so we count their sysex as well
+        protected long sizeOfDelta(Object d)
+            {
+            Delta delta = (Delta)d;
+            long bytes = 64 + 12L * delta.patches.length;
+            for(int i = 0; i < delta.patches.length; i++)
+                {
+                Patch patch = delta.patches[i];
+                if (patch == null || patch.sysex == null) continue;
+                for(int j = 0; j < patch.sysex.length; j++)
+                    bytes += 16 + patch.sysex[j].length;
+                }
+            return bytes;
+            }
+        }
+
     /** Copies the existing patches and pushes them onto the undo stack */
     public void pushUndo()
         {
         redo.clear();
-        undo.add(copy());
+        undo.push(copy());
+        }
+        
+    /** Sets the memory budget, in bytes, of each of the undo and redo stacks.  When a stack grows 
+        beyond its budget, its oldest entries are discarded.  The default is UndoStack.DEFAULT_MEMORY_BUDGET. */
+    public void setUndoMemoryBudget(long bytes)
+        {
+        undo.setMemoryBudget(bytes);
+        redo.setMemoryBudget(bytes);
         }
 
     /** Returns true if there is something to undo */
@@ -288,8 +371,8 @@ public class Library extends AbstractTableModel
         {
         if (hasUndo())
             {
-            redo.add(copy());
-            patches = undo.remove(undo.size() - 1);
+            redo.push(copy());
+            patches = undo.pop();
             fireTableDataChanged();
             }
         }
@@ -299,8 +382,8 @@ public class Library extends AbstractTableModel
         {
         if (hasRedo())
             {
-            undo.add(copy());
-            patches = redo.remove(redo.size() - 1);
+            undo.push(copy());
+            patches = redo.pop();
             fireTableDataChanged();
             }
         }
@@ -1438,7 +1521,13 @@ public class Library extends AbstractTableModel
     /** A Utility method.  Given a model, produces a Patch filled out with model data. */
     public Patch getPatch(Model model)
         {
-        Synth synth = getSynth();
+        return getPatch(model, getSynth());
+        }
+        
+    /** Generates a Patch from the given model, emitting it with the given synth, which may be 
+        a throwaway synth of the same class as ours (for example, on another thread). */
+    Patch getPatch(Model model, Synth synth)
+        {
         int synthNum = getSynthNum();
         String name = model.get("name","" + synth.getPatchLocationName(synth.getModel()));
         int number = model.get("number", -1);
@@ -1472,6 +1561,12 @@ public class Library extends AbstractTableModel
         If bank is < 0, then the scratch bank is assumed
     */
     public Model getModel(int bank, int number)
+        {
+        return getModel(getPatchOrInit(bank, number), bank, number);
+        }
+        
+    // Returns the patch at the given slot, or a copy of the init patch if the slot is empty or number < 0
+    Patch getPatchOrInit(int bank, int number)
         {
         Patch patch = null;
                 
@@ -1487,13 +1582,31 @@ public class Library extends AbstractTableModel
                 patch = new Patch(getInitPatch());              // Make a copy
                 }
             }
-        return getModel(patch, bank, number);
+        return patch;
         }
                         
-    /** Generates a model from the Patch, with the given bank and number */
+    /** Returns the cache of Models parsed by getModel(...). */
+    public ModelCache getModelCache() { return modelCache; }
+
+    /** Generates a model from the Patch, with the given bank and number.  Models are cached 
+        by the patch's content, so asking for the same patch again doesn't parse it again.  
+        The Model has no listeners (see Model.copy()), and is the caller's to modify. */
     public Model getModel(Patch patch, int bank, int number)
+        {
+        return getModel(patch, getSynth());
+        }
+        
+    /** Generates a model from the Patch, parsing it with the given synth, which may be 
+        a throwaway synth of the same class as ours (for example, on another thread). */
+    Model getModel(Patch patch, Synth synth)
         {                        
-        Synth synth = getSynth();
+        byte[] data = synth.flatten(patch.sysex);
+        Model cached = modelCache.get(synth, data, patch.bank, patch.number);
+        if (cached != null) 
+            {
+            if (cached.fixer != null) cached.setFixer(synth);
+            return cached;
+            }
                  
         // do we need to modify the bank and number?
         synth.undo.setWillPush(false);
@@ -1502,7 +1615,8 @@ public class Library extends AbstractTableModel
         boolean shouldUpdate = synth.model.getUpdateListeners();
         synth.model.setUpdateListeners(false);
         Model backup = (Model)(synth.model.clone());
-        synth.performParse(synth.flatten(patch.sysex), false);  // is this from a file?  I'm saying false
+        long start = System.nanoTime();
+        synth.performParse(data, false);  // is this from a file?  I'm saying false
                                 
         // revise the patch location to where it came from in the librarian
         if (patch.number != Patch.NUMBER_NOT_SET)
@@ -1515,10 +1629,12 @@ public class Library extends AbstractTableModel
         synth.setSendMIDI(send);
         synth.undo.setWillPush(true);
 
-        Model retval = synth.model;
+        // Hand back the same kind of Model as a hit would: a listener-free copy, not the synth's model
+        Model retval = synth.model.copy();
         synth.model = backup;
         synth.model.setUpdateListeners(shouldUpdate);
-        return retval;
+        modelCache.put(synth, data, patch.bank, patch.number, retval, System.nanoTime() - start);
+        return (Model)(retval.clone());
         }
 
 
@@ -469,6 +469,17 @@ public class Midi
         public Receiver keyReceiver;
         public Receiver key2Receiver;
         
+        OutputScheduler outScheduler;
+        
+        /** Returns the scheduler which paces messages sent to outReceiver, or null if there is no outReceiver. */
+        public synchronized OutputScheduler getOutputScheduler()
+            {
+            if (outReceiver == null) return null;
+            if (outScheduler == null || outScheduler.getReceiver() != outReceiver)
+                outScheduler = new OutputScheduler(outReceiver);
+            return outScheduler;
+            }
+        
         public long getMicrosecondPosition() 
             { 
             if (outWrap == null || outWrap.device == null) return -1;  
@@ -484,6 +495,7 @@ public class Midi
             keyWrap = other.keyWrap;
             key2Wrap = other.key2Wrap;
             outReceiver = other.outReceiver;
+            outScheduler = other.getOutputScheduler();             // share pacing with other users of the same receiver
             outChannel = other.outChannel;
             id = other.id;
             keyChannel = other.keyChannel;
@@ -933,7 +945,34 @@ public class Midi
 
         // The controllerValueLSB is either a valid LSB or it is  (-1).
         int[] controllerValueLSB = new int[16];
+        
+        // If not null, the CCData we fill out and return every time rather than allocating a new one
+        CCData reusable = null;
+        
+        public Parser() { }
+        
+        /** Builds a Parser which, if reusesCCData is true, returns the same CCData object, filled
+            out anew, from every call rather than a new one each time.  This allocates nothing, but
+            the CCData is only good until the next call, so don't hang onto it. */
+        public Parser(boolean reusesCCData)
+            {
+            if (reusesCCData) reusable = new CCData(CCDATA_TYPE_RAW_CC, 0, 0, 0, false);
+            }
+        
+        /** Returns true if the Parser returns the same CCData from every call. */
+        public boolean getReusesCCData() { return reusable != null; }
   
+        CCData ccData(int type, int number, int value, int channel, boolean increment)
+            {
+            CCData data = reusable;
+            if (data == null) return new CCData(type, number, value, channel, increment);
+            data.type = type;
+            data.number = number;
+            data.value = value;
+            data.channel = channel;
+            data.increment = increment;
+            return data;
+            }
 
         // we presume that the channel never changes
         CCData parseCC(int channel, int number, int value, boolean requireLSB, boolean requireMSB)
@@ -1074,33 +1113,33 @@ public class Midi
             {
             if (_controllerValueLSB < 0 || _controllerValueMSB < 0)
                 System.out.println("Warning (Midi): " + "LSB or MSB < 0.  RPN: " + controllerNumber + "   LSB: " + _controllerValueLSB + "  MSB: " + _controllerValueMSB);
-            return new CCData(CCDATA_TYPE_NRPN, controllerNumber, _controllerValueLSB | (_controllerValueMSB << 7), channel, false);
+            return ccData(CCDATA_TYPE_NRPN, controllerNumber, _controllerValueLSB | (_controllerValueMSB << 7), channel, false);
             }
         
         public CCData handleNRPNIncrement(int channel, int controllerNumber, int delta)
             {
-            return new CCData(CCDATA_TYPE_NRPN, controllerNumber, delta, channel, true);
+            return ccData(CCDATA_TYPE_NRPN, controllerNumber, delta, channel, true);
             }
 
         public CCData handleRPN(int channel, int controllerNumber, int _controllerValueLSB, int _controllerValueMSB)
             {
             if (_controllerValueLSB < 0 || _controllerValueMSB < 0)
                 System.out.println("Warning (Midi): " + "LSB or MSB < 0.  RPN: " + controllerNumber + "   LSB: " + _controllerValueLSB + "  MSB: " + _controllerValueMSB);
-            return new CCData(CCDATA_TYPE_RPN, controllerNumber, _controllerValueLSB | (_controllerValueMSB << 7), channel, false);
+            return ccData(CCDATA_TYPE_RPN, controllerNumber, _controllerValueLSB | (_controllerValueMSB << 7), channel, false);
             }
         
         public CCData handleRPNIncrement(int channel, int controllerNumber, int delta)
             {
-            return new CCData(CCDATA_TYPE_RPN, controllerNumber, delta, channel, true);
+            return ccData(CCDATA_TYPE_RPN, controllerNumber, delta, channel, true);
             }
 
         public CCData handleRawCC(int channel, int controllerNumber, int value)
             {
-            return new CCData(CCDATA_TYPE_RAW_CC, controllerNumber, value, channel, false);
+            return ccData(CCDATA_TYPE_RAW_CC, controllerNumber, value, channel, false);
             }
         }
                 
-    public Parser controlParser = new Parser();
+    public Parser controlParser = new Parser(true);            // only Synth.handleKeyRawCC(...) reads it
     public Parser synthParser = new Parser();
     
     
@@ -1317,6 +1356,40 @@ public class Midi
         else return null;
         }
     
+    /** Returns the manufacturer ID for the given sysex data, in the same form as the keys of the
+        Manufacturers.txt table (a single ID byte, or for 0x00 extended IDs, 0x00 + (ID2 << 8) + (ID3 << 16)),
+        or -1 if there isn't enough data.  This works with or without F0 as the first data byte */
+    public static int getManufacturerIDForSysex(byte[] data)
+        {
+        int offset = 0;
+        if (data.length > 0 && data[0] == (byte)0xF0)
+            offset = 1;
+        if (data.length <= offset)
+            return -1;
+        else if (data[0 + offset] == (byte)0x00)
+            {
+            if (data.length <= offset + 2)
+                return -1;
+            return 0x00 + 
+                ((data[1 + offset] < 0 ? data[1 + offset] + 256 : data[1 + offset]) << 8) + 
+                ((data[2 + offset] < 0 ? data[2 + offset] + 256 : data[2 + offset]) << 16);
+            }
+        else
+            {
+            return (data[0 + offset] < 0 ? data[0 + offset] + 256 : data[0 + offset]);
+            }
+        }
+
+    /** Returns the number of bytes (1 or 3) used by the manufacturer ID which starts the given
+        sysex data.  This works with or without F0 as the first data byte */
+    public static int getManufacturerIDLength(byte[] data)
+        {
+        int offset = 0;
+        if (data.length > 0 && data[0] == (byte)0xF0)
+            offset = 1;
+        return (data.length > offset && data[offset] == (byte)0x00 ? 3 : 1);
+        }
+    
     /** This works with or without F0 as the first data byte */
     public static String getManufacturerForSysex(byte[] data)
         {
@@ -1343,229 +1416,146 @@ public class Midi
         }
     
     
-    byte[] inSysex = null;
-    byte[] keySysex = null;
-    byte[] key2Sysex = null;
+    /** A growable, reusable buffer for reassembling sysex messages which arrive split into
+        several fragments, the first starting with 0xF0 and each continuation starting with 0xF7.
+        The buffer doubles as needed (up to MAX_LENGTH) and is retained between messages, so 
+        gathering a message is linear in its length and, once the buffer has grown large enough,
+        the only allocation is the final completed message.  If a message exceeds MAX_LENGTH
+        it is discarded. */
+        
+    public static class SysexBuffer
+        {
+        /** The largest sysex message we're willing to gather (64MB). */
+        public static final int MAX_LENGTH = 64 * 1024 * 1024;
+        static final int INITIAL_LENGTH = 1024;
+        
+        byte[] buffer = new byte[INITIAL_LENGTH];
+        int length = 0;
+        boolean gathering = false;
+        
+        /** Discards any partially gathered message. */
+        public void reset()
+            {
+            length = 0;
+            gathering = false;
+            }
+        
+        /** Returns the number of bytes gathered so far for the current message. */
+        public int getLength()
+            {
+            return length;
+            }
+        
+        /** Returns true if we have started, but not yet completed, a message. */
+        public boolean isGathering()
+            {
+            return gathering;
+            }
+        
+        boolean append(byte[] data, int start, int len)
+            {
+            if (len <= 0) return true;
+            if (length + len > MAX_LENGTH || length + len < 0)             // too big, give up
+                {
+                reset();
+                return false;
+                }
+            if (length + len > buffer.length)
+                {
+                int newLength = buffer.length;
+                while(newLength < length + len)
+                    newLength = (newLength > MAX_LENGTH / 2 ? MAX_LENGTH : newLength * 2);
+                byte[] temp = new byte[newLength];
+                System.arraycopy(buffer, 0, temp, 0, length);
+                buffer = temp;
+                }
+            System.arraycopy(data, start, buffer, length, len);
+            length += len;
+            return true;
+            }
+        
+        /** Adds the first messageLen bytes of data, which is either the start of a new message
+            (beginning with 0xF0) or a continuation (beginning with 0xF7, which is stripped).
+            If this completes the message (it ends in 0xF7), the full message is returned
+            and the buffer is reset; otherwise null is returned. */
+        public byte[] gather(byte[] data, int messageLen)
+            {
+            if (messageLen <= 0) // uh...
+                return null;
+                
+            if (data.length == 0) // uh...
+                return null;
+            
+            if (messageLen > data.length)
+                messageLen = data.length;
+                                
+            if (data[0] == (byte)0xF0)  // it's a new message
+                {
+                reset();
+                gathering = append(data, 0, messageLen);
+                }
+            else if (data[0] == (byte)0xF7)  // it's a continuation of a message
+                {
+                if (!gathering) // uh...
+                    return null;
+                gathering = append(data, 1, messageLen - 1);      // skip the 0xF7
+                }
+            /*
+              else                // May be missing the 0xF7?
+              {
+              if (!gathering) // uh...
+              return null;
+              gathering = append(data, 0, messageLen);
+              }
+            */
+
+            if (gathering && length != 0 && buffer[length - 1] == (byte)0xF7)  // completed
+                {
+                byte[] temp = new byte[length];
+                System.arraycopy(buffer, 0, temp, 0, length);
+                reset();
+                return temp;
+                }
+            else return null;
+            }
+        }
+    
+    SysexBuffer inSysex = new SysexBuffer();
+    SysexBuffer keySysex = new SysexBuffer();
+    SysexBuffer key2Sysex = new SysexBuffer();
     
     public void resetInSysexData()
         {
-        inSysex = null;
+        inSysex.reset();
         }
         
     public void resetKeySysexData()
         {
-        keySysex = null;
+        keySysex.reset();
         }
         
     public void resetKey2SysexData()
         {
-        key2Sysex = null;
+        key2Sysex.reset();
         }
         
     public byte[] gatherInSysexData(byte[] data, int messageLen)
         {
-        if (messageLen == 0) // uh...
-            {
-            return null;
-            }
-                
-        if (data.length == 0) // uh...
-            {
-            return null;
-            }
-                                
-        if (data[0] == (byte)0xF0)  // it's a new message
-            {
-            //System.out.println("0xF0");
-            inSysex = new byte[messageLen];
-            System.arraycopy(data, 0, inSysex, 0, messageLen);
-            }
-        else if (data[0] == (byte)0xF7)  // it's a continuation of a message
-            {
-            //System.out.println("0xF7");
-            if (inSysex == null) // uh...
-                return null;
-            byte[] temp = new byte[inSysex.length + messageLen - 1];
-                
-            // yeah yeah, O(n^2), I could obviously do much, much better, maybe later
-            System.arraycopy(inSysex, 0, temp, 0, inSysex.length);
-            System.arraycopy(data, 1, temp, inSysex.length, messageLen - 1);        // skip the 0xF7
-            inSysex = temp;
-            }
-        /*
-          else                // May be missing the 0xF7?
-          {
-          if (inSysex == null) // uh...
-          return null;
-          byte[] temp = new byte[inSysex.length + messageLen];
-          // yeah yeah, O(n^2), I could obviously do much better, maybe later
-          System.arraycopy(inSysex, 0, temp, 0, inSysex.length);
-          System.arraycopy(data, 0, temp, inSysex.length, messageLen);
-          }
-        */
-        /*
-          for(int i = 0; i < inSysex.length; i++)
-          System.out.print(" " + inSysex[i]);
-          System.out.println();
-        */
-        if (inSysex != null && inSysex.length != 0 && inSysex[inSysex.length - 1] == (byte)0xF7)  // completed
-            {
-            //System.out.println("0xF7 END");
-            byte[] temp = inSysex;
-            inSysex = null;
-            return temp;
-            }
-        else return null;
+        return inSysex.gather(data, messageLen);
         }
 
-
-
     public byte[] gatherInSysexData(SysexMessage message)
         {
-        int messageLen = message.getLength();
-        
-        if (messageLen == 0) // uh...
-            {
-            return null;
-            }
-                
-        byte[] data = message.getMessage();
-
-        if (data.length == 0) // uh...
-            {
-            return null;
-            }
-                                
-        if (data[0] == (byte)0xF0)  // it's a new message
-            {
-            inSysex = new byte[messageLen];
-            System.arraycopy(data, 0, inSysex, 0, inSysex.length);
-            }
-        else if (data[0] == (byte)0xF7)  // it's a continuation of a message
-            {
-            if (inSysex == null) // uh...
-                return null;
-            byte[] temp = new byte[inSysex.length + messageLen - 1];
-                
-            // yeah yeah, O(n^2), I could obviously do much, much better, maybe later
-            System.arraycopy(inSysex, 0, temp, 0, inSysex.length);
-            System.arraycopy(data, 1, temp, inSysex.length, messageLen - 1);        // skip the 0xF7
-            inSysex = temp;
-            }
-        /*
-          else                // May be missing the 0xF7?
-          {
-          if (inSysex == null) // uh...
-          return null;
-          byte[] temp = new byte[inSysex.length + messageLen];
-          // yeah yeah, O(n^2), I could obviously do much better, maybe later
-          System.arraycopy(inSysex, 0, temp, 0, inSysex.length);
-          System.arraycopy(data, 0, temp, inSysex.length, messageLen);
-          }
-        */
-
-        if (inSysex != null && inSysex.length != 0 && inSysex[inSysex.length - 1] == (byte)0xF7)  // completed
-            {
-            byte[] temp = inSysex;
-            inSysex = null;
-            return temp;
-            }
-        else return null;
+        return inSysex.gather(message.getMessage(), message.getLength());
         }
 
     public byte[] gatherKeySysexData(SysexMessage message)
         {
-        int messageLen = message.getLength();
-
-        if (messageLen == 0) // uh...
-            return null;
-        
-        byte[] data = message.getMessage();
-
-        if (data.length == 0) // uh...
-            return null;
-                
-        if (data[0] == 0xF0)  // it's a new message
-            {
-            keySysex = new byte[messageLen];
-            System.arraycopy(data, 0, keySysex, 0, keySysex.length);
-            }
-        else if (data[0] == 0xF7)  // it's a continuation of a message
-            {
-            if (keySysex == null) // uh...
-                return null;
-            byte[] temp = new byte[keySysex.length + messageLen - 1];
-                
-            // yeah yeah, O(n^2), I could obviously do much, much better, maybe later
-            System.arraycopy(keySysex, 0, temp, 0, keySysex.length);
-            System.arraycopy(data, 1, temp, keySysex.length, messageLen - 1);       // skip the 0xF7
-            }
-        /*
-          else                // May be missing the 0xF7?
-          {
-          if (keySysex == null) // uh...
-          return null;
-          byte[] temp = new byte[keySysex.length + messageLen];
-          // yeah yeah, O(n^2), I could obviously do much better, maybe later
-          System.arraycopy(keySysex, 0, temp, 0, keySysex.length);
-          System.arraycopy(data, 0, temp, keySysex.length, messageLen);
-          }
-        */
-
-        if (keySysex != null && keySysex.length != 0 && keySysex[keySysex.length - 1] == 0xF7)  // completed
-            {
-            byte[] temp = keySysex;
-            keySysex = null;
-            return temp;
-            }
-        else return null;
+        return keySysex.gather(message.getMessage(), message.getLength());
         }
 
     public byte[] gatherKey2SysexData(SysexMessage message)
         {
-        int messageLen = message.getLength();
-
-        if (messageLen == 0) // uh...
-            return null;
-        
-        byte[] data = message.getMessage();
-
-        if (data.length == 0) // uh...
-            return null;
-                
-        if (data[0] == 0xF0)  // it's a new message
-            {
-            key2Sysex = new byte[messageLen];
-            System.arraycopy(data, 0, key2Sysex, 0, key2Sysex.length);
-            }
-        else if (data[0] == 0xF7)  // it's a continuation of a message
-            {
-            if (key2Sysex == null) // uh...
-                return null;
-            byte[] temp = new byte[key2Sysex.length + messageLen - 1];
-                
-            // yeah yeah, O(n^2), I could obviously do much, much better, maybe later
-            System.arraycopy(key2Sysex, 0, temp, 0, key2Sysex.length);
-            System.arraycopy(data, 1, temp, key2Sysex.length, messageLen - 1);      // skip the 0xF7
-            }
-        /*
-          else                // May be missing the 0xF7?
-          {
-          if (key2Sysex == null) // uh...
-          return null;
-          byte[] temp = new byte[key2Sysex.length + messageLen];
-          // yeah yeah, O(n^2), I could obviously do much better, maybe later
-          System.arraycopy(key2Sysex, 0, temp, 0, key2Sysex.length);
-          System.arraycopy(data, 0, temp, key2Sysex.length, messageLen);
-          }
-        */
-
-        if (key2Sysex != null && key2Sysex.length != 0 && key2Sysex[key2Sysex.length - 1] == 0xF7)  // completed
-            {
-            byte[] temp = key2Sysex;
-            key2Sysex = null;
-            return temp;
-            }
-        else return null;
+        return key2Sysex.gather(message.getMessage(), message.getLength());
         }
     }
@@ -0,0 +1,201 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import javax.sound.midi.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/****
+      A bounded ring buffer of incoming MIDI messages, written by a MIDI device's
+      transmitter thread and read by the Swing event thread.  It's a lock-free
+      single-producer, single-consumer queue: neither side ever locks or blocks.  Each 
+      buffer belongs to one Synth, and is only written by the receiver the Synth built
+      for its current MIDI tuple (see Synth.buildInReceiver() etc.), which Java Sound
+      calls from the one device thread, so there is only ever one writer at a time.
+      Each message is stamped with the time it arrived so we can measure how long it 
+      waited before being dispatched.
+
+      <p>If the buffer is full, we don't block the device thread.  A plain 7-bit Control
+      Change (numbers 64-95 and 102-119) is dropped and counted, since it's complete in itself
+      and a newer value for the same parameter will usually follow.  But nothing else is ever
+      dropped.  In particular, CCs 0-63 (which may be halves of 14-bit CCs), 96-101 and 6 and 38
+      (which make up RPN and NRPN messages, so dropping one would send the next Data Entry to the 
+      wrong parameter), channel mode messages, and sysex, which may be part of a patch dump,
+      go into an unbounded (and also lock-free) overflow queue instead.  Once the overflow
+      queue has anything in it, all new messages go into it as well (except droppable ones
+      while the buffer is still full), and the writer only returns to the buffer once the 
+      reader has emptied the overflow queue, so messages are always read in the order they arrived.
+      The buffer also keeps some statistics: the number of messages dropped and overflowed,
+      the largest depth it has reached, and the largest and most recent dispatch latency 
+      (the time between a message arriving and its being read).
+
+      @author Sean Luke
+*/
+
+public class MidiRingBuffer
+    {
+    /** The default capacity of a MidiRingBuffer. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    static class Overflow
+        {
+        MidiMessage message;
+        long time;
+        Overflow(MidiMessage message, long time) { this.message = message; this.time = time; }
+        }
+
+    final MidiMessage[] messages;
+    final long[] times;
+    final int mask;
+
+    // Written only by the writer
+    volatile long writeIndex = 0;
+    // Written only by the reader
+    volatile long readIndex = 0;
+
+    // Messages which arrived while the buffer was full, or after others which did
+    final ConcurrentLinkedQueue<Overflow> overflow = new ConcurrentLinkedQueue<Overflow>();
+    final AtomicInteger overflowSize = new AtomicInteger();
+
+    // Written only by the writer
+    volatile long dropped = 0;
+    volatile long overflowed = 0;
+    volatile int maxDepth = 0;
+    // Written only by the reader
+    volatile long lastLatency = 0;
+    volatile long maxLatency = 0;
+
+    /** Builds a buffer with at least the given capacity (it's rounded up to a power of two). */
+    public MidiRingBuffer(int capacity)
+        {
+        int size = 1;
+        while(size < capacity) size *= 2;
+        messages = new MidiMessage[size];
+        times = new long[size];
+        mask = size - 1;
+        }
+
+    public MidiRingBuffer() { this(DEFAULT_CAPACITY); }
+
+    /** Adds a message, returning false if the buffer is full and the message, a 7-bit Control Change, 
+        was dropped.  Only one thread may call this at a time. */
+    public boolean offer(MidiMessage message)
+        {
+        long time = System.nanoTime();
+        long w = writeIndex;
+        int depth = (int)(w - readIndex);
+        boolean full = (depth >= messages.length);
+        if (full && isDroppable(message))
+            {
+            dropped++;
+            return false;
+            }
+        else if (full || !overflow.isEmpty())
+            {
+            overflow.add(new Overflow(message, time));
+            overflowed++;
+            depth += overflowSize.incrementAndGet();
+            }
+        else
+            {
+            messages[(int)(w & mask)] = message;
+            times[(int)(w & mask)] = time;
+            writeIndex = w + 1;             // publishes the message to the reader
+            depth++;
+            }
+        if (depth > maxDepth) maxDepth = depth;
+        return true;
+        }
+
+    // Only complete 7-bit Control Changes may be dropped when we're full: not 0-63, which 
+    // may be halves of 14-bit CCs, nor 96-101 (and 6 and 38), which make up RPNs and NRPNs, 
+    // which Midi.Parser would misread if one went missing, nor the channel mode messages 120-127
+    static boolean isDroppable(MidiMessage message)
+        {
+        if (!(message instanceof ShortMessage)) return false;
+        ShortMessage sm = (ShortMessage)message;
+        if (sm.getCommand() != ShortMessage.CONTROL_CHANGE) return false;
+        int number = sm.getData1();
+        return ((number >= 64 && number < 96) || (number >= 102 && number < 120));
+        }
+
+    /** Removes and returns the oldest message, or null if the buffer is empty.  Only one thread may call this. */
+    public MidiMessage poll()
+        {
+        long r = readIndex;
+        if (r == writeIndex) 
+            {
+            Overflow o = overflow.peek();
+            if (o == null) return null;
+            // The writer may have refilled the ring, and then overflowed, since we 
+            // last looked: anything it put in the ring before o is visible now
+            if (r == writeIndex)
+                {
+                overflow.poll();
+                overflowSize.decrementAndGet();
+                record(System.nanoTime() - o.time);
+                return o.message;
+                }
+            }
+        int pos = (int)(r & mask);
+        MidiMessage message = messages[pos];
+        long latency = System.nanoTime() - times[pos];
+        messages[pos] = null;               // let it be GCed
+        readIndex = r + 1;                  // frees the slot for the writer
+        record(latency);
+        return message;
+        }
+
+    void record(long latency)
+        {
+        lastLatency = latency;
+        if (latency > maxLatency) maxLatency = latency;
+        }
+
+    /** Returns the time (per System.nanoTime()) at which the oldest message arrived, 
+        or Long.MAX_VALUE if the buffer is empty.  Only the reader thread may call this. */
+    public long peekTime()
+        {
+        long r = readIndex;
+        if (r != writeIndex) return times[(int)(r & mask)];
+        Overflow o = overflow.peek();
+        if (o == null) return Long.MAX_VALUE;
+        // As in poll()
+        if (r != writeIndex) return times[(int)(r & mask)];
+        return o.time;
+        }
+
+    /** Returns true if the buffer is empty. */
+    public boolean isEmpty() { return readIndex == writeIndex && overflow.isEmpty(); }
+
+    /** Returns the number of messages presently in the buffer. */
+    public int size() { return (int)(writeIndex - readIndex) + overflowSize.get(); }
+
+    /** Returns the maximum number of messages the buffer can hold before it starts overflowing. */
+    public int getCapacity() { return messages.length; }
+
+    /** Returns the number of messages dropped because the buffer was full. */
+    public long getDropped() { return dropped; }
+
+    /** Returns the number of messages which went into the overflow list. */
+    public long getOverflowed() { return overflowed; }
+
+    /** Returns the largest number of messages the buffer has held at one time. */
+    public int getMaxDepth() { return maxDepth; }
+
+    /** Returns, in ns, how long the most recently read message waited in the buffer. */
+    public long getLastLatency() { return lastLatency; }
+
+    /** Returns, in ns, the longest any message has waited in the buffer. */
+    public long getMaxLatency() { return maxLatency; }
+
+    public String toString()
+        {
+        return "MidiRingBuffer[size=" + size() + "/" + getCapacity() + ", dropped=" + getDropped() + ", overflowed=" + getOverflowed() + ", maxDepth=" + getMaxDepth() +
+            ", lastLatency=" + (getLastLatency() / 1000) + "us, maxLatency=" + (getMaxLatency() / 1000) + "us]";
+        }
+    }
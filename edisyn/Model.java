@@ -36,8 +36,28 @@ public class Model implements Cloneable
     public static final int STATUS_RESTRICTED = 3;                      // The parameter cannot be mutated and shouldn't appear in getKeys()
     public static final String ALL_KEYS = "ALL_KEYS";                   // The "key" which registers a listener with all keys
 
-    // The actual value storage.  It's a linked hash map so data iterates in a rational format that I can guess (basically the order in which it was added originally)
-    LinkedHashMap<String, Node> storage = new LinkedHashMap<String, Node>();
+    // The actual storage.  Each key is assigned a slot (in the order in which it was added originally, 
+    // so data iterates in a rational format that I can guess).  Information about the key which rarely changes 
+    // (its min, max, metric min and max, and status) is stored in the Schema, which is shared among a Model and
+    // its clones and copies, and typically among all the Models of a given Synth class (see internSchema()).
+    // Integer values are stored in an int[] indexed by slot, and the few String values in a small sparse table
+    // on the side.  Listeners are stored in an array indexed by slot.  The value arrays and listeners are 
+    // likewise shared until someone writes to them.  Thus cloning a Model is cheap, and what gets copied 
+    // later is just the arrays which actually get changed.
+    Schema schema = new Schema();
+    int size = 0;                                       // the number of slots in the schema that we're using
+    boolean schemaShared = false;                       // if true, we must copy the schema before changing it
+    int[] intValues = new int[Schema.INITIAL_CAPACITY];
+    long[] stringSlotBits = new long[1];                // bit is set if the slot holds a STRING VALUE, else it is an INTEGER VALUE
+    int[] stringSlots = new int[0];                     // the slots holding string values, sorted
+    String[] strings = new String[0];                   // the string values for those slots
+    int numStrings = 0;
+    boolean valuesShared = false;                       // if true, we must copy all the value arrays before changing them
+    ArrayList<Updatable>[] listeners = new ArrayList[Schema.INITIAL_CAPACITY];      // when a slot has no listeners, it is null to save a tiny bit o space
+    boolean listenersShared = false;                    // if true, we must copy listeners (and each ArrayList in it) before changing them
+
+    // Schemas shared by all Models built by a given Synth class
+    static HashMap<Object, Schema> internedSchemas = new HashMap<Object, Schema>();
 
     // The last key which was set
     String lastKey = null;
@@ -67,115 +87,374 @@ public class Model implements Cloneable
     // Listeners should be updated when a key is modified
     boolean updateListeners = true;
 
-    class Node
-        {
-        ArrayList<Updatable> listeners = null;          // when listeners is empty, we set it to null to save a tiny bit o space
-        String stringValue = null;                      // if stringValue == null, this is an INTEGER VALUE, else it is a STRING VALUE
-        int intValue;
-        int status = STATUS_UNSET;                                              // If STATUS_UNSET, then if we're a string, we are IMMUTABLE, else we are FREE
-        int min;
-        int max;
-        int metricMin;
-        int metricMax;
-        boolean hasMin = false;
-        boolean hasMax = false;
-        boolean hasMetricMin = false;
-        boolean hasMetricMax = false;
-        
-        String listenersToString()
-            {
-            String s = "";
-            if (listeners != null)
-                for(int i = 0; i < listeners.size(); i++)
+    static final byte HAS_MIN = 1;
+    static final byte HAS_MAX = 2;
+    static final byte HAS_METRIC_MIN = 4;
+    static final byte HAS_METRIC_MAX = 8;
+
+    /** Per-key information which typically doesn't change from patch to patch: the keys 
+        and their slots, plus their min, max, metric min, metric max, and status.  A Schema
+        is shared by a Model and its clones and copies until one of them modifies it.
+        A Model may use just the first N slots of a shared Schema. */
+    static class Schema
+        {
+        static final int INITIAL_CAPACITY = 16;
+        
+        // An open-addressed hash table from keys to slots.  Each entry packs the key's hash (high 32 bits) 
+        // and its slot + 1 (low 32 bits), or is 0 if empty; the key itself is checked against keys[slot].  
+        // This touches less memory than a HashMap<String, Integer>, with no Nodes to chase or Integers
+        // to unbox, and most lookups are by the very same (literal) String which was added, so they're 
+        // settled by the hash and ==.
+        long[] table;
+        int shift = 32 - Integer.numberOfTrailingZeros(INITIAL_CAPACITY * 2);    // table.length is 1 << (32 - shift)
+        int tableCount = 0;
+
+        String[] keys;
+        int size = 0;
+        int[] min;
+        int[] max;
+        int[] metricMin;
+        int[] metricMax;
+        int[] status;                       // If STATUS_UNSET, then if we're a string, we are IMMUTABLE, else we are FREE
+        byte[] flags;                       // HAS_MIN | HAS_MAX | HAS_METRIC_MIN | HAS_METRIC_MAX
+        
+        Schema()
+            {
+            table = new long[INITIAL_CAPACITY * 2];
+            keys = new String[INITIAL_CAPACITY];
+            min = new int[INITIAL_CAPACITY];
+            max = new int[INITIAL_CAPACITY];
+            metricMin = new int[INITIAL_CAPACITY];
+            metricMax = new int[INITIAL_CAPACITY];
+            status = new int[INITIAL_CAPACITY];
+            flags = new byte[INITIAL_CAPACITY];
+            }
+        
+        /** Copies just the first SIZE slots of the other schema. */
+        Schema(Schema other, int size)
+            {
+            keys = other.keys.clone();
+            Arrays.fill(keys, size, keys.length, null);
+            if (size == other.size)
+                {
+                table = other.table.clone();
+                shift = other.shift;
+                tableCount = other.tableCount;
+                }
+            else
+                {
+                table = new long[other.table.length];
+                shift = other.shift;
+                for(int i = 0; i < size; i++)
+                    put(keys[i], i);
+                }
+            this.size = size;
+            min = other.min.clone();
+            max = other.max.clone();
+            metricMin = other.metricMin.clone();
+            metricMax = other.metricMax.clone();
+            status = other.status.clone();
+            flags = other.flags.clone();
+            }
+        
+        /** Returns the slot for the given key, or -1 if there is none. */
+        int slot(String key)
+            {
+            if (key == null) return -1;
+            int hash = hash(key);
+            int mask = table.length - 1;
+            for(int i = hash >>> shift; ; i = (i + 1) & mask)
+                {
+                long entry = table[i];
+                if (entry == 0) return -1;
+                if ((int)(entry >>> 32) == hash)
                     {
-                    s += " " + listeners.get(i);
+                    int slot = (int)entry - 1;
+                    String k = keys[slot];
+                    if (k == key || k.equals(key)) return slot;
                     }
-            return s;
+                }
             }
-                
-        public String toString()
-            {
-            return
-                (stringValue == null ? 
-                "[val: " + intValue +
-                " min: " + (hasMin ? min : "-") +
-                " max: " + (hasMin ? max : "-") +
-                " mmin: " + (hasMetricMin ? metricMin : "-") +
-                " mmax: " + (hasMetricMax ? metricMax : "-") +
-                " stat: " + (status == STATUS_UNSET ? "UNSET" : (status == STATUS_FREE ? "FREE" : (status == STATUS_IMMUTABLE ? "IMMUT" : "RESTR"))) +
-                listenersToString() 
-                : "[val: \"" + stringValue + "\"" + listenersToString()) + "]";
-            }
-        
-        public Node() { }
-        
-        // copy constructor
-        public Node(Node node, boolean includeListeners)
-            {
-            intValue = node.intValue;
-            stringValue = node.stringValue;
-            min = node.min;
-            max = node.max;
-            metricMin = node.metricMin;
-            metricMax = node.metricMax;
-            hasMin = node.hasMin;
-            hasMax = node.hasMax;
-            hasMetricMin = node.hasMetricMin;
-            hasMetricMax = node.hasMetricMax;
-            status = node.status;
-            if (includeListeners)
+        
+        // Fibonacci hashing: the top bits of the product are well mixed even when, as with our keys 
+        // ("op1level", "op2level", ...), the hashCodes differ mostly in their low bits.  Masking the low 
+        // bits instead left long clusters and several probes per lookup.
+        static int hash(String key)
+            {
+            return key.hashCode() * 0x9E3779B9;
+            }
+        
+        // Maps the key, which must already be in keys[slot], to the slot, replacing any previous mapping
+        void put(String key, int slot)
+            {
+            if ((tableCount + 1) * 2 > table.length)            // keep the load at most 1/2
                 {
-                if (node.listeners != null) 
+                long[] old = table;
+                table = new long[old.length * 2];
+                shift--;
+                int mask = table.length - 1;
+                for(int i = 0; i < old.length; i++)
+                    if (old[i] != 0) 
+                        {
+                        int j = (int)(old[i] >>> 32) >>> shift;
+                        while(table[j] != 0) j = (j + 1) & mask;
+                        table[j] = old[i];
+                        }
+                }
+            int hash = hash(key);
+            int mask = table.length - 1;
+            int i = hash >>> shift;
+            while(table[i] != 0)
+                {
+                if ((int)(table[i] >>> 32) == hash && keys[(int)table[i] - 1].equals(key))
                     {
-                    listeners = new ArrayList<Updatable>(node.listeners);
+                    table[i] = (((long)hash) << 32) | ((slot + 1) & 0xFFFFFFFFL);
+                    return;
                     }
+                i = (i + 1) & mask;
                 }
+            table[i] = (((long)hash) << 32) | ((slot + 1) & 0xFFFFFFFFL);
+            tableCount++;
             }
+                
+        int capacity() { return keys.length; }
         
-        public boolean equals(Object obj)
+        /** Adds a new key and returns its slot. */
+        int add(String key)
             {
-            if (obj == null) return false;
-            if (!(obj instanceof Node)) return false;
-            Node other = (Node) obj;
-                                
-            // check values
-            if (!keyAndBoundsEquals(other)) return false;
-
-            // check status and listeners
-            if (other.status != status) return false;
-            int otherNum = (other.listeners == null ? 0 : other.listeners.size());
-            int num = (listeners == null ? 0 : listeners.size());
-            if (otherNum != num) return false;
-            if (listeners != null && !listeners.equals(other.listeners)) return false;
-            return true;
+            if (size == keys.length)
+                {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                min = Arrays.copyOf(min, capacity);
+                max = Arrays.copyOf(max, capacity);
+                metricMin = Arrays.copyOf(metricMin, capacity);
+                metricMax = Arrays.copyOf(metricMax, capacity);
+                status = Arrays.copyOf(status, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+                }
+            keys[size] = key;
+            put(key, size);
+            return size++;
             }
         
-        public boolean keyAndBoundsEquals(Node other)
+        boolean has(int slot, byte flag) { return (flags[slot] & flag) != 0; }
+        
+        boolean boundsEqual(int slot, Schema other, int otherSlot)
             {
-            if (!keyEquals(other)) return false;
-            if (other.hasMin != hasMin) return false;
-            if (other.hasMax != hasMax) return false;
-            if (other.hasMetricMin != hasMetricMin) return false;
-            if (other.hasMetricMax != hasMetricMax) return false;
-            if (hasMin && (other.min != min)) return false;
-            if (hasMax && (other.max != max)) return false;
-            if (hasMetricMin && (other.metricMin != metricMin)) return false;
-            if (hasMetricMax && (other.metricMax != metricMax)) return false;
+            if (flags[slot] != other.flags[otherSlot]) return false;
+            if (has(slot, HAS_MIN) && min[slot] != other.min[otherSlot]) return false;
+            if (has(slot, HAS_MAX) && max[slot] != other.max[otherSlot]) return false;
+            if (has(slot, HAS_METRIC_MIN) && metricMin[slot] != other.metricMin[otherSlot]) return false;
+            if (has(slot, HAS_METRIC_MAX) && metricMax[slot] != other.metricMax[otherSlot]) return false;
             return true;
             }
-
-        public boolean keyEquals(Node other)
+        }
+    
+    /** Starts this Model, which must be empty, off with the schema interned under the given key
+        (typically the Synth's class), if there is one.  As this Model adds the same keys
+        in the same order as the Model which interned the schema, it will share that schema
+        rather than building its own.  */
+    public void useInternedSchema(Object key)
+        {
+        if (size != 0) return;
+        Schema s;
+        synchronized(internedSchemas) { s = internedSchemas.get(key); }
+        if (s == null) return;
+        schema = s;
+        schemaShared = true;
+        if (intValues.length < s.capacity()) 
             {
-            // check for strings
-            if (other.stringValue == null && stringValue != null) return false;
-            if (other.stringValue != null && stringValue == null) return false;
-            if (stringValue != null && !stringValue.equals(other.stringValue)) return false;
-
-            // it's not a string, check int
-            if (other.intValue != intValue) return false;
-            return true;            
+            intValues = new int[s.capacity()];
+            stringSlotBits = new long[(s.capacity() + 63) / 64];
+            valuesShared = false;
+            }
+        if (listeners.length < s.capacity())
+            {
+            listeners = new ArrayList[s.capacity()];
+            listenersShared = false;
+            }
+        }
+        
+    /** Interns this Model's schema under the given key (typically the Synth's class) so that 
+        other Models can share it via useInternedSchema(), unless a schema has already been 
+        interned under that key.  This should be done once the Model has all of its keys. */
+    public void internSchema(Object key)
+        {
+        synchronized(internedSchemas)
+            {
+            if (internedSchemas.get(key) != null) return;
+            if (size != schema.size) schema = new Schema(schema, size);
+            schemaShared = true;
+            internedSchemas.put(key, schema);
+            }
+        }
+    
+    /** Returns the slot for the given key, or -1 if the key doesn't exist. */
+    int slot(String key)
+        {
+        int s = schema.slot(key);
+        return (s < size ? s : -1);
+        }
+    
+    /** Returns the slot in the other model holding the same key as the given slot in this model, or -1. */
+    int slotIn(Model other, int slot)
+        {
+        if (other.schema == schema) return (slot < other.size ? slot : -1);
+        return other.slot(schema.keys[slot]);
+        }
+    
+    /** Returns the Schema, copying it first if it's shared with another Model. */
+    Schema writableSchema()
+        {
+        if (schemaShared)
+            {
+            schema = new Schema(schema, size);
+            schemaShared = false;
+            }
+        return schema;
+        }
+    
+    /** Makes sure that the value arrays are our own and are large enough to hold every slot. */
+    void writableValues()
+        {
+        if (valuesShared || intValues.length < schema.capacity())
+            {
+            int capacity = Math.max(intValues.length, schema.capacity());
+            intValues = Arrays.copyOf(intValues, capacity);
+            stringSlotBits = Arrays.copyOf(stringSlotBits, (capacity + 63) / 64);
+            stringSlots = stringSlots.clone();
+            strings = strings.clone();
+            valuesShared = false;
+            }
+        }
+    
+    /** Makes sure that listeners, and each of its ArrayLists, are our own and are large enough to hold every slot. */
+    void writableListeners()
+        {
+        if (listenersShared || listeners.length < schema.capacity())
+            {
+            int capacity = Math.max(listeners.length, schema.capacity());
+            ArrayList<Updatable>[] l = new ArrayList[capacity];
+            for(int i = 0; i < listeners.length; i++)
+                {
+                if (listeners[i] != null)
+                    l[i] = (listenersShared ? new ArrayList<Updatable>(listeners[i]) : listeners[i]);
+                }
+            listeners = l;
+            listenersShared = false;
             }
         }
+    
+    /** Returns the slot for the given key, adding the key if it doesn't exist yet.  */
+    int addSlot(String key)
+        {
+        int slot = slot(key);
+        if (slot < 0)
+            {
+            if (size < schema.size && key.equals(schema.keys[size]))         // we're following a shared schema
+                {
+                slot = size++;
+                }
+            else
+                {
+                writableSchema().add(key);
+                slot = size++;
+                }
+            if (intValues.length < schema.capacity()) writableValues();
+            if (listeners.length < schema.capacity()) writableListeners();
+            }
+        return slot;
+        }
+    
+    // Returns the index of the slot in the string table, or a negative number if it's not there
+    int stringIndex(int slot)
+        {
+        return Arrays.binarySearch(stringSlots, 0, numStrings, slot);
+        }
+    
+    // Stores an integer value in the slot, removing any string value
+    void putInt(int slot, int value)
+        {
+        writableValues();
+        if (isStringAt(slot))
+            {
+            int index = stringIndex(slot);
+            System.arraycopy(stringSlots, index + 1, stringSlots, index, numStrings - index - 1);
+            System.arraycopy(strings, index + 1, strings, index, numStrings - index - 1);
+            numStrings--;
+            strings[numStrings] = null;
+            stringSlotBits[slot >>> 6] &= ~(1L << slot);
+            }
+        intValues[slot] = value;
+        }
+    
+    // Stores a string value in the slot
+    void putString(int slot, String value)
+        {
+        writableValues();
+        int index = stringIndex(slot);
+        if (index >= 0)
+            {
+            strings[index] = value;
+            return;
+            }
+        index = -(index + 1);
+        if (numStrings == strings.length)
+            {
+            int capacity = Math.max(4, numStrings * 2);
+            stringSlots = Arrays.copyOf(stringSlots, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+            }
+        System.arraycopy(stringSlots, index, stringSlots, index + 1, numStrings - index);
+        System.arraycopy(strings, index, strings, index + 1, numStrings - index);
+        stringSlots[index] = slot;
+        strings[index] = value;
+        numStrings++;
+        stringSlotBits[slot >>> 6] |= (1L << slot);
+        }
+    
+    boolean isStringAt(int slot)
+        {
+        return (stringSlotBits[slot >>> 6] & (1L << slot)) != 0;
+        }
+        
+    // Returns the string value in the slot, or null if it's an integer
+    String stringAt(int slot)
+        {
+        if (!isStringAt(slot)) return null;
+        return strings[stringIndex(slot)];
+        }
+    
+    String nodeToString(int slot)
+        {
+        String s = "";
+        if (listeners[slot] != null)
+            for(int i = 0; i < listeners[slot].size(); i++)
+                {
+                s += " " + listeners[slot].get(i);
+                }
+        int status = schema.status[slot];
+        return
+            (!isStringAt(slot) ? 
+            "[val: " + intValues[slot] +
+            " min: " + (schema.has(slot, HAS_MIN) ? schema.min[slot] : "-") +
+            " max: " + (schema.has(slot, HAS_MIN) ? schema.max[slot] : "-") +
+            " mmin: " + (schema.has(slot, HAS_METRIC_MIN) ? schema.metricMin[slot] : "-") +
+            " mmax: " + (schema.has(slot, HAS_METRIC_MAX) ? schema.metricMax[slot] : "-") +
+            " stat: " + (status == STATUS_UNSET ? "UNSET" : (status == STATUS_FREE ? "FREE" : (status == STATUS_IMMUTABLE ? "IMMUT" : "RESTR"))) +
+            s 
+            : "[val: \"" + stringAt(slot) + "\"" + s) + "]";
+        }
+        
+    // Returns true if the value at our slot is the same as the value at the other model's slot
+    boolean valueEquals(int slot, Model other, int otherSlot)
+        {
+        if (intValues[slot] != other.intValues[otherSlot]) return false;
+        boolean str = isStringAt(slot);
+        if (str != other.isStringAt(otherSlot)) return false;
+        return !str || stringAt(slot).equals(other.stringAt(otherSlot));
+        }
 
     /** Returns the undo listener.  This listener not really a listener: it's an Undo.
         The model is pushed onto the Undo when a value is set(...). */
@@ -202,29 +481,35 @@ public class Model implements Cloneable
     
     /** Adds a key with the given Integer value, or changes it to the given value. */        
     public void set(String key, int value)
+        {
+        set(slot(key), key, value);
+        }
+
+    // Sets the integer value of the key, whose slot is given (or -1 if it doesn't exist yet)
+    void set(int slot, String key, int value)
         {
         if (debug)
             {
             System.err.println("Debug (Model):" + key + " --> " + value );
-            if (!exists(key))
+            if (slot < 0)
                 System.err.println("Debug (Model): " + "Key " + key + " was NEW");
             }
             
         // when do we push on the undo stack?
         if (undoListener != null &&         // when we have an undo listener AND
             !key.equals(lastKey) &&         // when the key is not the lastKey AND
-                (!exists(key) ||                        // the key doesn't exist OR
-                !isInteger(key) ||                     // the value isn't an integer OR
-                value != get(key, 0)))         // the value doesn't match the current value 
+                (slot < 0 ||                        // the key doesn't exist OR
+                isStringAt(slot) ||                     // the value isn't an integer OR
+                value != intValues[slot]))         // the value doesn't match the current value 
+            {
             undoListener.push(this);
+            }
             
-        Node n = storage.get(key);
-        if (n == null) { n = new Node(); storage.put(key, n); }
-        n.stringValue = null;
-        n.intValue = value;
+        if (slot < 0) slot = addSlot(key);
+        putInt(slot, value);
         
         setLastKey(key);
-        updateListenersForKey(key);
+        updateListenersForKey(slot, key);
         }
 
     /** Adds a key with the given String value, or changes it to the given value. */        
@@ -246,9 +531,7 @@ public class Model implements Cloneable
                 !value.equals(get(key, null)))) // the value doesn't match the current value 
             undoListener.push(this);
 
-        Node n = storage.get(key);
-        if (n == null) { n = new Node(); storage.put(key, n); }
-        n.stringValue = value;
+        putString(addSlot(key), value);
 
         setLastKey(key);
         updateListenersForKey(key);
@@ -258,24 +541,33 @@ public class Model implements Cloneable
     /** Sets a value, but bounds it to be within min and max limits */
     public void setBounded(String key, int value)
         {
-        if (isString(key))
-            return;
-                
-        if (minExists(key))
+        setBounded(slot(key), key, value);
+        }
+
+    // Sets the bounded value of the key, whose slot is given (or -1 if it doesn't exist yet)
+    void setBounded(int slot, String key, int value)
+        {
+        if (slot >= 0)
             {
-            int min = getMin(key);
-            if (value < min)
-                value = min;
-            }
+            if (isStringAt(slot))
+                return;
                 
-        if (maxExists(key))
-            {
-            int max = getMax(key);
-            if (value > max)
-                value = max;
+            if (schema.has(slot, HAS_MIN))
+                {
+                int min = schema.min[slot];
+                if (value < min)
+                    value = min;
+                }
+                
+            if (schema.has(slot, HAS_MAX))
+                {
+                int max = schema.max[slot];
+                if (value > max)
+                    value = max;
+                }
             }
         
-        set(key, value);
+        set(slot, key, value);
         }
 
     /** Checks if any parameter in the model has been recently set.
@@ -308,103 +600,122 @@ public class Model implements Cloneable
         recentlySet = true;
         }
         
+    // The following bound setters don't copy a shared schema unless the bound actually changes
+
+    void setMin(int slot, int value)
+        {
+        if (schema.has(slot, HAS_MIN) && schema.min[slot] == value) return;
+        Schema s = writableSchema();
+        s.min[slot] = value;
+        s.flags[slot] |= HAS_MIN;
+        }
+
+    void setMax(int slot, int value)
+        {
+        if (schema.has(slot, HAS_MAX) && schema.max[slot] == value) return;
+        Schema s = writableSchema();
+        s.max[slot] = value;
+        s.flags[slot] |= HAS_MAX;
+        }
+
+    void setMetricMin(int slot, int value)
+        {
+        if (schema.has(slot, HAS_METRIC_MIN) && schema.metricMin[slot] == value) return;
+        Schema s = writableSchema();
+        s.metricMin[slot] = value;
+        s.flags[slot] |= HAS_METRIC_MIN;
+        }
+
+    void setMetricMax(int slot, int value)
+        {
+        if (schema.has(slot, HAS_METRIC_MAX) && schema.metricMax[slot] == value) return;
+        Schema s = writableSchema();
+        s.metricMax[slot] = value;
+        s.flags[slot] |= HAS_METRIC_MAX;
+        }
+
     /** Sets the minimum for a given key. */        
     public void setMin(String key, int value)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "min set for non-existent value " + key);  node = new Node(); storage.put(key, node); }
-        node.min = value;
-        node.hasMin = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "min set for non-existent value " + key); }
+        setMin(addSlot(key), value);
         }
 
     /** Sets the maximum for a given key. */        
     public void setMax(String key, int value)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "max set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.max = value;
-        node.hasMax = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "max set for non-existent value " + key); }
+        setMax(addSlot(key), value);
         }
         
     /** Sets the minimum and maximum for a given key. */        
     public void setMinMax(String key, int min, int max)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "min and max set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.min = min;
-        node.max = max;
-        node.hasMin = true;
-        node.hasMax = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "min and max set for non-existent value " + key); }
+        int slot = addSlot(key);
+        setMin(slot, min);
+        setMax(slot, max);
         }
        
     /** Sets the metric minimum for a given key. */        
     public void setMetricMin(String key, int value)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "metric min set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.metricMin = value;
-        node.hasMetricMin = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "metric min set for non-existent value " + key); }
+        setMetricMin(addSlot(key), value);
         }
                 
     /** Sets the metric maximum for a given key. */        
     public void setMetricMax(String key, int value)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "metric max set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.metricMax = value;
-        node.hasMetricMax = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "metric max set for non-existent value " + key); }
+        setMetricMax(addSlot(key), value);
         }
     
     /** Sets the metric minimum and maximum for a given key. */        
     public void setMetricMinMax(String key, int min, int max)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "metric min/max set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.metricMin = min;
-        node.metricMax = max;
-        node.hasMetricMin = true;
-        node.hasMetricMax = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "metric min/max set for non-existent value " + key); }
+        int slot = addSlot(key);
+        setMetricMin(slot, min);
+        setMetricMax(slot, max);
         }
 
     /** Sets the minimum and maximum and metric minimum and maximum for a given key. */        
     public void setMinMaxMetricMinMax(String key, int min, int max, int metricMin, int metricMax)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "min/max and metric min/max set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.min = min;
-        node.max = max;
-        node.metricMin = metricMin;
-        node.metricMax = metricMax;
-        node.hasMin = true;
-        node.hasMax = true;
-        node.hasMetricMin = true;
-        node.hasMetricMax = true;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "min/max and metric min/max set for non-existent value " + key); }
+        int slot = addSlot(key);
+        setMin(slot, min);
+        setMax(slot, max);
+        setMetricMin(slot, metricMin);
+        setMetricMax(slot, metricMax);
         }
             
     /** Sets the status of a key.  The default is STATUS_FREE, except for strings, which are STATUS_IMMUTABLE. */        
     public void setStatus(String key, int val)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "status set for non-existent value " + key); node = new Node(); storage.put(key, node); }
-        node.status = val;
+        if (slot(key) < 0) { System.err.println("Warning (Model): " + "status set for non-existent value " + key); }
+        int slot = addSlot(key);
+        if (schema.status[slot] != val)         // don't copy a shared schema unless we have to
+            writableSchema().status[slot] = val;
         }
  
     /** Deletes the metric min and max for a key */
     public void removeMinMax(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "min/max removed for non-existent value " + key); return; }
-        node.hasMin = false;
-        node.hasMax = false;
+        int slot = slot(key);
+        if (slot < 0) { System.err.println("Warning (Model): " + "min/max removed for non-existent value " + key); return; }
+        if (schema.has(slot, HAS_MIN) || schema.has(slot, HAS_MAX))
+            writableSchema().flags[slot] &= ~(HAS_MIN | HAS_MAX);
         }
 
     /** Deletes the metric min and max for a key */
     public void removeMetricMinMax(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "metric min/max removed for non-existent value " + key); return; }
-        node.hasMetricMin = false;
-        node.hasMetricMax = false;
+        int slot = slot(key);
+        if (slot < 0) { System.err.println("Warning (Model): " + "metric min/max removed for non-existent value " + key); return; }
+        if (schema.has(slot, HAS_METRIC_MIN) || schema.has(slot, HAS_METRIC_MAX))
+            writableSchema().flags[slot] &= ~(HAS_METRIC_MIN | HAS_METRIC_MAX);
         }
 
                
@@ -436,10 +747,10 @@ public class Model implements Cloneable
         is null, all keys are returned.  */        
     public String[] getDifferentKeys(Model other)
         {
-        String[] keyset = (String[])(storage.keySet().toArray(new String[0]));
+        String[] keyset = schema.keys;
         ArrayList revisedKeys = new ArrayList<String>();
-        for(int i = 0; i < keyset.length; i++)
-            if (getStatus(keyset[i]) != STATUS_RESTRICTED)
+        for(int i = 0; i < size; i++)
+            if (getStatus(i) != STATUS_RESTRICTED)
                 {
                 if (other == null || (!keyEquals(keyset[i], other)))
                     revisedKeys.add(keyset[i]);
@@ -464,40 +775,40 @@ public class Model implements Cloneable
         (String) key, or ifDoesntExist if there is no such value. */        
     public String get(String key, String ifDoesntExist)
         {
-        Node node = storage.get(key);
-        if (node == null)
+        int slot = slot(key);
+        if (slot < 0)
             {
             if (debug)
                 System.err.println("Debug (Model): " + "Key " + key + " does not exist");
             return ifDoesntExist;
             }
-        else if (node.stringValue == null)
+        else if (!isStringAt(slot))
             {
             if (debug)
                 System.err.println("Debug (Model): " + "Key " + key + " is an integer, not a string");
             return ifDoesntExist;
             }
-        else return node.stringValue;
+        else return stringAt(slot);
         }
 
     /** Returns the value associated with this
         (Integer) key, or ifDoesntExist if there is no such value. */        
     public int get(String key, int ifDoesntExist)
         {
-        Node node = storage.get(key);
-        if (node == null)
+        int slot = slot(key);
+        if (slot < 0)
             {
             if (debug)
                 System.err.println("Debug (Model): " + "Key " + key + " does not exist");
             return ifDoesntExist;
             }
-        else if (node.stringValue != null)
+        else if (isStringAt(slot))
             {
             if (debug)
                 System.err.println("Debug (Model): " + "Key " + key + " is a string, not an integer");
             return ifDoesntExist;
             }
-        else return node.intValue;
+        else return intValues[slot];
         }
     
     /** Returns the value associated with this (Integer) key, or -1 if there is no such value. 
@@ -509,152 +820,158 @@ public class Model implements Cloneable
               
     public Object getValue(String key) 
         {
-        Node node = storage.get(key);
-        if (node == null) return null;
-        else if (node.stringValue == null)
-            return Integer.valueOf(node.intValue);
+        int slot = slot(key);
+        if (slot < 0) return null;
+        else if (!isStringAt(slot))
+            return Integer.valueOf(intValues[slot]);
         else
-            return node.stringValue;
+            return stringAt(slot);
         }
       
     /** Returns whether the key is associated with a String. 
         If there is no key stored in the Model, then FALSE is returned. */        
     public boolean isString(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) return false;
-        else return node.stringValue != null;
+        int slot = slot(key);
+        if (slot < 0) return false;
+        else return isStringAt(slot);
         }
     
     /** Returns whether the key is associated with an integer. 
         If there is no key stored in the Model, then FALSE is returned. */        
     public boolean isInteger(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) return false;
-        else return node.stringValue == null;
+        int slot = slot(key);
+        if (slot < 0) return false;
+        else return !isStringAt(slot);
         }
 
     /** Returns whether the key is stored in the model. */        
     public boolean exists(String key)
         {
-        return storage.containsKey(key);
+        return slot(key) >= 0;
         }
                 
     /** Returns whether a minimum is stored in the model for the key. */        
     public boolean minExists(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) return false;
-        return node.hasMin;
+        int slot = slot(key);
+        if (slot < 0) return false;
+        return schema.has(slot, HAS_MIN);
         }
 
     /** Returns whether a maximum is stored in the model for the key. */        
     public boolean maxExists(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) return false;
-        return node.hasMax;
+        int slot = slot(key);
+        if (slot < 0) return false;
+        return schema.has(slot, HAS_MAX);
         }
 
     /** Returns whether a metric minimum is stored in the model for the key. */        
     public boolean metricMinExists(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) return false;
-        return node.hasMetricMin;
+        int slot = slot(key);
+        if (slot < 0) return false;
+        return schema.has(slot, HAS_METRIC_MIN);
         }
 
     /** Returns whether a metric maximum is stored in the model for the key. */        
     public boolean metricMaxExists(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) return false;
-        return node.hasMetricMax;
+        int slot = slot(key);
+        if (slot < 0) return false;
+        return schema.has(slot, HAS_METRIC_MAX);
         }
     
     /** Returns whether a given key is declared immutable.  Strings are ALWAYS immutable by default and numbers are ALWAYS free by default. */        
     public int getStatus(String key)
         {
-        Node node = storage.get(key);
-        if (node == null)
+        int slot = slot(key);
+        if (slot < 0)
             return STATUS_IMMUTABLE;
-        else if (node.status == STATUS_UNSET)
+        else return getStatus(slot);
+        }
+
+    int getStatus(int slot)
+        {
+        int status = schema.status[slot];
+        if (status == STATUS_UNSET)
             {
-            if (node.stringValue != null)
+            if (isStringAt(slot))
                 return STATUS_IMMUTABLE;
             else
                 return STATUS_FREE;
             }
-        else return node.status;
+        else return status;
         }
                 
     /** Returns whether there is a minimum for a given key. */
     public boolean hasMin(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for min for " + key)); return false; }
-        else return d.hasMin;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for min for " + key)); return false; }
+        else return schema.has(slot, HAS_MIN);
         }
                 
     /** Returns whether there is a maximum for a given key. */
     public boolean hasMax(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for max for " + key)); return false; }
-        else return d.hasMax;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for max for " + key)); return false; }
+        else return schema.has(slot, HAS_MAX);
         }
 
     /** Returns the minimum for a given key, or 0 if no minimum is declared. */        
     public int getMin(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for min for " + key)); return 0; }
-        if (!d.hasMin) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent min extracted for " + key)); return 0; }
-        else return d.min;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for min for " + key)); return 0; }
+        if (!schema.has(slot, HAS_MIN)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent min extracted for " + key)); return 0; }
+        else return schema.min[slot];
         }
                 
     /** Returns the maximum for a given key, or 0 if no maximum is declared. */        
     public int getMax(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for max for " + key)); return 0; }
-        if (!d.hasMax) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent max extracted for " + key)); return 0; }
-        else return d.max;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for max for " + key)); return 0; }
+        if (!schema.has(slot, HAS_MAX)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent max extracted for " + key)); return 0; }
+        else return schema.max[slot];
         }
 
     /** Returns whether there is a metric minimum for a given key. */
     public boolean hasMetricMin(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric min for " + key)); return false; }
-        else return d.hasMetricMin;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric min for " + key)); return false; }
+        else return schema.has(slot, HAS_METRIC_MIN);
         }
                 
     /** Returns whether there is a metric maximum for a given key. */
     public boolean hasMetricMax(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric max for " + key)); return false; }
-        else return d.hasMetricMax;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric max for " + key)); return false; }
+        else return schema.has(slot, HAS_METRIC_MAX);
         }
 
     /** Returns the metric minimum for a given key, or 0 if no minimum is declared. */        
     public int getMetricMin(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric min for " + key)); return 0; }
-        if (!d.hasMetricMin) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent metric min extracted for " + key)); return 0; }
-        else return d.metricMin;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric min for " + key)); return 0; }
+        if (!schema.has(slot, HAS_METRIC_MIN)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent metric min extracted for " + key)); return 0; }
+        else return schema.metricMin[slot];
         }
                 
     /** Returns the metric maximum for a given key, or 0 if no maximum is declared. */        
     public int getMetricMax(String key)
         {
-        Node d = storage.get(key);
-        if (d == null) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric max for " + key)); return 0; }
-        if (!d.hasMetricMax) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent metric max extracted for " + key)); return 0; }
-        else return d.metricMax;
+        int slot = slot(key);
+        if (slot < 0) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent node extracted for metric max for " + key)); return 0; }
+        if (!schema.has(slot, HAS_METRIC_MAX)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent metric max extracted for " + key)); return 0; }
+        else return schema.metricMax[slot];
         }
     
     /** Returns getMax(key) - getMin(key) + 1 */
@@ -667,6 +984,124 @@ public class Model implements Cloneable
         else return 0;
         }
 
+
+
+    //// SLOTS
+    
+    /// Every key in a Model has a SLOT, a dense integer from 0 to getNumSlots() - 1, assigned in the order
+    /// in which the keys were added.  Slots let loops over many keys (mutation, morphing, emitting) avoid 
+    /// hashing the key on every access.  Models built by the same Synth class will ordinarily have the 
+    /// same slots, but don't count on it: look up the slot in the Model you're using.
+
+    /** Returns the slot of the given key, or -1 if the key doesn't exist. */
+    public int getSlot(String key)
+        {
+        return slot(key);
+        }
+        
+    /** Returns the number of slots, that is, the number of keys in the model, including hidden ones. */
+    public int getNumSlots()
+        {
+        return size;
+        }
+        
+    /** Returns the key for the given slot. */
+    public String getSlotKey(int slot)
+        {
+        return schema.keys[slot];
+        }
+        
+    /** Returns true if the given slot holds a String rather than an integer. */
+    public boolean isSlotString(int slot)
+        {
+        return isStringAt(slot);
+        }
+
+    /** Returns the integer value of the given slot, or 0 if it holds a String. */
+    public int getSlotValue(int slot)
+        {
+        return intAt(slot, 0);
+        }
+        
+    /** Returns the String value of the given slot, or null if it holds an integer. */
+    public String getSlotString(int slot)
+        {
+        return stringAt(slot);
+        }
+        
+    /** Sets the integer value of the given slot, exactly as set(getSlotKey(slot), value) would. */
+    public void setSlotValue(int slot, int value)
+        {
+        set(slot, schema.keys[slot], value);
+        }
+
+    /** Returns the status of the given slot, as getStatus(getSlotKey(slot)) would. */
+    public int getSlotStatus(int slot)
+        {
+        return getStatus(slot);
+        }
+        
+    /** Returns true if the given slot has a min. */
+    public boolean slotHasMin(int slot) { return schema.has(slot, HAS_MIN); }
+
+    /** Returns true if the given slot has a max. */
+    public boolean slotHasMax(int slot) { return schema.has(slot, HAS_MAX); }
+
+    /** Returns true if the given slot has a metric min. */
+    public boolean slotHasMetricMin(int slot) { return schema.has(slot, HAS_METRIC_MIN); }
+
+    /** Returns true if the given slot has a metric max. */
+    public boolean slotHasMetricMax(int slot) { return schema.has(slot, HAS_METRIC_MAX); }
+
+    /** Returns the min of the given slot, or 0 (and a warning) if it has none. */
+    public int getSlotMin(int slot) { return minAt(slot); }
+
+    /** Returns the max of the given slot, or 0 (and a warning) if it has none. */
+    public int getSlotMax(int slot) { return maxAt(slot); }
+
+    /** Returns the metric min of the given slot, or 0 (and a warning) if it has none. */
+    public int getSlotMetricMin(int slot) { return metricMinAt(slot); }
+
+    /** Returns the metric max of the given slot, or 0 (and a warning) if it has none. */
+    public int getSlotMetricMax(int slot) { return metricMaxAt(slot); }
+
+    // Returns the integer value at the slot, or ifDoesntExist if the slot is -1 or holds a string
+    int intAt(int slot, int ifDoesntExist)
+        {
+        if (slot < 0 || isStringAt(slot)) return ifDoesntExist;
+        return intValues[slot];
+        }
+        
+    // Returns the other model's integer value for the key at our slot, or ifDoesntExist
+    int intIn(Model other, int slot, int ifDoesntExist)
+        {
+        return other.intAt(slotIn(other, slot), ifDoesntExist);
+        }
+        
+    int minAt(int slot)
+        {
+        if (!schema.has(slot, HAS_MIN)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent min extracted for " + schema.keys[slot])); return 0; }
+        return schema.min[slot];
+        }
+
+    int maxAt(int slot)
+        {
+        if (!schema.has(slot, HAS_MAX)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent max extracted for " + schema.keys[slot])); return 0; }
+        return schema.max[slot];
+        }
+
+    int metricMinAt(int slot)
+        {
+        if (!schema.has(slot, HAS_METRIC_MIN)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent metric min extracted for " + schema.keys[slot])); return 0; }
+        return schema.metricMin[slot];
+        }
+
+    int metricMaxAt(int slot)
+        {
+        if (!schema.has(slot, HAS_METRIC_MAX)) { Synth.handleException(new Throwable("Warning (Model): " + "Nonexistent metric max extracted for " + schema.keys[slot])); return 0; }
+        return schema.metricMax[slot];
+        }
+
  
  
         
@@ -686,13 +1121,10 @@ public class Model implements Cloneable
             // do nothing, never happens
             }
         
-        // reload keys
-        m.storage = new LinkedHashMap<String, Node>();
-        String[] keyset = (String[])(storage.keySet().toArray(new String[0]));
-        for(int i = 0; i < keyset.length; i++)
-            {
-            m.storage.put(keyset[i], new Node(storage.get(keyset[i]), true));
-            }
+        // share everything until someone writes to it
+        schemaShared = m.schemaShared = true;
+        valuesShared = m.valuesShared = true;
+        listenersShared = m.listenersShared = true;
                         
         m.allKeysListeners = new ArrayList<Updatable>(allKeysListeners);                // make a proper duplicate
         return m;
@@ -712,13 +1144,11 @@ public class Model implements Cloneable
             // do nothing, never happens
             }
 
-        // reload keys
-        m.storage = new LinkedHashMap<String, Node>();
-        String[] keyset = (String[])(storage.keySet().toArray(new String[0]));
-        for(int i = 0; i < keyset.length; i++)
-            {
-            m.storage.put(keyset[i], new Node(storage.get(keyset[i]), false));              // no listeners
-            }
+        // share the schema and values until someone writes to them
+        schemaShared = m.schemaShared = true;
+        valuesShared = m.valuesShared = true;
+        m.listeners = new ArrayList[schema.capacity()];             // no listeners
+        m.listenersShared = false;
 
         // clear                
         m.undoListener = null;
@@ -738,11 +1168,118 @@ public class Model implements Cloneable
         return m;
         }
     
+    /** The difference between two Models which share a schema and listeners: the values of
+        the slots in which they differ, plus the Model's other small bits of state. */
+    static class Delta
+        {
+        int[] slots;
+        int[] values;
+        String[] strings;           // the string values, or null for integer values
+        boolean[] isString;
+        String lastKey;
+        boolean recentlySet;
+        boolean updateListeners;
+        ArrayList<Updatable> allKeysListeners;
+        Undo undoListener;
+        double[] latentVector;
+        Synth fixer;
+        }
+
+    /** Returns a Delta which will rebuild this Model from the given (typically later) Model via
+        applyDelta(...), or null if the two Models don't have the same schema and listeners.
+        Neither Model may be modified afterwards if the Delta is to be applied. */
+    Delta deltaFrom(Model newer)
+        {
+        if (newer.schema != schema || newer.size != size) return null;
+        if (newer.listeners != listeners)
+            {
+            for(int i = 0; i < size; i++)
+                {
+                if (listeners[i] == newer.listeners[i]) continue;
+                int num = (listeners[i] == null ? 0 : listeners[i].size());
+                int otherNum = (newer.listeners[i] == null ? 0 : newer.listeners[i].size());
+                if (num != otherNum) return null;
+                if (num != 0 && !listeners[i].equals(newer.listeners[i])) return null;
+                }
+            }
+
+        int count = 0;
+        if (newer.intValues != intValues)
+            {
+            for(int i = 0; i < size; i++)
+                if (!valueEquals(i, newer, i)) count++;
+            }
+
+        Delta delta = new Delta();
+        delta.slots = new int[count];
+        delta.values = new int[count];
+        delta.strings = new String[count];
+        delta.isString = new boolean[count];
+        for(int i = 0, j = 0; j < count; i++)
+            {
+            if (valueEquals(i, newer, i)) continue;
+            delta.slots[j] = i;
+            delta.values[j] = intValues[i];
+            delta.strings[j] = stringAt(i);
+            delta.isString[j] = isStringAt(i);
+            j++;
+            }
+        delta.lastKey = lastKey;
+        delta.recentlySet = recentlySet;
+        delta.updateListeners = updateListeners;
+        delta.allKeysListeners = allKeysListeners;
+        delta.undoListener = undoListener;
+        delta.latentVector = latentVector;
+        delta.fixer = fixer;
+        return delta;
+        }
+
+    /** Returns a clone of this Model with the given Delta (from deltaFrom(this)) applied,
+        that is, the Model which the Delta was made from. */
+    Model applyDelta(Delta delta)
+        {
+        Model m = (Model)clone();
+        for(int i = 0; i < delta.slots.length; i++)
+            {
+            m.putInt(delta.slots[i], delta.values[i]);
+            if (delta.isString[i])
+                m.putString(delta.slots[i], delta.strings[i]);
+            }
+        m.lastKey = delta.lastKey;
+        m.recentlySet = delta.recentlySet;
+        m.updateListeners = delta.updateListeners;
+        m.allKeysListeners = delta.allKeysListeners;
+        m.undoListener = delta.undoListener;
+        m.latentVector = delta.latentVector;
+        m.fixer = delta.fixer;
+        return m;
+        }
+
+    /** Returns a rough estimate of the number of bytes held by the Model's values. */
+    long estimateBytes()
+        {
+        long bytes = 64 + 4L * size + 16L * numStrings;
+        for(int i = 0; i < numStrings; i++)
+            if (strings[i] != null)
+                bytes += 2L * strings[i].length();
+        return bytes;
+        }
+
+    /** Returns a rough estimate of the number of bytes held by a Delta. */
+    static long estimateBytes(Delta delta)
+        {
+        long bytes = 64 + 13L * delta.slots.length;
+        for(int i = 0; i < delta.strings.length; i++)
+            if (delta.strings[i] != null)
+                bytes += 16 + 2L * delta.strings[i].length();
+        return bytes;
+        }
+
     /** Copies all values to the given model.  This assumes that the models are the same; only values are transferred.
         lastKey is reset in the model, and the listeners are updated.  */
     public void copyValuesTo(Model model)
         {
-        copyValuesTo(model, (String[])(storage.keySet().toArray(new String[0])));
+        copyValuesTo(model, Arrays.copyOf(schema.keys, size));
         }
 
 
@@ -750,7 +1287,7 @@ public class Model implements Cloneable
         lastKey is reset in the model, and the listeners are updated.  */
     public void copyValuesToExcept(Model model, String[] keys)
         {
-        HashSet<String> allKeys = new HashSet(storage.keySet());
+        HashSet<String> allKeys = new HashSet(Arrays.asList(schema.keys).subList(0, size));
         for(int i = 0; i < keys.length; i++)
             {
             allKeys.remove(keys[i]);
@@ -791,8 +1328,21 @@ public class Model implements Cloneable
         if (other == null || !(other instanceof Model))
             return false;
         Model model = (Model) other;
-        if (!storage.equals(model.storage))
+        if (size != model.size)
             return false;
+        for(int i = 0; i < size; i++)
+            {
+            int slot = slotIn(model, i);
+            if (slot < 0) return false;
+            if (!valueEquals(i, model, slot)) return false;
+            if (!schema.boundsEqual(i, model.schema, slot)) return false;
+            // check status and listeners
+            if (schema.status[i] != model.schema.status[slot]) return false;
+            int num = (listeners[i] == null ? 0 : listeners[i].size());
+            int otherNum = (model.listeners[slot] == null ? 0 : model.listeners[slot].size());
+            if (otherNum != num) return false;
+            if (listeners[i] != null && !listeners[i].equals(model.listeners[slot])) return false;
+            }
         // don't care about lastKey
         return true;
         }
@@ -801,19 +1351,19 @@ public class Model implements Cloneable
         {
         if (other == null)
             return false;
-        if (!storage.keySet().equals(other.storage.keySet()))
+        if (size != other.size)
             return false;
+        for(int i = 0; i < size; i++)
+            if (slotIn(other, i) < 0)
+                return false;
                 
-        String[] keys = getKeys();
-        for(int i = 0; i < keys.length; i++)
+        for(int i = 0; i < size; i++)
             {
+            if (getStatus(i) == STATUS_RESTRICTED) continue;
+            String key = schema.keys[i];
             if (exceptBankAndNumber &&
-                (keys[i].equals("bank") | keys[i].equals("number"))) continue;
-            Node n = storage.get(keys[i]);
-            Node n2 = other.storage.get(keys[i]);
-            if (n2 == null)         // I can't be null, just the other one
-                return false;
-            if (!storage.get(keys[i]).keyEquals(other.storage.get(keys[i])))
+                (key.equals("bank") | key.equals("number"))) continue;
+            if (!valueEquals(i, other, slotIn(other, i)))
                 return false;
             }
         return true;
@@ -850,12 +1400,8 @@ public class Model implements Cloneable
     /** Removes all listeners from the model, including the undoListener. */
     public void clearListeners()
         {
-        String[] keyset = (String[])(storage.keySet().toArray(new String[0]));
-        for(int i = 0; i < keyset.length; i++)
-            {
-            Node node = storage.get(keyset[i]);
-            node.listeners = null;
-            }
+        listeners = new ArrayList[schema.capacity()];
+        listenersShared = false;
         undoListener = null;
         }
 
@@ -870,11 +1416,12 @@ public class Model implements Cloneable
             }
         else
             {
-            Node node = storage.get(key);
-            if (node == null) { /* System.err.println("Warning (Model): " + "Listener registered for key without value " + key); */ node = new Node(); storage.put(key, node); }
-            if (node.listeners == null)
-                node.listeners = new ArrayList<Updatable>();
-            node.listeners.add(component);
+            int slot = addSlot(key);
+            /* if it didn't exist: System.err.println("Warning (Model): " + "Listener registered for key without value " + key); */
+            writableListeners();
+            if (listeners[slot] == null)
+                listeners[slot] = new ArrayList<Updatable>();
+            listeners[slot].add(component);
             }
         }
     
@@ -887,38 +1434,46 @@ public class Model implements Cloneable
             }
         else
             {
-            Node node = storage.get(key);
-            if (node == null) { System.err.println("Warning (Model): " + "Listener unregistered for key without value " + key);  return; }
-            if (node.listeners == null) { System.err.println("Warning (Model): " + "Listener unregistered for key but it wasn't registered " + key);  return; }
-            if (!node.listeners.remove(component)) { System.err.println("Warning (Model): " + "Listener unregistered for key but it wasn't registered " + key);  return; }
-            if (node.listeners.isEmpty())
-                node.listeners = null;          // let GC
+            int slot = slot(key);
+            if (slot < 0) { System.err.println("Warning (Model): " + "Listener unregistered for key without value " + key);  return; }
+            if (listeners[slot] == null) { System.err.println("Warning (Model): " + "Listener unregistered for key but it wasn't registered " + key);  return; }
+            writableListeners();
+            if (!listeners[slot].remove(component)) { System.err.println("Warning (Model): " + "Listener unregistered for key but it wasn't registered " + key);  return; }
+            if (listeners[slot].isEmpty())
+                listeners[slot] = null;          // let GC
             }
         }
 
     /** Returns all listeners for the key, but not for ALL_KEYS. */
     public ArrayList getListeners(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) { System.err.println("Warning (Model): " + "Listeners requested for key without value " + key);  return null; }
-        if (node.listeners == null)
-            node.listeners = new ArrayList<Updatable>();
-        return node.listeners;
+        int slot = slot(key);
+        if (slot < 0) { System.err.println("Warning (Model): " + "Listeners requested for key without value " + key);  return null; }
+        writableListeners();            // the caller may modify the list
+        if (listeners[slot] == null)
+            listeners[slot] = new ArrayList<Updatable>();
+        return listeners[slot];
         }
         
     /** Updates all listeners for the key, and for ALL_KEYS, unless updateListeners is true */
     public void updateListenersForKey(String key)
+        {
+        updateListenersForKey(slot(key), key);
+        }
+
+    // Updates the listeners for the key, whose slot is given (or -1 if it doesn't exist)
+    void updateListenersForKey(int slot, String key)
         {
         if (fixer != null) 
             fixer.fix(key, this);
                 
         if (!updateListeners) return;
         
-        Node node = storage.get(key);
-        if (node != null && node.listeners != null)
+        ArrayList<Updatable> l = (slot < 0 ? null : listeners[slot]);
+        if (l != null)
             {
-            for(int i = 0; i < node.listeners.size(); i++)
-                node.listeners.get(i).update(key, this);
+            for(int i = 0; i < l.size(); i++)
+                l.get(i).update(key, this);
             }
                         
         for(int i = 0; i < allKeysListeners.size(); i++)
@@ -932,7 +1487,7 @@ public class Model implements Cloneable
         {
         if (fixer != null)
             {
-            String[] keyset = (String[])(storage.keySet().toArray(new String[0]));
+            String[] keyset = Arrays.copyOf(schema.keys, size);
             for(int j = 0; j < keyset.length; j++)
                 {
                 fixer.fix(keyset[j], this);
@@ -941,7 +1496,7 @@ public class Model implements Cloneable
 
         if (!updateListeners) return;
         
-        String[] keyset = (String[])(storage.keySet().toArray(new String[0]));
+        String[] keyset = Arrays.copyOf(schema.keys, size);
         for(int j = 0; j < keyset.length; j++)
             {
             updateListenersForKey(keyset[j]);
@@ -1078,26 +1633,27 @@ public class Model implements Cloneable
                 
         for(int i = 0; i < keys.length; i++)
             {
-            if (!exists(keys[i])) { continue; }
+            int slot = slot(keys[i]);
+            if (slot < 0) { continue; }
             // continue if the key is immutable, it's a string, or we fail the coin toss
-            if (getStatus(keys[i]) == STATUS_IMMUTABLE || getStatus(keys[i]) == STATUS_RESTRICTED || isString(keys[i])) continue;
-            if (minExists(keys[i]) && maxExists(keys[i]) && getMin(keys[i]) >= getMax(keys[i]))  continue;  // no range
+            if (getStatus(slot) == STATUS_IMMUTABLE || getStatus(slot) == STATUS_RESTRICTED || isStringAt(slot)) continue;
+            if (schema.has(slot, HAS_MIN) && schema.has(slot, HAS_MAX) && minAt(slot) >= maxAt(slot))  continue;  // no range
 
             boolean hasMetric = false;                              // do we even HAVE a metric range?
             boolean doMetric = false;                               // are we in that range, and should mutate within it?
             boolean pickRandomInMetric = false;                     // are we NOT in that range, but should maybe go to a random value in it?
                         
-            if (metricMinExists(keys[i]) &&
-                metricMaxExists(keys[i]))
+            if (schema.has(slot, HAS_METRIC_MIN) &&
+                schema.has(slot, HAS_METRIC_MAX))
                 {
                 hasMetric = true;
-                if (getMetricMax(keys[i]) == getMax(keys[i]) &&
-                    getMetricMin(keys[i]) == getMin(keys[i])) // has no non-metric
+                if (metricMaxAt(slot) == maxAt(slot) &&
+                    metricMinAt(slot) == minAt(slot)) // has no non-metric
                     {
                     doMetric = true;
                     }
-                else if (get(keys[i], 0) >= getMetricMin(keys[i]) &&
-                    get(keys[i], 0) <= getMetricMax(keys[i]))               // we're within metric range
+                else if (intAt(slot, 0) >= metricMinAt(slot) &&
+                    intAt(slot, 0) <= metricMaxAt(slot))               // we're within metric range
                     {
                     if (coinToss(random, 0.5))
                         doMetric = true;                                // we will stay in the metric range and mutate within it (versus jump out)
@@ -1117,22 +1673,22 @@ public class Model implements Cloneable
                 
             if (doMetric)  // definitely do a metric mutation
                 {
-                int a = getMetricMin(keys[i]);
-                int b = getMetricMax(keys[i]);
+                int a = metricMinAt(slot);
+                int b = metricMaxAt(slot);
                 double mutWeight = weight;
                 double mutProb = mutWeight;
                 if (random.nextDouble() < mutProb)
                     {
-                    set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0),
-                            randomValueWithin(random, getMetricMin(keys[i]), getMetricMax(keys[i]), get(keys[i], 0), mutWeight)));
+                    set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0),
+                            randomValueWithin(random, metricMinAt(slot), metricMaxAt(slot), intAt(slot, 0), mutWeight)));
                     }
                 }
             else if (pickRandomInMetric)                    // MAYBE jump into metric
                 {
                 if (coinToss(random, weight))
                     {
-                    set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), 
-                            randomValueWithin(random, getMetricMin(keys[i]), getMetricMax(keys[i]))));
+                    set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), 
+                            randomValueWithin(random, metricMinAt(slot), metricMaxAt(slot))));
                     }
                 }
             else if (hasMetric)  // MAYBE choose a random new non-metric location
@@ -1141,16 +1697,16 @@ public class Model implements Cloneable
                     {
                     for(int x = 0; x < VALID_RETRIES; i++)
                         {
-                        int lowerRange = getMetricMin(keys[i]) - getMin(keys[i]);
+                        int lowerRange = metricMinAt(slot) - minAt(slot);
                         if (lowerRange < 0) System.err.println("WARNING (Model.mutate): metric min is below min.  That can't be right:  " + keys[i]); 
-                        int upperRange = getMax(keys[i]) - getMetricMax(keys[i]);
+                        int upperRange = maxAt(slot) - metricMaxAt(slot);
                         if (upperRange < 0) System.err.println("WARNING (Model.mutate): metric max is above max.  That can't be right:  " + keys[i]); 
                         int delta = random.nextInt(lowerRange + upperRange);
                         if (delta < lowerRange)
                             {
                             //if (isValid(keys[i], getMin(keys[i]) + delta))
                             //    {
-                            set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), getMin(keys[i]) + delta));
+                            set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), minAt(slot) + delta));
                             break;
                             //    }
                             }
@@ -1158,7 +1714,7 @@ public class Model implements Cloneable
                             {
                             //if (isValid(keys[i], getMetricMax(keys[i]) + 1 + (delta - lowerRange)))
                             //    {
-                            set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), getMetricMax(keys[i]) + 1 + (delta - lowerRange)));
+                            set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), metricMaxAt(slot) + 1 + (delta - lowerRange)));
                             break;
                             //    }
                             }
@@ -1169,8 +1725,8 @@ public class Model implements Cloneable
                 {
                 if (coinToss(random, weight))
                     {
-                    set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), 
-                            randomValueWithin(random, getMin(keys[i]), getMax(keys[i]))));
+                    set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), 
+                            randomValueWithin(random, minAt(slot), maxAt(slot))));
                     }
                 }
                 
@@ -1218,34 +1774,36 @@ public class Model implements Cloneable
                 
         for(int i = 0; i < keys.length; i++)
             {
+            int slot = slot(keys[i]);
             // return if the key doesn't exist, is immutable or is a string, or is non-metric for someone
-            if (model != null && !model.exists(keys[i])) { continue; }
-            if (getStatus(keys[i]) == STATUS_IMMUTABLE || getStatus(keys[i]) == STATUS_RESTRICTED || isString(keys[i])) continue;
-            if (minExists(keys[i]) && maxExists(keys[i]) && getMin(keys[i]) >= getMax(keys[i]))  continue;  // no range
+            if (slot < 0) continue;         // getStatus() would say it's immutable anyway
+            if (model != null && slotIn(model, slot) < 0) { continue; }
+            if (getStatus(slot) == STATUS_IMMUTABLE || getStatus(slot) == STATUS_RESTRICTED || isStringAt(slot)) continue;
+            if (schema.has(slot, HAS_MIN) && schema.has(slot, HAS_MAX) && minAt(slot) >= maxAt(slot))  continue;  // no range
 
-            if (model == null || (get(keys[i], 0) == model.get(keys[i]) && fleeIfSame))
+            if (model == null || (intAt(slot, 0) == intIn(model, slot, -1) && fleeIfSame))
                 {
                 // need to flee.  First: are we metric?
-                if (metricMinExists(keys[i]) &&
-                    metricMaxExists(keys[i]) &&
-                    get(keys[i], 0) >= getMetricMin(keys[i]) &&
-                    get(keys[i], 0) <= getMetricMax(keys[i]))
+                if (schema.has(slot, HAS_METRIC_MIN) &&
+                    schema.has(slot, HAS_METRIC_MAX) &&
+                    intAt(slot, 0) >= metricMinAt(slot) &&
+                    intAt(slot, 0) <= metricMaxAt(slot))
                     {
                     // since we're the same, the best we can do here is do a LITTLE
                     // mutation (mutating by 1) while staying metric, so that NEXT
                     // time if we continue to flee, we'll keep on fleeing in that
                     // direction
-                    if (getMetricMin(keys[i]) == getMetricMax(keys[i])) // uh oh
+                    if (metricMinAt(slot) == metricMaxAt(slot)) // uh oh
                         { } // don't set anything
-                    else if (get(keys[i], 0) == getMetricMax(keys[i]))
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), 
-                                get(keys[i], 0) - 1));
-                    else if (get(keys[i], 0) == getMetricMin(keys[i]))
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), 
-                                get(keys[i], 0) + 1));
+                    else if (intAt(slot, 0) == metricMaxAt(slot))
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), 
+                                intAt(slot, 0) - 1));
+                    else if (intAt(slot, 0) == metricMinAt(slot))
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), 
+                                intAt(slot, 0) + 1));
                     else
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), 
-                                get(keys[i], 0) + (random.nextBoolean() ? 1 : -1)));
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), 
+                                intAt(slot, 0) + (random.nextBoolean() ? 1 : -1)));
                     }
                 else
                     {
@@ -1254,25 +1812,25 @@ public class Model implements Cloneable
                         int val = 0;
                         for(int j = 0; j < 10; j++)  // we'll try ten times to find something new
                             {
-                            val = randomValueWithin(random, getMin(keys[i]), getMax(keys[i]));
-                            if (val != get(keys[i], 0)) // we want to be different
+                            val = randomValueWithin(random, minAt(slot), maxAt(slot));
+                            if (val != intAt(slot, 0)) // we want to be different
                                 break;
                             }
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), val));
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), val));
                         }
                     }
                 }
-            else if (metricMinExists(keys[i]) &&
-                metricMaxExists(keys[i]) &&
-                get(keys[i], 0) >= getMetricMin(keys[i]) &&
-                get(keys[i], 0) <= getMetricMax(keys[i]) &&
-                model.get(keys[i], 0) >= getMetricMin(keys[i]) &&
-                model.get(keys[i], 0) <= getMetricMax(keys[i]))
+            else if (schema.has(slot, HAS_METRIC_MIN) &&
+                schema.has(slot, HAS_METRIC_MAX) &&
+                intAt(slot, 0) >= metricMinAt(slot) &&
+                intAt(slot, 0) <= metricMaxAt(slot) &&
+                intIn(model, slot, 0) >= metricMinAt(slot) &&
+                intIn(model, slot, 0) <= metricMaxAt(slot))
                 {
                 // different but both metric.  
 
-                int a = get(keys[i], 0);
-                int b = model.get(keys[i], a);
+                int a = intAt(slot, 0);
+                int b = intIn(model, slot, a);
                     
                 // determine range
                 double qq = a + weight * (a - b);
@@ -1285,12 +1843,12 @@ public class Model implements Cloneable
                     q = (int)Math.ceil(qq);
 
                 // bound
-                if (metricMinExists(keys[i]) && q < getMetricMin(keys[i]))
-                    q = getMetricMin(keys[i]);
-                if (metricMaxExists(keys[i]) && q > getMetricMax(keys[i]))
-                    q = getMetricMax(keys[i]);
+                if (schema.has(slot, HAS_METRIC_MIN) && q < metricMinAt(slot))
+                    q = metricMinAt(slot);
+                if (schema.has(slot, HAS_METRIC_MAX) && q > metricMaxAt(slot))
+                    q = metricMaxAt(slot);
 
-                set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), randomValueWithin(random, a, q)));
+                set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), randomValueWithin(random, a, q)));
                 }
             else
                 {
@@ -1368,21 +1926,23 @@ public class Model implements Cloneable
                 
         for(int i = 0; i < keys.length; i++)
             {
+            int slot = slot(keys[i]);
             // skip if the key doesn't exist, is immutable, is restricted, or is a string
-            if (!model.exists(keys[i])) { continue; }
-            if (getStatus(keys[i]) == STATUS_IMMUTABLE || isString(keys[i]) || getStatus(keys[i]) == STATUS_RESTRICTED) continue;
-            if (minExists(keys[i]) && maxExists(keys[i]) && getMin(keys[i]) >= getMax(keys[i]))  continue;  // no range
+            if (slot < 0) continue;         // getStatus() would say it's immutable anyway
+            if (slotIn(model, slot) < 0) { continue; }
+            if (getStatus(slot) == STATUS_IMMUTABLE || isStringAt(slot) || getStatus(slot) == STATUS_RESTRICTED) continue;
+            if (schema.has(slot, HAS_MIN) && schema.has(slot, HAS_MAX) && minAt(slot) >= maxAt(slot))  continue;  // no range
 
             // we cross over metrically if we're both within the metric range
-            if (metricMinExists(keys[i]) &&
-                metricMaxExists(keys[i]) &&
-                get(keys[i], 0) >= getMetricMin(keys[i]) &&
-                get(keys[i], 0) <= getMetricMax(keys[i]) &&
-                model.get(keys[i], 0) >= getMetricMin(keys[i]) &&
-                model.get(keys[i], 0) <= getMetricMax(keys[i])) 
+            if (schema.has(slot, HAS_METRIC_MIN) &&
+                schema.has(slot, HAS_METRIC_MAX) &&
+                intAt(slot, 0) >= metricMinAt(slot) &&
+                intAt(slot, 0) <= metricMaxAt(slot) &&
+                intIn(model, slot, 0) >= metricMinAt(slot) &&
+                intIn(model, slot, 0) <= metricMaxAt(slot)) 
                 {
-                int a = get(keys[i], 0);
-                int b = model.get(keys[i], a);
+                int a = intAt(slot, 0);
+                int b = intIn(model, slot, a);
                 double qq = a - weight * (a - b);
                 
                 int q = 0;
@@ -1393,12 +1953,12 @@ public class Model implements Cloneable
                 else
                     q = (int)Math.floor(qq);
 
-                set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), randomValueWithin(random, a, q)));
+                set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), randomValueWithin(random, a, q)));
                 }
             else if (coinToss(random, weight))
                 {
                 if (coinToss(random, 0.5))
-                    set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), model.get(keys[i], 0)));
+                    set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(model, slot, 0)));
                 }
  
             if (fixer != null)
@@ -1436,14 +1996,16 @@ public class Model implements Cloneable
                 
         for(int i = 0; i < keys.length; i++)
             {
+            int slot = slot(keys[i]);
             // skip if the key doesn't exist, is immutable, is restricted, or is a string
-            if (!model.exists(keys[i])) { continue; }
-            if (getStatus(keys[i]) == STATUS_IMMUTABLE || isString(keys[i]) || getStatus(keys[i]) == STATUS_RESTRICTED) continue;
+            if (slot < 0) continue;         // getStatus() would say it's immutable anyway
+            if (slotIn(model, slot) < 0) { continue; }
+            if (getStatus(slot) == STATUS_IMMUTABLE || isStringAt(slot) || getStatus(slot) == STATUS_RESTRICTED) continue;
             
             if (coinToss(random, weight))
                 {
                 if (!postCoinToss || coinToss(random, 0.5))
-                    set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), model.get(keys[i], 0)));
+                    set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(model, slot, 0)));
                 }
                 
             if (fixer != null)
@@ -1626,16 +2188,18 @@ public class Model implements Cloneable
 
         keys_label : for(int i = 0; i < keys.length; i++)
             {
+            int slot = slot(keys[i]);
             // skip if the key doesn't exist, is immutable, is restricted, or is a string
-            if (!models[0].exists(keys[i])) { continue; }
-            if (getStatus(keys[i]) == STATUS_IMMUTABLE || isString(keys[i]) || getStatus(keys[i]) == STATUS_RESTRICTED) continue;
-            if (minExists(keys[i]) && maxExists(keys[i]) && getMin(keys[i]) >= getMax(keys[i]))  continue;  // no range
+            if (slot < 0) continue;         // getStatus() would say it's immutable anyway
+            if (slotIn(models[0], slot) < 0) { continue; }
+            if (getStatus(slot) == STATUS_IMMUTABLE || isStringAt(slot) || getStatus(slot) == STATUS_RESTRICTED) continue;
+            if (schema.has(slot, HAS_MIN) && schema.has(slot, HAS_MAX) && minAt(slot) >= maxAt(slot))  continue;  // no range
 
             // If the key is metric AND we're in the metric region in every one of the models
             /// EDIT: I've decided to say screw it, let hybrid parameters be considered metric
             /// all the time, otherwise we get lots of jumps for LFO stuff on the Venom for example.
-            if (metricMinExists(keys[i]) &&
-                metricMaxExists(keys[i]))
+            if (schema.has(slot, HAS_METRIC_MIN) &&
+                schema.has(slot, HAS_METRIC_MAX))
                 // &&
                 //allInMetric(models, keys[i])) 
                 {
@@ -1645,17 +2209,17 @@ public class Model implements Cloneable
                 double val = 0;
                 for(int j = 0; j < normalized.length; j++)
                     {
-                    val += normalized[j] * models[j].get(keys[i]);
+                    val += normalized[j] * intIn(models[j], slot, -1);
                     }
                 
                 // Round towards strongest model, which is sorts[0]
-                if (sorts[0].model.get(keys[i]) > val)
+                if (intIn(sorts[0].model, slot, -1) > val)
                     val = (int)Math.ceil(val);
                 else
                     val = (int)Math.floor(val);
 
                 // Revise and set
-                set(keys[i], reviseMutatedValue(keys[i], get(keys[i], 0), (int)val));
+                set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), (int)val));
                 }
             else 
                 {
@@ -1672,7 +2236,7 @@ public class Model implements Cloneable
                             {
                             //System.err.println("Towards " + sorts[j].model.get("name", "--") + " " + sorts[j].weight + " " + sorts[j].previousWeight);
                             // If the model has a different value than our value.  In this case it MIGHT change it.  Otherwise it LOCKS it.
-                            if (sorts[j].model.get(keys[i]) != get(keys[i]))
+                            if (intIn(sorts[j].model, slot, -1) != intAt(slot, 0))
                                 {
                                 // Which mutator do we use?  Do a coin toss under the weight squared, so we usually do mutator b when further away 
                                 if (coinToss(random, sorts[j].weight * sorts[j].weight * sorts[j].weight * sorts[j].weight))              // right now we're doing p^4
@@ -1681,7 +2245,7 @@ public class Model implements Cloneable
                                     if (coinToss(random, sorts[j].weight))
                                         {
                                         //System.err.println("A Updating " + keys[i] + " to " + j);
-                                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i]), sorts[j].model.get(keys[i])));
+                                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(sorts[j].model, slot, -1)));
                                         continue keys_label;            // lock down -- nobody else gets a chance to change this
                                         }
                                     else
@@ -1695,7 +2259,7 @@ public class Model implements Cloneable
                                     if (coinToss(random, sorts[j].weight - sorts[j].previousWeight))
                                         {
                                         //System.err.println("B Updating " + keys[i]);
-                                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i]), sorts[j].model.get(keys[i])));
+                                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(sorts[j].model, slot, -1)));
                                         continue keys_label;            // lock down -- nobody else gets a chance to change this
                                         }
                                     else
@@ -1718,15 +2282,15 @@ public class Model implements Cloneable
                     // handle other categorical strategies
                     else if (categoricalStrategy == CATEGORICAL_STRATEGY_STRONGEST)
                         {
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i]), sorts[0].model.get(keys[i])));
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(sorts[0].model, slot, -1)));
                         }
                     else if (categoricalStrategy == CATEGORICAL_STRATEGY_DEFAULT)
                         {
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i]), categoricalDefaultModel.get(keys[i])));
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(categoricalDefaultModel, slot, -1)));
                         }
                     else
                         {
-                        set(keys[i], reviseMutatedValue(keys[i], get(keys[i]), models[categoricalStrategy].get(keys[i])));
+                        set(slot, keys[i], reviseMutatedValue(keys[i], intAt(slot, 0), intIn(models[categoricalStrategy], slot, -1)));
                         }
                     }
                 }
@@ -1776,9 +2340,9 @@ public class Model implements Cloneable
 
     public void printNode(String key)
         {
-        Node node = storage.get(key);
-        if (node == null) System.err.println("" + key + " -> [NULL NODE]");
-        else System.err.println("" + key + " -> " + node.toString());
+        int slot = slot(key);
+        if (slot < 0) System.err.println("" + key + " -> [NULL NODE]");
+        else System.err.println("" + key + " -> " + nodeToString(slot));
         }
 
 
@@ -0,0 +1,172 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import java.util.*;
+
+/****
+      A least-recently-used cache of Models parsed from patch sysex, used by the Library
+      so that auditioning, mixing, nudging, morphing, and so on over the same patches
+      doesn't parse them again and again.
+
+      <p>Entries are keyed on the patch's content (its sysex, plus the bank and number which
+      are stamped into the parsed Model), not on the slot it's in, and on the class and parse
+      state (see Synth.getParseState()) of the synth which parsed it.  So a cached entry is never
+      stale: replacing a slot's patch, or changing the synth type of an editor whose parse state 
+      includes it, simply means that later lookups miss the cache, and the old entry eventually 
+      falls out of it.  Identical
+      patches (such as the many empty slots in a new library) share a single entry.
+
+      <p>But this relies on Synth.getParseState() returning everything besides the sysex which
+      changes how a patch parses.  It's opt-in: only a hand-picked few editors override it, such as
+      the Yamaha 4-op and Casio CZ editors, whose parse depends on their synth type.  If some other
+      editor parses the same sysex differently depending on, say, a menu option, changing that 
+      option won't change the key, and the cache will hand back stale Models parsed under the old 
+      setting.  Such an editor should override getParseState() too.
+
+      <p>The cache is bounded both by number of entries and by an estimate of the memory they
+      use.  Cached Models have no listeners (see Model.copy()), so they may be shared among
+      threads.  They must not be modified, so get(...) returns a clone, which is cheap
+      because Models are copy-on-write.  The cache also keeps statistics on its hit rate and
+      on how much parsing time it has saved, which the Librarian prints after Mix and Remix Bank
+      (see also edisyn.test.ModelCacheBenchmark).
+
+      @author Sean Luke
+*/
+
+public class ModelCache
+    {
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    /** The default maximum estimated memory, in bytes. */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024L * 1024L;
+
+    static class Key
+        {
+        Class synth;
+        Object state;
+        byte[] data;
+        int bank;
+        int number;
+        int hash;
+
+        Key(Synth synth, byte[] data, int bank, int number)
+            {
+            this.synth = synth.getClass();
+            this.state = synth.getParseState();
+            this.data = data;
+            this.bank = bank;
+            this.number = number;
+            hash = (((Arrays.hashCode(data) * 31 + bank) * 31 + number) * 31 + this.synth.hashCode()) * 31 + Objects.hashCode(state);
+            }
+
+        public int hashCode() { return hash; }
+
+        public boolean equals(Object other)
+            {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key)other;
+            return (hash == key.hash && bank == key.bank && number == key.number && synth == key.synth && 
+                Objects.equals(state, key.state) && Arrays.equals(data, key.data));
+            }
+        }
+
+    static class Entry
+        {
+        Model model;
+        long bytes;
+        }
+
+    LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);        // access-ordered
+    int maxEntries = DEFAULT_MAX_ENTRIES;
+    long maxBytes = DEFAULT_MAX_BYTES;
+    long bytes = 0;
+
+    long hits = 0;
+    long misses = 0;
+    long parses = 0;
+    long parseTime = 0;             // total time spent parsing on misses, in ns
+
+    /** Returns a clone of the cached Model for the given patch content as parsed by the given synth, 
+        or null if there is none. */
+    public synchronized Model get(Synth synth, byte[] data, int bank, int number)
+        {
+        Entry entry = entries.get(new Key(synth, data, bank, number));
+        if (entry == null)
+            {
+            misses++;
+            return null;
+            }
+        hits++;
+        return (Model)(entry.model.clone());
+        }
+
+    /** Caches a Model parsed by the given synth from the given patch content, noting how long (in ns) 
+        the parse took.  The Model must not be modified afterwards. */
+    public synchronized void put(Synth synth, byte[] data, int bank, int number, Model model, long parseTime)
+        {
+        parses++;
+        this.parseTime += parseTime;
+        Entry entry = new Entry();
+        entry.model = model;
+        entry.bytes = model.estimateBytes() + data.length + 64;
+        Entry old = entries.put(new Key(synth, data, bank, number), entry);
+        if (old != null) bytes -= old.bytes;
+        bytes += entry.bytes;
+        trim();
+        }
+
+    // throws out the least recently used entries until we're within bounds
+    void trim()
+        {
+        Iterator<Entry> i = entries.values().iterator();
+        while((bytes > maxBytes || entries.size() > maxEntries) && i.hasNext())
+            {
+            bytes -= i.next().bytes;
+            i.remove();
+            }
+        }
+
+    /** Empties the cache, but doesn't reset the statistics. */
+    public synchronized void clear()
+        {
+        entries.clear();
+        bytes = 0;
+        }
+
+    /** Sets the maximum number of entries and the maximum estimated memory, in bytes. */
+    public synchronized void setLimits(int maxEntries, long maxBytes)
+        {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        trim();
+        }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getBytes() { return bytes; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    /** Returns the fraction of lookups which were hits. */
+    public synchronized double getHitRate()
+        {
+        return (hits + misses == 0 ? 0.0 : hits / (double)(hits + misses));
+        }
+
+    /** Returns an estimate of the total time, in ns, which hits would otherwise have spent parsing,
+        based on the average time of the parses we have actually done. */
+    public synchronized long getSavedTime() { return (parses == 0 ? 0 : hits * parseTime / parses); }
+
+    /** Returns the total time, in ns, spent parsing on misses. */
+    public synchronized long getParseTime() { return parseTime; }
+
+    public synchronized String toString()
+        {
+        return "ModelCache[" + entries.size() + " entries, " + (bytes / 1024) + "KB, " + hits + " hits, " + misses + " misses, " +
+            String.format("%.1f", getHitRate() * 100) + "% hit rate, " + (parseTime / 1000000) + "ms parsing, " +
+            (getSavedTime() / 1000000) + "ms saved]";
+        }
+    }
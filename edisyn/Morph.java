@@ -24,6 +24,12 @@ public class Morph extends SynthPanel
     Model[] sources;
     double[] lastWeights = new double[] { 1.0, 0.0, 0.0, 0.0 };
     Model current;
+    MorphPlan plan = null;              // how to morph current among the sources
+    int planMutationVersion;            // the version of the mutation map when we built the plan
+    double[] w;                         // the weights of the non-null sources, for the plan
+    double[] lw;                        // their previous weights
+    Model lastSent = null;              // current as we last sent it to the synth, or null if we don't know what the synth has
+    boolean sendPending = false;        // current has changed since we last sent it
     JPanel top;
     JPanel bottom;
     JPanel topCenter;
@@ -380,6 +386,7 @@ public class Morph extends SynthPanel
                 synth.model = current;
                 synth.sendAllParameters();
                 synth.model = backup;                   
+                lastSent = current.copy();
                 }
             }
         }
@@ -661,49 +668,79 @@ public class Morph extends SynthPanel
             }
         else
             { 
-            Model[] models = new Model[count];
-            double[] weights = new double[4];
-            double[] lw = new double[count];
-            double[] w = new double[count];
+            // (Re)build the plan if the sources or the mutation parameters have changed
+            if (plan == null || !plan.isFor(current, sources) || planMutationVersion != synth.mutationMap.getVersion())
+                {
+                Model[] models = new Model[count];
+                count = 0;
+                for(int i = 0; i < 4; i++)
+                    if (sources[i] != null)
+                        models[count++] = sources[i];
+                planMutationVersion = synth.mutationMap.getVersion();
+                plan = new MorphPlan(current, models, synth.getMutationKeys());
+                w = new double[count];
+                lw = new double[count];
+                }
                 
             // Figure out our strategy
             int strategy = blank.getModel().get("nonmetricparams", 0) + Model.CATEGORICAL_STRATEGY_MORPH;           // so it goes -3, -2, ..., 3
             if (strategy >= 0 && sources[strategy] == null)         // fix null models right off the bat
                 strategy = Model.CATEGORICAL_STRATEGY_MORPH;
                 
-            // Fill the models, weights, and last weights
+            // Fill the weights and last weights
             count = 0;
             for(int i = 0; i < 4; i++)
+                {
                 if (sources[i] != null)
                     {
-                    weights[i] = computeWeight(i, x, y);
-                    w[count] = weights[i];
+                    w[count] = computeWeight(i, x, y);
                     lw[count] = lastWeights[i];
-                    models[count] = sources[i];
+                    lastWeights[i] = w[count];
                     if (strategy == i)              // we were locking to this one
                         strategy = count;       // change the index since we're removing null models
                     count++;
                     }
+                else lastWeights[i] = 0;
+                }
                 
             // perform morph
             synth.getUndo().setWillPush(false);
             synth.setSendMIDI(false);
-            current = current.morph(synth.random, models, synth.getModel(), synth.getMutationKeys(), w, lw, strategy);
+            plan.morph(synth.random, synth.getModel(), w, lw, strategy);
             synth.getUndo().setWillPush(true);
             synth.setSendMIDI(true);
-            lastWeights = weights;
             }
 
         // emit
         if (blank.getModel().get("sendonchange", SEND_TYPE_NOTE) == SEND_TYPE_CHANGING)               // send only on change
             {
-            Model backup = synth.getModel();
-            synth.model = current;
-            synth.sendAllParameters();
-            synth.model = backup;
+            sendPending = true;
+            sendChanges();
             }
         }
         
+    /** Sends current to the synth if it has changed since we last sent it.  If the synth is
+        still busy with earlier MIDI, we don't send now: the timer will try again shortly, by which
+        time current may have changed yet again, so a fast joystick gesture only sends its latest
+        state rather than piling up behind itself.  If the synth getSendsDifferentParameters(), we only
+        send the ones which differ from what we sent last time. */
+    void sendChanges()
+        {
+        if (!sendPending || !synth.getSendMIDI() || !synth.canSendParameterNow())
+            return;
+        sendPending = false;
+        synth.lastParameterSend = System.currentTimeMillis();
+            
+        Model backup = synth.getModel();
+        synth.model = current;
+        if (lastSent == null || !synth.getSendsDifferentParameters())
+            synth.sendAllParameters();
+        else if (!synth.getSendsParametersOnlyOnSendCurrentPatch())
+            synth.sendDifferentParameters(lastSent);
+        synth.model = backup;
+        lastSent = current.copy();
+        }
+        
     double computeWeight(int index, double x, double y)
         {
         if (index == 0) { x = 1 - x; y = 1 - y; }       // top left
@@ -825,6 +862,9 @@ public class Morph extends SynthPanel
                     // update the point
                     autopilot();
                     
+                    // send any changes which we couldn't send earlier
+                    sendChanges();
+                    
                     // dump
                     if (blank.getModel().get("sendonchange", SEND_TYPE_NOTE) == SEND_TYPE_TRICKLE)  // trickle
                         {
@@ -847,6 +887,7 @@ public class Morph extends SynthPanel
                             synth.setSendMIDI(sendMIDI);
                             synth.model = backup;  
                             }                 
+                        lastSent = null;                // the synth now has a mixture
                         }
                     /*
                       else if (blank.getModel().get("sendonchange", SEND_TYPE_NOTE) == SEND_TYPE_DELUGE)      // deluge
@@ -878,6 +919,7 @@ public class Morph extends SynthPanel
                 }
             }
         startedUp = true;
+        lastSent = null;                // who knows what the synth has been sent in the meantime
         if (timer != null)
             timer.start();
         updateSound();                  // otherwise the synth might not get it
@@ -0,0 +1,229 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import java.util.*;
+
+/****
+      A precomputed plan for repeatedly morphing one Model (the target) among a fixed set of
+      source Models, as the Morph pane does every time the joystick moves.  It does exactly what
+      Model.morph(...) does, and consumes the Random in exactly the same way, but does the
+      per-key work which doesn't depend on the weights just once, when the plan is built: it looks
+      up each key's slot in the target, discards keys which the sources lack, and gathers the
+      sources' values for each key into a single int array.  Thereafter each morph is a tight loop
+      over primitive arrays which allocates nothing (save what the target's copy-on-write
+      and the Synth's fixer might allocate).  It also doesn't bother to set metric keys whose
+      values haven't changed, though their fix(...) is still called.
+
+      <p>The plan holds on to the sources, so they must not be modified while it is in use:
+      build a new plan instead.  The target's bounds and statuses, which the Synth's fixer might
+      change as we go, are still checked on every morph.
+
+      @author Sean Luke
+*/
+
+public class MorphPlan
+    {
+    Model target;
+    Model[] models;
+    int count;                      // the number of models
+    String[] keys;                  // the keys which we might morph, in order
+    int[] slots;                    // the target's slot for each key
+    int[] values;                   // values[k * count + j] is model j's value for key k, or -1 if it's not an integer
+
+    // scratch space so we don't allocate on each morph
+    double[] normalized;
+    int[] order;                    // the models, strongest (highest weight) first
+
+    /** Builds a plan for morphing the target among the given models, using the given keys.
+        The models must all have the same keys as the target, as Model.morph(...) requires. */
+    public MorphPlan(Model target, Model[] models, String[] keys)
+        {
+        this.target = target;
+        this.models = (Model[])(models.clone());
+        count = models.length;
+        normalized = new double[count];
+        order = new int[count];
+
+        String[] k = new String[keys.length];
+        int[] s = new int[keys.length];
+        int n = 0;
+        for(int i = 0; i < keys.length; i++)
+            {
+            int slot = target.slot(keys[i]);
+            // skip if the key doesn't exist or the first model lacks it.  Other checks may change as we go.
+            if (slot < 0) continue;
+            if (target.slotIn(models[0], slot) < 0) continue;
+            k[n] = keys[i];
+            s[n] = slot;
+            n++;
+            }
+        this.keys = Arrays.copyOf(k, n);
+        slots = Arrays.copyOf(s, n);
+
+        values = new int[n * count];
+        for(int i = 0; i < n; i++)
+            for(int j = 0; j < count; j++)
+                values[i * count + j] = target.intIn(models[j], slots[i], -1);
+        }
+
+    /** Returns the target. */
+    public Model getTarget() { return target; }
+
+    /** Returns true if this plan morphs the given target among the non-null models in the given array,
+        in order, and so needn't be rebuilt. */
+    public boolean isFor(Model target, Model[] sources)
+        {
+        if (target != this.target) return false;
+        int j = 0;
+        for(int i = 0; i < sources.length; i++)
+            {
+            if (sources[i] == null) continue;
+            if (j >= count || sources[i] != models[j]) return false;
+            j++;
+            }
+        return (j == count);
+        }
+
+    /** Morphs the target, just like target.morph(random, models, categoricalDefaultModel, keys, weights, previousWeights, categoricalStrategy),
+        and returns it.  The weights and previousWeights must be as long as the number of models. */
+    public Model morph(Random random, Model categoricalDefaultModel, double[] weights, double[] previousWeights, int categoricalStrategy)
+        {
+        // prepare undo listener if any (likely it will have been deleted)
+        if (target.undoListener != null)
+            {
+            target.undoListener.push(target);
+            target.undoListener.setWillPush(false);
+            }
+
+        // Normalize weights
+        double sum = 0;
+        for(int i = 0; i < count; i++)
+            {
+            normalized[i] = weights[i];
+            sum += normalized[i];
+            }
+        for(int i = 0; i < count; i++)
+            {
+            if (sum == 0) normalized[i] = 1.0 / count;              // make everyone have the same normalized weight
+            else normalized[i] /= sum;
+            }
+
+        // Sort the models strongest first.  This is a stable insertion sort, so ties come out in the
+        // same order as Arrays.sort(...) leaves them in Model.morph(...)
+        for(int i = 0; i < count; i++)
+            {
+            int j = i;
+            while(j > 0 && weights[order[j - 1]] < weights[i])
+                {
+                order[j] = order[j - 1];
+                j--;
+                }
+            order[j] = i;
+            }
+        int strongest = order[0];
+
+        keys_label : for(int i = 0; i < keys.length; i++)
+            {
+            String key = keys[i];
+            int slot = slots[i];
+            int base = i * count;
+
+            // skip if the key is immutable, is restricted, is a string, or has no range.  The fixer might change these.
+            Model.Schema schema = target.schema;
+            int status = target.getStatus(slot);
+            if (status == Model.STATUS_IMMUTABLE || status == Model.STATUS_RESTRICTED || target.isStringAt(slot)) continue;
+            if (schema.has(slot, Model.HAS_MIN) && schema.has(slot, Model.HAS_MAX) && schema.min[slot] >= schema.max[slot]) continue;
+
+            if (schema.has(slot, Model.HAS_METRIC_MIN) && schema.has(slot, Model.HAS_METRIC_MAX))
+                {
+                /// TREAT AS METRIC
+                double val = 0;
+                for(int j = 0; j < count; j++)
+                    {
+                    val += normalized[j] * values[base + j];
+                    }
+
+                // Round towards strongest model
+                if (values[base + strongest] > val)
+                    val = (int)Math.ceil(val);
+                else
+                    val = (int)Math.floor(val);
+
+                // Some models (such as Yamaha4Op's and PreenFM2's) revise the value even if it hasn't
+                // changed, so we always revise, but only set if the revised value differs, as most don't
+                int old = target.intAt(slot, 0);
+                int revised = target.reviseMutatedValue(key, old, (int)val);
+                if (revised != old)
+                    target.set(slot, key, revised);
+                }
+            else if (categoricalStrategy == Model.CATEGORICAL_STRATEGY_MORPH)
+                {
+                /// TREAT AS CATEGORICAL -- see Model.morph(...) for an explanation
+                for(int o = 0; o < count; o++)
+                    {
+                    int j = order[o];
+                    double weight = weights[j];
+                    double previousWeight = previousWeights[j];
+                    if (weight > previousWeight || weight == 1.0)
+                        {
+                        int value = values[base + j];
+                        if (value != target.intAt(slot, 0))
+                            {
+                            if (target.coinToss(random, weight * weight * weight * weight))
+                                {
+                                // mutator a
+                                if (target.coinToss(random, weight))
+                                    {
+                                    target.set(slot, key, target.reviseMutatedValue(key, target.intAt(slot, 0), value));
+                                    continue keys_label;            // lock down
+                                    }
+                                }
+                            else
+                                {
+                                // mutator b
+                                if (target.coinToss(random, weight - previousWeight))
+                                    {
+                                    target.set(slot, key, target.reviseMutatedValue(key, target.intAt(slot, 0), value));
+                                    continue keys_label;            // lock down
+                                    }
+                                }
+                            }
+                        else continue keys_label;               // lock down
+                        }
+                    }
+                }
+            else
+                {
+                // Model.morph(...) sets these once per model, but it's the same value each time
+                int value;
+                if (categoricalStrategy == Model.CATEGORICAL_STRATEGY_STRONGEST)
+                    value = values[base + strongest];
+                else if (categoricalStrategy == Model.CATEGORICAL_STRATEGY_DEFAULT)
+                    value = target.intIn(categoricalDefaultModel, slot, -1);
+                else
+                    value = values[base + categoricalStrategy];
+                target.set(slot, key, target.reviseMutatedValue(key, target.intAt(slot, 0), value));
+                }
+
+            if (target.fixer != null)
+                target.fixer.fix(key, target);
+            }
+
+        // update undoListener
+        if (target.undoListener != null)
+            {
+            target.undoListener.setWillPush(true);
+            }
+
+        for(int i = 0; i < count; i++)
+            {
+            previousWeights[i] = weights[i];
+            }
+
+        return target;
+        }
+    }
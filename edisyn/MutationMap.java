@@ -11,6 +11,7 @@ import java.util.prefs.*;
 import java.awt.*;
 import javax.swing.*;
 import edisyn.util.*;
+import edisyn.gui.*;
 
 /**        
            @author Sean Luke
@@ -25,6 +26,7 @@ public class MutationMap
     
     HashSet<String> map = new HashSet<>();    
     Preferences prefs;
+    int version = 0;                // incremented whenever the map changes
     public static final String EXTENSION = ".emu";
         
     // sets the last directory used by load, save, or save as
@@ -40,6 +42,10 @@ public class MutationMap
             System.err.println(s);
         }
     
+    /** Returns a number which changes whenever any parameter is made free or not free, so you can
+        tell whether something computed from the map, such as Synth.getMutationKeys(), is out of date. */
+    public int getVersion() { return version; }
+    
     /** Returns whether the parameter is free to be mutated. */
     public boolean isFree(String key)
         {
@@ -51,18 +57,12 @@ public class MutationMap
         setFree(key, free, true);
         }
 
+    /** Schedules the preferences, if any, to be saved. */
     public void sync()
         {
         if (isUsingPrefs())
             {
-            try 
-                {
-                prefs.sync();
-                }
-            catch (Exception ex)
-                {
-                Synth.handleException(ex);
-                }
+            Prefs.save(prefs);
             }
         }
                 
@@ -70,6 +70,7 @@ public class MutationMap
         {
         if (!free) map.add(key);
         else map.remove(key);
+        version++;
 
         if (isUsingPrefs())
             {
@@ -122,6 +123,7 @@ public class MutationMap
             try
                 {
                 prefs.clear();
+                Prefs.save(prefs);
                 }
             catch (Exception ex)
                 {
@@ -129,6 +131,7 @@ public class MutationMap
                 }
             }
         map = new HashSet<String>();
+        version++;
         }
     
     boolean loadParameters(Synth synth, File file, String error)
@@ -0,0 +1,381 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import javax.sound.midi.*;
+import java.util.*;
+
+/****
+      A queue of outgoing MIDI messages for a single output Receiver, drained by
+      its own thread.  Callers (often the Swing event thread) enqueue messages along
+      with the minimum gap which must separate them from the previous message, or
+      enqueue pauses, and return immediately.  The scheduler thread then dispatches
+      each message no earlier than its due time, so the device sees the same pacing
+      it would have seen had the caller slept between messages, but the caller doesn't
+      have to.
+
+      <p>Messages are always sent in the order in which they were enqueued.  If the
+      Receiver throws an IllegalStateException (typically because the device was
+      unplugged), the queue is discarded and the failure Runnable provided with that
+      message is run.
+
+      <p>The thread is started on demand and quits after it has been idle for a while,
+      so idle schedulers cost nothing.
+
+      <p>The scheduler also keeps track, per channel, of which NRPN or RPN parameter the device
+      was last told to select, and what Data Entry MSB it was last sent, based on the CCs which
+      have been enqueued.  Synths which opt in can ask about this to leave out parameter selects
+      which would be redundant (see Synth.getElidesNRPNSelects()).  Any other CC or Program Change
+      on a channel, or any sysex, makes us forget what we knew about that channel (or all of them).
+      Since the scheduler belongs to the output device, this covers every editor sending to
+      that device, and reconnecting the device gives us a new scheduler which knows nothing.
+
+      <p>Short messages may also be enqueued packed into ints (see ShortMessageBuffer) rather
+      than as ShortMessage objects.  These are sent via a single ShortMessage which the scheduler
+      thread reuses, on the assumption, true of MIDI device Receivers, that a Receiver doesn't
+      hang onto the messages it is sent.  Queue entries are recycled too, so sending packed
+      messages allocates nothing.
+
+      @author Sean Luke
+*/
+
+public class OutputScheduler
+    {
+    /** How long (in ms) the scheduler thread waits idle before quitting. */
+    public static final int IDLE_TIMEOUT = 1000;
+    /** The longest single gap or pause (in ns) we'll honor, so that a bad value can't freeze output. */
+    public static final long MAX_PAUSE = 10000000000L;          // 10 seconds
+
+    static class Entry
+        {
+        MidiMessage message;            // if null, this is a packed short message, or if that's 0, a pause
+        int shortMessage;               // a packed short message
+        long gap;                       // ns which must have elapsed since the previous send, or the length of the pause
+        Runnable onFailure;
+        long enqueued;                  // when the entry was enqueued
+        }
+
+    /** The most queue entries we keep around for reuse.  This is enough to hold the largest patches sent parameter by parameter
+        (about 8000 CCs for the Prophet Rev2), which can all be in the queue at once. */
+    public static final int MAX_SPARE_ENTRIES = 8192;
+
+    Receiver receiver;
+    ArrayDeque<Entry> queue = new ArrayDeque<Entry>();
+    ArrayDeque<Entry> spares = new ArrayDeque<Entry>();
+    ShortMessage reusable = new ShortMessage();         // only used by the scheduler thread
+    Thread thread = null;
+    boolean sending = false;            // are we presently dispatching an entry?
+    boolean closed = false;
+    long lastSend = 0;                  // when the last message finished sending, in ns
+    long lastLatency = 0;               // how long the last message waited in the queue, in ns
+
+    /** Indicates that we don't know what the device has been sent. */
+    public static final int UNKNOWN = -1;
+    
+    // What each channel was last sent.  selectType is 99 (NRPN) or 101 (RPN), the CC of the parameter MSB.
+    int[] selectType = new int[16];
+    int[] selectMSB = new int[16];
+    int[] selectLSB = new int[16];
+    int[] dataMSB = new int[16];
+
+    public OutputScheduler(Receiver receiver)
+        {
+        this.receiver = receiver;
+        forgetParameters();
+        }
+
+    public Receiver getReceiver() { return receiver; }
+
+    /** Enqueues a message to be sent at least gap nanoseconds after the previous message.
+        Returns false if the scheduler has been closed. */
+    public boolean send(MidiMessage message, long gap, Runnable onFailure)
+        {
+        if (message == null) return false;
+        Entry entry = obtain();
+        entry.message = message;
+        entry.gap = gap;
+        entry.onFailure = onFailure;
+        return enqueue(entry);
+        }
+
+    /** Enqueues a short message, packed as in ShortMessageBuffer, to be sent at least gap nanoseconds 
+        after the previous message.  Returns false if the scheduler has been closed. */
+    public boolean send(int shortMessage, long gap, Runnable onFailure)
+        {
+        if (shortMessage <= 0) return false;
+        Entry entry = obtain();
+        entry.shortMessage = shortMessage;
+        entry.gap = gap;
+        entry.onFailure = onFailure;
+        return enqueue(entry);
+        }
+
+    /** Enqueues a pause of the given number of nanoseconds before the next message is sent.
+        Returns false if the scheduler has been closed. */
+    public boolean pause(long nanos)
+        {
+        if (nanos <= 0) return !closed;
+        Entry entry = obtain();
+        entry.gap = nanos;
+        return enqueue(entry);
+        }
+
+    // Returns a blank entry, reusing one if we can
+    synchronized Entry obtain()
+        {
+        Entry entry = spares.pollLast();
+        return (entry == null ? new Entry() : entry);
+        }
+
+    // Blanks the entry and keeps it for reuse
+    synchronized void recycle(Entry entry)
+        {
+        entry.message = null;
+        entry.shortMessage = 0;
+        entry.onFailure = null;
+        if (spares.size() < MAX_SPARE_ENTRIES)
+            spares.addLast(entry);
+        }
+
+    synchronized boolean enqueue(Entry entry)
+        {
+        if (closed) return false;
+        if (entry.message != null) track(entry.message);
+        else if (entry.shortMessage != 0) track(entry.shortMessage);
+        entry.enqueued = System.nanoTime();
+        queue.addLast(entry);
+        if (thread == null)
+            {
+            thread = new Thread(new Runnable() { public void run() { dispatch(); } }, "Edisyn MIDI Output");
+            thread.setDaemon(true);
+            thread.start();
+            }
+        notifyAll();
+        return true;
+        }
+
+    /** Returns the number of entries (messages and pauses) still waiting to be sent. */
+    public synchronized int size()
+        {
+        return queue.size();
+        }
+
+    /** Returns how long (in ns) the most recently sent message waited between being enqueued and being sent. */
+    public synchronized long getLastLatency()
+        {
+        return lastLatency;
+        }
+
+    /** Blocks until every entry presently enqueued has been sent, the scheduler
+        has been closed, or the thread has been interrupted.  Don't call this from
+        the scheduler's own thread. */
+    public synchronized void waitUntilEmpty()
+        {
+        while(!closed && (!queue.isEmpty() || sending))
+            {
+            try { wait(); }
+            catch (InterruptedException ex) { return; }
+            }
+        }
+
+    /** Like waitUntilEmpty(), but gives up after the given number of ms.  Returns true if 
+        everything enqueued was sent (or the scheduler was closed), false if we timed out. */
+    public synchronized boolean waitUntilEmpty(long ms)
+        {
+        long deadline = System.currentTimeMillis() + ms;
+        while(!closed && (!queue.isEmpty() || sending))
+            {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            try { wait(remaining); }
+            catch (InterruptedException ex) { return false; }
+            }
+        return true;
+        }
+
+    /** Discards everything in the queue. */
+    public synchronized void clear()
+        {
+        queue.clear();
+        forgetParameters();             // some of what we thought had been sent never will be
+        notifyAll();
+        }
+
+    /** Discards everything in the queue and refuses any further messages. */
+    public synchronized void close()
+        {
+        closed = true;
+        queue.clear();
+        forgetParameters();
+        notifyAll();
+        }
+
+    /** Forgets which NRPN or RPN parameters have been selected on every channel. */
+    public synchronized void forgetParameters()
+        {
+        for(int i = 0; i < 16; i++)
+            forgetParameters(i);
+        }
+
+    void forgetParameters(int channel)
+        {
+        selectType[channel] = UNKNOWN;
+        selectMSB[channel] = UNKNOWN;
+        selectLSB[channel] = UNKNOWN;
+        dataMSB[channel] = UNKNOWN;
+        }
+
+    // Updates what we know about NRPN and RPN parameter selection given a message which is about to be enqueued
+    void track(MidiMessage message)
+        {
+        if (message instanceof SysexMessage)
+            {
+            forgetParameters();                     // who knows what the device did with that
+            return;
+            }
+        if (message instanceof ShortMessage)
+            track(ShortMessageBuffer.pack((ShortMessage)message));
+        }
+        
+    void track(int shortMessage)
+        {
+        int status = ShortMessageBuffer.getStatus(shortMessage);
+        int channel = status & 0x0F;
+        int command = status & 0xF0;
+        if (command == ShortMessage.PROGRAM_CHANGE)
+            {
+            forgetParameters(channel);
+            return;
+            }
+        if (command != ShortMessage.CONTROL_CHANGE) return;
+        
+        int cc = ShortMessageBuffer.getData1(shortMessage);
+        int value = ShortMessageBuffer.getData2(shortMessage);
+        switch(cc)
+            {
+            case 99: case 101:                      // parameter MSB
+                selectType[channel] = cc;
+                selectLSB[channel] = UNKNOWN;       // some devices wait for a new LSB after an MSB
+                selectMSB[channel] = value;
+                dataMSB[channel] = UNKNOWN;
+                break;
+            case 98: case 100:                      // parameter LSB
+                if (selectType[channel] != cc + 1)
+                    selectMSB[channel] = UNKNOWN;
+                selectType[channel] = cc + 1;
+                selectLSB[channel] = value;
+                dataMSB[channel] = UNKNOWN;
+                break;
+            case 6:                                 // data entry MSB
+                dataMSB[channel] = value;
+                break;
+            case 38:                                // data entry LSB
+                break;
+            case 96: case 97:                       // data increment and decrement
+                dataMSB[channel] = UNKNOWN;
+                break;
+            default:                                // a foreign CC
+                forgetParameters(channel);
+                break;
+            }
+        }
+
+    /** Returns true if the device has been sent exactly this NRPN (if msbCC is 99) or RPN (if msbCC is 101) parameter select,
+        as far as we know.  If lsb is UNKNOWN, only the parameter MSB is checked. */
+    public synchronized boolean isSelected(int channel, int msbCC, int msb, int lsb)
+        {
+        return (selectType[channel] == msbCC && selectMSB[channel] == msb && 
+            (lsb == UNKNOWN || selectLSB[channel] == lsb));
+        }
+
+    /** Returns true if the device has been sent a complete NRPN (if msbCC is 99) or RPN (if msbCC is 101) parameter select
+        whose LSB is the given one, as far as we know. */
+    public synchronized boolean isSelectedLSB(int channel, int msbCC, int lsb)
+        {
+        return (selectType[channel] == msbCC && selectMSB[channel] != UNKNOWN && selectLSB[channel] == lsb);
+        }
+
+    /** Returns true if the device has been sent the given Data Entry MSB since its present NRPN or RPN parameter was selected,
+        as far as we know. */
+    public synchronized boolean isDataMSB(int channel, int msb)
+        {
+        return (selectType[channel] != UNKNOWN && selectMSB[channel] != UNKNOWN && selectLSB[channel] != UNKNOWN && dataMSB[channel] == msb);
+        }
+
+    static void sleep(long nanos)
+        {
+        if (nanos <= 0) return;
+        if (nanos > MAX_PAUSE) nanos = MAX_PAUSE;
+        try { Thread.sleep(nanos / 1000000L, (int)(nanos % 1000000L)); }
+        catch (InterruptedException e) { }
+        }
+
+    void dispatch()
+        {
+        while(true)
+            {
+            Entry entry;
+            synchronized(this)
+                {
+                sending = false;
+                notifyAll();                // for waitUntilEmpty()
+
+                long idleSince = System.currentTimeMillis();
+                while(queue.isEmpty() && !closed)
+                    {
+                    long remaining = IDLE_TIMEOUT - (System.currentTimeMillis() - idleSince);
+                    if (remaining <= 0) break;
+                    try { wait(remaining); }
+                    catch (InterruptedException ex) { }
+                    }
+
+                if (queue.isEmpty() || closed)
+                    {
+                    thread = null;
+                    return;
+                    }
+                entry = queue.removeFirst();
+                sending = true;
+                }
+
+            if (entry.message == null && entry.shortMessage == 0)          // pause
+                {
+                sleep(entry.gap);
+                recycle(entry);
+                continue;
+                }
+
+            sleep(entry.gap - (System.nanoTime() - lastSend));
+
+            try
+                {
+                MidiMessage message = entry.message;
+                if (message == null)
+                    {
+                    int m = entry.shortMessage;
+                    reusable.setMessage(ShortMessageBuffer.getStatus(m), ShortMessageBuffer.getData1(m), ShortMessageBuffer.getData2(m));
+                    message = reusable;
+                    }
+                receiver.send(message, -1);
+                }
+            catch (InvalidMidiDataException e)
+                {
+                Synth.handleException(e);             // shouldn't happen, ShortMessageBuffer checks its messages
+                }
+            catch (IllegalStateException e)
+                {
+                // This happens when the device has closed itself and we're still trying to send to it.
+                // For example if the user rips the USB cord for his device out of the laptop.
+                clear();
+                if (entry.onFailure != null)
+                    entry.onFailure.run();
+                }
+            lastSend = System.nanoTime();
+            synchronized(this) { lastLatency = lastSend - entry.enqueued; }
+            recycle(entry);
+            }
+        }
+    }
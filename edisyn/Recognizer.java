@@ -0,0 +1,174 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import java.lang.invoke.*;
+import java.util.*;
+
+/****
+      A cached handle onto a synth's recognizer class (the class with the same name as
+      the synth, plus "Rec").  Looking up the recognizer class and its static methods
+      by reflection is expensive, and Edisyn does it for every sysex message it tries
+      to identify, often across every synth in synths.txt.  So instead we resolve each
+      recognizer exactly once, into MethodHandles, and cache the result.
+
+      <p>Methods which the recognizer does not implement are stored as null and
+      fall back to the same defaults that Synth has always used.  Obtain a Recognizer
+      with Recognizer.get(synthClassName), which returns null if the recognizer class
+      does not exist.
+
+      @author Sean Luke
+*/
+
+public class Recognizer
+    {
+    static final MethodType RECOGNIZE_TYPE = MethodType.methodType(boolean.class, byte[].class);
+    static final MethodType NEXT_GROUP_TYPE = MethodType.methodType(int.class, byte[][].class, int.class);
+    static final MethodType BREAK_TYPE = MethodType.methodType(byte[][][].class, byte[][].class, int.class, int.class);
+    static final MethodType BANK_NAME_TYPE = MethodType.methodType(String.class, byte[].class);
+
+    /** Maps synth class names to Recognizers.  Class names with no recognizer map to NONE. */
+    static final HashMap<String, Recognizer> recognizers = new HashMap<String, Recognizer>();
+    static final Recognizer NONE = new Recognizer();
+
+    Class recognizerClass;
+    MethodHandle recognize;
+    MethodHandle recognizeBank;
+    MethodHandle getNextSysexPatchGroup;
+    MethodHandle breakSysexMessageIntoPatches;
+    MethodHandle getBankName;
+
+    Recognizer() { }
+
+    Recognizer(Class recognizerClass)
+        {
+        this.recognizerClass = recognizerClass;
+        recognize = find(recognizerClass, "recognize", RECOGNIZE_TYPE);
+        recognizeBank = find(recognizerClass, "recognizeBank", RECOGNIZE_TYPE);
+        getNextSysexPatchGroup = find(recognizerClass, "getNextSysexPatchGroup", NEXT_GROUP_TYPE);
+        breakSysexMessageIntoPatches = find(recognizerClass, "breakSysexMessageIntoPatches", BREAK_TYPE);
+        getBankName = find(recognizerClass, "getBankName", BANK_NAME_TYPE);
+        }
+
+    static MethodHandle find(Class recognizerClass, String name, MethodType type)
+        {
+        try
+            {
+            return MethodHandles.publicLookup().findStatic(recognizerClass, name, type);
+            }
+        catch (Exception ex)
+            {
+            // The recognizer doesn't implement this method (or it's not public static)
+            return null;
+            }
+        }
+
+    /** Returns the Recognizer for the given synth class name, or null if there
+        is no recognizer class.  The result is cached, so this is cheap after the first call. */
+    public static Recognizer get(String synthClassName)
+        {
+        Recognizer rec;
+        synchronized(recognizers)
+            {
+            rec = recognizers.get(synthClassName);
+            }
+
+        if (rec == null)
+            {
+            try
+                {
+                rec = new Recognizer(Class.forName(synthClassName + "Rec"));
+                }
+            catch (ClassNotFoundException ex)
+                {
+                Synth.handleException(ex);
+                rec = NONE;
+                }
+            synchronized(recognizers)
+                {
+                recognizers.put(synthClassName, rec);
+                }
+            }
+
+        return (rec == NONE ? null : rec);
+        }
+
+    /** Returns the recognizer class. */
+    public Class getRecognizerClass() { return recognizerClass; }
+
+    /** Returns true if the recognizer has a recognize(byte[]) method. */
+    public boolean hasRecognize() { return recognize != null; }
+
+    /** Calls the recognizer's recognize(byte[]) method.
+        Throws an exception if the method does not exist, or if it threw an exception itself. */
+    public boolean recognize(byte[] data) throws Throwable
+        {
+        return (boolean)recognize.invokeExact(data);
+        }
+
+    /** Calls the recognizer's recognizeBank(byte[]) method.  Returns false if the method
+        does not exist or it threw an exception. */
+    public boolean recognizeBank(byte[] data)
+        {
+        if (recognizeBank == null) return false;
+        try
+            {
+            return (boolean)recognizeBank.invokeExact(data);
+            }
+        catch (Throwable e)
+            {
+            return false;
+            }
+        }
+
+    /** Calls the recognizer's getNextSysexPatchGroup(byte[][], int) method.  If the method
+        does not exist or it threw an exception, we assume that the group is a single patch
+        and return start + 1. */
+    public int getNextSysexPatchGroup(byte[][] sysex, int start)
+        {
+        if (getNextSysexPatchGroup == null) return start + 1;
+        try
+            {
+            return (int)getNextSysexPatchGroup.invokeExact(sysex, start);
+            }
+        catch (Throwable e)
+            {
+            return start + 1;
+            }
+        }
+
+    /** Calls the recognizer's breakSysexMessageIntoPatches(byte[][], int, int) method.  If the
+        method does not exist or it threw an exception, we assume that the messages
+        form a single patch. */
+    public byte[][][] breakSysexMessageIntoPatches(byte[][] messages, int start, int expectedPatches)
+        {
+        if (breakSysexMessageIntoPatches == null) return new byte[][][] { messages };
+        try
+            {
+            return (byte[][][])breakSysexMessageIntoPatches.invokeExact(messages, start, expectedPatches);
+            }
+        catch (Throwable e)
+            {
+            e.printStackTrace();
+            return new byte[][][] { messages };
+            }
+        }
+
+    /** Calls the recognizer's getBankName(byte[]) method.  Returns "" if the method
+        does not exist or it threw an exception. */
+    public String getBankName(byte[] data)
+        {
+        if (getBankName == null) return "";
+        try
+            {
+            return (String)getBankName.invokeExact(data);
+            }
+        catch (Throwable e)
+            {
+            return "";
+            }
+        }
+    }
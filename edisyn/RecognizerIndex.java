@@ -0,0 +1,181 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import java.util.*;
+
+/****
+      An index which sits in front of the recognizers and learns which synths
+      are likely to recognize a given sysex message.
+
+      <p>The index is keyed on the message's manufacturer ID (as given by
+      Midi.getManufacturerIDForSysex, the same IDs as in Manufacturers.txt), and
+      on a "header" consisting of the manufacturer ID plus the two bytes after the
+      device ID byte, which for most manufacturers are the model and command bytes.
+      Since recognizers are arbitrary code, we can't know up front which messages
+      they accept, so the index is learned: whenever a synth recognizes a message,
+      it is added under that message's header and manufacturer.
+
+      <p>To identify a message we first look for the lowest-indexed synth (in synths.txt
+      order) among those indexed under its manufacturer, trying those indexed under its
+      header first, since they usually recognize it.  Then, since a synth we haven't learned
+      might also recognize the message, we scan every other synth below that one, in order,
+      and only if none of them recognizes it do we return the candidate.  If no candidate
+      recognizes the message, we scan all the remaining synths in order.  Thus the answer
+      is always the same as a linear scan, no matter what has been learned.  The price is
+      that the index saves few recognizer calls: every synth below the answer is still
+      asked, as in a linear scan.  It finds the likely answer first, and tries each learned 
+      candidate which doesn't recognize the message only once.
+
+      @author Sean Luke
+*/
+
+public class RecognizerIndex
+    {
+    static final int[] EMPTY = new int[0];
+
+    static HashMap<Long, int[]> byHeader = new HashMap<Long, int[]>();
+    static HashMap<Integer, int[]> byManufacturer = new HashMap<Integer, int[]>();
+
+    /** Returns the header key for the given sysex data, or -1 if there is no manufacturer ID. */
+    static long getHeader(byte[] data, int manufacturer)
+        {
+        if (manufacturer < 0) return -1;
+        int offset = (data[0] == (byte)0xF0 ? 1 : 0) + Midi.getManufacturerIDLength(data) + 1;     // skip the device ID
+        long header = manufacturer;
+        for(int i = 0; i < 2; i++)
+            {
+            // we add 1 so that a missing byte is distinct from a zero byte
+            header = (header << 8) | (offset + i < data.length ? (data[offset + i] & 0x7F) + 1 : 0);
+            }
+        return header;
+        }
+
+    static boolean contains(int[] list, int synth)
+        {
+        for(int i = 0; i < list.length; i++)
+            if (list[i] == synth) return true;
+        return false;
+        }
+
+    static int[] add(int[] list, int synth)
+        {
+        if (contains(list, synth)) return list;
+        // keep them in synths.txt order so we mimic the linear scan
+        int[] newList = new int[list.length + 1];
+        int pos = 0;
+        while(pos < list.length && list[pos] < synth)
+            {
+            newList[pos] = list[pos];
+            pos++;
+            }
+        newList[pos] = synth;
+        System.arraycopy(list, pos, newList, pos + 1, list.length - pos);
+        return newList;
+        }
+
+    static synchronized int[] getHeaderCandidates(long header)
+        {
+        int[] list = byHeader.get(header);
+        return (list == null ? EMPTY : list);
+        }
+
+    static synchronized int[] getManufacturerCandidates(int manufacturer)
+        {
+        int[] list = byManufacturer.get(manufacturer);
+        return (list == null ? EMPTY : list);
+        }
+
+    static synchronized void learn(int manufacturer, long header, int synth)
+        {
+        byHeader.put(header, add(getHeaderCandidates(header), synth));
+        byManufacturer.put(manufacturer, add(getManufacturerCandidates(manufacturer), synth));
+        }
+
+    /** Forgets everything the index has learned. */
+    public static synchronized void clear()
+        {
+        byHeader.clear();
+        byManufacturer.clear();
+        }
+
+    /** Returns the synthesizer (its index into Synth.getClassNames()) which recognizes
+        this sysex message, or -1 if none. */
+    public static int getSynthForSysex(byte[] data)
+        {
+        String[] classNames = Synth.getClassNames();
+        int manufacturer = (data.length == 0 ? -1 : Midi.getManufacturerIDForSysex(data));
+
+        if (manufacturer < 0)          // can't index it, so just scan
+            {
+            for(int i = 0; i < classNames.length; i++)
+                {
+                if (Synth.recognize(classNames[i], data))
+                    return i;
+                }
+            return -1;
+            }
+
+        long header = getHeader(data, manufacturer);
+
+        // Try the synths which have recognized this header before, then those which have
+        // recognized this manufacturer before.  Both lists are in synths.txt order, and the
+        // header candidates are a subset of the manufacturer candidates, so this finds the
+        // lowest candidate which recognizes the message.
+        int[] headerCandidates = getHeaderCandidates(header);
+        int found = -1;
+        for(int i = 0; i < headerCandidates.length; i++)
+            {
+            if (Synth.recognize(classNames[headerCandidates[i]], data))
+                {
+                found = headerCandidates[i];
+                break;
+                }
+            }
+
+        int[] manufacturerCandidates = getManufacturerCandidates(manufacturer);
+        for(int i = 0; i < manufacturerCandidates.length; i++)
+            {
+            if (found >= 0 && manufacturerCandidates[i] >= found) break;
+            if (contains(headerCandidates, manufacturerCandidates[i])) continue;
+            if (Synth.recognize(classNames[manufacturerCandidates[i]], data))
+                {
+                found = manufacturerCandidates[i];
+                break;
+                }
+            }
+        
+        if (found >= 0)
+            {
+            // A synth we haven't learned, below the candidate, might also recognize it.  The
+            // candidates below it have already been ruled out.
+            for(int i = 0; i < found; i++)
+                {
+                if (contains(manufacturerCandidates, i)) continue;
+                if (Synth.recognize(classNames[i], data))
+                    {
+                    found = i;
+                    break;
+                    }
+                }
+            if (!contains(headerCandidates, found))
+                learn(manufacturer, header, found);
+            return found;
+            }
+
+        // Try everyone else
+        for(int i = 0; i < classNames.length; i++)
+            {
+            if (contains(manufacturerCandidates, i)) continue;
+            if (Synth.recognize(classNames[i], data))
+                {
+                learn(manufacturer, header, i);
+                return i;
+                }
+            }
+        return -1;
+        }
+    }
@@ -0,0 +1,208 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import javax.sound.midi.*;
+import java.util.*;
+
+/****
+      A reusable buffer of short MIDI messages (CCs, NRPNs, Program Changes, and so on) and
+      pauses, packed into ints rather than built as ShortMessage objects.  Synth editors which
+      send their parameters as CCs or NRPNs can write them into a buffer with
+      Synth.emitTo(...), and Synth.tryToSendMIDI(ShortMessageBuffer) hands the packed messages
+      straight to the output, so sending a parameter, or a whole patch, needn't allocate anything.
+      Clear the buffer and use it again.
+
+      <p>A message is packed as its status byte, plus its first data byte shifted left 8, plus its
+      second data byte shifted left 16, which is always positive.  A pause is packed as the negative
+      of one more than its length in milliseconds.
+
+      <p>The add methods check their data just as the ShortMessage constructors do: if a message
+      would be invalid, the exception is handled by Synth.handleException(...) and nothing is
+      added.  Each returns the buffer so calls may be chained.
+
+      @author Sean Luke
+*/
+
+public class ShortMessageBuffer
+    {
+    int[] messages;
+    int size = 0;
+
+    public ShortMessageBuffer() { this(16); }
+
+    public ShortMessageBuffer(int capacity)
+        {
+        messages = new int[Math.max(1, capacity)];
+        }
+
+    /** Empties the buffer. */
+    public ShortMessageBuffer clear() { size = 0; return this; }
+
+    /** Returns the number of messages and pauses in the buffer. */
+    public int size() { return size; }
+
+    /** Returns the packed message or pause at the given position. */
+    public int get(int index) { return messages[index]; }
+
+    /** Returns true if the packed value is a pause rather than a message. */
+    public static boolean isPause(int packed) { return packed < 0; }
+
+    /** Returns the length of a packed pause, in milliseconds. */
+    public static int getPause(int packed) { return -packed - 1; }
+
+    /** Returns the status byte of a packed message. */
+    public static int getStatus(int packed) { return packed & 0xFF; }
+
+    /** Returns the first data byte of a packed message. */
+    public static int getData1(int packed) { return (packed >>> 8) & 0xFF; }
+
+    /** Returns the second data byte of a packed message. */
+    public static int getData2(int packed) { return (packed >>> 16) & 0xFF; }
+
+    /** Packs a message.  No checking is done. */
+    public static int pack(int status, int data1, int data2) { return status | (data1 << 8) | (data2 << 16); }
+
+    /** Packs a ShortMessage. */
+    public static int pack(ShortMessage message) { return pack(message.getStatus(), message.getData1(), message.getData2()); }
+
+    void append(int packed)
+        {
+        if (size == messages.length)
+            messages = Arrays.copyOf(messages, size * 2);
+        messages[size++] = packed;
+        }
+
+    // Returns the data byte as ShortMessage would see it after casting to a byte, which is negative if it's invalid
+    static int data(int value)
+        {
+        return (byte)value;
+        }
+
+    // Returns true, or handles an exception and returns false, in the same cases as new ShortMessage(command, channel, data1, data2)
+    static boolean valid(int channel, int data1, int data2)
+        {
+        if (channel >= 0 && channel < 16 && data1 >= 0 && data1 < 128 && data2 >= 0 && data2 < 128)
+            return true;
+        Synth.handleException(new InvalidMidiDataException("Invalid short message: channel " + channel + " data " + data1 + " " + data2));
+        return false;
+        }
+
+    /** Adds a pause of the given number of milliseconds before the next message is sent. */
+    public ShortMessageBuffer addPause(int ms)
+        {
+        if (ms > 0) append(-ms - 1);
+        return this;
+        }
+
+    /** Adds an already-built ShortMessage. */
+    public ShortMessageBuffer add(ShortMessage message)
+        {
+        append(pack(message));
+        return this;
+        }
+
+    /** Adds a short (7-bit) CC, as Synth.buildCC(...) builds it. */
+    public ShortMessageBuffer addCC(int channel, int parameter, int value)
+        {
+        int v = data(value & 127);
+        if (valid(channel, parameter, v))
+            append(pack(ShortMessage.CONTROL_CHANGE | channel, parameter, v));
+        return this;
+        }
+
+    /** Adds a 14-bit CC, as Synth.buildLongCC(...) builds it.  The parameter must be 0...31. */
+    public ShortMessageBuffer addLongCC(int channel, int parameter, int value)
+        {
+        int v_msb = data((value >>> 7) & 127);
+        int v_lsb = data(value & 127);
+        if (valid(channel, parameter, v_msb) && valid(channel, parameter + 32, v_lsb))
+            {
+            append(pack(ShortMessage.CONTROL_CHANGE | channel, parameter, v_msb));
+            append(pack(ShortMessage.CONTROL_CHANGE | channel, parameter + 32, v_lsb));
+            }
+        return this;
+        }
+
+    /** Adds the four CCs of an NRPN message, as Synth.buildNRPN(...) builds them. */
+    public ShortMessageBuffer addNRPN(int channel, int parameter, int value)
+        {
+        int p_msb = data(parameter >>> 7);
+        int p_lsb = data(parameter & 127);
+        int v_msb = data(value >>> 7);
+        int v_lsb = data(value & 127);
+        if ((value >>> 7) > 127)
+            {
+            System.out.println("Synth.java NRPN(int, int, int) ERROR.  Problem with value " + value + " at parameter " + parameter);
+            }
+        if (valid(channel, p_msb, p_lsb) && valid(channel, v_msb, v_lsb))
+            {
+            int status = ShortMessage.CONTROL_CHANGE | channel;
+            append(pack(status, 99, p_msb));
+            append(pack(status, 98, p_lsb));
+            append(pack(status, 6, v_msb));
+            append(pack(status, 38, v_lsb));
+
+            // can't have the null parameter (101=127, 100=127) right now, it freaks out the PreenFM2
+            }
+        return this;
+        }
+
+    /** Adds the three CCs of an NRPN message without a Data Entry LSB, as Synth.buildNRPNMSBOnly(...) builds them. */
+    public ShortMessageBuffer addNRPNMSBOnly(int channel, int parameter, int value)
+        {
+        int p_msb = data(parameter >>> 7);
+        int p_lsb = data(parameter & 127);
+        int v_msb = data(value);
+        if (value > 127)
+            {
+            System.out.println("Synth.java NRPN(int, int, int) ERROR.  Problem with value " + value + " at parameter " + parameter);
+            }
+        if (valid(channel, p_msb, p_lsb) && valid(channel, v_msb, 0))
+            {
+            int status = ShortMessage.CONTROL_CHANGE | channel;
+            append(pack(status, 99, p_msb));
+            append(pack(status, 98, p_lsb));
+            append(pack(status, 6, v_msb));
+            }
+        return this;
+        }
+
+    /** Adds a Program Change, as Synth.buildPC(...) builds it. */
+    public ShortMessageBuffer addPC(int channel, int program)
+        {
+        if (valid(channel, program, 0))
+            append(pack(ShortMessage.PROGRAM_CHANGE | channel, program, 0));
+        return this;
+        }
+
+    /** Builds a ShortMessage from a packed message. */
+    public static ShortMessage toMessage(int packed) throws InvalidMidiDataException
+        {
+        int status = getStatus(packed);
+        return new ShortMessage(status & 0xF0, status & 0x0F, getData1(packed), getData2(packed));
+        }
+
+    /** Returns the contents of the buffer in the form taken by Synth.tryToSendMIDI(Object[]): a ShortMessage
+        for each message, and an Integer for each pause. */
+    public Object[] toObjects()
+        {
+        Object[] objs = new Object[size];
+        for(int i = 0; i < size; i++)
+            {
+            if (isPause(messages[i]))
+                {
+                objs[i] = Integer.valueOf(getPause(messages[i]));
+                }
+            else
+                {
+                try { objs[i] = toMessage(messages[i]); }
+                catch (InvalidMidiDataException e) { Synth.handleException(e); return new Object[0]; }      // can't happen
+                }
+            }
+        return objs;
+        }
+    }
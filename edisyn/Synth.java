@@ -56,7 +56,7 @@ public abstract class Synth extends JComponent implements Updatable
     public JTabbedPane tabs = new JTabbedPane();
 
     /** The largest permitted sysex file. */
-    public static final int MAX_FILE_LENGTH = 1024 * 1024 * 4;        // so we don't go on forever
+    public static final int MAX_FILE_LENGTH = 1024 * 1024 * 4;        // MIDI files larger than this are read into memory only if the user okays it
 
     /** Used in emitAll(key...) to indicate that emitAll(...) is being used to send one of a stream of all the parameters. */
     public static final int STATUS_SENDING_ALL_PARAMETERS = 0;
@@ -282,6 +282,7 @@ public abstract class Synth extends JComponent implements Updatable
     public Synth() 
         {
         model = buildModel();
+        model.useInternedSchema(getClass());         // share the key schema with earlier synths of this class
         model.register(Model.ALL_KEYS, this);
         model.setUndoListener(undo);
         ccmap = new CCMap(Prefs.getAppPreferences(getSynthClassName(), "CCKey"),
@@ -332,6 +333,7 @@ public abstract class Synth extends JComponent implements Updatable
         try
             {
             Synth synth = (Synth)(_class.newInstance()); // this will setWillPush(false);
+            synth.getModel().internSchema(_class);      // so later synths of this class can share it
             if (!throwaway)
                 {
                 // Make sure to turn off MIDI!
@@ -869,6 +871,20 @@ public abstract class Synth extends JComponent implements Updatable
     */
     // don't return PARSE_ERROR, that's used internally
     public int parse(byte[] data, boolean fromFile) { return PARSE_FAILED; }
+
+    /** Override this to return an object describing any state of your editor, other than its Model, 
+        on which parse(...) depends, such as the synth type or the installed ROMs.  The Librarian caches
+        Models parsed from its patches, and only reuses one which was parsed by a synth of the same class 
+        with an equal parse state.  The object must implement equals(...) and hashCode() and must not be 
+        modified afterwards; an Integer or String is simplest.  By default this returns null. */
+    public Object getParseState() { return null; }
+
+    /** Return false if the Librarian may not parse patches in several threads at once, each with a 
+        throwaway synth of your class, typically because your parse(...) touches widgets or preferences.
+        A throwaway synth also starts with its default settings rather than yours, so by default this
+        returns true only if getParseState() returns null.  Otherwise the Librarian parses on the Swing 
+        event thread with this synth.  See Proteus 2000. */
+    public boolean getParsesInParallel() { return getParseState() == null; }
     
     /** Updates the model to reflect the following sysex message from your synthesizer. 
         You are free to IGNORE this message entirely.  Patch dumps will generally not be sent this way; 
@@ -934,6 +950,17 @@ public abstract class Synth extends JComponent implements Updatable
         return emitAll(key);
         }
 
+    /** Override this if your synth sends individual parameters as CCs, NRPNs, or other short messages, to 
+        add the messages for the given parameter to the buffer (which will be empty) rather than building 
+        them as emitAll(key, status) does, and return true.  This lets Edisyn send parameters, and whole
+        patches parameter by parameter, without allocating any MIDI messages.  You may add nothing at all, 
+        just as emitAll(key, status) may return an empty array.  Return false if the parameter can't be 
+        emitted this way, in which case emitAll(key, status) will be called instead.  The default returns false. */
+    public boolean emitTo(String key, int status, ShortMessageBuffer buffer)
+        {
+        return false;
+        }
+
     /** Produces one or more sysex parameter change requests for the given parameter as one
         OR MORE sysex dumps or other MIDI messages.  Each sysex dump is a separate byte array,
         and other midi messages are MIDI message objects.
@@ -1248,6 +1275,13 @@ public abstract class Synth extends JComponent implements Updatable
         sending multiple separate parameter change requests (FALSE).  By default this is TRUE. */
     public boolean getSendsAllParametersAsDump() { return true; }
 
+    /** Returns whether, when Morph has already sent a patch and it then changes, Edisyn may send 
+        only the parameters which changed rather than calling sendAllParameters() again.  By default 
+        this is TRUE if getSendsAllParametersAsDump() is FALSE.  If you override sendAllParametersInternal() to 
+        do more than send each parameter (such as first selecting where they should go), return FALSE,
+        as the changed parameters are sent without calling it. */
+    public boolean getSendsDifferentParameters() { return !getSendsAllParametersAsDump(); }
+
     /** Returns whether the synth sends raw CC or cooked CC (such as for NRPN) to update parameters.  The default is FALSE (cooked or nothing). */
     public boolean getExpectsRawCCFromSynth() { return false; }
 
@@ -1277,128 +1311,63 @@ public abstract class Synth extends JComponent implements Updatable
 
 
 
+    /** Return true if the synth remembers which NRPN (or RPN) parameter was last selected, as the MIDI spec
+        says it should, so that when an NRPN or RPN message would select the same parameter that is already 
+        selected (as happens over and over while a dial is being dragged), its parameter select CCs (99 and 98, 
+        or 101 and 100) may be left out.  This only happens to messages sent together via tryToSendMIDI(Object[]),
+        such as those built by buildNRPN(...), and only when we know what the synth was last sent: any other CC, 
+        Program Change, or sysex makes us forget.  By default this returns false. */
+    public boolean getElidesNRPNSelects() { return false; }
+
+    /** Return true if, in addition to getElidesNRPNSelects(), the synth correctly handles NRPN or RPN messages
+        from which redundant MSBs have been left out.  That is, it will accept a parameter LSB (98 or 100) alone, 
+        combining it with the last parameter MSB (99 or 101), and it will accept a Data Entry LSB (38) alone, 
+        combining it with the last Data Entry MSB (6).  This has no effect unless getElidesNRPNSelects() 
+        also returns true.  By default this returns false. */
+    public boolean getElidesNRPNMSBs() { return false; }
+        
+
+
+
+
+
+
+
+
     ////////  UTILITY METHODS FOR BUILDING MIDI MESSAGES
 
-    /** Builds a sequence of CCs for an NRPN message. */
+    /** Builds a sequence of CCs for an NRPN message.  See also ShortMessageBuffer.addNRPN(...) */
     public Object[] buildNRPN(int channel, int parameter, int value)
         {
-        try
-            {
-            int p_msb = (parameter >>> 7);
-            int p_lsb = (parameter & 127);
-            int v_msb = (value >>> 7);
-            int v_lsb = (value & 127);
-            if (v_msb > 127) 
-                {
-                System.out.println("Synth.java NRPN(int, int, int) ERROR.  Problem with value " + value + " at parameter " + parameter);
-                }
-        
-            return new Object[]
-                {
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 99, (byte)p_msb),
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 98, (byte)p_lsb),
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 6, (byte)v_msb),
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 38, (byte)v_lsb),
-
-                // can't have these right now, it freaks out the PreenFM2
-                //new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 101, (byte)127),
-                //new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 100, (byte)127),
-                };
-            }
-        catch (InvalidMidiDataException e)
-            {
-            Synth.handleException(e);
-            return new Object[0];
-            }
+        return new ShortMessageBuffer(4).addNRPN(channel, parameter, value).toObjects();
         }
 
     /** Builds a sequence of CCs for an NRPN message, where the MSB is set to the value and the LSB
         is not sent at all. This is a workaround for a bug in the Micromonsta, which borks on some items 
-        if the data MSB is sent first and then the LSB. */
+        if the data MSB is sent first and then the LSB.  See also ShortMessageBuffer.addNRPNMSBOnly(...) */
     public Object[] buildNRPNMSBOnly(int channel, int parameter, int value)
         {
-        try
-            {
-            int p_msb = (parameter >>> 7);
-            int p_lsb = (parameter & 127);
-            int v_msb = value;
-            if (v_msb > 127) 
-                {
-                System.out.println("Synth.java NRPN(int, int, int) ERROR.  Problem with value " + value + " at parameter " + parameter);
-                }
-        
-            return new Object[]
-                {
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 99, (byte)p_msb),
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 98, (byte)p_lsb),
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 6, (byte)v_msb),         // BLEAH
-
-                // can't have these right now, it freaks out the PreenFM2
-                //new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 101, (byte)127),
-                //new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 100, (byte)127),
-                };
-            }
-        catch (InvalidMidiDataException e)
-            {
-            Synth.handleException(e);
-            return new Object[0];
-            }
+        return new ShortMessageBuffer(3).addNRPNMSBOnly(channel, parameter, value).toObjects();
         }
 
-    /** Builds a short (7-bit) CC. */
+    /** Builds a short (7-bit) CC.  See also ShortMessageBuffer.addCC(...) */
     public Object[] buildCC(int channel, int parameter, int value)
         {
-        try
-            {
-            return new Object[]
-                {
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, parameter, (byte)(value & 127))
-                };
-            }
-        catch (InvalidMidiDataException e)
-            {
-            Synth.handleException(e);
-            return new Object[0];
-            }
+        return new ShortMessageBuffer(1).addCC(channel, parameter, value).toObjects();
         }
 
 
-    /** Builds a sequence of CCs for a 14-bit CC message.  The parameter must be 0...31. */
+    /** Builds a sequence of CCs for a 14-bit CC message.  The parameter must be 0...31.  See also ShortMessageBuffer.addLongCC(...) */
     public Object[] buildLongCC(int channel, int parameter, int value)
         {
-        try
-            {
-            int v_msb = ((value >>> 7) & 127);
-            int v_lsb = (value & 127);
-            return new Object[]
-                {
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, parameter, (byte)v_msb),
-                new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, parameter + 32, (byte)v_lsb)
-                };
-            }
-        catch (InvalidMidiDataException e)
-            {
-            Synth.handleException(e);
-            return new Object[0];
-            }
+        return new ShortMessageBuffer(2).addLongCC(channel, parameter, value).toObjects();
         }
 
 
-    /** Builds a Program Change message. */
+    /** Builds a Program Change message.  See also ShortMessageBuffer.addPC(...) */
     public Object[] buildPC(int channel, int program)
         {
-        try
-            {
-            return new Object[]
-                {
-                new ShortMessage(ShortMessage.PROGRAM_CHANGE, channel, program, 0)
-                };
-            }
-        catch (InvalidMidiDataException e)
-            {
-            Synth.handleException(e);
-            return new Object[0];
-            }
+        return new ShortMessageBuffer(1).addPC(channel, program).toObjects();
         }
 
     /** Concatenates two object arrays nondestructively.  Useful for making chains of MIDI messages. */
@@ -1551,8 +1520,6 @@ public abstract class Synth extends JComponent implements Updatable
         public MidiInfo(MidiMessage m, int c) { message = m; controller = c; }
         }
                 
-    ArrayList<MidiMessage> inBuffer = new ArrayList<>();
-    ArrayList<MidiInfo> keyBuffer = new ArrayList<>();
         
     long lastTime = 0;
     Object timeLock = new Object[0];
@@ -1583,226 +1550,216 @@ public abstract class Synth extends JComponent implements Updatable
                 
 
                     
-    Object inReceiverLock = new Object[0];
-    boolean inReceiverSetup = false;
-    Thread inReceiverThread = new Thread(new Runnable()
+    /** The most messages we'll process from a MidiRingBuffer in a single Swing event before giving other events a chance. */
+    public static final int MAX_MESSAGES_PER_DISPATCH = 256;
+
+    // Incoming MIDI from the synthesizer, waiting to be processed in the Swing event thread
+    MidiRingBuffer inRing = new MidiRingBuffer();
+    java.util.concurrent.atomic.AtomicBoolean inDispatchScheduled = new java.util.concurrent.atomic.AtomicBoolean(false);
+
+    // Processes a batch of messages from inRing in the Swing event thread 
+    Runnable inDispatcher = new Runnable()
         {
         public void run()
             {
-            ArrayList<MidiMessage> temp = null;
-            while(true)
+            inDispatchScheduled.set(false);         // anything arriving after this point will schedule another dispatch
+            if (!receiveMIDI) return;                   // setReceiveMIDI(true) will schedule us later
+                        
+            for(int i = 0; i < MAX_MESSAGES_PER_DISPATCH; i++)
                 {
-                synchronized(inReceiverLock)
+                MidiMessage message = inRing.poll();
+                if (message == null) break;
+                try { processInMessage(message); }
+                catch (Exception ex) { Synth.handleException(ex); }
+                }
+                                
+            if (!inRing.isEmpty())                  // more to do
+                scheduleInDispatch();
+            }
+        };
+                
+    void scheduleInDispatch()
+        {
+        if (inDispatchScheduled.compareAndSet(false, true))
+            SwingUtilities.invokeLater(inDispatcher);
+        }
+
+    // Handles a single message from the synthesizer.  Called in the Swing event thread.
+    void processInMessage(final MidiMessage message)
+        {
+            if (amActiveSynth())
+                {
+                if (message instanceof SysexMessage)
                     {
-                    // Wait until the buffer has something for us maybe
-                    if (inBuffer.size() == 0)
+                    final byte[] data = midi.gatherInSysexData((SysexMessage)message);
+
+                    if (data == null)
                         {
-                        try { inReceiverLock.wait(); }  catch (InterruptedException ex) { }
+                        // sysex not completed yet
                         }
-                                        
-                    // copy the buffer and get out
-                    temp = inBuffer;
-                    inBuffer = new ArrayList<MidiMessage>();
-                    }
-                                        
-                // process each message in the buffer
-                for(MidiMessage message : temp)
-                    {
-                    // I'm doing this in the Swing event thread because I figure it's multithreaded
-                    try
+                    else if (recognizeLocal(data))
                         {
-                        // I'm doing this in the Swing event thread because I figure it's multithreaded
-                        SwingUtilities.invokeLater(new Runnable()
+                        if (merging != 0.0)
                             {
-                            public void run()
+                            if (merge(data, merging) == PARSE_INCOMPLETE)
                                 {
-                                if (amActiveSynth())
+                                }
+                            else
+                                {
+                                setMergeProbability(0.0);
+                                }
+                            }
+                        else
+                            {
+                            mergeSynth = null;
+                            // we turn off MIDI because parse() calls revise() which triggers setParameter() with its changes
+                            boolean originalMIDI = getSendMIDI();
+                            setSendMIDI(false);
+                            undo.setWillPush(false);
+                            // time("Backing Up for " + message);
+                            Model backup = (Model)(model.clone());
+                            int result = PARSE_ERROR;
+                            try 
+                                {
+                                // time("Parsing " + message);
+                                result = performParse(data, false);
+                                }
+                            catch (Exception ex)
+                                {
+                                //System.out.println("The exception is " + ex);
+                                Synth.handleException(ex);
+                                // result is now PARSE_ERROR
+                                }
+                                                                                                                    
+                            // If we're in the librarian, and we're not auto-downloading the patch, and we received a patch,
+                            // we want to just load it into the librarian. For example, if the synth is engaged in a multi-patch
+                            // patch dump to us, we want to load it properly.  So we need to handle it here. One item we need to make
+                            // sure of is to not do a push of the backup, but rather just replace it
+                            if ((result == PARSE_SUCCEEDED || result == PARSE_SUCCEEDED_UNTITLED) &&
+                                patchTimer == null && tabs.getSelectedComponent() == librarianPane)              // if we're in the librarian and not doing downloading, handle it specially
+                                {
+                                Patch patch = librarian.getLibrary().getPatch(model);
+                                patch.number = model.get("number", Patch.NUMBER_NOT_SET);
+                                patch.bank = model.get("bank", 0);
+                                librarian.getLibrary().receivePatch(patch);
+                                librarian.updateUndoRedo();             
+                                backup.copyValuesTo(model);             // restore the old model, but don't push an undo
+                                undo.setWillPush(true);
+                                setSendMIDI(originalMIDI);
+                                }
+                            else
+                                {
+                                undo.setWillPush(true);
+                                if (!backup.keyEquals(getModel()))   // it's changed, do an undo push
                                     {
-                                    if (message instanceof SysexMessage)
-                                        {
-                                        final byte[] data = midi.gatherInSysexData((SysexMessage)message);
+                                    if (!backupDoneForParse) { undo.push(backup); backupDoneForParse = true; } 
+                                    }
 
-                                        if (data == null)
-                                            {
-                                            // sysex not completed yet
-                                            }
-                                        else if (recognizeLocal(data))
-                                            {
-                                            if (merging != 0.0)
-                                                {
-                                                if (merge(data, merging) == PARSE_INCOMPLETE)
-                                                    {
-                                                    }
-                                                else
-                                                    {
-                                                    setMergeProbability(0.0);
-                                                    }
-                                                }
-                                            else
-                                                {
-                                                mergeSynth = null;
-                                                // we turn off MIDI because parse() calls revise() which triggers setParameter() with its changes
-                                                boolean originalMIDI = getSendMIDI();
-                                                setSendMIDI(false);
-                                                undo.setWillPush(false);
-                                                // time("Backing Up for " + message);
-                                                Model backup = (Model)(model.clone());
-                                                int result = PARSE_ERROR;
-                                                try 
-                                                    {
-                                                    // time("Parsing " + message);
-                                                    result = performParse(data, false);
-                                                    }
-                                                catch (Exception ex)
-                                                    {
-                                                    //System.out.println("The exception is " + ex);
-                                                    Synth.handleException(ex);
-                                                    // result is now PARSE_ERROR
-                                                    }
-                                                                                                                                        
-                                                // If we're in the librarian, and we're not auto-downloading the patch, and we received a patch,
-                                                // we want to just load it into the librarian. For example, if the synth is engaged in a multi-patch
-                                                // patch dump to us, we want to load it properly.  So we need to handle it here. One item we need to make
-                                                // sure of is to not do a push of the backup, but rather just replace it
-                                                if ((result == PARSE_SUCCEEDED || result == PARSE_SUCCEEDED_UNTITLED) &&
-                                                    patchTimer == null && tabs.getSelectedComponent() == librarianPane)              // if we're in the librarian and not doing downloading, handle it specially
-                                                    {
-                                                    Patch patch = librarian.getLibrary().getPatch(model);
-                                                    patch.number = model.get("number", Patch.NUMBER_NOT_SET);
-                                                    patch.bank = model.get("bank", 0);
-                                                    librarian.getLibrary().receivePatch(patch);
-                                                    librarian.updateUndoRedo();             
-                                                    backup.copyValuesTo(model);             // restore the old model, but don't push an undo
-                                                    undo.setWillPush(true);
-                                                    setSendMIDI(originalMIDI);
-                                                    }
-                                                else
-                                                    {
-                                                    undo.setWillPush(true);
-                                                    if (!backup.keyEquals(getModel()))   // it's changed, do an undo push
-                                                        {
-                                                        if (!backupDoneForParse) { undo.push(backup); backupDoneForParse = true; } 
-                                                        }
-
-                                                    incomingPatch = (incomingPatch || result == PARSE_SUCCEEDED || result == PARSE_SUCCEEDED_UNTITLED);
-                                                    if (result == PARSE_CANCELLED)
-                                                        {
-                                                        incomingPatch = false;
-                                                        backupDoneForParse = false;         // reset
-                                                        // nothing
-                                                        }
-                                                    else if (result == PARSE_FAILED)
-                                                        {
-                                                        incomingPatch = false;
-                                                        backupDoneForParse = false;         // reset
-                                                        showSimpleError("Receive Error", "Could not read the patch.");
-                                                        }
-                                                    else if (result == PARSE_ERROR)
-                                                        {
-                                                        incomingPatch = false;
-                                                        backupDoneForParse = false;         // reset
-                                                        showSimpleError("Receive Error", "An error occurred on reading the patch.");
-                                                        }
-                                                    else if (result == PARSE_IGNORE)
-                                                        {
-                                                        backupDoneForParse = false;         // reset
-                                                        // nothing
-                                                        }
-                                                    else if (incomingPatch)
-                                                        {
-                                                        backupDoneForParse = false;         // reset
-                                                        }
-
-                                                    setSendMIDI(originalMIDI);
-                                                    if (getSendsParametersAfterNonMergeParse() && !isBatchDownloading() && incomingPatch && !(result != PARSE_IGNORE))
-                                                        {
-                                                        simplePause(getPauseAfterReceivePatch());
-                                                        sendAllParameters();
-                                                        }
-                                                    file = null;
-                                                    // time("Update Blend " + message);
-
-                                                    updateBlend();
-                                                    }
-                                                // time("Update Title " + message);
-
-                                                updateTitle();
-                                                }
-                                            }
-                                        else if (handleDeviceInquiry(data))
-                                            {
-                                            // do nothing
-                                            }
-                                        else    // Maybe it's a local Parameter change in sysex?
-                                            {
-                                            // we don't do undo here.  It's not great but PreenFM2 etc. would wreak havoc
-                                            boolean willPush = undo.getWillPush();
-                                            undo.setWillPush(false);
-                                                                                                                                                                                
-                                            boolean originalMIDI = getSendMIDI();
-                                            setSendMIDI(false);     // so we don't send out parameter updates in response to reading/changing parameters
-                                            parseParameter(data);
-                                            setSendMIDI(originalMIDI);  
-                                            updateTitle();
-                                                                                                                                                                                
-                                            undo.setWillPush(willPush);
-                                            }
-                                        }
-                                    else if (message instanceof ShortMessage)
-                                        {
-                                        midi.resetInSysexData();
-                                        ShortMessage sm = (ShortMessage)message;
-                                        if (sm.getCommand() == ShortMessage.CONTROL_CHANGE)
-                                            {
-                                            boolean willPush = undo.getWillPush();
-                                            undo.setWillPush(false);
-                                                                                                                                                                                                                                
-                                            // we don't do undo here.  It's not great but PreenFM2 etc. would wreak havoc
-                                            boolean originalMIDI = getSendMIDI();
-                                            setSendMIDI(false);     // so we don't send out parameter updates in response to reading/changing parameters
-                                            // let's try parsing it
-                                            handleInRawCC(sm);
-                                            if (!getReceivesPatchesAsDumps()) 
-                                                {
-                                                incomingPatch = true;
-                                                }
-                                            setSendMIDI(originalMIDI);  
-                                            updateTitle();
-                                                                                                                                                                                                                                
-                                            undo.setWillPush(willPush);
-                                            }
-                                        }
-                                    // time("Done " + message);
+                                incomingPatch = (incomingPatch || result == PARSE_SUCCEEDED || result == PARSE_SUCCEEDED_UNTITLED);
+                                if (result == PARSE_CANCELLED)
+                                    {
+                                    incomingPatch = false;
+                                    backupDoneForParse = false;         // reset
+                                    // nothing
                                     }
-                                if (testIncomingSynthMIDI) 
+                                else if (result == PARSE_FAILED)
                                     {
-                                    showSimpleMessage("Incoming MIDI from Synthesizer", "A MIDI message has arrived from the Synthesizer:\n" + Midi.format(message)); 
-                                                        
-                                    System.out.println(StringUtility.toHex(message.getMessage()));
-                                    testIncomingSynthMIDI = false; 
-                                    testIncomingSynth.setText("Report Next Synth MIDI");
-                                    } 
+                                    incomingPatch = false;
+                                    backupDoneForParse = false;         // reset
+                                    showSimpleError("Receive Error", "Could not read the patch.");
+                                    }
+                                else if (result == PARSE_ERROR)
+                                    {
+                                    incomingPatch = false;
+                                    backupDoneForParse = false;         // reset
+                                    showSimpleError("Receive Error", "An error occurred on reading the patch.");
+                                    }
+                                else if (result == PARSE_IGNORE)
+                                    {
+                                    backupDoneForParse = false;         // reset
+                                    // nothing
+                                    }
+                                else if (incomingPatch)
+                                    {
+                                    backupDoneForParse = false;         // reset
+                                    }
+
+                                setSendMIDI(originalMIDI);
+                                if (getSendsParametersAfterNonMergeParse() && !isBatchDownloading() && incomingPatch && !(result != PARSE_IGNORE))
+                                    {
+                                    midiPause(getPauseAfterReceivePatch());
+                                    sendAllParameters();
+                                    }
+                                file = null;
+                                // time("Update Blend " + message);
+
+                                updateBlend();
                                 }
-                            });
+                            // time("Update Title " + message);
+
+                            updateTitle();
+                            batchPatchReceived();           // if we're batch downloading, go on to the next patch
+                            }
+                        }
+                    else if (handleDeviceInquiry(data))
+                        {
+                        // do nothing
+                        }
+                    else    // Maybe it's a local Parameter change in sysex?
+                        {
+                        // we don't do undo here.  It's not great but PreenFM2 etc. would wreak havoc
+                        boolean willPush = undo.getWillPush();
+                        undo.setWillPush(false);
+                                                                                                                                                            
+                        boolean originalMIDI = getSendMIDI();
+                        setSendMIDI(false);     // so we don't send out parameter updates in response to reading/changing parameters
+                        parseParameter(data);
+                        setSendMIDI(originalMIDI);  
+                        updateTitle();
+                                                                                                                                                            
+                        undo.setWillPush(willPush);
                         }
-                    catch (Exception ex) { Synth.handleException(ex); }
                     }
+                else if (message instanceof ShortMessage)
+                    {
+                    midi.resetInSysexData();
+                    ShortMessage sm = (ShortMessage)message;
+                    if (sm.getCommand() == ShortMessage.CONTROL_CHANGE)
+                        {
+                        boolean willPush = undo.getWillPush();
+                        undo.setWillPush(false);
+                                                                                                                                                                                                            
+                        // we don't do undo here.  It's not great but PreenFM2 etc. would wreak havoc
+                        boolean originalMIDI = getSendMIDI();
+                        setSendMIDI(false);     // so we don't send out parameter updates in response to reading/changing parameters
+                        // let's try parsing it
+                        handleInRawCC(sm);
+                        if (!getReceivesPatchesAsDumps()) 
+                            {
+                            incomingPatch = true;
+                            }
+                        setSendMIDI(originalMIDI);  
+                        updateTitle();
+                                                                                                                                                                                                            
+                        undo.setWillPush(willPush);
+                        }
+                    }
+                // time("Done " + message);
                 }
-            }
-        });
+            if (testIncomingSynthMIDI) 
+                {
+                showSimpleMessage("Incoming MIDI from Synthesizer", "A MIDI message has arrived from the Synthesizer:\n" + Midi.format(message)); 
+                                    
+                System.out.println(StringUtility.toHex(message.getMessage()));
+                testIncomingSynthMIDI = false; 
+                testIncomingSynth.setText("Report Next Synth MIDI");
+                } 
+        }
               
     /** Builds a receiver to attach to the current IN transmitter.  The receiver
         can resend all incoming requests to the OUT receiver. */
     public Receiver buildInReceiver()
         {
-        // set up the in-receiver processing thread
-        if (!inReceiverSetup)
-            {
-            inReceiverThread.setDaemon(false);
-            inReceiverThread.start();
-            inReceiverSetup = true;
-            }
-        
         return new Receiver()
             {
             public void close()
@@ -1811,14 +1768,11 @@ public abstract class Synth extends JComponent implements Updatable
                                 
             public void send(final MidiMessage message, final long timeStamp)
                 {
-                // Add to the in-receiver buffer and notify the thread that there's something there
-                synchronized(inReceiverLock)
+                // Add to the in-receiver buffer and schedule it to be processed
+                inRing.offer(message);
+                if (receiveMIDI) 
                     {
-                    inBuffer.add(message);
-                    if (receiveMIDI) 
-                        {
-                        inReceiverLock.notifyAll();
-                        }
+                    scheduleInDispatch();
                     }
                 }
             };
@@ -1864,157 +1818,146 @@ public abstract class Synth extends JComponent implements Updatable
         return newList;
         }
     
-    Object keyReceiverLock = new Object[0];
-    boolean keyReceiverSetup = false;
-    boolean keyReceiverProcessing = false;
-    Thread keyReceiverThread = new Thread(new Runnable()
+    // Incoming MIDI from the controllers (keyRing is Controller 1, key2Ring is Controller 2), 
+    // waiting to be processed in the Swing event thread
+    MidiRingBuffer keyRing = new MidiRingBuffer();
+    MidiRingBuffer key2Ring = new MidiRingBuffer();
+    java.util.concurrent.atomic.AtomicBoolean keyDispatchScheduled = new java.util.concurrent.atomic.AtomicBoolean(false);
+
+    // Processes a batch of messages from keyRing and key2Ring in the Swing event thread 
+    Runnable keyDispatcher = new Runnable()
         {
         public void run()
             {
-            ArrayList<MidiInfo> temp = null;
-            while(true)
-                {
-                synchronized(keyReceiverLock)
-                    {
-                    // Wait until we have something to process
-                    if (keyBuffer.size() == 0)
-                        {
-                        try { keyReceiverLock.wait(); }  catch (InterruptedException ex) { }
-                        }
-                                        
-                    // Copy the keyBuffer
-                    temp = keyBuffer;
-                    keyBuffer = new ArrayList<MidiInfo>();
-                    }
+            keyDispatchScheduled.set(false);        // anything arriving after this point will schedule another dispatch
+            if (!receiveMIDI) return;                   // setReceiveMIDI(true) will schedule us later
+                        
+            // Interleave the two controllers in the order their messages arrived
+            ArrayList<MidiInfo> temp = new ArrayList<MidiInfo>();
+            for(int i = 0; i < MAX_MESSAGES_PER_DISPATCH * 2; i++)
+                {
+                long time = keyRing.peekTime();
+                long time2 = key2Ring.peekTime();
+                if (time == Long.MAX_VALUE && time2 == Long.MAX_VALUE) break;
+                if (time2 == Long.MAX_VALUE || (time != Long.MAX_VALUE && time - time2 <= 0))       // nanoTime values must be compared by subtraction
+                    temp.add(new MidiInfo(keyRing.poll(), 0));
+                else
+                    temp.add(new MidiInfo(key2Ring.poll(), 1));
+                }
                                         
-                // If we have more than one item, we should see if we can simplify it
-                if (temp.size() > 1)
-                    {
-                    temp = reduceCC(temp);
-                    }
+            // If we have more than one item, we should see if we can simplify it
+            if (temp.size() > 1)
+                {
+                temp = reduceCC(temp);
+                }
+
+            // process each message in the batch
+            for(MidiInfo info : temp)
+                {
+                try { processKeyMessage(info.message, info); }
+                catch (Exception ex) { Synth.handleException(ex); }
+                }
+                                
+            if (!keyRing.isEmpty() || !key2Ring.isEmpty())              // more to do
+                scheduleKeyDispatch();
+            }
+        };
+                
+    void scheduleKeyDispatch()
+        {
+        if (keyDispatchScheduled.compareAndSet(false, true))
+            SwingUtilities.invokeLater(keyDispatcher);
+        }
 
-                // process each message in the buffer
-                for(MidiInfo info : temp)
+    // Handles a single message from a controller.  Called in the Swing event thread.
+    void processKeyMessage(final MidiMessage message, final MidiInfo info)
+        {
+            if (amActiveSynth())
+                {
+                if (message instanceof ShortMessage)
                     {
-                    MidiMessage message = info.message;
-                    // I'm doing this in the Swing event thread because I figure it's multithreaded
+                    midi.resetKeySysexData();
+                    ShortMessage shortMessage = (ShortMessage)message;
                     try
                         {
-                        SwingUtilities.invokeLater(new Runnable()
-                            {   
-                            public void run()
+                        // we intercept a message if:
+                        // 1. It's a CC (maybe NRPN)
+                        // 2. We're not passing through CC
+                        // 3. It's the right channel OR our key channel is OMNI OR we're doing per-channel CCs
+                        if (tuple != null &&
+                            !getPassThroughCC() && 
+                            shortMessage.getCommand() == ShortMessage.CONTROL_CHANGE &&
+                            (shortMessage.getChannel() == (tuple.keyChannel - 1) || tuple.keyChannel == tuple.KEYCHANNEL_OMNI || perChannelCCs))
+                            {
+                            // we intercept this
+                            handleKeyRawCC(shortMessage);
+                            messageFromController(message, true, false);
+                            }
+                                    
+                        // We send the message to the shandleKeyRawCCynth if:
+                        // 1. We didn't intercept it
+                        // 2. We pass through data to the synth
+                        else if (tuple != null && getPassThroughController())
+                            {
+                            // pass it on!
+                            ShortMessage newMessage = null;
+                                                                                                                    
+                            // In order to pass on, we have to make a new one.  But 
+                            // stupidly, ShortMessage has no way of changing its channel, so we have to rebuild
+                            ShortMessage s = (ShortMessage)message;
+                            int status = s.getStatus();
+                            int channel = s.getChannel();
+                            int data1 = s.getData1();
+                            int data2 = s.getData2();
+                            boolean voiceMessage = ( status < 0xF0 );
+
+                            // should we attempt to reroute to the synth?
+                            if (channel == (tuple.keyChannel - 1) || tuple.keyChannel == tuple.KEYCHANNEL_OMNI)
                                 {
-                                synchronized(keyReceiverLock)
-                                    {
-                                    keyReceiverProcessing = true;
-                                    }
-                                                                
-                                if (amActiveSynth())
-                                    {
-                                    if (message instanceof ShortMessage)
-                                        {
-                                        midi.resetKeySysexData();
-                                        ShortMessage shortMessage = (ShortMessage)message;
-                                        try
-                                            {
-                                            // we intercept a message if:
-                                            // 1. It's a CC (maybe NRPN)
-                                            // 2. We're not passing through CC
-                                            // 3. It's the right channel OR our key channel is OMNI OR we're doing per-channel CCs
-                                            if (tuple != null &&
-                                                !getPassThroughCC() && 
-                                                shortMessage.getCommand() == ShortMessage.CONTROL_CHANGE &&
-                                                (shortMessage.getChannel() == (tuple.keyChannel - 1) || tuple.keyChannel == tuple.KEYCHANNEL_OMNI || perChannelCCs))
-                                                {
-                                                // we intercept this
-                                                handleKeyRawCC(shortMessage);
-                                                messageFromController(message, true, false);
-                                                }
-                                                        
-                                            // We send the message to the shandleKeyRawCCynth if:
-                                            // 1. We didn't intercept it
-                                            // 2. We pass through data to the synth
-                                            else if (tuple != null && getPassThroughController())
-                                                {
-                                                // pass it on!
-                                                ShortMessage newMessage = null;
-                                                                                                                                        
-                                                // In order to pass on, we have to make a new one.  But 
-                                                // stupidly, ShortMessage has no way of changing its channel, so we have to rebuild
-                                                ShortMessage s = (ShortMessage)message;
-                                                int status = s.getStatus();
-                                                int channel = s.getChannel();
-                                                int data1 = s.getData1();
-                                                int data2 = s.getData2();
-                                                boolean voiceMessage = ( status < 0xF0 );
-
-                                                // should we attempt to reroute to the synth?
-                                                if (channel == (tuple.keyChannel - 1) || tuple.keyChannel == tuple.KEYCHANNEL_OMNI)
-                                                    {
-                                                    channel = getVoiceMessageRoutedChannel(channel, getChannelOut());
-                                                    }
-
-                                                if (voiceMessage)
-                                                    {
-                                                    newMessage = new ShortMessage(status, channel, data1, data2);
-                                                    }
-                                                else
-                                                    {
-                                                    newMessage = new ShortMessage(status, data1, data2);
-                                                    }
-                                                                                                        
-                                                tryToSendMIDI(newMessage);
-                                                messageFromController(newMessage, false, true);
-                                                }
-                                            else
-                                                {
-                                                messageFromController(message, false, false);
-                                                }
-                                            }
-                                        catch (InvalidMidiDataException e)
-                                            {
-                                            Synth.handleException(e);
-                                            messageFromController(message, false, false);
-                                            }
-                                        }
-                                    else if (message instanceof SysexMessage && passThroughController)
-                                        {
-                                        tryToSendSysex(extractData(message));
-                                        messageFromController(message, false, true);
-                                        }
-                                    }
-                                if (testIncomingControllerMIDI) 
-                                    { 
-                                    showSimpleMessage("Incoming MIDI from Controller", "A MIDI message has arrived from Controller " + (info.controller + 1) + ":\n\n" + Midi.format(message)); 
-                                    testIncomingControllerMIDI = false; 
-                                    testIncomingController.setText("Report Next Controller MIDI");
-                                    } 
-
-                                synchronized(keyReceiverLock)
-                                    {
-                                    keyReceiverProcessing = false;
-                                    }
+                                channel = getVoiceMessageRoutedChannel(channel, getChannelOut());
+                                }
+
+                            if (voiceMessage)
+                                {
+                                newMessage = new ShortMessage(status, channel, data1, data2);
+                                }
+                            else
+                                {
+                                newMessage = new ShortMessage(status, data1, data2);
                                 }
-                            });
+                                                                                    
+                            tryToSendMIDI(newMessage);
+                            messageFromController(newMessage, false, true);
+                            }
+                        else
+                            {
+                            messageFromController(message, false, false);
+                            }
                         }
-                    catch (Exception ex) { Synth.handleException(ex); }
+                    catch (InvalidMidiDataException e)
+                        {
+                        Synth.handleException(e);
+                        messageFromController(message, false, false);
+                        }
+                    }
+                else if (message instanceof SysexMessage && passThroughController)
+                    {
+                    tryToSendSysex(extractData(message));
+                    messageFromController(message, false, true);
                     }
                 }
-            }
-        });
+            if (testIncomingControllerMIDI) 
+                { 
+                showSimpleMessage("Incoming MIDI from Controller", "A MIDI message has arrived from Controller " + (info.controller + 1) + ":\n\n" + Midi.format(message)); 
+                testIncomingControllerMIDI = false; 
+                testIncomingController.setText("Report Next Controller MIDI");
+                } 
+        }
               
     /** Builds a receiver to attach to the current KEY transmitter.  The receiver
         can resend all incoming requests to the OUT receiver. */
     public Receiver buildKeyReceiver()
         {
-        // set up the key-receiver processing thread if not already set up
-        if (!keyReceiverSetup)
-            {
-            keyReceiverThread.setDaemon(false);
-            keyReceiverThread.start();
-            keyReceiverSetup = true;
-            }
-        
         return new Receiver()
             {
             public void close()
@@ -2023,14 +1966,11 @@ public abstract class Synth extends JComponent implements Updatable
                                 
             public void send(final MidiMessage message, final long timeStamp)
                 {
-                // Add to the key-receiver buffer and notify the thread that there's something there
-                synchronized(keyReceiverLock)
+                // Add to the key-receiver buffer and schedule it to be processed
+                keyRing.offer(message);
+                if (receiveMIDI) 
                     {
-                    keyBuffer.add(new MidiInfo(message, 0));
-                    if (receiveMIDI) 
-                        {
-                        keyReceiverLock.notifyAll();
-                        }
+                    scheduleKeyDispatch();
                     }
                 }
             };
@@ -2041,14 +1981,6 @@ public abstract class Synth extends JComponent implements Updatable
         can resend all incoming requests to the OUT receiver. */
     public Receiver buildKey2Receiver()
         {               
-        // set up the key-receiver processing thread if not already set up
-        if (!keyReceiverSetup)
-            {
-            keyReceiverThread.setDaemon(false);
-            keyReceiverThread.start();
-            keyReceiverSetup = true;
-            }
-        
         return new Receiver()
             {
             public void close()
@@ -2057,19 +1989,22 @@ public abstract class Synth extends JComponent implements Updatable
                                 
             public void send(final MidiMessage message, final long timeStamp)
                 {
-                // Add to the key-receiver buffer and notify the thread that there's something there
-                synchronized(keyReceiverLock)
+                // Add to the key-receiver buffer and schedule it to be processed
+                key2Ring.offer(message);
+                if (receiveMIDI) 
                     {
-                    keyBuffer.add(new MidiInfo(message, 1));
-                    if (receiveMIDI) 
-                        {
-                        keyReceiverLock.notifyAll();
-                        }
+                    scheduleKeyDispatch();
                     }
                 }
             };
         }
 
+    /** Returns statistics about the buffers holding incoming MIDI: their depths, dropped messages, and dispatch latencies. */
+    public String getIncomingMIDIStatistics()
+        {
+        return "Synth: " + inRing + "\nController 1: " + keyRing + "\nController 2: " + key2Ring;
+        }
+
     public boolean isHighResolutionDisplay() { return highResolutionDisplay; }
     
     public void messageFromController(MidiMessage message, boolean interceptedForInternalUse, boolean routedToSynth) { return; }
@@ -2087,8 +2022,11 @@ public abstract class Synth extends JComponent implements Updatable
     public void setReceiveMIDI(boolean val) 
         { 
         receiveMIDI = val;
-        synchronized(keyReceiverLock) { keyReceiverLock.notify(); }
-        synchronized(inReceiverLock) { inReceiverLock.notify(); }
+        if (val)            // process anything which was buffered up in the meantime
+            {
+            scheduleKeyDispatch();
+            scheduleInDispatch();
+            }
         }
 
     /** Returns whether the synth can receive MIDI from any source. */
@@ -2148,39 +2086,80 @@ public abstract class Synth extends JComponent implements Updatable
         changePatch(tempModel);
         int p = getPauseAfterChangePatch();
         if (p > 0)
-            simplePause(p);
+            midiPause(p);
         }
 
-    /** Does a basic sleep for the given ms.  You should only call this if you can't
-        achieve the same thing by overriding one of the getPause methods, such as
-        getPauseAfterChangePatch()... */
+    /** Pauses for the given ms between the MIDI sent before this call and the MIDI sent after it.  
+        You should only call this if you can't achieve the same thing by overriding one of the 
+        getPause methods, such as getPauseAfterChangePatch()...  Because outgoing MIDI is queued and 
+        sent on the OutputScheduler's thread, sleeping here would not put a gap on the wire: so if we have 
+        MIDI output, the pause is queued along with the messages, just like midiPause(...), and the caller
+        doesn't block.  Only if we have no output do we actually sleep. */
     public void simplePause(int ms)
         {
-        if (ms == 0) return;
+        if (ms <= 0) return;
         if (midiDebug) System.out.println("Pause " + ms);
-        try { long l = System.currentTimeMillis(); Thread.currentThread().sleep(ms);}
+        OutputScheduler scheduler = getOutputScheduler();
+        if (scheduler == null || !scheduler.pause(ms * 1000000L))
+            sleep(ms);
+        }
+
+    // Really sleeps the caller for the given ms
+    void sleep(int ms)
+        {
+        try { Thread.currentThread().sleep(ms);}
         catch (Exception e) { Synth.handleException(e); }
         }
 
 
-    long lastMIDISend = 0;
-    // this is different from the simple pause in that it only pauses
-    // if that much time hasn't already transpired between midi sends
-    void midiPause(long expectedPause)
+    /** Returns the OutputScheduler which paces our outgoing MIDI, or null if we have no output. */
+    OutputScheduler getOutputScheduler()
         {
-        if (expectedPause <= 0) return;
-        
-        if (midiDebug) System.out.println("Midi Pause " + expectedPause);
-        long pauseSoFar = System.nanoTime() - lastMIDISend;
-        if (pauseSoFar >= 0 && pauseSoFar < expectedPause)
+        Midi.Tuple t = tuple;
+        if (t == null) return null;
+        return t.getOutputScheduler();
+        }
+
+    // Called by the OutputScheduler if the device has closed itself and we're still trying to send to it.
+    // For example if the user rips the USB cord for his device out of the laptop.  In this
+    // case we'll also disconnect
+    Runnable disconnectOnFailure = new Runnable()
+        {
+        public void run()
             {
-            long pause = expectedPause - pauseSoFar;
-            // verify that pause is rational
-            if (pause < 0L) pause = 0L;
-            if (pause > 100000000L) pause = 100000000L;  // 10ms, still within the int range and not so slow as to make the UI impossible
-            try { Thread.currentThread().sleep((int)(pause / 1000000), (int)(pause % 1000000)); }
-            catch (Exception e) { Synth.handleException(e); }
+            SwingUtilities.invokeLater(new Runnable()
+                {
+                public void run() { doDisconnectMIDI(); }
+                });
             }
+        };
+
+    /** Pauses the outgoing MIDI stream for the given ms before anything else is sent.  
+        This does not block the caller: the pause is queued along with the 
+        messages.  If we have no MIDI output, this just sleeps. */
+    public void midiPause(int ms)
+        {
+        if (ms <= 0) return;
+        if (midiDebug) System.out.println("Midi Pause " + ms);
+        OutputScheduler scheduler = getOutputScheduler();
+        if (scheduler == null || !scheduler.pause(ms * 1000000L))
+            sleep(ms);
+        }
+
+    /** Blocks until all MIDI presently queued to be sent has actually been sent.  */
+    public void waitForMIDI()
+        {
+        OutputScheduler scheduler = getOutputScheduler();
+        if (scheduler != null)
+            scheduler.waitUntilEmpty();
+        }
+
+    /** Blocks until all MIDI presently queued to be sent has actually been sent, or until
+        the given number of ms has passed.  Returns false if we gave up. */
+    public boolean waitForMIDI(int ms)
+        {
+        OutputScheduler scheduler = getOutputScheduler();
+        return (scheduler == null || scheduler.waitUntilEmpty(ms));
         }
     
     long getMicrosecondPosition(Midi.Tuple tuple)
@@ -2197,8 +2176,6 @@ public abstract class Synth extends JComponent implements Updatable
     
     boolean midiDebug = false;
     
-    Object[] midiSendLock = new Object[0];
-
     /** Attempts to send a NON-Sysex MIDI message. Returns false if (1) the data was empty or null (2)
         synth has turned off the ability to send temporarily (3) the sysex message is not
         valid (4) an error occurred when the receiver tried to send the data.  */
@@ -2219,46 +2196,14 @@ public abstract class Synth extends JComponent implements Updatable
             }
         else if (getSendMIDI())
             {
-            if (tuple == null) 
-                {
-                return false;
-                }
-            
-            Receiver receiver = tuple.outReceiver;
-            if (receiver == null) 
-                {
-                return false;
-                }
-            
-            // compute pause
-            try { if (!noMIDIPause) midiPause(getNanoPauseBetweenMIDISends()); }
-            catch (Exception e)
-                {
-                Synth.handleException(e);
-                }
-                                   
-            synchronized(midiSendLock) 
-                {
-                try
-                    {
-//                    long time = getMicrosecondPosition(tuple);
-//                    if (midiDebug) System.out.println("MIDI DEBUG: Sent at " + time);
-                    receiver.send(message, -1);
-                    }
-                catch (IllegalStateException e)
-                    {
-                    // This happens when the device has closed itself and we're still trying to send to it.
-                    // For example if the user rips the USB cord for his device out of the laptop.  In this
-                    // case we'll also disconnect
-                    SwingUtilities.invokeLater(new Runnable()
-                        {
-                        public void run() { doDisconnectMIDI(); }
-                        });
-                    return false;
-                    }
-                }      
-            lastMIDISend = System.nanoTime();
-            return true;
+            OutputScheduler scheduler = getOutputScheduler();
+            if (scheduler == null) 
+                {
+                return false;
+                }
+            
+            // The scheduler sends the message on its own thread, at least getPauseBetweenMIDISends() after the last one
+            return scheduler.send(message, noMIDIPause ? 0 : getNanoPauseBetweenMIDISends(), disconnectOnFailure);
             }
         else
             {
@@ -2318,51 +2263,37 @@ public abstract class Synth extends JComponent implements Updatable
 
         if (getSendMIDI())
             {
-            if (tuple == null) return false;
-            Receiver receiver = tuple.outReceiver;
-            if (receiver == null) return false;
+            OutputScheduler scheduler = getOutputScheduler();
+            if (scheduler == null) return false;
 
-            // compute pause
-            midiPause(getNanoPauseBetweenMIDISends());
-                                        
             try 
                 { 
                 SysexMessage message = new SysexMessage(data, data.length);
-                synchronized(midiSendLock)
+                // The scheduler keeps the fragments together, in order, and paces them on its own thread
+                synchronized(scheduler)
                     {
                     int fragmentSize = getSysexFragmentSize();
                     if (fragmentSize <= NO_SYSEX_FRAGMENT_SIZE || message.getLength() <= fragmentSize)
                         {
-                        long time = -1; // getMicrosecondPosition(tuple);
-                        if (midiDebug) System.out.println("MIDI DEBUG: Sysex sent at " + time + "\n\t" + Midi.format(message));
-                        receiver.send(message, time); 
+                        if (midiDebug) System.out.println("MIDI DEBUG: Sysex queued\n\t" + Midi.format(message));
+                        return scheduler.send(message, getNanoPauseBetweenMIDISends(), disconnectOnFailure); 
                         }
                     else
                         {
                         MidiMessage[] messages = DividedSysex.create(message, fragmentSize);
                         for(int i = 0; i < messages.length; i++)
                             {
-                            if (i > 0) simplePause(getPauseBetweenSysexFragments());
-                            long time = -1; // getMicrosecondPosition(tuple);
-                            if (midiDebug) System.out.println("MIDI DEBUG: Sysex fragment " + i + " sent at " + time);
-                            receiver.send(messages[i], time);
+                            if (midiDebug) System.out.println("MIDI DEBUG: Sysex fragment " + i + " queued");
+                            if (!scheduler.send(messages[i], 
+                                    (i == 0 ? getNanoPauseBetweenMIDISends() : getPauseBetweenSysexFragments() * 1000000L), 
+                                    disconnectOnFailure))
+                                return false;
                             }
+                        return true;
                         }
                     }      
-                lastMIDISend = System.nanoTime();
-                return true; 
                 }
             catch (InvalidMidiDataException e) { Synth.handleException(e); return false; }
-            catch (IllegalStateException e2)
-                {
-                // This happens when the device has closed itself and we're still trying to send to it.
-                // For example if the user rips the USB cord for his device out of the laptop.
-                SwingUtilities.invokeLater(new Runnable()
-                    {
-                    public void run() { doDisconnectMIDI(); }
-                    });
-                return false;
-                }
             }
         else
             return false;
@@ -2387,16 +2318,34 @@ public abstract class Synth extends JComponent implements Updatable
         {
         if (data == null) return false;
         if (data.length == 0) return false;
-                
+        
+        OutputScheduler scheduler = (getElidesNRPNSelects() && getSendMIDI() ? getOutputScheduler() : null);
+        if (scheduler == null)
+            return tryToSendMIDI(data, null);
+        
+        synchronized(scheduler)         // so nobody can send to the device between our deciding what to leave out and our sending the rest
+            {
+            return tryToSendMIDI(data, scheduler);
+            }
+        }
+        
+    // Sends the data.  If scheduler is non-null, redundant NRPN and RPN parameter selects are left out.
+    boolean tryToSendMIDI(Object[] data, OutputScheduler scheduler)
+        {
+        boolean msbs = (scheduler != null && getElidesNRPNMSBs());
         for(int i = 0; i < data.length; i++)
             {
             if (data[i] == null)
                 {
                 continue;
                 }
+            else if (scheduler != null && isRedundant(data, i, scheduler, msbs))
+                {
+                // leave it out
+                }
             else if (data[i] instanceof Integer)
                 {
-                simplePause(((Integer)data[i]).intValue());
+                midiPause(((Integer)data[i]).intValue());
                 continue;
                 }
             else if (data[i] instanceof byte[])
@@ -2418,6 +2367,85 @@ public abstract class Synth extends JComponent implements Updatable
         return true;
         }
 
+    // Returns true if data[i] is an NRPN or RPN CC which the device doesn't need, given what the scheduler says it has been sent
+    static boolean isRedundant(Object[] data, int i, OutputScheduler scheduler, boolean msbs)
+        {
+        if (!(data[i] instanceof ShortMessage)) return false;
+        int next = (i + 1 < data.length && data[i + 1] instanceof ShortMessage ? ShortMessageBuffer.pack((ShortMessage)data[i + 1]) : 0);
+        return isRedundant(ShortMessageBuffer.pack((ShortMessage)data[i]), next, scheduler, msbs);
+        }
+
+    // Returns true if the packed message is an NRPN or RPN CC which the device doesn't need.  nextMessage is 
+    // the packed message which immediately follows it, or 0 if there isn't one.
+    static boolean isRedundant(int message, int nextMessage, OutputScheduler scheduler, boolean msbs)
+        {
+        int status = ShortMessageBuffer.getStatus(message);
+        if ((status & 0xF0) != ShortMessage.CONTROL_CHANGE) return false;
+        int channel = status & 0x0F;
+        int cc = ShortMessageBuffer.getData1(message);
+        int value = ShortMessageBuffer.getData2(message);
+        
+        // The LSB which immediately follows, if any
+        int next = OutputScheduler.UNKNOWN;
+        if (nextMessage > 0 && ShortMessageBuffer.getStatus(nextMessage) == status)
+            {
+            int nextCC = ShortMessageBuffer.getData1(nextMessage);
+            if (((cc == 99 || cc == 101) && nextCC == cc - 1) || (cc == 6 && nextCC == 38))
+                next = ShortMessageBuffer.getData2(nextMessage);
+            }
+            
+        switch(cc)
+            {
+            case 99: case 101:                  // parameter MSB: redundant if the whole select is, or if we may leave out MSBs
+                if (next == OutputScheduler.UNKNOWN && !msbs) return false;
+                return scheduler.isSelected(channel, cc, value, msbs ? OutputScheduler.UNKNOWN : next);
+            case 98: case 100:                  // parameter LSB: redundant if the whole select is
+                return scheduler.isSelectedLSB(channel, cc + 1, value);
+            case 6:                             // data entry MSB: redundant if it's the same and the LSB follows
+                return (msbs && next != OutputScheduler.UNKNOWN && scheduler.isDataMSB(channel, value));
+            default:
+                return false;
+            }
+        }
+
+    /** Attempts to send the short messages and pauses in the buffer, just as tryToSendMIDI(Object[]) would
+        if they had been built as ShortMessages and Integers, but without building them.  Returns false if
+        the buffer was empty, or if the messages could not be sent.  */
+    public boolean tryToSendMIDI(ShortMessageBuffer buffer)
+        {
+        int size = buffer.size();
+        if (size == 0) return false;
+        if (!amActiveSynth() || !getSendMIDI()) return false;
+        OutputScheduler scheduler = getOutputScheduler();
+        if (scheduler == null) return false;
+        
+        long gap = (noMIDIPause ? 0 : getNanoPauseBetweenMIDISends());
+        boolean elide = getElidesNRPNSelects();
+        boolean msbs = elide && getElidesNRPNMSBs();
+        synchronized(scheduler)         // keep our messages together, and see tryToSendMIDI(Object[])
+            {
+            for(int i = 0; i < size; i++)
+                {
+                int message = buffer.get(i);
+                if (ShortMessageBuffer.isPause(message))
+                    {
+                    midiPause(ShortMessageBuffer.getPause(message));
+                    continue;
+                    }
+                if (elide && isRedundant(message, (i + 1 < size ? buffer.get(i + 1) : 0), scheduler, msbs))
+                    continue;
+                if (midiDebug)
+                    {
+                    try { System.out.println("MIDI DEBUG: MIDI " + debugMessage(ShortMessageBuffer.toMessage(message))); }
+                    catch (InvalidMidiDataException e) { Synth.handleException(e); }
+                    }
+                if (!scheduler.send(message, gap, disconnectOnFailure))
+                    return false;
+                }
+            }
+        return true;
+        }
+
     boolean midiCanceled = false;
         
     /**
@@ -2479,6 +2507,7 @@ public abstract class Synth extends JComponent implements Updatable
                         break;
                         }
                     tryToSendMIDI(new Object[] { data[i] });
+                    waitForMIDI();          // so the progress bar and the Stop button reflect what has actually been sent
                     bar.setValue((i * 100) / data.length);
                     }
                 setReceiveMIDI(receive);
@@ -2583,25 +2612,31 @@ public abstract class Synth extends JComponent implements Updatable
                 int sub = getCurrentTab();
                 if (perChannelCCs)
                     sub = ccdata.channel;
-                String key = ccmap.getKeyForCCPane(ccdata.number, sub);
-                if (key != null)
+                // This is called for every incoming controller message, so we use the compiled
+                // dispatch table and the key's slot rather than looking up Strings in HashMaps
+                CCMap.Dispatch dispatch = ccmap.getDispatch();
+                int entry = dispatch.find(ccdata.number, sub);
+                if (entry >= 0)
                     {
+                    String key = dispatch.getKey(entry);
+                    int slot = dispatch.getSlot(entry, model);              // -1 if the model doesn't have the key
+                    
                     // handle increment/decrement
                     if (ccdata.increment)
                         {
-                        ccdata.value = ccdata.value + model.get(key);
+                        ccdata.value = ccdata.value + model.intAt(slot, -1);
                         }
 
                     // handle the situation where the range is larger than the CC/NRPN message,
                     // else bump it to min
-                    if (model.minExists(key) && model.maxExists(key))
+                    if (slot >= 0 && model.slotHasMin(slot) && model.slotHasMax(slot))
                         {
                         if (ccdata.type == Midi.CCDATA_TYPE_RAW_CC)
                             {
-                            int type = ccmap.getTypeForCCPane(ccdata.number, sub);
-                            int min = model.getMin(key);
-                            int max = model.getMax(key);
-                            int val = model.get(key);
+                            int type = dispatch.getType(entry);
+                            int min = model.getSlotMin(slot);
+                            int max = model.getSlotMax(slot);
+                            int val = model.intAt(slot, -1);
                                                         
                             if (type == CCMap.TYPE_ABSOLUTE_CC)
                                 {
@@ -2632,8 +2667,8 @@ public abstract class Synth extends JComponent implements Updatable
                             }
                         else if (ccdata.type == Midi.CCDATA_TYPE_NRPN)
                             {
-                            int min = model.getMin(key);
-                            int max = model.getMax(key);
+                            int min = model.getSlotMin(slot);
+                            int max = model.getSlotMax(slot);
                             if (max - min + 1 > 16383)  // uh oh, but very unlikely
                                 {
                                 ccdata.value = (int)(((max - min + 1) / (double) 16383) * ccdata.value);
@@ -2645,7 +2680,7 @@ public abstract class Synth extends JComponent implements Updatable
                             }
                         }
 
-                    model.setBounded(key, ccdata.value);
+                    model.setBounded(slot, key, ccdata.value);
                     }
                 }
             }
@@ -2733,7 +2768,7 @@ public abstract class Synth extends JComponent implements Updatable
             setSendMIDI(true);
             
             // sometimes synths don't have enough time after a random merge, so we pause here
-            simplePause(getPauseAfterReceivePatch());
+            midiPause(getPauseAfterReceivePatch());
             sendAllParameters();
 
             backupDoneForParse = false;
@@ -2788,7 +2823,7 @@ public abstract class Synth extends JComponent implements Updatable
         if (sendAllTimerDelay == 0)
             {
             sendAllParameters();
-            simplePause(getPauseAfterSendAllParameters());
+            midiPause(getPauseAfterSendAllParameters());
             }
 
         sendAllParametersTimer = new javax.swing.Timer(sendAllTimerDelay, 
@@ -2799,14 +2834,14 @@ public abstract class Synth extends JComponent implements Updatable
                     sendAllParameters();
                     sendAllParametersTimer.stop();
                     sendAllParametersTimer = null;
-                    simplePause(getPauseAfterSendAllParameters());
+                    midiPause(getPauseAfterSendAllParameters());
                     }
                 });
         sendAllParametersTimer.setRepeats(false);
         sendAllParametersTimer.start();
         }
         
-    //// FIXME This section should be revised, getting rid of the diff stuff, which is never used and is 
+    //// FIXME This section should be revised.  The diff stuff is only used by Morph, and is 
     ////       problematic for synths that can't send individual parameters anyway
 
 
@@ -2846,11 +2881,13 @@ public abstract class Synth extends JComponent implements Updatable
         if (!getSendMIDI())
             return false;  // don't bother!  MIDI is off
 
+        clearPendingParameters();            // we're about to send them all anyway
+
         if (getSendsAllParametersAsDump())
             {
             boolean sent = tryToSendMIDI(emitAll(getModel(), true, false));            
             if (sent)
-                simplePause(getPauseAfterSendAllParameters());
+                midiPause(getPauseAfterSendAllParameters());
             }
         else
             {
@@ -2869,6 +2906,15 @@ public abstract class Synth extends JComponent implements Updatable
         }
         
 
+    // Sends the given parameter as part of sending all of them, via emitTo(...) and the buffer if we can, else via emitAll(...)
+    boolean sendParameter(String key, ShortMessageBuffer buffer)
+        {
+        if (emitTo(key, STATUS_SENDING_ALL_PARAMETERS, buffer.clear()))
+            return tryToSendMIDI(buffer);
+        else
+            return tryToSendMIDI(emitAll(key, STATUS_SENDING_ALL_PARAMETERS));
+        }
+
     void sendDifferentParameters(Model other, double probability)
         {
         // This doesn't check to see if the synth can send individual parameters or not.  Don't call it if it can't.
@@ -2877,6 +2923,7 @@ public abstract class Synth extends JComponent implements Updatable
 
         boolean sent = false;
         String[] keys = getModel().getKeys();
+        ShortMessageBuffer buffer = new ShortMessageBuffer();
 
         if (other == null)
             {
@@ -2886,8 +2933,8 @@ public abstract class Synth extends JComponent implements Updatable
                 if (probability != 1.0 && random.nextDouble() >= probability)
                     continue;
 
-                if (sent = tryToSendMIDI(emitAll(keys[i], STATUS_SENDING_ALL_PARAMETERS)) || sent)
-                    simplePause(getPauseAfterSendOneParameter());
+                if (sent = sendParameter(keys[i], buffer) || sent)
+                    midiPause(getPauseAfterSendOneParameter());
                 }
             }
         else
@@ -2900,25 +2947,25 @@ public abstract class Synth extends JComponent implements Updatable
                 
                 if (getModel().isInteger(keys[i]))              // integers
                     {
-                    if (getModel().get(keys[i], 0) != model.get(keys[i], 0))
+                    if (getModel().get(keys[i], 0) != other.get(keys[i], 0))
                         {
-                        if (sent = tryToSendMIDI(emitAll(keys[i], STATUS_SENDING_ALL_PARAMETERS)) || sent)
-                            simplePause(getPauseAfterSendOneParameter());
+                        if (sent = sendParameter(keys[i], buffer) || sent)
+                            midiPause(getPauseAfterSendOneParameter());
                         }
                     }
                 else            // strings
                     {
-                    if (!(getModel().get(keys[i], "").equals(model.get(keys[i], ""))))
+                    if (!(getModel().get(keys[i], "").equals(other.get(keys[i], ""))))
                         {
-                        if (sent = tryToSendMIDI(emitAll(keys[i], STATUS_SENDING_ALL_PARAMETERS)) || sent)
-                            simplePause(getPauseAfterSendOneParameter());
+                        if (sent = sendParameter(keys[i], buffer) || sent)
+                            midiPause(getPauseAfterSendOneParameter());
                         }
                     }
                 }
             }
                         
         if (sent)
-            simplePause(getPauseAfterSendAllParameters());
+            midiPause(getPauseAfterSendAllParameters());
         }
 
 
@@ -2936,15 +2983,8 @@ public abstract class Synth extends JComponent implements Updatable
     /** Returns the recognizer for a given class name */
     public static Class getRecognizer(String synthClassName)
         {
-        try
-            {
-            return Class.forName(synthClassName + "Rec");
-            }
-        catch (ClassNotFoundException ex)
-            {
-            Synth.handleException(ex);
-            return null;
-            }
+        Recognizer recognizer = Recognizer.get(synthClassName);
+        return (recognizer == null ? null : recognizer.getRecognizerClass());
         }
                 
                 
@@ -2955,7 +2995,7 @@ public abstract class Synth extends JComponent implements Updatable
         <tt>public static boolean recognize(data)</tt> that each synthesizer subclass is asked to implement. */
     public static boolean recognize(String synthClassName, byte[] data)
         {
-        Class recognizer = getRecognizer(synthClassName);
+        Recognizer recognizer = Recognizer.get(synthClassName);
         if (recognizer == null) 
             { 
             System.out.println("Synth.recognize() WARNING: No recognizer for " + synthClassName); 
@@ -2964,11 +3004,9 @@ public abstract class Synth extends JComponent implements Updatable
 
         try
             {
-            Method method = recognizer.getMethod("recognize", new Class[] { byte[].class });
-            Object obj = method.invoke(null, data);
-            return ((Boolean)obj).booleanValue();
+            return recognizer.recognize(data);
             }
-        catch (Exception e)
+        catch (Throwable e)
             {
             System.out.println("Synth.recognize(Class, byte[]) ERROR.  Could not obtain or invoke method for " + synthClassName); 
             Synth.handleException(e);
@@ -2997,23 +3035,14 @@ public abstract class Synth extends JComponent implements Updatable
         <tt>public static boolean recognizeBank(data)</tt> that each synthesizer subclass is asked to implement. */
     public static boolean recognizeBank(String synthClassName, byte[] data)
         {
-        Class recognizer = getRecognizer(synthClassName);
+        Recognizer recognizer = Recognizer.get(synthClassName);
         if (recognizer == null) 
             { 
             System.out.println("Synth.recognizeBank() WARNING: No recognizer for " + synthClassName); 
             return false;
             }
 
-        try
-            {
-            Method method = recognizer.getMethod("recognizeBank", new Class[] { byte[].class });
-            Object obj = method.invoke(null, data);
-            return ((Boolean)obj).booleanValue();
-            }
-        catch (Exception e)
-            {
-            return false;
-            }
+        return recognizer.recognizeBank(data);
         }
 
     /** Returns whether the given sysex patch dump data is a bulk (multi-patch) dump of the type for this particular synth.
@@ -3037,23 +3066,14 @@ public abstract class Synth extends JComponent implements Updatable
     */
     public static int getNextSysexPatchGroup(String synthClassName, byte[][] sysex, int start)
         {
-        Class recognizer = getRecognizer(synthClassName);
+        Recognizer recognizer = Recognizer.get(synthClassName);
         if (recognizer == null) 
             { 
             System.out.println("Synth.getNextSysexPatchGroup() WARNING: No recognizer for " + synthClassName); 
             return start;
             }
-        try
-            {
-            Method method = recognizer.getMethod("getNextSysexPatchGroup", new Class[] { byte[][].class, Integer.TYPE });
-            Object obj = method.invoke(null, sysex, start);
-            return ((Integer)obj).intValue();
-            }
-        catch (Exception e)
-            {
-            // There is no getNextSysexPatchGroup(...) method for this recognizer, so we assume that it's a single patch
-            return start + 1;
-            }
+        // If there is no getNextSysexPatchGroup(...) method for this recognizer, we assume that it's a single patch
+        return recognizer.getNextSysexPatchGroup(sysex, start);
         }
 
     public final int getNextSysexPatchGroupLocal(byte[][] sysex, int start)
@@ -3063,24 +3083,14 @@ public abstract class Synth extends JComponent implements Updatable
         
     public static byte[][][] breakSysexMessageIntoPatches(String synthClassName, byte[][] messages, int start, int expectedPatches)
         {
-        Class recognizer = getRecognizer(synthClassName);
+        Recognizer recognizer = Recognizer.get(synthClassName);
         if (recognizer == null) 
             { 
             System.out.println("Synth.breakSysexMessageIntoPatches() WARNING: No recognizer for " + synthClassName); 
             return new byte[][][] { messages };
             }
-        try
-            {
-            Method method = recognizer.getMethod("breakSysexMessageIntoPatches", new Class[] { byte[][].class, Integer.TYPE, Integer.TYPE });
-            Object obj = method.invoke(null, messages, start, expectedPatches);
-            return (byte[][][])obj;
-            }
-        catch (Exception e)
-            {
-            e.printStackTrace();
-            // There is no breakSysexMessageIntoPatches(...) method for this recognizer, so we assume that it's a single patch
-            return new byte[][][] { messages };
-            }
+        // If there is no breakSysexMessageIntoPatches(...) method for this recognizer, we assume that it's a single patch
+        return recognizer.breakSysexMessageIntoPatches(messages, start, expectedPatches);
         }
 
     public final byte[][][] breakSysexMessageIntoPatchesLocal(byte[][] messages, int start, int expectedPatches)
@@ -3095,23 +3105,14 @@ public abstract class Synth extends JComponent implements Updatable
     /** Returns the name of the bank for a given synth.  This is pretty rare -- it only exists in the FB-01. */
     public static String getBankName(String synthClassName, byte[] data)
         {
-        Class recognizer = getRecognizer(synthClassName);
+        Recognizer recognizer = Recognizer.get(synthClassName);
         if (recognizer == null) 
             { 
             System.out.println("Synth.getBankName() WARNING: No recognizer for " + synthClassName); 
             return "--Error--";
             }
 
-        try
-            {
-            Method method = recognizer.getMethod("getBankName", new Class[] { byte[].class });
-            Object obj = method.invoke(null, data);
-            return (String)obj;
-            }
-        catch (Exception e)
-            {
-            return "";
-            }
+        return recognizer.getBankName(data);
         }
     
     /** Returns the name of the bank for a given synth.  This is pretty rare -- it only exists in the FB-01. */
@@ -3139,15 +3140,11 @@ public abstract class Synth extends JComponent implements Updatable
         return false;
         }
 
-    /** Returns the synthesizer which recognizes this sysex message, or -1 if none. */
+    /** Returns the synthesizer which recognizes this sysex message, or -1 if none. 
+        This goes through the RecognizerIndex, so typically only a few recognizers are consulted. */
     int recognizeSynthForSysex(byte[] data)
         {
-        for(int i = 0; i < numSynths(); i++)
-            {
-            if (recognize(synthClassNames[i], data))
-                return i;
-            }
-        return -1;
+        return RecognizerIndex.getSynthForSysex(data);
         }
 
     /** Returns all the synthesizers which recognize any message in this data. */
@@ -3155,25 +3152,11 @@ public abstract class Synth extends JComponent implements Updatable
         {
         boolean[] recognized = new boolean[numSynths()];
 
-        int lastSynth = 0;
         for(int i = 0; i < data.length; i++)
             {
-            // a little caching
-            if (recognize(synthClassNames[lastSynth], data[i]))
-                {
-                recognized[lastSynth] = true;
-                continue;
-                }
-                                
-            for(int j = 0; j < numSynths(); j++)
-                {
-                if (recognize(synthClassNames[j], data[i]))
-                    {
-                    recognized[j] = true;
-                    lastSynth = j;
-                    break;
-                    }
-                }
+            int synth = RecognizerIndex.getSynthForSysex(data[i]);
+            if (synth >= 0)
+                recognized[synth] = true;
             }
                 
         int count = 0;
@@ -3541,6 +3524,24 @@ public abstract class Synth extends JComponent implements Updatable
         catch (IOException ex) { Synth.handleException(ex); }
         return current;
         }
+
+    /** Reads the entire input, however long it is. */
+    public static byte[] readFully(InputStream input)
+        {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try
+            {
+            while(true)
+                {
+                int total = input.read(buffer);
+                if (total < 0) break;
+                out.write(buffer, 0, total);
+                }
+            }
+        catch (IOException ex) { Synth.handleException(ex); }
+        return out.toByteArray();
+        }
         
         
         
@@ -3573,12 +3574,7 @@ public abstract class Synth extends JComponent implements Updatable
                 // repaint manager is refusing to coallesce their repaint requests.  So I do it here.
                 repaint();
 
-                byte[] buffer = new byte[MAX_FILE_LENGTH];   // better not be longer than this
-                int size = readFully(buffer, stream);
-
-                // now shorten
-                byte[] data = new byte[size];
-                System.arraycopy(buffer, 0, data, 0, size);
+                byte[] data = readFully(stream);
 
                 // parse   
                 setParsingDefaults(true);    
@@ -6339,7 +6335,7 @@ menubar.add(helpMenu);
         {
         beforeWriteAllParametersHook();
         tryToSendMIDI(emitAll(model, false, false));
-        simplePause(getPauseAfterWritePatch());
+        midiPause(getPauseAfterWritePatch());
         performChangePatch(model);
         if (getSendsParametersAfterWrite())
             sendAllParameters();
@@ -6834,19 +6830,22 @@ menubar.add(helpMenu);
         sendAllParameters();
         }
         
+    static final int QUIT_MIDI_TIMEOUT = 2000;          // in ms
+    
     void doQuit()
         {
         if (clearNotes && sendAllSoundsOffWhenWindowChanges())
             {
             sendAllSoundsOffInternal(); // not doSendAllSoundsOff(false) because we don't want to turn off the test notes
             }
-        simplePause(50);        // maybe enough time to flush out the all sounds off notes?  dunno
+        waitForMIDI(QUIT_MIDI_TIMEOUT);         // let the all sounds off messages go out, but don't hang on a stuck device
         System.exit(0);
         }
     
     /** Removes the in/out/key devices. */
     void doDisconnectMIDI()
         {
+        clearPendingParameters();
         if (tuple != null)
             tuple.dispose();
 
@@ -7150,13 +7149,15 @@ menubar.add(helpMenu);
                 noteTimer = null;
                 }
                                 
-            // get rid of MIDI connection
+            // get rid of MIDI connection, once the all sounds off messages have gone out
+            waitForMIDI(QUIT_MIDI_TIMEOUT);
             if (tuple != null)
                 tuple.dispose();
             tuple = null;
             
             frame.setVisible(false);
             frame.dispose();
+            Prefs.flush();              // write out any preferences changes still waiting to be saved
                                 
             numOpenWindows--;
             if (numOpenWindows <= 0)
@@ -7414,6 +7415,13 @@ menubar.add(helpMenu);
         return b;
         } 
 
+    /** Breaks the sysex file into multiple sysex messages, discarding apparent non-sysex data.
+        The file is memory-mapped rather than read into memory, so it may be very large. */
+    public static byte[][] cutUpSysex(File file) throws IOException
+        {
+        return SysexScanner.scan(file);
+        }
+
 
 
     
@@ -7471,6 +7479,7 @@ menubar.add(helpMenu);
 
         // build names and locations for each patch
         Synth temp = null;
+        HashMap temps = new HashMap();          // archives often interleave synths, so we keep one temporary synth per class
         HashMap map = new HashMap();
         for(int i = 0; i < p.length; i++)
             {
@@ -7497,7 +7506,14 @@ menubar.add(helpMenu);
                 try
                     {
                     if (temp == null || temp.getClass() != getSynth(p[i].synth))
-                        temp = (Synth)(instantiate(getClassNames()[p[i].synth], true, false, null));
+                        {
+                        temp = (Synth)(temps.get(getSynth(p[i].synth)));
+                        if (temp == null)
+                            {
+                            temp = (Synth)(instantiate(getClassNames()[p[i].synth], true, false, null));
+                            temps.put(getSynth(p[i].synth), temp);
+                            }
+                        }
                     Model ret = temp.parseTemporaryModel(flatten(p[i].sysex), true, false);
                     if (ret == null)
                         {
@@ -7991,7 +8007,6 @@ menubar.add(helpMenu);
         fd.setVisible(true);
         enableMenuBar();
         File f = null; // make compiler happy
-        FileInputStream is = null;
         if (fd.getFile() != null)
             {
             try
@@ -8000,9 +8015,12 @@ menubar.add(helpMenu);
                 
                 //// SECOND if the file is really big we check to see if that's okay
 
-                is = new FileInputStream(f);
+                String filename = f.getName();
+                boolean midi = (filename.endsWith(".mid") || filename.endsWith(".MID") || filename.endsWith(".midi") || filename.endsWith(".MIDI"));
                 boolean okay = true;
-                if (f.length() > MAX_FILE_LENGTH)
+                // MIDI files are read entirely into memory, but sysex files are memory-mapped, so
+                // they're only a problem if their patches won't fit comfortably in memory
+                if (midi ? f.length() > MAX_FILE_LENGTH : f.length() > Runtime.getRuntime().maxMemory() / 4)
                     {
                     okay = showSimpleConfirm("File too Large", "This file is very large.  Loading it could hang Edisyn.\nLoad anyway?");
                     }
@@ -8012,18 +8030,13 @@ menubar.add(helpMenu);
                     //// THIRD we extract all sysex from the file
 
                     byte[][] data;
-                    String filename = f.getName();
-                    if (filename.endsWith(".mid") || filename.endsWith(".MID") || filename.endsWith(".midi") || filename.endsWith(".MIDI"))
+                    if (midi)
                         {
                         data = extractSysexFromMidFile(f);
-                        is.close();
                         }
                     else        // sysex file
                         {
-                        byte[] d = new byte[(int)f.length()];
-                        readFully(d, is);
-                        is.close();
-                        data = cutUpSysex(d);
+                        data = cutUpSysex(f);
                         }
                         
                     if (data == null || data.length == 0) // wasn't sysex, or we couldn't cut it up right.  Maybe someone still recognizes it.
@@ -8270,12 +8283,6 @@ menubar.add(helpMenu);
                 showErrorWithStackTrace(e, "File Error", "An error occurred while loading from the file.");
                 Synth.handleException(e);
                 }
-            finally
-                {
-                if (is != null)
-                    try { is.close(); }
-                    catch (IOException e) { }
-                }
             }
                 
         updateTitle();
@@ -9327,9 +9334,11 @@ menubar.add(helpMenu);
 //              librarian.bottomPanel.remove(librarian.stopAction.getButton());
                 librarian.stopAction.getButton().setEnabled(false);
                 }
+            String rate = "Downloaded " + getBatchDownloadCount() + " patches (" + String.format("%.1f", getBatchDownloadRate()) + " patches/s)";
+            System.out.println("Batch Download (Synth): " + rate);
             if (success)
                 {
-                showSimpleMessage("Batch Download", "Batch download stopped." );
+                showSimpleMessage("Batch Download", "Batch download stopped.\n" + rate);
                 }
             updateTitle();                      // has to be after we destroy the timer
             undo.setWillPush2(true);            // restore undo that we disabled to do batch download without blowing out the heap
@@ -9403,15 +9412,12 @@ menubar.add(helpMenu);
 //              librarian.bottomPanel.add(librarian.stopAction.getButton(), BorderLayout.WEST);
             librarian.stopAction.getButton().setEnabled(true);
             }
-        resetBlend();
-        setMergeProbability(0.0);
-        performRequestDump(currentPatch, false);
-        incomingPatch = false;
-            
-        batchDownloadFailureCountdown = getBatchDownloadFailureCountdown();
-        batchDownloadFailureGlobalCountdown = BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN;
+        batchDownloadCount = 0;
+        batchDownloadStart = System.currentTimeMillis();
 
-        // set timer to request further patches         
+        // set timer to catch failed requests.  If getAdvancesBatchDownloadOnReceive(), we advance as soon as 
+        // each patch arrives (see batchPatchReceived()), so the timer only goes off if the synth is tardy.
+        // Otherwise the timer advances to each patch in turn.
         patchTimer = new javax.swing.Timer(getBatchDownloadWaitTime(),
             new ActionListener()
                 {
@@ -9419,29 +9425,7 @@ menubar.add(helpMenu);
                     {
                     if (incomingPatch)
                         {
-                        incomingPatch = false;
-                        
-                        if (patchLocationEquals(getModel(), currentPatch))
-                            {
-                            batchDownloadFailureCountdown = getBatchDownloadFailureCountdown();
-                            batchDownloadFailureGlobalCountdown = BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN;
-                            processCurrentPatch();
-                            simplePause(getPauseAfterReceivePatch());
-                            requestNextPatch();
-                            }
-                        else
-                            {
-                            System.out.println("Warning (Synth): Download of " + getPatchLocationName(currentPatch) + " failed.  Received unexpected patch " + getPatchLocationName(getModel()));
-                            batchDownloadFailureCountdown = getBatchDownloadFailureCountdown();
-                            if (batchDownloadFailureGlobalCountdown-- <= 0)
-                                {
-                                stopBatchDownload();
-                                showSimpleError("Batch Download Failed", "Stopping batch download after failing " + BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN + " times to download patch\n" + getPatchLocationName(currentPatch) + "\nNo response from the synthesizer." );
-                                }
-                            resetBlend();
-                            setMergeProbability(0.0);
-                            performRequestDump(currentPatch, false);
-                            }
+                        batchPatchArrived();
                         }
                     else 
                         {
@@ -9449,6 +9433,7 @@ menubar.add(helpMenu);
                             {
                             if (skipBatchPatchDownload())
                                 {
+                                outstandingBatchRequests = 0;
                                 requestNextPatch();
                                 //showSimpleError("Batch Download Failed", "Stopping batch download after failing " + BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN + " times to download patch\n" + getPatchLocationName(currentPatch) + "\nNo response from the synthesizer." );
                                 }
@@ -9459,11 +9444,10 @@ menubar.add(helpMenu);
                                     {
                                     stopBatchDownload();
                                     showSimpleError("Batch Download Failed", "Stopping batch download after failing " + BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN + " times to download patch\n" + getPatchLocationName(currentPatch) + "\nNo response from the synthesizer." );
+                                    return;
                                     }
                                 System.out.println("Warning (Synth): Download of " + getPatchLocationName(currentPatch) + " failed.  Requesting again.");
-                                resetBlend();
-                                setMergeProbability(0.0);
-                                performRequestDump(currentPatch, false);
+                                requestBatchPatch(currentPatch, true);
                                 }
                             }
                         else
@@ -9473,8 +9457,11 @@ menubar.add(helpMenu);
                         }
                     }
                 });
+        batchDownloadFailureCountdown = getBatchDownloadFailureCountdown();
+        batchDownloadFailureGlobalCountdown = BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN;
+        requestBatchPatch(currentPatch, true);        // this starts the timer
+        fillBatchRequests();
         //undo.push(model);
-        patchTimer.start();
         updateTitle();                      // has to be after we build the timer
         }
 
@@ -9484,18 +9471,128 @@ menubar.add(helpMenu);
     static final int BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN = 50;
     int batchDownloadFailureGlobalCountdown;
 
-    void requestNextPatch()
+    /** Returns true if, during a batch download, Edisyn should request the next patch as soon as 
+        the current one has been received and parsed, rather than waiting for the next tick of the 
+        getBatchDownloadWaitTime() timer.  The timer then only serves to detect patches which failed 
+        to arrive.  By default this returns false.  Override it to return true only if your synth sends
+        each patch as a single sysex message, which parse() reads completely, and needs no handshake or 
+        further requests before it can be asked for the next one.  If it sends a patch as several messages, 
+        each of which parses successfully, or as a stream of CC or NRPN messages, Edisyn would request the 
+        next patch before the current one had fully arrived. */
+    public boolean getAdvancesBatchDownloadOnReceive() { return false; }
+
+    /** Returns the number of patch requests which may be outstanding at one time during a batch download.
+        The default is 1: Edisyn requests a patch, waits for it, then requests the next one.  If your synth
+        can queue up several requests and answer them in order, you can return a larger number so that
+        its responses arrive back to back.  If a patch goes missing or arrives out of order, Edisyn
+        falls back to requesting the missing patch alone.  This only matters if 
+        getAdvancesBatchDownloadOnReceive() is true. */
+    public int getBatchDownloadOutstandingRequests() { return 1; }
+    
+    int outstandingBatchRequests;               // number of requests sent but not yet received, starting at currentPatch
+    Model lastRequestedPatch = null;            // the location of the most recent outstanding request
+    int batchDownloadCount;                     // number of patches received so far
+    long batchDownloadStart;                    // when the batch download started, in ms
+
+    /** Returns the number of patches received so far in the current (or most recent) batch download. */
+    public int getBatchDownloadCount() { return batchDownloadCount; }
+
+    /** Returns the rate, in patches per second, of the current (or most recent) batch download. */
+    public double getBatchDownloadRate()
         {
-        if (patchLocationEquals(currentPatch, finalPatch))     // we're done
-            {
-            stopBatchDownload();
-            }
+        long elapsed = System.currentTimeMillis() - batchDownloadStart;
+        return (elapsed <= 0 ? 0.0 : batchDownloadCount * 1000.0 / elapsed);
+        }
+
+    // Requests a patch during a batch download.  If reset is true, all other outstanding requests are forgotten.
+    void requestBatchPatch(Model location, boolean reset)
+        {
+        if (reset) outstandingBatchRequests = 0;
+        resetBlend();
+        setMergeProbability(0.0);
+        performRequestDump(location, false);
+        lastRequestedPatch = location;
+        outstandingBatchRequests++;
+        incomingPatch = false;
+        patchTimer.restart();           // the timeout counts from the most recent request
+        }
+
+    // Returns the location after the given one, or null if the given one is the last one in the batch download
+    Model getNextBatchPatchLocation(Model location)
+        {
+        if (patchLocationEquals(location, finalPatch))     // we're done
+            return null;
+        Model next = getNextPatchLocation(location);
         // we prematurely wrapped all the away around.  This can happen if we have banks which
         // are different lengths, or we have fewer than expected number of banks, 
         // the total number of patches turns out to be less than getBankSize() * getNumBanks().
         // Both getBankSize() is too large AND getNumBanks() is too large in the case
         // of the Proteus 2000 editor, for example.
-        else if (patchLocationEquals(firstPatch, getNextPatchLocation(currentPatch)))
+        if (patchLocationEquals(firstPatch, next))
+            return null;
+        return next;
+        }
+
+    // Issues further requests, beyond the last one requested, until the pipeline is full
+    void fillBatchRequests()
+        {
+        if (!getAdvancesBatchDownloadOnReceive()) return;
+        int max = getBatchDownloadOutstandingRequests();
+        while(outstandingBatchRequests > 0 && outstandingBatchRequests < max)
+            {
+            Model next = getNextBatchPatchLocation(lastRequestedPatch);
+            if (next == null) break;
+            requestBatchPatch(next, false);
+            }
+        }
+
+    // Called in the Swing event thread when a patch has been parsed during a batch download
+    void batchPatchReceived()
+        {
+        if (isBatchDownloading() && incomingPatch && getAdvancesBatchDownloadOnReceive())
+            batchPatchArrived();
+        }
+
+    // Called when we have received a patch during a batch download and must check and store it
+    void batchPatchArrived()
+        {
+        incomingPatch = false;
+        
+        if (patchLocationEquals(getModel(), currentPatch))
+            {
+            batchDownloadFailureCountdown = getBatchDownloadFailureCountdown();
+            batchDownloadFailureGlobalCountdown = BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN;
+            outstandingBatchRequests--;
+            batchDownloadCount++;
+            processCurrentPatch();
+            if (!isBatchDownloading()) return;          // processCurrentPatch() failed and stopped us
+            midiPause(getPauseAfterReceivePatch());
+            requestNextPatch();
+            }
+        else if (outstandingBatchRequests > 1)
+            {
+            // Probably a straggler from a set of pipelined requests.  We'll wait for the right one,
+            // and if it doesn't arrive, the timer will request it again.
+            System.out.println("Warning (Synth): Received unexpected patch " + getPatchLocationName(getModel()) + " while waiting for " + getPatchLocationName(currentPatch));
+            }
+        else
+            {
+            System.out.println("Warning (Synth): Download of " + getPatchLocationName(currentPatch) + " failed.  Received unexpected patch " + getPatchLocationName(getModel()));
+            batchDownloadFailureCountdown = getBatchDownloadFailureCountdown();
+            if (batchDownloadFailureGlobalCountdown-- <= 0)
+                {
+                stopBatchDownload();
+                showSimpleError("Batch Download Failed", "Stopping batch download after failing " + BATCH_DOWNLOAD_FAILURE_GLOBAL_COUNTDOWN + " times to download patch\n" + getPatchLocationName(currentPatch) + "\nNo response from the synthesizer." );
+                return;
+                }
+            requestBatchPatch(currentPatch, true);
+            }
+        }
+
+    void requestNextPatch()
+        {
+        Model next = getNextBatchPatchLocation(currentPatch);
+        if (next == null)
             {
             stopBatchDownload();
             }
@@ -9503,11 +9600,10 @@ menubar.add(helpMenu);
             {
             undo.setWillPush2(false);
             model.setUpdateListeners(getUpdatesListenersOnDownload());
-            currentPatch = getNextPatchLocation(currentPatch);
-            resetBlend();
-            setMergeProbability(0.0);
-            performRequestDump(currentPatch, false);
-            incomingPatch = false;
+            currentPatch = next;
+            if (outstandingBatchRequests <= 0)          // we've not yet requested it
+                requestBatchPatch(currentPatch, true);
+            fillBatchRequests();
             }
         }
         
@@ -9831,7 +9927,7 @@ menubar.add(helpMenu);
         if (secondModel != null)
             {
             setMergeProbability(random.nextDouble() * 0.5 + 0.5);   // from 0.5 to 1.0
-            simplePause(getPauseAfterReceivePatch());
+            midiPause(getPauseAfterReceivePatch());
             performRequestDump(secondModel, false);
             }
         secondModel = null;
@@ -9858,15 +9954,152 @@ menubar.add(helpMenu);
         if (learning)
             updateTitle();
             
-        sendOneParameter(key);
+        queueOneParameter(key);
+        }
+
+    /** Override this to limit the number of individual parameter changes per second which are
+        sent to the synth as the user changes them (such as by dragging a dial).  Changes which
+        arrive faster than this are coalesced: only the latest value of each parameter is sent.
+        Regardless of this value, changes are also coalesced while earlier MIDI is still waiting
+        to go out.  The default is 0, meaning no limit. */
+    public int getMaxParameterSendRate() { return 0; }
+    
+    /** How often (in ms) we check whether coalesced parameter changes may be sent. */
+    public static final int PENDING_PARAMETERS_INTERVAL = 5;
+    
+    // Parameters which have changed but haven't been sent yet, in the order of their most recent change.
+    LinkedHashSet<String> pendingParameters = new LinkedHashSet<String>();
+    javax.swing.Timer pendingParametersTimer = null;
+    long lastParameterSend = 0;
+    
+    // Returns true if a parameter change may be sent right now without piling up behind other MIDI
+    boolean canSendParameterNow()
+        {
+        OutputScheduler scheduler = getOutputScheduler();
+        if (scheduler != null && scheduler.size() > 0) 
+            return false;
+        int rate = getMaxParameterSendRate();
+        return (rate <= 0 || System.currentTimeMillis() - lastParameterSend >= 1000 / rate);
+        }
+
+    /** Sends a single parameter in response to a change in the model, or if we can't send it
+        right away, queues it to be sent later, replacing any earlier queued change to the same parameter. */
+    public void queueOneParameter(String key)
+        {
+        if (!(getAllowsTransmitsParameters() && getSendMIDI()))
+            return;
+                
+        synchronized(pendingParameters)
+            {
+            if (pendingParameters.isEmpty() && canSendParameterNow())
+                {
+                lastParameterSend = System.currentTimeMillis();
+                sendOneParameter(key);
+                return;
+                }
+                
+            // move it to the end, since it's the most recent change
+            pendingParameters.remove(key);
+            pendingParameters.add(key);
+            }
+                        
+        SwingUtilities.invokeLater(new Runnable()
+            {
+            public void run()
+                {
+                synchronized(pendingParameters)
+                    {
+                    if (pendingParametersTimer != null || pendingParameters.isEmpty()) return;
+                    pendingParametersTimer = new javax.swing.Timer(PENDING_PARAMETERS_INTERVAL, new ActionListener()
+                        {
+                        public void actionPerformed(ActionEvent e)
+                            {
+                            sendPendingParameters();
+                            }
+                        });
+                    pendingParametersTimer.start();
+                    }
+                }
+            });
+        }
+        
+    // Called periodically by pendingParametersTimer to send queued changes when the synth can take them
+    void sendPendingParameters()
+        {
+        String[] keys = null;
+        synchronized(pendingParameters)
+            {
+            if (!(getAllowsTransmitsParameters() && getSendMIDI()))
+                {
+                pendingParameters.clear();
+                }
+            else if (!pendingParameters.isEmpty() && canSendParameterNow())
+                {
+                if (getMaxParameterSendRate() > 0)                   // just send the oldest one
+                    {
+                    Iterator<String> i = pendingParameters.iterator();
+                    keys = new String[] { i.next() };
+                    i.remove();
+                    }
+                else                                                    // send everything
+                    {
+                    keys = (String[])(pendingParameters.toArray(new String[0]));
+                    pendingParameters.clear();
+                    }
+                lastParameterSend = System.currentTimeMillis();
+                }
+                
+            if (pendingParameters.isEmpty() && pendingParametersTimer != null)
+                {
+                pendingParametersTimer.stop();
+                pendingParametersTimer = null;
+                }
+            }
+                        
+        if (keys != null)
+            {
+            for(int i = 0; i < keys.length; i++)
+                sendOneParameter(keys[i]);
+            }
+        }
+        
+    /** Discards any parameter changes which have been queued but not yet sent, and stops the timer which sends them. */
+    public void clearPendingParameters()
+        {
+        synchronized(pendingParameters)
+            {
+            pendingParameters.clear();
+            if (pendingParametersTimer != null)
+                {
+                pendingParametersTimer.stop();
+                pendingParametersTimer = null;
+                }
+            }
         }
 
         
+    // Reused by sendOneParameter(...) for synths which emitTo(...)
+    ShortMessageBuffer oneParameterBuffer = new ShortMessageBuffer();
+        
     /** Sends a single parameter if the synthesizer is capable of doing this. */
     public void sendOneParameter(String key)
         {
         if (getAllowsTransmitsParameters() && getSendMIDI())
             {
+            boolean emitted;
+            boolean sent = false;
+            synchronized(oneParameterBuffer)
+                {
+                emitted = emitTo(key, STATUS_UPDATING_ONE_PARAMETER, oneParameterBuffer.clear());
+                if (emitted) sent = tryToSendMIDI(oneParameterBuffer);
+                }
+            if (emitted)
+                {
+                if (sent)
+                    midiPause(getPauseAfterSendOneParameter());
+                return;
+                }
+                
             Object[] output = emitAll(key, STATUS_UPDATING_ONE_PARAMETER);
             if (output == null)
                 {
@@ -9878,7 +10111,7 @@ menubar.add(helpMenu);
             else if (output.length != 0)
                 {
                 if (tryToSendMIDI(output))
-                    simplePause(getPauseAfterSendOneParameter());
+                    midiPause(getPauseAfterSendOneParameter());
                 }
             }
         }
@@ -10440,6 +10673,12 @@ menubar.add(helpMenu);
         the setting of updateListeners.  See Proteus 2000. */
     public void fix(String key, Model model) { }
     
+    /** Return false if the hill-climber may not mutate and recombine Models in several threads at once,
+        typically because your fix(...) or reviseMutatedValue(...) methods touch widgets or other
+        state that isn't thread-safe, including drawing from the synth's own random.  See Proteus 2000 
+        and ASM Hydrasynth.  By default returns true. */
+    public boolean getMutatesInParallel() { return true; }
+    
     /** This is potentially called by mutation mechanisms to deterine whether the model should
         be permitted to set the given key to the given value.  This is used to restrict mutation */
     public int reviseMutatedValue(String key, int oldValue, int proposedValue,  Model model) { return proposedValue; }
@@ -0,0 +1,172 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/****
+      Scans a sysex file, or an array of bytes, for sysex messages (0xF0 ... 0xF7), returning
+      them one at a time and discarding any non-sysex data between them, just as
+      Synth.cutUpSysex(...) does.
+
+      <p>A file is not read into memory: instead it is memory-mapped a window at a time,
+      so only the messages themselves are ever copied onto the heap.  This lets us load
+      very large sysex archives (hundreds of megabytes, or more than 2GB) without first
+      allocating a buffer as big as the file.
+
+      @author Sean Luke
+*/
+
+public class SysexScanner implements Iterator<byte[]>, Closeable
+    {
+    /** The size of the window of the file which is mapped at any one time. */
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    FileChannel channel;
+    long length;
+    ByteBuffer window;
+    long windowStart;
+    long position = 0;              // where to start looking for the next message
+    byte[] next;                    // the next message, or null if we haven't scanned for it yet
+
+    /** Scans the given file.  You should close() the scanner when you're done with it. */
+    public SysexScanner(File file) throws IOException
+        {
+        channel = new FileInputStream(file).getChannel();
+        length = channel.size();
+        map(0);
+        }
+
+    /** Scans the given bytes. */
+    public SysexScanner(byte[] data)
+        {
+        length = data.length;
+        window = ByteBuffer.wrap(data);
+        windowStart = 0;
+        }
+
+    // maps the window of the file starting at pos
+    void map(long pos) throws IOException
+        {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW_SIZE, length - pos));
+        windowStart = pos;
+        }
+
+    byte byteAt(long pos) throws IOException
+        {
+        if (pos < windowStart || pos >= windowStart + window.limit())
+            map(pos);
+        return window.get((int)(pos - windowStart));
+        }
+
+    // copies the message from start to end inclusive
+    byte[] copy(long start, long end) throws IOException
+        {
+        int len = (int)(end - start + 1);
+        byte[] d = new byte[len];
+        if (start < windowStart && len <= WINDOW_SIZE)       // it straddles two windows, so remap to hold all of it
+            map(start);
+        if (start >= windowStart && end < windowStart + window.limit())
+            {
+            ByteBuffer b = window.duplicate();
+            b.position((int)(start - windowStart));
+            b.get(d);
+            }
+        else                            // it's bigger than a window, sheesh
+            {
+            for(int i = 0; i < len; i++)
+                d[i] = byteAt(start + i);
+            }
+        return d;
+        }
+
+    // returns the position of the first b at or after pos, or -1 if there is none
+    long find(byte b, long pos) throws IOException
+        {
+        while(pos < length)
+            {
+            if (pos < windowStart || pos >= windowStart + window.limit())
+                map(pos);
+            int limit = window.limit();
+            for(int i = (int)(pos - windowStart); i < limit; i++)
+                if (window.get(i) == b) return windowStart + i;
+            pos = windowStart + limit;
+            }
+        return -1;
+        }
+
+    // finds the next message, or sets next to null if there are no more
+    void scan() throws IOException
+        {
+        next = null;
+        long start = find((byte)0xF0, position);
+        if (start >= 0)
+            {
+            long end = find((byte)0xF7, start + 1);
+            if (end >= 0)                       // else there's no 0xF7, so it's not a message
+                {
+                next = copy(start, end);
+                position = end + 1;
+                return;
+                }
+            }
+        position = length;
+        }
+
+    public boolean hasNext()
+        {
+        if (next == null && position < length)
+            {
+            try { scan(); }
+            catch (IOException ex) { throw new UncheckedIOException(ex); }
+            }
+        return (next != null);
+        }
+
+    public byte[] next()
+        {
+        if (!hasNext()) throw new NoSuchElementException();
+        byte[] d = next;
+        next = null;
+        return d;
+        }
+
+    /** Returns how far into the file or array we have scanned. */
+    public long getPosition() { return position; }
+
+    /** Returns the length of the file or array. */
+    public long getLength() { return length; }
+
+    public void close() throws IOException
+        {
+        window = null;
+        if (channel != null) channel.close();
+        }
+
+    /** Returns all the sysex messages in the given file. */
+    public static byte[][] scan(File file) throws IOException
+        {
+        SysexScanner scanner = new SysexScanner(file);
+        try
+            {
+            ArrayList<byte[]> sysex = new ArrayList<byte[]>();
+            while(scanner.hasNext())
+                sysex.add(scanner.next());
+            return sysex.toArray(new byte[sysex.size()][]);
+            }
+        catch (UncheckedIOException ex)
+            {
+            throw ex.getCause();
+            }
+        finally
+            {
+            scanner.close();
+            }
+        }
+    }
@@ -10,8 +10,18 @@ public class Undo
     {
     public static final boolean debug = false;
     
-    public ArrayDeque<Model> undo = new ArrayDeque();
-    public ArrayDeque<Model> redo = new ArrayDeque();
+    // Stores Models as deltas against the Model above them (see UndoStack), 
+    // so a long history of small edits doesn't hold a full copy of each Model
+    static class ModelStack extends UndoStack<Model>
+        {
+        protected Object encode(Model older, Model newer) { return older.deltaFrom(newer); }
+        protected Model decode(Model newer, Object delta) { return newer.applyDelta((Model.Delta)delta); }
+        protected long sizeOf(Model full) { return full.estimateBytes(); }
+        protected long sizeOfDelta(Object delta) { return Model.estimateBytes((Model.Delta)delta); }
+        }
+
+    public UndoStack<Model> undo = new ModelStack();
+    public UndoStack<Model> redo = new ModelStack();
     public Synth synth;        
     boolean willPush = true;
     boolean willPush2 = true;
@@ -23,6 +33,17 @@ public class Undo
     
     public boolean shouldShowUndoMenu() { return !undo.isEmpty(); }
     public boolean shouldShowRedoMenu() { return !redo.isEmpty(); }
+    
+    /** Sets the memory budget, in bytes, of each of the undo and redo stacks.  When a stack grows 
+        beyond its budget, its oldest entries are discarded.  The default is UndoStack.DEFAULT_MEMORY_BUDGET. */
+    public void setMemoryBudget(long bytes)
+        {
+        undo.setMemoryBudget(bytes);
+        redo.setMemoryBudget(bytes);
+        }
+        
+    /** Returns the memory budget, in bytes, of each of the undo and redo stacks. */
+    public long getMemoryBudget() { return undo.getMemoryBudget(); }
         
     public Undo(Synth synth) { this.synth = synth; }
         
@@ -53,19 +74,19 @@ public class Undo
         {
         if (undo.isEmpty())
             return null;
-        else return undo.peekFirst();
+        else return undo.peek();
         }
              
     public void printStacks()
         {
         System.err.println("Debug (Undo):\nUNDO");
-        Object[] o = undo.toArray();
+        Object[] o = undo.toList().toArray();
         for(int i = 0; i < o.length; i++)
             {
             System.err.println("" + i + " " + o[i]);
             }
         System.err.println("\nREDO");
-        o = redo.toArray();
+        o = redo.toList().toArray();
         for(int i = 0; i < o.length; i++)
             {
             System.err.println("" + i + " " + o[i]);
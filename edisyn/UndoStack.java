@@ -0,0 +1,156 @@
+/**
+   Copyright 2026 by Sean Luke
+   Licensed under the Apache License version 2.0
+*/
+
+package edisyn;
+
+import java.util.*;
+
+/****
+      A stack of snapshots (Models, or the Library's grid of Patches) for undo or redo,
+      which stores most of them as deltas and which is limited to a memory budget.
+
+      <p>The top of the stack is always stored in full.  When a new snapshot is pushed,
+      the previous top is replaced by a delta which can rebuild it from the new snapshot,
+      if one can be made (see encode(...)).  When the top is popped, the entry beneath it
+      is rebuilt in full from the popped snapshot.  Thus push, pop, and peek return exactly
+      the snapshots that were pushed, but the stack mostly holds just the differences
+      between successive snapshots.
+
+      <p>Each entry has an estimated size in bytes.  If the stack grows beyond its memory budget,
+      the oldest entries (at the bottom of the stack) are thrown away.  The top entry is never
+      thrown away.
+
+      @author Sean Luke
+*/
+
+public abstract class UndoStack<T>
+    {
+    /** The default memory budget, in bytes, of an UndoStack. */
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024L * 1024L;
+
+    static class Entry<T>
+        {
+        T full;                 // if null, we're a delta
+        Object delta;
+        long bytes;
+        }
+
+    ArrayDeque<Entry<T>> entries = new ArrayDeque<Entry<T>>();          // the top is first
+    long bytes = 0;
+    long budget = DEFAULT_MEMORY_BUDGET;
+
+    /** Returns a delta which will rebuild OLDER from NEWER via decode(...), or null if none can be made. */
+    protected abstract Object encode(T older, T newer);
+
+    /** Rebuilds a snapshot from the (newer) snapshot and the delta produced by encode(...). */
+    protected abstract T decode(T newer, Object delta);
+
+    /** Returns the estimated size, in bytes, of the given snapshot. */
+    protected abstract long sizeOf(T full);
+
+    /** Returns the estimated size, in bytes, of the given delta. */
+    protected abstract long sizeOfDelta(Object delta);
+
+    Entry<T> fullEntry(T full)
+        {
+        Entry<T> entry = new Entry<T>();
+        entry.full = full;
+        entry.bytes = sizeOf(full);
+        return entry;
+        }
+
+    /** Pushes a snapshot.  The snapshot must not be modified afterwards. */
+    public void push(T full)
+        {
+        Entry<T> top = entries.peekFirst();
+        if (top != null)
+            {
+            Object delta = encode(top.full, full);
+            if (delta != null)
+                {
+                bytes -= top.bytes;
+                top.full = null;
+                top.delta = delta;
+                top.bytes = sizeOfDelta(delta);
+                bytes += top.bytes;
+                }
+            }
+        Entry<T> entry = fullEntry(full);
+        entries.addFirst(entry);
+        bytes += entry.bytes;
+        trim();
+        }
+
+    /** Removes and returns the top snapshot, or null if the stack is empty. */
+    public T pop()
+        {
+        Entry<T> top = entries.pollFirst();
+        if (top == null) return null;
+        bytes -= top.bytes;
+
+        Entry<T> next = entries.peekFirst();
+        if (next != null && next.full == null)
+            {
+            bytes -= next.bytes;
+            next.full = decode(top.full, next.delta);
+            next.delta = null;
+            next.bytes = sizeOf(next.full);
+            bytes += next.bytes;
+            }
+        return top.full;
+        }
+
+    /** Returns the top snapshot, or null if the stack is empty. */
+    public T peek()
+        {
+        Entry<T> top = entries.peekFirst();
+        return (top == null ? null : top.full);
+        }
+
+    public int size() { return entries.size(); }
+
+    public boolean isEmpty() { return entries.isEmpty(); }
+
+    public void clear()
+        {
+        entries.clear();
+        bytes = 0;
+        }
+
+    /** Returns the estimated number of bytes held by the stack. */
+    public long getBytes() { return bytes; }
+
+    /** Returns the memory budget of the stack in bytes. */
+    public long getMemoryBudget() { return budget; }
+
+    /** Sets the memory budget of the stack in bytes, throwing away the oldest entries if need be. */
+    public void setMemoryBudget(long val)
+        {
+        budget = val;
+        trim();
+        }
+
+    // throws away the oldest entries until we're within budget
+    void trim()
+        {
+        while(bytes > budget && entries.size() > 1)
+            {
+            bytes -= entries.pollLast().bytes;
+            }
+        }
+
+    /** Returns all the snapshots, top first, each rebuilt in full.  This is costly; it's meant for debugging. */
+    public ArrayList<T> toList()
+        {
+        ArrayList<T> list = new ArrayList<T>();
+        T last = null;
+        for(Entry<T> entry : entries)
+            {
+            last = (entry.full != null ? entry.full : decode(last, entry.delta));
+            list.add(last);
+            }
+        return list;
+        }
+    }
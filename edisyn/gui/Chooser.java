@@ -30,10 +30,12 @@ import javax.accessibility.*;
 public class Chooser extends NumericalComponent
     {
     JComboBox combo;
+    ElementComboBoxModel comboModel = new ElementComboBoxModel();
     int addToWidth = 0;
 
     // The integers corresponding to each element in the JComboBox.
     int[] vals;
+    boolean defaultVals;            // are vals just 0...n-1?
     String[] labels;
     ImageIcon[] icons;
 
@@ -50,7 +52,7 @@ public class Chooser extends NumericalComponent
     
     public String map(int val)
         {
-        return "" + combo.getItemAt(val);
+        return "" + comboModel.getElementAt(val);
         }
     
     public void setCallActionListener(boolean val)
@@ -87,6 +89,18 @@ public class Chooser extends NumericalComponent
             state = 0;
         if (state > vals.length)
             state = vals.length - 1;
+        
+        // usually the values are just 0...n-1, so we needn't look
+        if (defaultVals && state < vals.length)
+            {
+            if (combo.getSelectedIndex() != state)
+                {
+                setCallActionListener(false);
+                combo.setSelectedIndex(state);
+                setCallActionListener(true);
+                }
+            return;
+            }
                 
         // look for it...
         for(int i = 0; i < vals.length; i++)
@@ -150,6 +164,19 @@ public class Chooser extends NumericalComponent
     public static final int MIN_NIMBUS_HEIGHT = 23;
 
     public Chooser(String _label, final Synth synth, final String key, String[] elements, int[] values, ImageIcon[] icons)
+        {
+        this(_label, synth, key, new ElementList(elements), values, icons);
+        }
+
+    /** Creates a JComboBox with the given label, modifying the given key in the Style.
+        The elements in the box are given by elements, which may be shared with other Choosers,
+        and their corresponding numerical values in the model 0...n. */
+    public Chooser(String _label, final Synth synth, final String key, ElementList elements)
+        {
+        this(_label, synth, key, elements, elements.getDefaultValues(), null);
+        }
+
+    public Chooser(String _label, final Synth synth, final String key, ElementList elements, int[] values, ImageIcon[] icons)
         {
         super(synth, key);
                 
@@ -157,7 +184,7 @@ public class Chooser extends NumericalComponent
         label.setBackground(Style.BACKGROUND_COLOR()); // TRANSPARENT);
         label.setForeground(Style.TEXT_COLOR());
 
-        combo = new JComboBox(elements)
+        combo = new JComboBox(comboModel)
             {
             AccessibleContext accessibleContext = null;
 
@@ -238,11 +265,12 @@ public class Chooser extends NumericalComponent
         combo.setEditable(false);
         combo.setFont(Style.SMALL_FONT());
         combo.setMaximumRowCount(40);           // 40, not 32, to accommodate modulation sources for the Waldorf Kyra and Waldorf M
+        combo.setKeySelectionManager(new TypeAhead());
 
+        this.icons = icons;
+        this.labels = elements.elements;
         setElements(_label, elements, values);
 
-        this.icons = icons;
-        this.labels = elements;
         if (icons != null)
             {
             combo.setRenderer(new ComboBoxRenderer());
@@ -313,12 +341,12 @@ public class Chooser extends NumericalComponent
         
     public String getElement(int position)
         {
-        return (String)(combo.getItemAt(position));
+        return (String)(comboModel.getElementAt(position));
         }
         
     public int getNumElements()
         {
-        return combo.getItemCount();
+        return comboModel.getSize();
         }
         
     public int getIndex()
@@ -352,31 +380,52 @@ public class Chooser extends NumericalComponent
 
     public void setElements(String _label, String[] elements)
         {
-        setElements(_label, elements, buildDefaultValues(elements));
+        setElements(_label, new ElementList(elements));
+        }
+
+    public void setElements(ElementList elements)
+        {
+        setElements(getLabelText(), elements);
+        }
+
+    public void setElements(String _label, ElementList elements)
+        {
+        setElements(_label, elements, elements.getDefaultValues());
         }
 
     // Simply replaces the item text.  The number of elements should be identical.
     public void replaceElements(String[] elements)
         {
+        replaceElements(new ElementList(elements));
+        }
+
+    // Simply replaces the item text.  The number of elements should be identical.
+    public void replaceElements(ElementList elements)
+        {
+        if (Style.showRaw)
+            elements = elements.withIndices();
         setCallActionListener(false);
-        int val = combo.getSelectedIndex();
-        combo.removeAllItems();
-        for(int i = 0; i < elements.length; i++)
-            combo.addItem(elements[i]);
-        if (val >= 0) 
-            combo.setSelectedIndex(val);
+        swapElements(elements);
         setCallActionListener(true);
         }
 
+    // Swaps in the new elements, keeping the selected index if we can, with a single change event
+    void swapElements(ElementList elements)
+        {
+        if (icons == null)
+            combo.setPrototypeDisplayValue(elements.getWidest(combo, combo.getFont()));
+        comboModel.setElements(elements);
+        }
         
     public void setElements(String _label, String[] elements, int[] values)
+        {
+        setElements(_label, new ElementList(elements), values);
+        }
+
+    public void setElements(String _label, ElementList elements, int[] values)
         {
         if (Style.showRaw)
-            {
-            elements = (String[])(elements.clone());
-            for(int i = 0; i < elements.length; i++)
-                elements[i] = "" + i + ": " + elements[i];
-            }
+            elements = elements.withIndices();
                 
         setCallActionListener(false);
         if (Style.isNimbus())
@@ -387,12 +436,13 @@ public class Chooser extends NumericalComponent
             label.setText(_label);
         combo.getAccessibleContext().setAccessibleName(_label);
 
-        combo.removeAllItems();
-        
-        for(int i = 0; i < elements.length; i++)
-            combo.addItem(elements[i]);
+        swapElements(elements);
 
-        vals = (int[])values.clone(); 
+        // default values are shared and never modified, so we needn't copy them
+        vals = (values == elements.getDefaultValues() ? values : (int[])values.clone()); 
+        defaultVals = true;
+        for(int i = 0; i < vals.length; i++)
+            if (vals[i] != i) { defaultVals = false; break; }
                 
         int _min = Integer.MAX_VALUE;
         int _max = Integer.MIN_VALUE;
@@ -406,7 +456,7 @@ public class Chooser extends NumericalComponent
         setMax(_max);
         setCallActionListener(true);
 
-        if (getState() >= elements.length)
+        if (getState() >= elements.size())
             {
             System.err.println("resetting from " + getState());
             setState(0);
@@ -415,6 +465,80 @@ public class Chooser extends NumericalComponent
         if (isVisible()) repaint();
         }
         
+    /** The JComboBox's model.  It holds an ElementList, which may be shared with other Choosers, and swaps
+        in a new one with a single change event rather than removing and adding each element in turn. */
+    static class ElementComboBoxModel extends AbstractListModel implements ComboBoxModel
+        {
+        ElementList elements = new ElementList(new String[0]);
+        Object selected;
+        
+        public int getSize() { return elements.size(); }
+        public Object getElementAt(int index) { return (index >= 0 && index < elements.size() ? elements.get(index) : null); }
+        public Object getSelectedItem() { return selected; }
+        
+        public void setSelectedItem(Object item)
+            {
+            if (selected == null ? item == null : selected.equals(item)) return;
+            selected = item;
+            fireContentsChanged(this, -1, -1);
+            }
+        
+        int getSelectedIndex()
+            {
+            if (selected == null) return -1;
+            for(int i = 0; i < elements.size(); i++)
+                if (selected.equals(elements.get(i))) return i;
+            return -1;
+            }
+            
+        public ElementList getElements() { return elements; }
+        
+        public void setElements(ElementList val)
+            {
+            if (val == elements) return;
+            int index = getSelectedIndex();
+            int oldSize = elements.size();
+            elements = val;
+            // like removeAllItems() followed by addItem(...), we select the first item if we can't keep our index 
+            selected = (elements.size() == 0 ? null : elements.get(index >= 0 && index < elements.size() ? index : 0));
+            int max = Math.max(oldSize, elements.size());
+            fireContentsChanged(this, 0, max == 0 ? 0 : max - 1);
+            }
+        }
+        
+    /** Type-ahead for the JComboBox.  Typing a few characters in quick succession selects the next element
+        which starts with them, ignoring any leading number, using the ElementList's search index
+        rather than scanning each element. */
+    class TypeAhead implements JComboBox.KeySelectionManager
+        {
+        String prefix = "";
+        long lastTime;
+        
+        public int selectionForKey(char key, ComboBoxModel model)
+            {
+            long time = System.currentTimeMillis();
+            Long timeFactor = (Long)UIManager.get("ComboBox.timeFactor");
+            long delay = (timeFactor == null ? 1000L : timeFactor.longValue());
+            int current = combo.getSelectedIndex();
+            int start;
+            
+            if (time - lastTime < delay && !(prefix.length() == 1 && prefix.charAt(0) == key))
+                {
+                // extending the prefix: the current element may still match
+                prefix = prefix + key;
+                start = current;
+                }
+            else
+                {
+                // a new prefix, or the same key again: move on to the next match
+                prefix = "" + key;
+                start = current + 1;
+                }
+            lastTime = time;
+            return comboModel.getElements().find(prefix, start);
+            }
+        }
+
     class ComboBoxRenderer extends JLabel implements ListCellRenderer 
         {
         public ComboBoxRenderer() 
@@ -0,0 +1,206 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.gui;
+
+import java.awt.*;
+import java.util.*;
+
+/**
+   An immutable list of the elements displayed in a Chooser.  Because it cannot change,
+   a single ElementList can be shared by many Choosers at once, and whatever it lazily
+   computes (its default values, its type-ahead index, its widest element) is computed
+   only once for all of them.  Synths which swap very large lists in and out of several
+   choosers (such as ROM instrument or preset lists) should build one ElementList per list
+   and hand it to each Chooser via setElements(...) or replaceElements(...), rather than
+   passing the String[] each time.
+
+   @author Sean Luke
+*/
+
+public class ElementList
+    {
+    final String[] elements;
+
+    // Lazily built
+    int[] defaultValues;
+    ElementList withIndices;
+    String[] searchKeys;            // sorted lowercase keys, up to three per element
+    int[] searchIndices;            // the element index of each search key
+    Font widestFont;
+    String widest;
+
+    static IdentityHashMap<String[], ElementList> shared = new IdentityHashMap<>();
+
+    /** Returns the ElementList for the given array, building it the first time it is asked for, so
+        that every Chooser which displays the array shares the same list.  The array is held forever
+        and must never be modified: use this only for static final tables, not for arrays built on the fly. */
+    public static ElementList shared(String[] elements)
+        {
+        synchronized(shared)
+            {
+            ElementList list = shared.get(elements);
+            if (list == null)
+                {
+                list = new ElementList(elements);
+                shared.put(elements, list);
+                }
+            return list;
+            }
+        }
+
+    /** Builds an ElementList holding a copy of the given elements. */
+    public ElementList(String[] elements)
+        {
+        this.elements = (String[])(elements.clone());
+        }
+
+    public int size() { return elements.length; }
+
+    public String get(int index) { return elements[index]; }
+
+    /** Returns a copy of the elements. */
+    public String[] toArray() { return (String[])(elements.clone()); }
+
+    /** Returns the values 0...n-1.  This array is shared: don't modify it. */
+    public synchronized int[] getDefaultValues()
+        {
+        if (defaultValues == null)
+            defaultValues = Chooser.buildDefaultValues(elements);
+        return defaultValues;
+        }
+
+    /** Returns the list with each element prefixed by its index, as shown when Style.showRaw is true. */
+    public synchronized ElementList withIndices()
+        {
+        if (withIndices == null)
+            {
+            String[] e = new String[elements.length];
+            for(int i = 0; i < e.length; i++)
+                e[i] = "" + i + ": " + elements[i];
+            withIndices = new ElementList(e);
+            }
+        return withIndices;
+        }
+
+    /** Returns the element which is widest when drawn in the given font, or null if there are no elements.
+        Choosers use this as the prototype display value of their JComboBox, so the combo box
+        needn't run every element through its renderer to figure out its size. */
+    public synchronized String getWidest(Component component, Font font)
+        {
+        if (elements.length == 0) return null;
+        if (widest == null || !font.equals(widestFont))
+            {
+            FontMetrics metrics = component.getFontMetrics(font);
+            int max = -1;
+            for(int i = 0; i < elements.length; i++)
+                {
+                int width = metrics.stringWidth(elements[i]);
+                if (width > max) { max = width; widest = elements[i]; }
+                }
+            widestFont = font;
+            }
+        return widest;
+        }
+
+    // Returns the element with its leading number removed, such as "12 " or "1/027 " or "12: ", or null if there isn't one
+    static String stripNumber(String element)
+        {
+        int len = element.length();
+        int i = 0;
+        while(i < len)
+            {
+            char c = element.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '/' || c == ':' || c == '-') i++;
+            else break;
+            }
+        if (i == 0 || i == len || element.charAt(i) != ' ') return null;
+        while(i < len && element.charAt(i) == ' ') i++;
+        return (i == len ? null : element.substring(i));
+        }
+
+    // Returns the element with its leading category tag removed, such as "pno:" or "wav:" in the E-mu ROM lists, or null if there isn't one
+    static String stripTag(String element)
+        {
+        int colon = element.indexOf(':');
+        if (colon < 0 || colon > 4) return null;
+        String str = element.substring(colon + 1).trim();
+        return (str.length() == 0 ? null : str);
+        }
+
+    void buildSearchIndex()
+        {
+        ArrayList<String> keys = new ArrayList<>();
+        ArrayList<Integer> indices = new ArrayList<>();
+        for(int i = 0; i < elements.length; i++)
+            {
+            String key = elements[i].toLowerCase();
+            keys.add(key);
+            indices.add(i);
+            String stripped = stripNumber(key);
+            if (stripped != null)
+                {
+                keys.add(stripped);
+                indices.add(i);
+                }
+            String untagged = stripTag(stripped == null ? key : stripped);
+            if (untagged != null)
+                {
+                keys.add(untagged);
+                indices.add(i);
+                }
+            }
+
+        final String[] k = keys.toArray(new String[0]);
+        Integer[] order = new Integer[k.length];
+        for(int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>()
+            {
+            public int compare(Integer a, Integer b) { return k[a].compareTo(k[b]); }
+            });
+
+        searchKeys = new String[k.length];
+        searchIndices = new int[k.length];
+        for(int i = 0; i < order.length; i++)
+            {
+            searchKeys[i] = k[order[i]];
+            searchIndices[i] = indices.get(order[i]);
+            }
+        }
+
+    /** Returns the first element at or after <i>start</i> (wrapping around) which begins with
+        the given prefix, ignoring case.  Elements which start with a number, such as "12 Piano"
+        or "1/027 Strings", also match on the text after the number, and elements with a short
+        category tag, such as "12 pno:Grand", also match on the text after the tag.  
+        Returns -1 if no element matches. */
+    public synchronized int find(String prefix, int start)
+        {
+        if (elements.length == 0) return -1;
+        if (searchKeys == null) buildSearchIndex();
+        prefix = prefix.toLowerCase();
+        if (start < 0 || start >= elements.length) start = 0;
+
+        // binary search for the first key >= prefix
+        int lo = 0;
+        int hi = searchKeys.length;
+        while(lo < hi)
+            {
+            int mid = (lo + hi) >>> 1;
+            if (searchKeys[mid].compareTo(prefix) < 0) lo = mid + 1;
+            else hi = mid;
+            }
+
+        // of the keys which match, pick the one closest to start, wrapping around
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for(int i = lo; i < searchKeys.length && searchKeys[i].startsWith(prefix); i++)
+            {
+            int index = searchIndices[i];
+            int distance = (index >= start ? index - start : index - start + elements.length);
+            if (distance < bestDistance) { best = index; bestDistance = distance; }
+            }
+        return best;
+        }
+    }
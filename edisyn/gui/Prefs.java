@@ -6,10 +6,19 @@
 
 package edisyn.gui;
 import edisyn.*;
+import java.util.*;
 import java.util.prefs.*;
 
 /** 
     A simple cover class for Java's preferences system.
+
+    <p>Preferences nodes are cached, so looking one up again is just a hash lookup.  Changes are
+    written out to the backing store behind our backs: save(...) just notes that a node needs
+    to be written, and a background thread writes out all such nodes once they've gone
+    SAVE_DELAY ms without further changes (but no later than MAX_SAVE_DELAY ms after the first
+    one), so the UI never waits on preferences I/O, and many changes in a row are written out
+    all at once.  Call flush() to write everything out right away.  This is done when an editor
+    window closes and when Edisyn quits.
 */
 
 public class Prefs
@@ -17,21 +26,77 @@ public class Prefs
     public static final String GLOBAL_PREFERENCES = "edisyn/global";
     public static final String EDITOR_PREFERENCES = "edisyn/editor";
 
+    /** How long (in ms) we wait after a change, for more changes, before writing changes out. */
+    public static final int SAVE_DELAY = 1000;
+    /** The longest (in ms) we wait after a change before writing changes out. */
+    public static final int MAX_SAVE_DELAY = 5000;
+
+    // Nodes we've looked up, by namespace, and by editor then namespace
+    static HashMap<String, Preferences> globalNodes = new HashMap<String, Preferences>();
+    static HashMap<String, HashMap<String, Preferences>> appNodes = new HashMap<String, HashMap<String, Preferences>>();
+
+    // Nodes which need to be written out, and when the first and last changes to them were made
+    static LinkedHashSet<Preferences> pending = new LinkedHashSet<Preferences>();
+    static long firstChange = 0;
+    static long lastChange = 0;
+    static Timer timer = null;
+    static boolean scheduled = false;
+
     public static Preferences getGlobalPreferences(String namespace)
         {
-        return Preferences.userRoot().node(GLOBAL_PREFERENCES + "/" + namespace.replace('.','/'));
+        synchronized(globalNodes)
+            {
+            Preferences prefs = globalNodes.get(namespace);
+            if (prefs == null)
+                {
+                prefs = Preferences.userRoot().node(GLOBAL_PREFERENCES + "/" + namespace.replace('.','/'));
+                globalNodes.put(namespace, prefs);
+                }
+            return prefs;
+            }
         }
 
     public static Preferences getAppPreferences(String editor, String namespace)
         {
-        return Preferences.userRoot().node(EDITOR_PREFERENCES + "/" + editor.replace('.','/') + "/" + namespace.replace('.','/')); 
+        synchronized(globalNodes)
+            {
+            HashMap<String, Preferences> nodes = appNodes.get(editor);
+            if (nodes == null)
+                {
+                nodes = new HashMap<String, Preferences>();
+                appNodes.put(editor, nodes);
+                }
+            Preferences prefs = nodes.get(namespace);
+            if (prefs == null)
+                {
+                prefs = Preferences.userRoot().node(EDITOR_PREFERENCES + "/" + editor.replace('.','/') + "/" + namespace.replace('.','/')); 
+                nodes.put(namespace, prefs);
+                }
+            return prefs;
+            }
+        }
+        
+    // Forgets all the nodes we've looked up, since some of them may have been removed
+    static void forgetNodes()
+        {
+        synchronized(globalNodes)
+            {
+            globalNodes.clear();
+            appNodes.clear();
+            }
+        synchronized(pending)
+            {
+            pending.clear();
+            }
         }
         
     public static boolean removeGlobalPreferences(String namespace)
         {
         try
             {
+            flush();
             getGlobalPreferences(namespace).removeNode();
+            forgetNodes();
             return true;
             }
         catch (Exception ex)
@@ -45,7 +110,9 @@ public class Prefs
         {
         try
             {
+            flush();
             getAppPreferences(editor, namespace).removeNode();
+            forgetNodes();
             return true;
             }
         catch (Exception ex)
@@ -55,17 +122,76 @@ public class Prefs
             }
         }
 
+    /** Schedules the preferences to be written out to the backing store shortly, and returns true.
+        If something goes wrong when they're written, the exception is handled then. */
     public static boolean save(Preferences prefs)
         {
-        try 
+        synchronized(pending)
             {
-            prefs.sync();
-            return true;
+            pending.add(prefs);
+            lastChange = System.currentTimeMillis();
+            if (firstChange == 0) firstChange = lastChange;
+            if (!scheduled) schedule(SAVE_DELAY);
             }
-        catch (Exception ex)
+        return true;
+        }
+        
+    // Schedules a check for whether to write out the pending nodes.  Call this while synchronized on pending.
+    static void schedule(long delay)
+        {
+        if (timer == null)
             {
-            Synth.handleException(ex);
-            return false;
+            timer = new Timer("Edisyn Preferences", true);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+                {
+                public void run() { flush(); }
+                }));
+            }
+        scheduled = true;
+        timer.schedule(new TimerTask()
+            {
+            public void run()
+                {
+                synchronized(pending)
+                    {
+                    long now = System.currentTimeMillis();
+                    long wait = Math.min(lastChange + SAVE_DELAY, firstChange + MAX_SAVE_DELAY) - now;
+                    if (wait > 0)                       // there have been more changes, wait for them to settle
+                        {
+                        schedule(wait);
+                        return;
+                        }
+                    }
+                flush();
+                }
+            }, delay);
+        }
+        
+    /** Writes out all preferences changes right away, and returns false if there was an error in doing so. */
+    public static boolean flush()
+        {
+        Preferences[] nodes;
+        synchronized(pending)
+            {
+            nodes = pending.toArray(new Preferences[pending.size()]);
+            pending.clear();
+            firstChange = 0;
+            scheduled = false;                  // any task still scheduled will find nothing to do
+            }
+            
+        boolean result = true;
+        for(int i = 0; i < nodes.length; i++)
+            {
+            try 
+                {
+                nodes[i].sync();
+                }
+            catch (Exception ex)
+                {
+                Synth.handleException(ex);
+                result = false;
+                }
             }
+        return result;
         }
     }
@@ -8,4 +8,18 @@ package edisyn.nn;
 public interface Layer 
     {
     public double[] feed(double[] vec);
+
+    /**
+       Feed a batch of COUNT vectors through the layer at once.  The vectors are stored one after
+       another in input, each inputSize long, and their results are written one after another into
+       output, each getOutputSize(inputSize) long.  Nothing is allocated, and the results are exactly
+       the same as those of feed(...).  Layers which work element by element (such as SELU) permit
+       input and output to be the same array.
+    */
+    public void feedBatch(double[] input, int count, int inputSize, double[] output);
+    
+    /**
+       Return the size of the layer's output for an input of the given size.
+    */
+    public int getOutputSize(int inputSize);
     }
@@ -6,12 +6,19 @@
 
 package edisyn.nn;
 
+import java.io.*;
+import java.nio.*;
+
 /**
    This class is a representation of a fully connected neural network layer
    consisting of an input, weights, and output.
 */
 public class Linear implements Layer
     {
+    // The number of rows of weights multiplied against every vector in a batch
+    // before moving on to the next rows, so they stay in the cache
+    static final int ROW_BLOCK = 32;
+    
     private double[] data;
     private double[] bias;
     private int rows;
@@ -72,6 +79,102 @@ public class Linear implements Layer
             }
         return out;
         }
+
+    /**
+       Feed in a batch of vectors (see Layer.feedBatch(...)).  This is a blocked matrix
+       multiply: each block of rows is multiplied against every vector in the batch while
+       it's in the cache, two rows and four vectors at a time, so each weight is loaded once
+       per four vectors and each input once per two rows.  The sums are accumulated in the
+       same order as feed(...), so the results are identical.
+    */
+    public void feedBatch(double[] input, int count, int inputSize, double[] output)
+        {
+        // Sanity check
+        if (inputSize != columns)
+            throw new IllegalArgumentException("Bad input to feedBatch: inputSize != columns.  inputSize = " + inputSize + " and columns = " + columns);
+
+        for(int r0 = 0; r0 < rows; r0 += ROW_BLOCK)
+            {
+            int r1 = Math.min(rows, r0 + ROW_BLOCK);
+            int n = 0;
+            for( ; n + 4 <= count; n += 4)
+                {
+                int i0 = n * columns;
+                int i1 = i0 + columns;
+                int i2 = i1 + columns;
+                int i3 = i2 + columns;
+                int o0 = n * rows;
+                int r = r0;
+                for( ; r + 2 <= r1; r += 2)
+                    {
+                    int w = r * columns;
+                    int x = w + columns;
+                    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                    double t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+                    for(int c = 0; c < columns; c++)
+                        {
+                        double d = data[w + c];
+                        double e = data[x + c];
+                        double v0 = input[i0 + c];
+                        double v1 = input[i1 + c];
+                        double v2 = input[i2 + c];
+                        double v3 = input[i3 + c];
+                        s0 += d * v0;
+                        s1 += d * v1;
+                        s2 += d * v2;
+                        s3 += d * v3;
+                        t0 += e * v0;
+                        t1 += e * v1;
+                        t2 += e * v2;
+                        t3 += e * v3;
+                        }
+                    output[o0 + r] = s0 + bias[r];
+                    output[o0 + rows + r] = s1 + bias[r];
+                    output[o0 + rows * 2 + r] = s2 + bias[r];
+                    output[o0 + rows * 3 + r] = s3 + bias[r];
+                    output[o0 + r + 1] = t0 + bias[r + 1];
+                    output[o0 + rows + r + 1] = t1 + bias[r + 1];
+                    output[o0 + rows * 2 + r + 1] = t2 + bias[r + 1];
+                    output[o0 + rows * 3 + r + 1] = t3 + bias[r + 1];
+                    }
+                for( ; r < r1; r++)
+                    {
+                    int w = r * columns;
+                    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                    for(int c = 0; c < columns; c++)
+                        {
+                        double d = data[w + c];
+                        s0 += d * input[i0 + c];
+                        s1 += d * input[i1 + c];
+                        s2 += d * input[i2 + c];
+                        s3 += d * input[i3 + c];
+                        }
+                    output[o0 + r] = s0 + bias[r];
+                    output[o0 + rows + r] = s1 + bias[r];
+                    output[o0 + rows * 2 + r] = s2 + bias[r];
+                    output[o0 + rows * 3 + r] = s3 + bias[r];
+                    }
+                }
+            // the leftover vectors
+            for( ; n < count; n++)
+                {
+                int i0 = n * columns;
+                int o0 = n * rows;
+                for(int r = r0; r < r1; r++)
+                    {
+                    int w = r * columns;
+                    double s0 = 0;
+                    for(int c = 0; c < columns; c++)
+                        {
+                        s0 += data[w + c] * input[i0 + c];
+                        }
+                    output[o0 + r] = s0 + bias[r];
+                    }
+                }
+            }
+        }
+        
+    public int getOutputSize(int inputSize) { return rows; }
     /**
        Takes in a plain text string representation of a layer and return a constructed
        layer object.
@@ -109,4 +212,29 @@ public class Linear implements Layer
         return new Linear(rows, columns, weights, bias);
         }
 
+    /**
+       Writes the layer in binary form (see Network.writeBinary(...)):
+       <p><tt>
+       {rows: int} {columns: int} [biases: rows in size] [weights: rows * columns in size, provided in row major order]
+       </tt>
+    */
+    void writeToBinary(DataOutputStream out, boolean doubles) throws IOException
+        {
+        out.writeInt(rows);
+        out.writeInt(columns);
+        Network.writeArray(out, bias, doubles);
+        Network.writeArray(out, data, doubles);
+        }
+
+    /**
+       Reads a layer in binary form (see writeToBinary(...)).
+    */
+    static Layer readFromBinary(ByteBuffer buffer, boolean doubles)
+        {
+        int rows = buffer.getInt();
+        int columns = buffer.getInt();
+        double[] bias = Network.readArray(buffer, rows, doubles);
+        double[] weights = Network.readArray(buffer, rows * columns, doubles);
+        return new Linear(rows, columns, weights, bias);
+        }
     }
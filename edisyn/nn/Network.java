@@ -7,14 +7,30 @@ package edisyn.nn;
 
 import java.util.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 
 /**
    An object representing a neural network comprised of layers.
 */
 public class Network implements Layer 
     {
+    /** The magic number which begins a binary network file: "ENN" followed by the format version. */
+    public static final int BINARY_MAGIC = 0x454E4E01;
+    
+    // Layer types in a binary network file
+    static final byte BINARY_LINEAR = 0;
+    static final byte BINARY_SELU = 1;
+    static final byte BINARY_SIGMOID = 2;
+    static final byte BINARY_NORMALIZATION = 3;
+    static final byte BINARY_RESIDUAL = 4;
+    
     // The feed-forward layers of the network
     private ArrayList<Layer> layers = new ArrayList<Layer>();
+    
+    // Buffers between layers for feedBatch(...), used alternately and grown as needed
+    private double[] bufferA = new double[0];
+    private double[] bufferB = new double[0];
 
     /**
        Construct an empty network
@@ -53,6 +69,80 @@ public class Network implements Layer
         return out;
         }
 
+    /**
+       Feed a batch of vectors through all the layers of the network (see Layer.feedBatch(...)).
+       The layers pass the batch between two buffers which the network keeps and reuses, so
+       once they have grown large enough, nothing is allocated.
+    */
+    public synchronized void feedBatch(double[] input, int count, int inputSize, double[] output)
+        {
+        if (layers.size() == 0)
+            {
+            System.arraycopy(input, 0, output, 0, count * inputSize);
+            return;
+            }
+            
+        double[] in = input;
+        int size = inputSize;
+        for(int i = 0; i < layers.size(); i++)
+            {
+            Layer layer = layers.get(i);
+            int outSize = layer.getOutputSize(size);
+            double[] out;
+            if (i == layers.size() - 1)
+                {
+                out = output;
+                }
+            else if (in == bufferA)
+                {
+                if (bufferB.length < count * outSize) bufferB = new double[count * outSize];
+                out = bufferB;
+                }
+            else
+                {
+                if (bufferA.length < count * outSize) bufferA = new double[count * outSize];
+                out = bufferA;
+                }
+            layer.feedBatch(in, count, size, out);
+            in = out;
+            size = outSize;
+            }
+        }
+
+    /**
+       Feed several vectors, all of the same size, through the network in a single batch
+       and return the outputs.  The results are the same as calling feed(...) on each.
+    */
+    public double[][] feed(double[][] vecs)
+        {
+        if (vecs.length == 0) return new double[0][];
+        int inputSize = vecs[0].length;
+        int outputSize = getOutputSize(inputSize);
+        double[] input = new double[vecs.length * inputSize];
+        for(int i = 0; i < vecs.length; i++)
+            {
+            System.arraycopy(vecs[i], 0, input, i * inputSize, inputSize);
+            }
+        double[] output = new double[vecs.length * outputSize];
+        feedBatch(input, vecs.length, inputSize, output);
+        double[][] outs = new double[vecs.length][outputSize];
+        for(int i = 0; i < vecs.length; i++)
+            {
+            System.arraycopy(output, i * outputSize, outs[i], 0, outputSize);
+            }
+        return outs;
+        }
+
+    public int getOutputSize(int inputSize)
+        {
+        int size = inputSize;
+        for(Layer layer: layers)
+            {
+            size = layer.getOutputSize(size);
+            }
+        return size;
+        }
+
     /**
        Load a network from a stream of lines representing layers.
 
@@ -140,6 +230,194 @@ public class Network implements Layer
             }
         }
 
+    /**
+       Write the network in binary form, which loads much faster than the text form
+       read by loadFromStream(...).  If doubles is false, weights are written as floats,
+       which halves the size but is only lossless if the weights were floats to begin with.
+       
+       <p>All values are big-endian.
+       
+       <p><tt>
+       Format:
+       {magic number: int, see BINARY_MAGIC} {bytes per weight: byte, 4 or 8} {number of layers: int}
+       {layer type: byte} [layer arguments]
+       ...
+       </tt>
+       
+       See Linear.java, Normalization.java, Sigmoid.java, or ResidualBlock.java for the
+       arguments of each layer type.  SELU has none.
+    */
+    public void writeBinary(OutputStream stream, boolean doubles) throws IOException
+        {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(BINARY_MAGIC);
+        out.writeByte(doubles ? 8 : 4);
+        out.writeInt(layers.size());
+        for(Layer layer : layers)
+            {
+            if (layer instanceof Linear)
+                {
+                out.writeByte(BINARY_LINEAR);
+                ((Linear)layer).writeToBinary(out, doubles);
+                }
+            else if (layer instanceof SELU)
+                {
+                out.writeByte(BINARY_SELU);
+                }
+            else if (layer instanceof Sigmoid)
+                {
+                out.writeByte(BINARY_SIGMOID);
+                ((Sigmoid)layer).writeToBinary(out, doubles);
+                }
+            else if (layer instanceof Normalization)
+                {
+                out.writeByte(BINARY_NORMALIZATION);
+                ((Normalization)layer).writeToBinary(out, doubles);
+                }
+            else if (layer instanceof ResidualBlock)
+                {
+                out.writeByte(BINARY_RESIDUAL);
+                ((ResidualBlock)layer).writeToBinary(out, doubles);
+                }
+            else throw new IOException("Cannot write layer of type " + layer.getClass().getName());
+            }
+        out.flush();
+        }
+        
+    /**
+       Load a network in binary form (see writeBinary(...)) from a buffer, starting at its current position.
+       Returns null if the buffer doesn't hold a binary network.
+    */
+    public static Network loadFromBinary(ByteBuffer buffer)
+        {
+        try
+            {
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt() != BINARY_MAGIC)
+                {
+                System.err.println("Not a binary network");
+                return null;
+                }
+            boolean doubles = (buffer.get() == 8);
+            int count = buffer.getInt();
+            Network network = new Network();
+            for(int i = 0; i < count; i++)
+                {
+                byte type = buffer.get();
+                if (type == BINARY_LINEAR)
+                    {
+                    network.addLayer(Linear.readFromBinary(buffer, doubles));
+                    }
+                else if (type == BINARY_SELU)
+                    {
+                    network.addLayer(new SELU());
+                    }
+                else if (type == BINARY_SIGMOID)
+                    {
+                    network.addLayer(Sigmoid.readFromBinary(buffer, doubles));
+                    }
+                else if (type == BINARY_NORMALIZATION)
+                    {
+                    network.addLayer(Normalization.readFromBinary(buffer, doubles));
+                    }
+                else if (type == BINARY_RESIDUAL)
+                    {
+                    network.addLayer(ResidualBlock.readFromBinary(buffer, doubles));
+                    }
+                else 
+                    {
+                    System.err.println("Unknown Layer Type: " + type);
+                    return null;
+                    }
+                }
+            return network;
+            }
+        catch(BufferUnderflowException e)
+            {
+            e.printStackTrace(new java.io.PrintStream(System.err));
+            return null;
+            }
+        }
+
+    /**
+       Load a network in binary form (see writeBinary(...)) from a stream, such as a resource.
+    */
+    public static Network loadFromBinaryStream(InputStream stream) 
+        {
+        try
+            {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[65536];
+            while(true)
+                {
+                int total = stream.read(buffer);
+                if (total < 0) break;
+                bytes.write(buffer, 0, total);
+                }
+            return loadFromBinary(ByteBuffer.wrap(bytes.toByteArray()));
+            }
+        catch(IOException e)
+            {
+            e.printStackTrace(new java.io.PrintStream(System.err));
+            return null;
+            }
+        }
+
+    /**
+       Load a network in binary form (see writeBinary(...)) from a file, which is memory-mapped
+       rather than read.
+    */
+    public static Network loadFromBinaryFile(File file) 
+        {
+        try
+            {
+            FileChannel channel = new FileInputStream(file).getChannel();
+            try
+                {
+                return loadFromBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            finally
+                {
+                channel.close();
+                }
+            }
+        catch(IOException e)
+            {
+            e.printStackTrace(new java.io.PrintStream(System.err));
+            return null;
+            }
+        }
+        
+    // Writes an array of weights as floats or doubles
+    static void writeArray(DataOutputStream out, double[] array, boolean doubles) throws IOException
+        {
+        for(int i = 0; i < array.length; i++)
+            {
+            if (doubles) out.writeDouble(array[i]);
+            else out.writeFloat((float)array[i]);
+            }
+        }
+
+    // Reads an array of weights as floats or doubles, in bulk
+    static double[] readArray(ByteBuffer buffer, int length, boolean doubles)
+        {
+        double[] array = new double[length];
+        if (doubles)
+            {
+            buffer.asDoubleBuffer().get(array);
+            buffer.position(buffer.position() + length * 8);
+            }
+        else
+            {
+            float[] f = new float[length];
+            buffer.asFloatBuffer().get(f);
+            buffer.position(buffer.position() + length * 4);
+            for(int i = 0; i < length; i++)
+                array[i] = f[i];
+            }
+        return array;
+        }
+
         
     /**
        Encode an integer in the range min to max (inclusive) as a double between 0 to 1.
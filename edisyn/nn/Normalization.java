@@ -6,6 +6,9 @@
 
 package edisyn.nn;
 
+import java.io.*;
+import java.nio.*;
+
 /**
    A layer which renormalizes based on the original samples.
    Normalization takes four variables, per input: mean, variance, beta, and gamma.
@@ -45,6 +48,24 @@ public class Normalization implements Layer
             }
         return out;
         }
+
+    /**
+       Normalize a batch of vectors (see Layer.feedBatch(...)).  Input and output may be the same array.
+    */
+    public void feedBatch(double[] input, int count, int inputSize, double[] output)
+        {
+        for(int n = 0; n < count; n++)
+            {
+            int o = n * inputSize;
+            for(int i = 0; i < inputSize; i++)
+                {
+                double a = (input[o + i] - mean[i]) / variance[i];
+                output[o + i] = a * gamma[i] + beta[i];
+                }
+            }
+        }
+        
+    public int getOutputSize(int inputSize) { return inputSize; }
         
     /**
        Normalization SIZE mean...., variance..., gamma..., beta...
@@ -77,4 +98,29 @@ public class Normalization implements Layer
         return new Normalization(mean, variance, gamma, beta);
         }
 
+    /**
+       Writes the layer in binary form (see Network.writeBinary(...)):
+       {size: int} mean...., variance..., gamma..., beta...
+    */
+    void writeToBinary(DataOutputStream out, boolean doubles) throws IOException
+        {
+        out.writeInt(mean.length);
+        Network.writeArray(out, mean, doubles);
+        Network.writeArray(out, variance, doubles);
+        Network.writeArray(out, gamma, doubles);
+        Network.writeArray(out, beta, doubles);
+        }
+
+    /**
+       Reads a layer in binary form (see writeToBinary(...)).
+    */
+    static Layer readFromBinary(ByteBuffer buffer, boolean doubles)
+        {
+        int size = buffer.getInt();
+        double[] mean = Network.readArray(buffer, size, doubles);
+        double[] variance = Network.readArray(buffer, size, doubles);
+        double[] gamma = Network.readArray(buffer, size, doubles);
+        double[] beta = Network.readArray(buffer, size, doubles);
+        return new Normalization(mean, variance, gamma, beta);
+        }
     }
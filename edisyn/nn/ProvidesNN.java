@@ -22,6 +22,16 @@ public interface ProvidesNN
     public static final double WEIGHT_SCALING = 5.0;
     
     public Model decode(double [] vector);
+
+    /** Decodes several vectors at once.  By default this just decodes each one in turn, 
+        but models can override it to feed all of them through their network in one batch. */
+    public default Model[] decode(double[][] vectors)
+        {
+        Model[] models = new Model[vectors.length];
+        for(int i = 0; i < vectors.length; i++)
+            models[i] = decode(vectors[i]);
+        return models;
+        }
     public double[] encode(Model model);
     
     /** Randomizes the model by a weight 0...1.0, yielding a new model */
@@ -6,6 +6,9 @@
 
 package edisyn.nn;
 
+import java.io.*;
+import java.nio.*;
+
 public class ResidualBlock implements Layer
     {
     Linear input;
@@ -13,6 +16,10 @@ public class ResidualBlock implements Layer
     Linear output;
     Linear skip;
     
+    // Scratch space for feedBatch(...), grown as needed
+    double[] hiddenBuffer = new double[0];
+    double[] skipBuffer = new double[0];
+    
     public ResidualBlock(int rows, int columns, int hidden, double[] inputData, double[] inputBias, 
         double[] outputData, double[] outputBias, double[] skipData, double[] skipBias)
         {
@@ -54,6 +61,34 @@ public class ResidualBlock implements Layer
         return selu.feed(out);
         }
 
+    public synchronized void feedBatch(double[] in, int count, int inputSize, double[] out)
+        {
+        int hiddenSize = input.getOutputSize(inputSize);
+        int outputSize = output.getOutputSize(hiddenSize);
+        if (skip.getOutputSize(inputSize) != outputSize)
+            throw new IllegalArgumentException("Skip has wrong length " + skip.getOutputSize(inputSize) + ", expected " + outputSize);
+        if (hiddenBuffer.length < count * hiddenSize) hiddenBuffer = new double[count * hiddenSize];
+        if (skipBuffer.length < count * outputSize) skipBuffer = new double[count * outputSize];
+
+        input.feedBatch(in, count, inputSize, hiddenBuffer);
+        selu.feedBatch(hiddenBuffer, count, hiddenSize, hiddenBuffer);
+        output.feedBatch(hiddenBuffer, count, hiddenSize, out);
+        skip.feedBatch(in, count, inputSize, skipBuffer);
+
+        // Sum
+        int len = count * outputSize;
+        for(int i = 0; i < len; i++)
+            {
+            out[i] += skipBuffer[i];
+            }
+        selu.feedBatch(out, count, outputSize, out);
+        }
+        
+    public int getOutputSize(int inputSize) 
+        {
+        return output.getOutputSize(input.getOutputSize(inputSize));
+        }
+
     public static Layer readFromString(String _residual, String _in, String _selu, String _out, String _skip, String _selu2)
         {
         // do nothing with _residual
@@ -67,4 +102,19 @@ public class ResidualBlock implements Layer
         return new ResidualBlock(input, selu, output, skip);
         }
 
+    // Binary form (see Network.writeBinary(...)): the input, output, and skip Linear layers
+    void writeToBinary(DataOutputStream out, boolean doubles) throws IOException
+        {
+        input.writeToBinary(out, doubles);
+        output.writeToBinary(out, doubles);
+        skip.writeToBinary(out, doubles);
+        }
+
+    static Layer readFromBinary(ByteBuffer buffer, boolean doubles)
+        {
+        Linear input = (Linear)Linear.readFromBinary(buffer, doubles);
+        Linear output = (Linear)Linear.readFromBinary(buffer, doubles);
+        Linear skip = (Linear)Linear.readFromBinary(buffer, doubles);
+        return new ResidualBlock(input, new SELU(), output, skip);
+        }
     }
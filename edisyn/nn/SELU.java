@@ -46,6 +46,20 @@ public class SELU implements Layer
             }
         return out;
         }
+
+    /**
+       Feed a batch of vectors into the activation (see Layer.feedBatch(...)).  Input and output may be the same array.
+    */
+    public void feedBatch(double[] input, int count, int inputSize, double[] output)
+        {
+        int len = count * inputSize;
+        for(int i = 0; i < len; i++)
+            {
+            output[i] = selu(input[i]);
+            }
+        }
+        
+    public int getOutputSize(int inputSize) { return inputSize; }
     /**
        Doesn't do anything: has no parameters to initialize
     */
@@ -5,6 +5,9 @@
 
 package edisyn.nn;
 
+import java.io.*;
+import java.nio.*;
+
 /**
    A standard sigmoid nonlinearity layer.
 **/
@@ -43,6 +46,20 @@ public class Sigmoid implements Layer
             }
         return out;
         }
+
+    /**
+       Feed a batch of vectors into the activation (see Layer.feedBatch(...)).  Input and output may be the same array.
+    */
+    public void feedBatch(double[] input, int count, int inputSize, double[] output)
+        {
+        int len = count * inputSize;
+        for(int i = 0; i < len; i++)
+            {
+            output[i] = sigmoid(input[i], beta);
+            }
+        }
+        
+    public int getOutputSize(int inputSize) { return inputSize; }
         
     /**
        One optional parameter: beta
@@ -57,5 +74,21 @@ public class Sigmoid implements Layer
             }
         else return new Sigmoid();
         }
+
+    /**
+       Writes the layer in binary form (see Network.writeBinary(...)): just beta
+    */
+    void writeToBinary(DataOutputStream out, boolean doubles) throws IOException
+        {
+        Network.writeArray(out, new double[] { beta }, doubles);
+        }
+
+    /**
+       Reads a layer in binary form (see writeToBinary(...)).
+    */
+    static Layer readFromBinary(ByteBuffer buffer, boolean doubles)
+        {
+        return new Sigmoid(Network.readArray(buffer, 1, doubles)[0]);
+        }
     }
 
@@ -207,6 +207,15 @@ public class Blank extends Synth
         return PARSE_FAILED; 
         }
         
+    public Object getParseState()
+        {
+        // The Librarian caches Models parsed from its patches.  If your parse(...) depends
+        // on some setting of your editor other than the Model, such as a synth type you
+        // let the user choose, return it here (as an Integer, say) so that a Model parsed
+        // under one setting isn't reused under another.
+        return super.getParseState();
+        }
+        
     public static String getSynthName() 
         { 
         // This method should return the name of your synthsizer.
@@ -758,16 +767,34 @@ public class Blank extends Synth
     public int getBatchDownloadWaitTime()
         {
         // Edisyn does bulk downloads by iteratively requesting a patch, then
-        // waiting for it to load, then saving it.  Edisyn will wait for up to
-        // getBatchDownloadWaitTime() milliseconds before it checks to see if the
-        // patch has arrived and try to save it; else it will issue another request.
+        // waiting for it to load, then saving it.  Every getBatchDownloadWaitTime() 
+        // milliseconds Edisyn saves the patch which arrived and requests the next one 
+        // (or, if getAdvancesBatchDownloadOnReceive(), does so as soon as the patch arrives).
+        // If the patch hasn't arrived by then, Edisyn counts it as tardy
+        // (see getBatchDownloadFailureCountdown()) and eventually issues another request.
         //
         // The default value is 1000 (one second).  If your synth takes more (or less!)
         // time to respond and dump a patch to Edisyn, you may wish to change this value.
-        // You'd like it as short as possible without missing dumps. 
         return 1000; 
         }
 
+    public boolean getAdvancesBatchDownloadOnReceive()
+        {
+        // By default Edisyn waits the full getBatchDownloadWaitTime() before saving each
+        // patch and requesting the next.  If your synth sends each patch as a single sysex
+        // message which parse() reads completely, and needs no handshake, return true, and
+        // Edisyn will request the next patch as soon as the last one has been parsed.
+        return super.getAdvancesBatchDownloadOnReceive();
+        }
+
+    public int getBatchDownloadOutstandingRequests()
+        {
+        // If your synth can queue up several dump requests and answer them in order,
+        // you can return a value larger than 1 here, and Edisyn will keep that many
+        // requests outstanding at a time during a batch download.
+        return super.getBatchDownloadOutstandingRequests();
+        }
+
     public int getBatchDownloadFailureCountdown()
         {
         // Each getBatchDownloadWaitTime() Edisyn will count this down until
@@ -59,6 +59,7 @@ public class AlesisD4 extends Synth
     public static final String DM5_KEY = "DM5";
     
     public boolean isDM5() { return dm5; }
+    public Object getParseState() { return Boolean.valueOf(dm5); }
     boolean reenntrantBlock = false;
     public void setDM5(boolean val, boolean store)
         {
@@ -7596,6 +7596,10 @@ public class ASMHydrasynth extends Synth
         
     public boolean librarianTested() { return true; }
 
+    // reviseMutatedValue(...) draws from our shared random, so the hill-climber must produce candidates one at a time
+    // (in a fixed order) for them to be thread-safe and reproducible
+    public boolean getMutatesInParallel() { return false; }
+
     public int reviseMutatedValue(String key, int oldValue, int proposedValue,  Model model) 
         {
         if (!key.startsWith("mod")) 
@@ -1855,20 +1855,23 @@ public class AudiothingiesMicroMonsta extends Synth
 
     public Object[] emitAll(String key)
         {
-        if (key.equals("number")) return new Object[0];  // this is not emittable
-        if (key.equals("bank")) return new Object[0];  // this should not even be possible!
+        ShortMessageBuffer buffer = new ShortMessageBuffer();
+        return (emitTo(key, STATUS_UPDATING_ONE_PARAMETER, buffer) ? buffer.toObjects() : null);
+        }
+
+    public boolean emitTo(String key, int status, ShortMessageBuffer buffer)
+        {
+        if (key.equals("number")) return true;  // this is not emittable
+        if (key.equals("bank")) return true;  // this should not even be possible!
 
         if (key.equals("name"))
             {
             char[] name = (model.get("name", "InitPgm") + "        ").toCharArray();
-            Object[] obj = buildNRPNMSBOnly(getChannelOut(), 1, 'A');               // sacrificial
-            Object[] objs = new Object[obj.length * 8];
             for(int i = 1; i <= 8; i++)
                 {
-                obj = buildNRPNMSBOnly(getChannelOut(), i, (name[i - 1] & 127));                        // we send val = MSB only, workaround for Micromonsta bug
-                System.arraycopy(obj, 0, objs, (i - 1) * obj.length, obj.length);
+                buffer.addNRPNMSBOnly(getChannelOut(), i, (name[i - 1] & 127));                        // we send val = MSB only, workaround for Micromonsta bug
                 }
-            return objs;
+            return true;
             }
 
         // Some arguments, such as LFO 2 Delay, are both NRPN *and* CC, even though we should
@@ -1888,25 +1891,25 @@ public class AudiothingiesMicroMonsta extends Synth
                 if (key.equals("globalstempo") || 
                     (key.startsWith("lfo") && (key.endsWith("delay") || key.endsWith("rate"))))
                     {       // MSB+LSB
-                    return buildNRPN(getChannelOut(), param, val);                          // we send val = MSB * 128 + LSB
+                    buffer.addNRPN(getChannelOut(), param, val);                          // we send val = MSB * 128 + LSB
                     }
                 else
                     {
-                    return buildNRPNMSBOnly(getChannelOut(), param, val);                   // we send val = MSB only, workaround for Micromonsta bug
+                    buffer.addNRPNMSBOnly(getChannelOut(), param, val);                   // we send val = MSB only, workaround for Micromonsta bug
                     }
                 }
             else
                 {
-                System.err.println("AudiothingiesMicroMonsta.emitAll(key): invalid key " + key);
-                return new Object[0];
+                System.err.println("AudiothingiesMicroMonsta.emitTo(key): invalid key " + key);
                 }
             }
         else
             {
             k = argToCC.get(key);
             int param = k.intValue();
-            return buildCC(getChannelOut(), param, val);
+            buffer.addCC(getChannelOut(), param, val);
             }
+        return true;
         }
 
     public byte[] emit(Model tempModel, boolean toWorkingMemory, boolean toFile)
@@ -144,6 +144,7 @@ public class CasioCZ extends Synth
     JComboBox synthTypeCombo;
         
     public int getSynthType() { return synthType; }
+    public Object getParseState() { return Integer.valueOf(synthType); }
     public void setSynthType(int val, boolean save)
         {
         if (save)
@@ -104,6 +104,7 @@ public class DSIProphet08 extends Synth
     public static final String TYPE_KEY = "Type";
     
     public int getType() { return type; }
+    public Object getParseState() { return Integer.valueOf(type); }
     boolean reenntrantBlock = false;
     public void setType(int val, boolean store)
         {
@@ -1592,22 +1593,22 @@ public class DSIProphet08 extends Synth
 
     public Object[] emitAll(String key)
         {
-        if (key.equals("bank")) return new Object[0];  // this is not emittable
-        if (key.equals("number")) return new Object[0];  // this is not emittable
+        ShortMessageBuffer buffer = new ShortMessageBuffer();
+        return (emitTo(key, STATUS_UPDATING_ONE_PARAMETER, buffer) ? buffer.toObjects() : null);
+        }
+
+    public boolean emitTo(String key, int status, ShortMessageBuffer buffer)
+        {
+        if (key.equals("bank")) return true;  // this is not emittable
+        if (key.equals("number")) return true;  // this is not emittable
 
-        int index;
-        int value;
-        
         if (key.equals("name"))
             {
-            Object[] ret = new Object[4 * 16];
             char[] name = (model.get("name", "Untitled") + "                ").toCharArray();
             for(int i = 0; i < 16; i++)
                 {
-                Object[] nrpn = buildNRPN(getChannelOut(), i + 184, name[i]);
-                System.arraycopy(nrpn, 0, ret, i * 4, 4);
+                buffer.addNRPN(getChannelOut(), i + 184, name[i]);
                 }
-            return ret;
             }
         else 
             {
@@ -1616,7 +1617,7 @@ public class DSIProphet08 extends Synth
             if (key.startsWith("layer1tetraassignableparameter") ||
                 key.startsWith("layer2tetraassignableparameter"))
                 {
-                if (!sendAssignableParams) return new Object[0];  // we don't send these
+                if (!sendAssignableParams) return true;  // we don't send these
 
                 if (getType() == SYNTH_TYPE_TETRA)
                     {
@@ -1638,8 +1639,9 @@ public class DSIProphet08 extends Synth
                     }
                 }               
 
-            return buildNRPN(getChannelOut(), ((Integer)(parametersToIndex.get(key))).intValue(), val);
+            buffer.addNRPN(getChannelOut(), ((Integer)(parametersToIndex.get(key))).intValue(), val);
             }
+        return true;
         }
 
     public void handleSynthCCOrNRPN(Midi.CCData data)
@@ -2044,6 +2046,8 @@ public class DSIProphet08 extends Synth
         return data;
         }
 
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
+
     public byte[] requestDump(Model tempModel)
         {
         if (tempModel == null)
@@ -3094,6 +3098,8 @@ public class DSIProphet08 extends Synth
 
     public boolean getSupportsPatchWrites() { return true; }
 
+    public boolean getElidesNRPNSelects() { return true; }
+
     public int getPatchNameLength() { return 16; }
 
     public boolean librarianTested() { return true; }
@@ -3079,6 +3079,8 @@ public class DSITetraCombo extends Synth
 
     public boolean getSupportsPatchWrites() { return true; }
 
+    public boolean getElidesNRPNSelects() { return true; }
+
     public int getPatchNameLength() { return 16; }
 
     public boolean librarianTested() { return true; }
@@ -3342,34 +3342,30 @@ public class DSIProphet12 extends Synth
 
     public Object[] emitAll(String key)
         {
-        if (key.equals("bank")) return new Object[0];  // this is not emittable
-        if (key.equals("number")) return new Object[0];  // this is not emittable
+        ShortMessageBuffer buffer = new ShortMessageBuffer();
+        return (emitTo(key, STATUS_UPDATING_ONE_PARAMETER, buffer) ? buffer.toObjects() : null);
+        }
+
+    public boolean emitTo(String key, int status, ShortMessageBuffer buffer)
+        {
+        if (key.equals("bank")) return true;  // this is not emittable
+        if (key.equals("number")) return true;  // this is not emittable
 
-        int index;
-        int value;
-        
-        
         if (key.equals("name"))
             {
-            Object[] ret = new Object[4 * 20];
             char[] name = (model.get("name", "Untitled") + "                ").toCharArray();
             for(int i = 0; i < 20; i++)
                 {
-                Object[] nrpn = buildNRPN(getChannelOut(), i + 480, name[i]);
-                System.arraycopy(nrpn, 0, ret, i * 4, 4);
+                buffer.addNRPN(getChannelOut(), i + 480, name[i]);
                 }
-            return ret;
             }
         else if (key.equals("nameb"))
             {
-            Object[] ret = new Object[4 * 20];
             char[] name = (model.get("nameb", "Untitled") + "                ").toCharArray();
             for(int i = 0; i < 20; i++)
                 {
-                Object[] nrpn = buildNRPN(getChannelOut(), i + 992, name[i]);
-                System.arraycopy(nrpn, 0, ret, i * 4, 4);
+                buffer.addNRPN(getChannelOut(), i + 992, name[i]);
                 }
-            return ret;
             }
         else if (
             //key.equals("layer1arpeggiatornumnotes") ||
@@ -3379,7 +3375,7 @@ public class DSIProphet12 extends Synth
             key.equals("layer1slider1mode") ||
             key.equals("layer2slider2mode"))        // no NRPN for these
             {
-            return null;
+            return false;                           // so emitAll(...) will return null
             }
         else if (key.startsWith("layer1arpeggiatornote") ||
             key.startsWith("layer2arpeggiatornote"))
@@ -3387,15 +3383,16 @@ public class DSIProphet12 extends Synth
             int val = model.get(key, 0);
             if (val == EDISYN_REST) val = PROPHET_REST;
             //else if (val == EDISYN_OFF) val = PROPHET_OFF;
-            return buildNRPN(getChannelOut(), ((Integer)(parametersToIndex.get(key))).intValue(), val);
+            buffer.addNRPN(getChannelOut(), ((Integer)(parametersToIndex.get(key))).intValue(), val);
             }
         else 
             {
             int val = model.get(key, 0);
             Integer idx = ((Integer)(parametersToIndex.get(key)));
-            if (idx == null) { System.err.println("Warning DSIProphet12.emitAll(String): Cannot Emit " + key); return new Object[0]; }
-            else return buildNRPN(getChannelOut(), idx.intValue(), val);
+            if (idx == null) { System.err.println("Warning DSIProphet12.emitTo(String): Cannot Emit " + key); }
+            else buffer.addNRPN(getChannelOut(), idx.intValue(), val);
             }
+        return true;
         }
 
     public void handleSynthCCOrNRPN(Midi.CCData data)
@@ -3978,6 +3975,8 @@ public class DSIProphet12 extends Synth
             return new boolean[] { true, true, true, true, false, false, false, false }; 
         }
     public boolean getSupportsPatchWrites() { return true; }
+
+    public boolean getElidesNRPNSelects() { return true; }
     public int getPatchNameLength() { return MAXIMUM_NAME_LENGTH; }
     public boolean librarianTested() { return true; }
 
@@ -52,6 +52,7 @@ public class EmuMorpheus extends Synth
     //    public static final int MINIMUM_ULTRAPROTEUS_FILTER_OFFSET = ULTRAPROTEUS_FILTER_OFFSETS[NUM_MORPHEUS_FILTERS];
     
     public boolean isMorpheus() { return morpheus; }
+    public Object getParseState() { return Boolean.valueOf(morpheus); }
     public void setMorpheus(boolean val, boolean save)
         {
         if (save)
@@ -61,7 +62,7 @@ public class EmuMorpheus extends Synth
         morpheus = val;
         for(int i = 0; i < 2; i++)
             {
-            instrumentChoosers[i].setElements("Type", getInstruments());
+            instrumentChoosers[i].setElements("Type", ElementList.shared(getInstruments()));
             }
         ultraProteusCheck.setSelected(!val);  // hopefully this isn't recursive
         updateTitle();
@@ -712,8 +713,7 @@ public class EmuMorpheus extends Synth
         HBox hbox = new HBox();
         VBox vbox = new VBox();
  
-        params = getInstruments();
-        comp = new Chooser("Type", this, "layer" + inst + "instrument", params);
+        comp = new Chooser("Type", this, "layer" + inst + "instrument", ElementList.shared(getInstruments()));
         instrumentChoosers[inst - 1] = (Chooser) comp;
         vbox.add(comp);
 
@@ -39,6 +39,7 @@ public class EmuPlanetPhatt extends Synth
         
         
     public int getSynthType() { return synthType; }
+    public Object getParseState() { return Integer.valueOf(synthType); }
 
     boolean settingSynthType = false;
     public void setSynthType(int val, boolean save)
@@ -52,9 +53,9 @@ public class EmuPlanetPhatt extends Synth
         synthType = val;
         for(int i = 0; i < 2; i++)
             {
-            instrumentChoosers[i].setElements("Instrument", getInstruments());
+            instrumentChoosers[i].setElements("Instrument", ElementList.shared(getInstruments()));
             model.setMax("layer" + (i + 1) + "instrument", getInstruments().length);
-            filterChoosers[i].setElements("Filter Type", getFilters());
+            filterChoosers[i].setElements("Filter Type", ElementList.shared(getFilters()));
             model.setMax("layer" + (i + 1) + "filtertype", getFilters().length);
             }
         synthTypeCombo.setSelectedIndex(val);
@@ -483,8 +484,7 @@ public class EmuPlanetPhatt extends Synth
         HBox hbox = new HBox();
         VBox vbox = new VBox();
         
-        params = getInstruments();
-        comp = instrumentChoosers[i - 1] = new Chooser("Instrument", this, "layer" + i + "instrument", params);
+        comp = instrumentChoosers[i - 1] = new Chooser("Instrument", this, "layer" + i + "instrument", ElementList.shared(getInstruments()));
         vbox.add(comp);
 
         params = SOLO_MODES;
@@ -562,8 +562,7 @@ public class EmuPlanetPhatt extends Synth
         HBox hbox = new HBox();
         VBox vbox = new VBox();
         
-        params = getFilters();
-        comp = filterChoosers[i - 1] = new Chooser("Filter Type", this, "layer" + i + "filtertype", params);
+        comp = filterChoosers[i - 1] = new Chooser("Filter Type", this, "layer" + i + "filtertype", ElementList.shared(getFilters()));
         vbox.add(comp);
         
         hbox.add(vbox);
@@ -47,6 +47,7 @@ public class EmuProteus extends Synth
     JComboBox synthTypeCombo;
         
     public int getSynthType() { return synthType; }
+    public Object getParseState() { return Integer.valueOf(synthType); }
     public void setSynthType(int val, boolean save)
         {
         if (save)
@@ -64,21 +65,14 @@ public class EmuProteus extends Synth
 
     public void updateChoosers()
         {
+        String[] elts = ((synthType == TYPE_1 || synthType == TYPE_1_XR) ? PROTEUS_1_INSTRUMENTS :
+                (synthType == TYPE_1_ORCHESTRAL ? PROTEUS_1_ORCHESTRAL_INSTRUMENTS :
+                ((synthType == TYPE_2 || synthType == TYPE_2_XR) ? PROTEUS_2_INSTRUMENTS : PROTEUS_3_INSTRUMENTS)));
+        ElementList list = new ElementList(elts);           // shared by both choosers
         for(int j = 0; j < 2; j++)
             {
-            JComboBox box = instrumentChoosers[j].getCombo();
-            int sel = box.getSelectedIndex();
-            box.removeAllItems();
-            String[] elts = ((synthType == TYPE_1 || synthType == TYPE_1_XR) ? PROTEUS_1_INSTRUMENTS :
-                    (synthType == TYPE_1_ORCHESTRAL ? PROTEUS_1_ORCHESTRAL_INSTRUMENTS :
-                    ((synthType == TYPE_2 || synthType == TYPE_2_XR) ? PROTEUS_2_INSTRUMENTS : PROTEUS_3_INSTRUMENTS)));
-            for(int i = 0; i < elts.length; i++)
-                box.addItem(elts[i]);
-            instrumentChoosers[j].setMax(elts.length - 1);
-            if (sel <= elts.length)
-                box.setSelectedIndex(sel);
-            else
-                box.setSelectedIndex(0);
+            // this also updates the chooser's values and max, which replacing the items alone did not
+            instrumentChoosers[j].setElements(list);
             }
         }
 
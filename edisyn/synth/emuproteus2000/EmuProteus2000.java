@@ -371,12 +371,18 @@ public class EmuProteus2000 extends Synth
     ////
     //// To do loading on the fly we call updateFromFile(...), which loads from a given resource into one of the four arrays. This
     //// is in turn called by updateArps(rom), updatePresets(rom), updateInstruments(rom), and updateRiffs(rom).  
+    //// Each array of names is also wrapped in an ElementList (such as INSTRUMENT_LISTS[rom]), which is what we hand to the 
+    //// choosers, so the four instrument choosers, for example, all share a single list rather than each building its own.
                 
     // These are loaded on request.  Note that PRESET_NAMES includes the USER preset
     public static final String[][] ARP_NAMES = new String[ROMS_AND_USER.length][];
     public static final String[][] INSTRUMENT_NAMES = new String[ROMS.length][];
     public static final String[][] PRESET_NAMES = new String[ROMS_AND_USER.length][];           // Notice that this has to be ROMS_AND_USER, as presets include user presets
     public static final String[][] RIFF_NAMES = new String[ROMS.length][];
+    public static final ElementList[] ARP_LISTS = new ElementList[ROMS_AND_USER.length];
+    public static final ElementList[] INSTRUMENT_LISTS = new ElementList[ROMS.length];
+    public static final ElementList[] PRESET_LISTS = new ElementList[ROMS_AND_USER.length];
+    public static final ElementList[] RIFF_LISTS = new ElementList[ROMS.length];
     
     Chooser arpChooser;
     Chooser riffChooser;
@@ -388,7 +394,7 @@ public class EmuProteus2000 extends Synth
     int[] defaultPreset = { 0, 0 };
     int[] simms = { 0, 0, 0, 0 };
 
-    void updateFromFile(int rom, String[][] update, String resource)
+    void updateFromFile(int rom, String[][] update, ElementList[] lists, String resource)
         {
         if (update[rom] == null)
             {
@@ -420,27 +426,28 @@ public class EmuProteus2000 extends Synth
                 ex.printStackTrace();
                 }
             update[rom] = txt.toArray(new String[0]);
+            lists[rom] = new ElementList(update[rom]);
             }
         }
 
     void updateArps(int rom)
         {
-        updateFromFile(rom, ARP_NAMES, "roms/n_arp_" + EFFECTIVE_ROM_AND_USER_IDS[rom] + ".txt");
+        updateFromFile(rom, ARP_NAMES, ARP_LISTS, "roms/n_arp_" + EFFECTIVE_ROM_AND_USER_IDS[rom] + ".txt");
         }
 
     void updateInstruments(int rom)
         {
-        updateFromFile(rom, INSTRUMENT_NAMES, "roms/n_ins_" + EFFECTIVE_ROM_IDS[rom] + ".txt");
+        updateFromFile(rom, INSTRUMENT_NAMES, INSTRUMENT_LISTS, "roms/n_ins_" + EFFECTIVE_ROM_IDS[rom] + ".txt");
         }
 
     void updatePresets(int romOrUser)
         {
-        updateFromFile(romOrUser, PRESET_NAMES, "roms/n_prs_" + EFFECTIVE_ROM_AND_USER_IDS[romOrUser] + ".txt");
+        updateFromFile(romOrUser, PRESET_NAMES, PRESET_LISTS, "roms/n_prs_" + EFFECTIVE_ROM_AND_USER_IDS[romOrUser] + ".txt");
         }
 
     void updateRiffs(int rom)
         {
-        updateFromFile(rom, RIFF_NAMES, "roms/n_rff_" + EFFECTIVE_ROM_IDS[rom] + ".txt");
+        updateFromFile(rom, RIFF_NAMES, RIFF_LISTS, "roms/n_rff_" + EFFECTIVE_ROM_IDS[rom] + ".txt");
         }
 
 
@@ -732,7 +739,7 @@ public class EmuProteus2000 extends Synth
             int val = model.get(key);
             int cur = model.get("riff");
             updateRiffs(val);
-            riffChooser.setElements(RIFF_NAMES[val]);
+            riffChooser.setElements(RIFF_LISTS[val]);
             if (cur >= RIFF_NAMES[val].length)
                 model.set("riff", 0); 
             }
@@ -789,7 +796,7 @@ public class EmuProteus2000 extends Synth
         vbox.add(riffbox);
         
         updateRiffs(defaultRiff);
-        riffChooser.setElements(RIFF_NAMES[defaultRiff]);
+        riffChooser.setElements(RIFF_LISTS[defaultRiff]);
         // don't need to update model, as we're presently at 0
 
         hbox.add(vbox);
@@ -858,7 +865,7 @@ public class EmuProteus2000 extends Synth
             int val = model.get(key);
             int cur = model.get("link" + link + "preset");
             updatePresets(val);
-            presetChooser[link - 1].setElements(PRESET_NAMES[val]);
+            presetChooser[link - 1].setElements(PRESET_LISTS[val]);
             if (cur >= PRESET_NAMES[val].length)
                 model.set("link" + link + "preset", 0); 
             }
@@ -897,7 +904,7 @@ public class EmuProteus2000 extends Synth
         vbox.add(presetBox);
 
         updatePresets(defaultPreset[link - 1]);
-        presetChooser[link - 1].setElements(PRESET_NAMES[defaultPreset[link - 1]]);
+        presetChooser[link - 1].setElements(PRESET_LISTS[defaultPreset[link - 1]]);
         // don't need to update model, as we're presently at 0
         
         hbox.add(vbox);
@@ -1046,7 +1053,7 @@ public class EmuProteus2000 extends Synth
             int val = model.get(key);
             int cur = model.get("arppattern");
             updateArps(val);
-            arpChooser.setElements(ARP_NAMES[val]);
+            arpChooser.setElements(ARP_LISTS[val]);
             if (cur >= ARP_NAMES[val].length)
                 model.set("arppattern", 0); 
             }
@@ -1121,7 +1128,7 @@ public class EmuProteus2000 extends Synth
         vbox.add(comp);
 
         updateArps(defaultArp);
-        arpChooser.setElements(ARP_NAMES[defaultArp]);
+        arpChooser.setElements(ARP_LISTS[defaultArp]);
         // don't need to update model, as we're presently at 0
 
         params = ARP_NOTE_VALUES;
@@ -1202,7 +1209,7 @@ public class EmuProteus2000 extends Synth
             int val = model.get(key);
             int cur = model.get("layer" + layer + "instrument");
             updateInstruments(val);
-            instrumentChooser[layer - 1].setElements(INSTRUMENT_NAMES[val]);
+            instrumentChooser[layer - 1].setElements(INSTRUMENT_LISTS[val]);
             if (cur >= INSTRUMENT_NAMES[val].length)
                 model.set("layer" + layer + "instrument", 0); 
             }
@@ -1236,7 +1243,7 @@ public class EmuProteus2000 extends Synth
         vbox.add(comp);
 
         updateInstruments(defaultInstrument[layer - 1]);
-        instrumentChooser[layer - 1].setElements(INSTRUMENT_NAMES[defaultInstrument[layer - 1]]);
+        instrumentChooser[layer - 1].setElements(INSTRUMENT_LISTS[defaultInstrument[layer - 1]]);
         
         hbox.add(vbox);
         vbox = new VBox();
@@ -3297,6 +3304,12 @@ public class EmuProteus2000 extends Synth
         }
     
         
+    // fix(...) lazily loads the static ROM name tables, which aren't synchronized, so it mustn't run in several threads at once
+    public boolean getMutatesInParallel() { return false; }
+
+    // processParse(...) updates our choosers, so we must only parse on the Swing thread
+    public boolean getParsesInParallel() { return false; }
+
     public static String getSynthName() { return "E-Mu Proteus 2000"; }
     public String getPatchName(Model model) { return model.get("name", "Untitled"); }
         
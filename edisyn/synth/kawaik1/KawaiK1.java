@@ -1281,6 +1281,7 @@ public class KawaiK1 extends Synth
 
     public int getPauseAfterChangePatch() { return 150; }   // Seem to need about > 100ms
     public double getPauseBetweenMIDISends() { return 50;  }  // :-(  :-(
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
  
  
     // This fixes a bizarre bug.  When you a request dump, the dialog pops up for you
@@ -1460,6 +1460,7 @@ public class KawaiK4 extends Synth
     public String getPatchName(Model model) { return model.get("name", "Untitled  "); }
 
     public int getPauseAfterChangePatch() { return 200; }   // Seem to need about > 100ms
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
 
     public int getPauseAfterSendAllParameters() { return 100; } 
  
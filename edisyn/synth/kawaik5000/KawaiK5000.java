@@ -4959,6 +4959,9 @@ public static final int ALL_ON = 4;
     // the synth was slow to respond, but rather because the patch is a NULL patch, and the
     // K5000 doesn't respond at all for NULL patches -- in this case we must skip to the next patch.
     public boolean skipBatchPatchDownload() { return true; }
+
+    // A single is one sysex message.  NULL patches still fall to the timer, which skips them.
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }
     
     // A list of positions in the sysex for real patches in the bank, as opposed to stubs (-1)
     int[] patchBankPositions = null;
@@ -256,6 +256,7 @@ public class KorgVolca extends Synth
 
         
     public int getSynthType() { return synthType; }
+    public Object getParseState() { return Integer.valueOf(synthType); }
     public void setSynthType(int val, boolean save)
         {
         if (save)
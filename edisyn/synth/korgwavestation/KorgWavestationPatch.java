@@ -2760,6 +2760,8 @@ public class KorgWavestationPatch extends KorgWavestationAbstract
         return 30;
         }    
 
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
+
     public boolean getSupportsBankWrites() { return true; }
     public String[] getPatchNumberNames() { return buildIntegerNames(35, 0); }
     public String[] getBankNames() { return BANKS; }
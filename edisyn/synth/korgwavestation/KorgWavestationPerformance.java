@@ -5174,6 +5174,8 @@ public class KorgWavestationPerformance extends KorgWavestationAbstract
         return 30;
         }    
 
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
+
     public boolean getSupportsBankWrites() { return true; }
     public boolean getSupportsPatchWrites() { return true; }
     public String[] getPatchNumberNames() { return buildIntegerNames(50, 0); }
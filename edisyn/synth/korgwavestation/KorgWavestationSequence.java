@@ -1221,6 +1221,8 @@ public class KorgWavestationSequence extends KorgWavestationAbstract
     };
         
     public boolean getSendsAllParametersAsDump() { return false; }
+    // sendAllParametersInternal() first selects the sequence to write to, so Morph mustn't bypass it
+    public boolean getSendsDifferentParameters() { return false; }
     
     public static final int STATUS_KORG_WS_SEQUENCE_WRITING = -10000;
     
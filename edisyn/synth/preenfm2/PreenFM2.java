@@ -1353,32 +1353,34 @@ public class PreenFM2 extends Synth
         }
 
     public Object[] emitAll(String key)
+        {
+        ShortMessageBuffer buffer = new ShortMessageBuffer();
+        return (emitTo(key, STATUS_UPDATING_ONE_PARAMETER, buffer) ? buffer.toObjects() : null);
+        }
+
+    public boolean emitTo(String key, int status, ShortMessageBuffer buffer)
         {
         Model model = getModel();
         int channel = getChannelOut();
         if (key.equals("name")) 
             {
             String value = model.get(key, "Init Sound");
-            ArrayList list = new ArrayList();
             for(int i = 1; i < 13; i++)
                 {
                 char c = ' ';
                 if (value.length() >= i)
                     { c = value.charAt(i - 1); }
                 int param = ((Integer)(parameterToIndex.get("name" + i))).intValue();
-                Object[] objs = buildNRPN(channel, param, c);
-                for(int j = 0; j < objs.length; j++)
-                    list.add(objs[j]);
+                buffer.addNRPN(channel, param, c);
                 }
-            return list.toArray(new Object[0]);
             }
         else if (key.equals("bank"))
             {
-            return new Object[0];
+            // nothing
             }
         else if (key.equals("number"))
             {
-            return new Object[0];
+            // nothing
             }
         else 
             {
@@ -1390,19 +1392,20 @@ public class PreenFM2 extends Synth
                     value = (value - 100) * 10 + 100;
                 else if (value >= (100 + 231))
                     value = ((value - (100 + 231)) * 10 + 2410);
-                return buildNRPN(channel, param, value);
+                buffer.addNRPN(channel, param, value);
                 }
             else if (key.startsWith("im"))
                 {
                 int value = model.get(key) * 10;
-                return buildNRPN(channel, param, value);
+                buffer.addNRPN(channel, param, value);
                 }
             else
                 {
                 int value = model.get(key);
-                return buildNRPN(channel, param, value);
+                buffer.addNRPN(channel, param, value);
                 }
             }
+        return true;
         }
 
     // Maybe one day we'll merge this with emit(key)
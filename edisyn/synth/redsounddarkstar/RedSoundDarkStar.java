@@ -44,6 +44,7 @@ public class RedSoundDarkStar extends Synth
     public static final String XP2_KEY = "XP2";
     
     public boolean isXP2() { return xp2; }
+    public Object getParseState() { return Boolean.valueOf(xp2); }
     public void setXP2(boolean val)
         {
         setLastX("" + (!val), XP2_KEY, getSynthClassName(), true);
@@ -5865,6 +5865,8 @@ public class SequentialProphetRev2 extends Synth
             }
         }
 
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
+
     public byte[] requestDump(Model tempModel) 
         { 
         if (tempModel == null)
@@ -5895,28 +5897,36 @@ public class SequentialProphetRev2 extends Synth
     
     public Object[] emitAll(String key)
         {
-        if (key.equals("bank")) return new Object[0];  // this is not emittable
-        if (key.equals("number")) return new Object[0];  // this is not emittable
-        
-        int index;
-        int value;
+        ShortMessageBuffer buffer = new ShortMessageBuffer();
+        return (emitTo(key, STATUS_UPDATING_ONE_PARAMETER, buffer) ? buffer.toObjects() : null);
+        }
+
+    public boolean emitTo(String key, int status, ShortMessageBuffer buffer)
+        {
+        if (key.equals("bank")) return true;  // this is not emittable
+        if (key.equals("number")) return true;  // this is not emittable
         
         if (key.equals("name"))
             {
-            Object[] ret = new Object[4 * 20];
             char[] name = (model.get("name", "Untitled") + "                    ").toCharArray();
             for(int i = 0; i < 20; i++)
                 {
-                Object[] nrpn = buildNRPN(getChannelOut(), i + 256, name[i]);
-                System.arraycopy(nrpn, 0, ret, i * 4, 4);
+                buffer.addNRPN(getChannelOut(), i + 256, name[i]);
+                }
+            }
+        else if (key.equals("layer2name"))
+            {
+            char[] name = (model.get("layer2name", "Untitled") + "                    ").toCharArray();
+            for(int i = 0; i < 20; i++)
+                {
+                buffer.addNRPN(getChannelOut(), i + 2304, name[i]);
                 }
-            return ret;
             }
         else
             {
             int val = model.get(key, 0);
             
-            if (Pattern.matches("layer\\dstep\\d+velocity\\d", key))
+            if (isStepVelocity(key))
                 {
                 if (val > 0) val += 127;
                 }
@@ -5925,8 +5935,19 @@ public class SequentialProphetRev2 extends Synth
             if (nrpnkey > 1043)
                 nrpnkey += 1004;
                                 
-            return buildNRPN(getChannelOut(), ((Integer)(nrpnkey)).intValue(), val);
+            buffer.addNRPN(getChannelOut(), nrpnkey, val);
             }
+        return true;
+        }
+
+    // Returns the same as Pattern.matches("layer\\dstep\\d+velocity\\d", key), but without compiling a Pattern every time
+    static boolean isStepVelocity(String key)
+        {
+        int len = key.length();
+        if (len < 20 || !key.startsWith("layer") || !Character.isDigit(key.charAt(5)) || !key.startsWith("step", 6)) return false;
+        int i = 10;
+        while(i < len && Character.isDigit(key.charAt(i))) i++;
+        return (i > 10 && i + 9 == len && key.startsWith("velocity", i) && Character.isDigit(key.charAt(len - 1)));
         }
 
     public void handleSynthCCOrNRPN(Midi.CCData data)
@@ -6278,6 +6299,8 @@ public class SequentialProphetRev2 extends Synth
             return new boolean[] { true, true, true, true, false, false, false, false }; 
         }
     public boolean getSupportsPatchWrites() { return true; }
+
+    public boolean getElidesNRPNSelects() { return true; }
     public int getPatchNameLength() { return MAXIMUM_NAME_LENGTH; }
     public boolean librarianTested() { return true; }
 
@@ -2390,6 +2390,7 @@ public class WaldorfBlofeld extends Synth
 
     public int getPauseAfterChangePatch() { return 200; }
     public int getPauseAfterWritePatch() { return 75; }
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
 
     public void changePatch(Model tempModel)
         {
@@ -2208,6 +2208,8 @@ public class WaldorfMicrowaveXT extends Synth
         return 50;
         }
 
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
+
     public void changePatch(Model tempModel)
         {
         byte BB = (byte)tempModel.get("bank");
@@ -199,6 +199,7 @@ public class Yamaha4Op extends Synth
     JComboBox synthTypeCombo;
         
     public int getSynthType() { return synthType; }
+    public Object getParseState() { return Integer.valueOf(synthType); }
     public void setSynthType(int val, boolean save)
         {
         if (save)
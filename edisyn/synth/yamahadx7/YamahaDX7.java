@@ -87,14 +87,27 @@ public class YamahaDX7 extends Synth implements ProvidesNN
     static Network decoder = null;
     public static final int ENCODED_LENGTH = 225;
 
+    // Loads the binary form of the network if it exists (see edisyn.test.ConvertNetwork), else the text form
+    static Network loadNetwork(String name) throws IOException
+        {
+        InputStream stream = YamahaDX7.class.getResourceAsStream(name + ".nn");
+        if (stream != null)
+            {
+            try { return Network.loadFromBinaryStream(stream); }
+            finally { stream.close(); }
+            }
+        stream = new GZIPInputStream(YamahaDX7.class.getResourceAsStream(name + ".txt.gz"));
+        try { return Network.loadFromStream(stream); }
+        finally { stream.close(); }
+        }
+
     static Network getEncoder()
         {
         if (encoder == null)
             {
             try
                 {
-                InputStream stream = new GZIPInputStream(YamahaDX7.class.getResourceAsStream("encoder.txt.gz"));
-                encoder = Network.loadFromStream(stream);
+                encoder = loadNetwork("encoder");
                 }
             catch (IOException ex) { throw new RuntimeException(ex); }
             }
@@ -107,8 +120,7 @@ public class YamahaDX7 extends Synth implements ProvidesNN
             {
             try
                 {
-                InputStream stream = new GZIPInputStream(YamahaDX7.class.getResourceAsStream("decoder.txt.gz"));
-                decoder = Network.loadFromStream(stream);
+                decoder = loadNetwork("decoder");
                 }
             catch (IOException ex) { throw new RuntimeException(ex); }
             }
@@ -1257,6 +1269,7 @@ public class YamahaDX7 extends Synth implements ProvidesNN
 
     // We have to force a change patch always because we're doing the equivalent of requestCurrentDump here
     public boolean getAlwaysChangesPatchesOnRequestDump() { return true; }
+    public boolean getAdvancesBatchDownloadOnReceive() { return true; }       // a patch is one sysex message
 
     public byte[] requestDump(Model tempModel) 
         {
@@ -1427,10 +1440,25 @@ public class YamahaDX7 extends Synth implements ProvidesNN
             
             
     public Model decode(double[] vector)
+        {
+        return buildDecodedModel(vector, getDecoder().feed(vector));
+        }
+            
+    public Model[] decode(double[][] vectors)
+        {
+        // feed all the vectors through the decoder in one batch
+        double[][] decoded = getDecoder().feed(vectors);
+        Model[] models = new Model[vectors.length];
+        for(int i = 0; i < vectors.length; i++)
+            models[i] = buildDecodedModel(vectors[i], decoded[i]);
+        return models;
+        }
+            
+    // Builds a model from a latent vector and the decoder's output for it
+    Model buildDecodedModel(double[] latentVector, double[] vector)
         {
         Model newModel = model.copy();
-        newModel.latentVector = vector;
-        vector = getDecoder().feed(vector);
+        newModel.latentVector = latentVector;
         int index = 0;
         
         // Ignore the name parameters, so -10
@@ -206,6 +206,7 @@ public class YamahaTG33 extends Synth
     JComboBox synthTypeCombo;
         
     public int getSynthType() { return synthType; }
+    public Object getParseState() { return Integer.valueOf(synthType); }
     public void setSynthType(int val, boolean save)
         {
         if (save)
@@ -223,20 +224,9 @@ public class YamahaTG33 extends Synth
 
     public void updateChoosers()
         {
-        String[] elts = ( getSynthType() == TYPE_SY35 ? SY35_AWM_WAVES : AWM_WAVES );
-        JComboBox box = waveChoosers[TONE_A].getCombo();
-        int sel = box.getSelectedIndex();
-        box.removeAllItems();
-        for(int i = 0; i < elts.length; i++)
-            box.addItem(elts[i]);
-        box.setSelectedIndex(sel);
-                
-        box = waveChoosers[TONE_C].getCombo();
-        sel = box.getSelectedIndex();
-        box.removeAllItems();
-        for(int i = 0; i < elts.length; i++)
-            box.addItem(elts[i]);
-        box.setSelectedIndex(sel);
+        ElementList elts = new ElementList( getSynthType() == TYPE_SY35 ? SY35_AWM_WAVES : AWM_WAVES );
+        waveChoosers[TONE_A].replaceElements(elts);
+        waveChoosers[TONE_C].replaceElements(elts);
         }
 
     public static final int TONE_A = 0;
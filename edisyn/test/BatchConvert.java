@@ -0,0 +1,324 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+   BatchConvert walks one or more directory trees of sysex files and, for every patch it finds
+   in them, recognizes the synthesizer, parses the patch into a throwaway synth editor, and
+   re-emits it as Edisyn would write it to a file.  This normalizes the patches (fixing bad
+   checksums, stripping junk, filling in missing bytes, and so on).  It needs no window and no MIDI.
+
+   <p>Files are processed in parallel.  Synth editors build Swing widgets when they're constructed, 
+   so before the workers start, BatchConvert first recognizes every message in the files and builds 
+   all the throwaway editors it will need in the main thread, one per worker for each kind of synthesizer 
+   found (or only one if the editor can't parse in parallel: see Synth.getParsesInParallel()).  Workers 
+   borrow an editor for each patch and return it afterwards, so editors are never used by two threads at once.
+   Bank sysex messages can't be parsed without asking the user which patch to load, so they are
+   copied through unchanged and counted as skipped.
+
+   <p>If an output directory is given, each converted file is written there under the same
+   relative path as the input file.  Otherwise BatchConvert just checks that every patch
+   can be parsed and re-emitted.  At the end it reports the throughput and every failure.
+*/
+
+public class BatchConvert
+    {
+    static boolean verbose = false;
+    static String onlySynth = null;
+    static File outputDirectory = null;
+
+    static AtomicInteger filesDone = new AtomicInteger();
+    static AtomicInteger filesFailed = new AtomicInteger();
+    static AtomicInteger patchesConverted = new AtomicInteger();
+    static AtomicInteger patchesFailed = new AtomicInteger();
+    static AtomicInteger patchesSkipped = new AtomicInteger();
+    static AtomicLong bytesRead = new AtomicLong();
+    static AtomicLong bytesWritten = new AtomicLong();
+    static ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<String>();
+
+    // The throwaway synths, by class name, which the workers borrow.  This is filled by buildSynths(...)
+    // before the workers start, and is only read afterwards.
+    static HashMap<String, LinkedBlockingQueue<Synth>> synths = new HashMap<String, LinkedBlockingQueue<Synth>>();
+
+    public static void main(String[] args)
+        {
+        Main main = new Main("java edisyn.test.BatchConvert",
+            args,
+            "FILE_OR_DIRECTORY...",
+            new String[] { "-o", "-t", "-c", "-v" },
+            new String[] { Main.STRING, Main.INT, Main.STRING, Main.FLAG },
+            new String[] { "Output Directory", "Number of Threads", "Specific Class", "Verbose" },
+            "BatchConvert reads every .syx file in the given files and directories (recursively),\n" +
+            "recognizes and parses each patch in them, and re-emits the patches as Edisyn would\n" +
+            "save them.  If an output directory is given, the converted files are written there\n" +
+            "under the same relative paths, else the patches are only checked.  If a specific\n" +
+            "class is given, patches for other synthesizers are skipped.",
+            true);
+
+        verbose = main.hasFlag("-v");
+        onlySynth = main.getString("-c");
+        if (main.getString("-o") != null)
+            outputDirectory = new File(main.getString("-o"));
+        int threads = main.getInt("-t", Runtime.getRuntime().availableProcessors());
+        if (threads < 1)
+            {
+            System.err.println("-t:  number must be >= 1");
+            System.exit(1);
+            }
+        if (main.getRest().size() == 0)
+            main.printCommandFormat("No files or directories given.", true);
+
+        // gather the files, along with the roots they're relative to
+        ArrayList<File[]> files = new ArrayList<File[]>();
+        for(String name : main.getRest())
+            {
+            File root = new File(name);
+            if (!root.exists())
+                {
+                System.err.println("No such file or directory: " + name);
+                System.exit(1);
+                }
+            gather(root.isDirectory() ? root : root.getAbsoluteFile().getParentFile(), root, files);
+            }
+
+        long start = System.nanoTime();
+        buildSynths(files, threads);
+        System.err.println("Converting " + files.size() + " files with " + threads + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(final File[] f : files)
+            {
+            executor.submit(new Runnable() { public void run() { convert(f[0], f[1]); } });
+            }
+        executor.shutdown();
+        try { executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS); }
+        catch (InterruptedException ex) { }
+
+        double seconds = (System.nanoTime() - start) / 1000000000.0;
+
+        for(String failure : failures)
+            System.err.println("[FAIL] " + failure);
+
+        System.err.println();
+        System.err.println("Files:      " + filesDone.get() + " (" + filesFailed.get() + " with failures)");
+        System.err.println("Patches:    " + patchesConverted.get() + " converted, " + patchesFailed.get() + " failed, " + patchesSkipped.get() + " skipped");
+        System.err.println("Bytes:      " + bytesRead.get() + " read, " + bytesWritten.get() + " written");
+        System.err.println("Time:       " + String.format("%.2f", seconds) + " seconds");
+        System.err.println("Throughput: " + String.format("%.1f", filesDone.get() / seconds) + " files/s, " +
+            String.format("%.1f", patchesConverted.get() / seconds) + " patches/s, " +
+            String.format("%.2f", bytesRead.get() / seconds / 1048576.0) + " MB/s");
+        System.exit(patchesFailed.get() > 0 || filesFailed.get() > 0 ? 1 : 0);
+        }
+
+    // Adds all the sysex files in file (which may be a directory), relative to root
+    static void gather(File root, File file, ArrayList<File[]> files)
+        {
+        if (file.isDirectory())
+            {
+            File[] f = file.listFiles();
+            if (f == null) return;
+            Arrays.sort(f);
+            for(int i = 0; i < f.length; i++)
+                gather(root, f[i], files);
+            }
+        else if (file.getName().toLowerCase().endsWith(".syx"))
+            {
+            files.add(new File[] { root, file });
+            }
+        }
+
+    // Recognizes the messages in all the files, and builds, in this thread, the throwaway synths 
+    // for each class found: as many as there are threads (but no more than the files which need that class),
+    // or just one if the synth can't parse in parallel.  Classes which can't be built are left out.
+    static void buildSynths(ArrayList<File[]> files, int threads)
+        {
+        String[] classNames = Synth.getClassNames();
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        for(File[] f : files)
+            {
+            HashSet<String> found = new HashSet<String>();
+            try
+                {
+                byte[][] sysex = Synth.cutUpSysex(f[1]);
+                for(int i = 0; i < sysex.length; i++)
+                    {
+                    int rec = RecognizerIndex.getSynthForSysex(sysex[i]);
+                    if (rec >= 0 && (onlySynth == null || onlySynth.equals(classNames[rec])))
+                        found.add(classNames[rec]);
+                    }
+                }
+            catch (Throwable ex) { }        // convert(...) will report it
+            for(String className : found)
+                counts.put(className, counts.containsKey(className) ? counts.get(className) + 1 : 1);
+            }
+
+        for(String className : counts.keySet())
+            {
+            LinkedBlockingQueue<Synth> queue = new LinkedBlockingQueue<Synth>();
+            int n = Math.min(threads, counts.get(className));
+            for(int i = 0; i < n; i++)
+                {
+                Synth synth = Synth.instantiate(className, true, false, null);
+                if (synth == null) break;
+                synth.setSendMIDI(false);
+                synth.getUndo().setWillPush(false);
+                queue.add(synth);
+                if (!synth.getParsesInParallel()) break;
+                }
+            if (queue.size() > 0) synths.put(className, queue);
+            }
+        }
+
+    // Borrows a throwaway synth of the given class, waiting for one if they're all in use, 
+    // or returns null if there are none.  Return it with returnSynth(...).
+    static Synth borrowSynth(String className) throws InterruptedException
+        {
+        LinkedBlockingQueue<Synth> queue = synths.get(className);
+        if (queue == null) return null;
+        return queue.take();
+        }
+
+    static void returnSynth(String className, Synth synth)
+        {
+        synths.get(className).add(synth);
+        }
+
+    static void fail(File file, String message)
+        {
+        failures.add(file + ": " + message);
+        }
+
+    static void convert(File root, File file)
+        {
+        boolean failed = false;
+        int converted = 0;
+        try
+            {
+            byte[][] sysex = Synth.cutUpSysex(file);
+            bytesRead.addAndGet(file.length());
+            String[] classNames = Synth.getClassNames();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            int pos = 0;
+            int patch = 0;
+            while(pos < sysex.length)
+                {
+                int rec = RecognizerIndex.getSynthForSysex(sysex[pos]);
+                if (rec < 0)
+                    {
+                    fail(file, "message " + pos + " not recognized");
+                    failed = true;
+                    pos++;
+                    continue;
+                    }
+                String className = classNames[rec];
+
+                // gather the patches as Synth.gatherPatchSysex(...) does
+                byte[][][] groups;
+                boolean bank = false;
+                int next = Synth.getNextSysexPatchGroup(className, sysex, pos);
+                if (next < 0)
+                    {
+                    groups = Synth.breakSysexMessageIntoPatches(className, sysex, pos, 0 - next);
+                    pos += (0 - next);
+                    }
+                else if (next > pos)
+                    {
+                    groups = new byte[][][] { Arrays.copyOfRange(sysex, pos, next) };
+                    bank = Synth.recognizeBank(className, sysex[pos]);
+                    pos = next;
+                    }
+                else
+                    {
+                    fail(file, "message " + pos + " is not a proper patch for " + Synth.getSynthNameForClassName(className));
+                    failed = true;
+                    pos++;
+                    continue;
+                    }
+
+                for(int i = 0; i < groups.length; i++, patch++)
+                    {
+                    byte[] patchData = Synth.flatten(groups[i]);
+                    if (bank || (onlySynth != null && !onlySynth.equals(className)))
+                        {
+                        out.write(patchData);
+                        patchesSkipped.incrementAndGet();
+                        continue;
+                        }
+
+                    Synth synth = borrowSynth(className);
+                    if (synth == null)
+                        {
+                        fail(file, "patch " + patch + ": could not build " + className);
+                        failed = true;
+                        patchesFailed.incrementAndGet();
+                        continue;
+                        }
+
+                    byte[] emitted = null;
+                    String problem = null;
+                    try
+                        {
+                        int result = synth.performParseNoMIDI(patchData, true);
+                        if (result == Synth.PARSE_SUCCEEDED || result == Synth.PARSE_SUCCEEDED_UNTITLED)
+                            {
+                            emitted = Synth.flatten(synth.emitAll((Model)null, false, true));
+                            if (emitted.length == 0) problem = "could not be emitted";
+                            }
+                        else problem = "could not be parsed";
+                        }
+                    catch (Throwable ex)            // including HeadlessExceptions from synths which want to ask the user something
+                        {
+                        problem = "" + ex;
+                        }
+                    finally
+                        {
+                        returnSynth(className, synth);
+                        }
+
+                    if (problem != null)
+                        {
+                        fail(file, "patch " + patch + " (" + Synth.getSynthNameForClassName(className) + "): " + problem);
+                        failed = true;
+                        patchesFailed.incrementAndGet();
+                        }
+                    else
+                        {
+                        out.write(emitted);
+                        converted++;
+                        patchesConverted.incrementAndGet();
+                        }
+                    }
+                }
+
+            if (outputDirectory != null)
+                {
+                // both sides must be absolute and normalized, or relativize(...) throws (or gives nonsense) if a directory was given as a relative path
+                String relative = root.getAbsoluteFile().toPath().normalize().relativize(file.getAbsoluteFile().toPath().normalize()).toString();
+                File outFile = new File(outputDirectory, relative);
+                outFile.getParentFile().mkdirs();
+                FileOutputStream os = new FileOutputStream(outFile);
+                try { out.writeTo(os); }
+                finally { os.close(); }
+                bytesWritten.addAndGet(out.size());
+                }
+            }
+        catch (Throwable ex)
+            {
+            fail(file, "" + ex);
+            failed = true;
+            }
+
+        filesDone.incrementAndGet();
+        if (failed) filesFailed.incrementAndGet();
+        if (verbose) System.err.println((failed ? "[FAIL] " : "[OKAY] ") + file + " (" + converted + " patches)");
+        }
+    }
@@ -0,0 +1,174 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.nn.*;
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+   ConvertNetwork converts a neural network from the text form read by Network.loadFromStream(...)
+   (optionally gzipped) to the binary form read by Network.loadFromBinary(...).  Weights are written
+   as floats unless asked otherwise; the conversion reports how far the converted network's outputs
+   stray from the original's on random inputs, which is zero if the weights were floats to begin with.
+
+   <p>With -b, ConvertNetwork instead benchmarks loading each given text network against loading
+   its binary counterpart (the same file name ending in .nn rather than .txt or .txt.gz), converting
+   it in memory if there is no such file.
+*/
+
+public class ConvertNetwork
+    {
+    public static void main(String[] args) throws IOException
+        {
+        Main main = new Main("java edisyn.test.ConvertNetwork",
+            args,
+            "INPUT OUTPUT   or   -b INPUT...",
+            new String[] { "-d", "-b", "-r" },
+            new String[] { Main.FLAG, Main.FLAG, Main.INT },
+            new String[] { "Write Doubles", "Benchmark", "Benchmark Rounds" },
+            "ConvertNetwork converts a text network file (such as encoder.txt.gz) into a binary network\n" +
+            "file (such as encoder.nn).  Files ending in .gz are gunzipped.  Weights are written as\n" +
+            "floats unless -d is given.  With -b, it instead compares the time to load each text\n" +
+            "network with the time to load its binary counterpart.",
+            true);
+
+        ArrayList<String> rest = main.getRest();
+        if (main.hasFlag("-b"))
+            {
+            if (rest.size() == 0)
+                main.printCommandFormat("No files given.", true);
+            int rounds = main.getInt("-r", 10);
+            for(String name : rest)
+                benchmark(new File(name), rounds);
+            }
+        else
+            {
+            if (rest.size() != 2)
+                main.printCommandFormat("Expected an input file and an output file.", true);
+            File in = new File(rest.get(0));
+            File out = new File(rest.get(1));
+            Network network = loadText(in);
+            if (network == null)
+                {
+                System.err.println("Could not read " + in);
+                System.exit(1);
+                }
+            FileOutputStream stream = new FileOutputStream(out);
+            try { network.writeBinary(stream, main.hasFlag("-d")); }
+            finally { stream.close(); }
+            Network converted = Network.loadFromBinaryFile(out);
+            System.err.println("Wrote " + out + " (" + out.length() + " bytes, was " + in.length() + ")");
+            System.err.println("Largest output difference: " + compare(network, converted, inputLength(in)));
+            }
+        }
+
+    static Network loadText(File file) throws IOException
+        {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file));
+        if (file.getName().endsWith(".gz"))
+            stream = new GZIPInputStream(stream);
+        try { return Network.loadFromStream(stream); }
+        finally { stream.close(); }
+        }
+
+    static Network loadBinary(File file, byte[] converted) throws IOException
+        {
+        if (converted != null)
+            return Network.loadFromBinaryStream(new ByteArrayInputStream(converted));
+        InputStream stream = new FileInputStream(file);
+        try { return Network.loadFromBinaryStream(stream); }
+        finally { stream.close(); }
+        }
+
+    // The number of inputs to the network, which we get from the first Linear layer in the text file
+    static int inputLength(File file) throws IOException
+        {
+        InputStream stream = new FileInputStream(file);
+        if (file.getName().endsWith(".gz"))
+            stream = new GZIPInputStream(stream);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+        try
+            {
+            String line;
+            while((line = reader.readLine()) != null)
+                {
+                String[] strs = line.split(" ", 4);
+                if (strs[0].equals("Linear")) return Integer.parseInt(strs[2]);
+                if (strs[0].equals("Normalization")) return Integer.parseInt(strs[1]);
+                }
+            return 0;
+            }
+        finally { reader.close(); }
+        }
+
+    // Returns the largest difference between the outputs of the two networks on random inputs
+    static double compare(Network a, Network b, int length)
+        {
+        Random random = new Random(0);
+        double max = 0;
+        for(int i = 0; i < 100; i++)
+            {
+            double[] vec = new double[length];
+            for(int j = 0; j < length; j++)
+                vec[j] = random.nextGaussian();
+            double[] outA = a.feed(vec);
+            double[] outB = b.feed(vec);
+            for(int j = 0; j < outA.length; j++)
+                max = Math.max(max, Math.abs(outA[j] - outB[j]));
+            }
+        return max;
+        }
+
+    static void benchmark(File text, int rounds) throws IOException
+        {
+        String name = text.getName();
+        String base = (name.endsWith(".txt.gz") ? name.substring(0, name.length() - 7) :
+            name.endsWith(".txt") ? name.substring(0, name.length() - 4) : name);
+        File binary = new File(text.getParentFile(), base + ".nn");
+        byte[] converted = null;
+        if (!binary.exists())
+            {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            loadText(text).writeBinary(out, false);
+            converted = out.toByteArray();
+            }
+
+        long[] textTimes = new long[rounds];
+        long[] binaryTimes = new long[rounds];
+        Network textNetwork = null;
+        Network binaryNetwork = null;
+        for(int i = 0; i < rounds; i++)
+            {
+            long start = System.nanoTime();
+            textNetwork = loadText(text);
+            textTimes[i] = System.nanoTime() - start;
+            start = System.nanoTime();
+            binaryNetwork = loadBinary(binary, converted);
+            binaryTimes[i] = System.nanoTime() - start;
+            }
+
+        System.err.println(text + " vs. " + (converted == null ? binary.toString() : "(converted in memory)"));
+        System.err.println("    Text:       first " + ms(textTimes[0]) + " ms, mean of rest " + ms(mean(textTimes)) + " ms");
+        System.err.println("    Binary:     first " + ms(binaryTimes[0]) + " ms, mean of rest " + ms(mean(binaryTimes)) + " ms");
+        System.err.println("    Largest output difference: " + compare(textNetwork, binaryNetwork, inputLength(text)));
+        }
+
+    // The mean of all but the first (cold) time
+    static long mean(long[] times)
+        {
+        if (times.length < 2) return times[0];
+        long total = 0;
+        for(int i = 1; i < times.length; i++)
+            total += times[i];
+        return total / (times.length - 1);
+        }
+
+    static String ms(long ns)
+        {
+        return String.format("%.1f", ns / 1000000.0);
+        }
+    }
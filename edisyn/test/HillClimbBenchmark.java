@@ -0,0 +1,126 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+   HillClimbBenchmark measures how long one hill-climbing iteration takes to produce its candidates,
+   with one thread and with several, for the largest synth editors (those with the most mutable
+   parameters) or for the given synth classes.  Each iteration climbs from three parents, the most
+   expensive case.  It also checks that the same seed produces the same candidates regardless of the
+   number of threads.  It needs no window and no MIDI.
+
+   <p>HillClimb's candidate production isn't public, so this reaches it by reflection.
+*/
+
+public class HillClimbBenchmark
+    {
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.HillClimbBenchmark",
+            args,
+            "[CLASS...]",
+            new String[] { "-n", "-t", "-i", "-w" },
+            new String[] { Main.INT, Main.INT, Main.INT, Main.INT },
+            new String[] { "Number of Largest Editors", "Number of Threads", "Measured Iterations", "Warmup Iterations" },
+            "HillClimbBenchmark times the production of hill-climbing candidates for the given synth\n" +
+            "classes, or for the N largest editors (default 5), with one thread and with the given\n" +
+            "number of threads (default the number of processors).",
+            true);
+
+        int threads = main.getInt("-t", Runtime.getRuntime().availableProcessors());
+        int iterations = main.getInt("-i", 20);
+        int warmup = main.getInt("-w", 30);
+        ArrayList<String> classNames = new ArrayList<String>(main.getRest());
+        if (classNames.size() == 0)
+            classNames = largest(main.getInt("-n", 5));
+
+        Method produce = HillClimb.class.getDeclaredMethod("produce", Random.class, String[].class, double.class, double.class,
+            Model.class, Model.class, Model.class, Model.class);
+        produce.setAccessible(true);
+        Field currentModels = HillClimb.class.getDeclaredField("currentModels");
+        currentModels.setAccessible(true);
+
+        System.err.println(String.format("%-40s %6s %12s %12s %8s %s", "Synth", "Keys", "1 thread", threads + " threads", "Speedup", "Same"));
+        for(String className : classNames)
+            {
+            Synth synth = Synth.instantiate(className, true, false, null);
+            if (synth == null) { System.err.println("Could not build " + className); continue; }
+            synth.setSendMIDI(false);
+            synth.getUndo().setWillPush(false);
+            HillClimb hillClimb = new HillClimb(synth);
+            String[] keys = synth.getMutationKeys();
+
+            // three parents and a grandparent, each a bit different
+            Random random = new Random(0);
+            Model[] parents = new Model[4];
+            for(int i = 0; i < parents.length; i++)
+                parents[i] = synth.getModel().copy().mutate(random, keys, 0.1);
+
+            HillClimb.setThreads(1);
+            double single = time(produce, hillClimb, keys, parents, warmup, iterations);
+            Model[] singleModels = (Model[])(((Model[])currentModels.get(hillClimb)).clone());
+            HillClimb.setThreads(threads);
+            double multi = time(produce, hillClimb, keys, parents, warmup, iterations);
+            Model[] multiModels = (Model[])(((Model[])currentModels.get(hillClimb)).clone());
+
+            System.err.println(String.format("%-40s %6d %9.2f ms %9.2f ms %7.2fx %s", Synth.getSynthNameForClassName(className), keys.length,
+                    single, multi, single / multi, same(singleModels, multiModels, HillClimb.NUM_CANDIDATES) ? "yes" : "NO"));
+            }
+        System.exit(0);
+        }
+
+    // Returns the mean time, in ms, to produce one iteration's candidates.  Every iteration starts from the same seed.
+    static double time(Method produce, HillClimb hillClimb, String[] keys, Model[] parents, int warmup, int iterations) throws Exception
+        {
+        long total = 0;
+        for(int i = 0; i < warmup + iterations; i++)
+            {
+            long start = System.nanoTime();
+            produce.invoke(hillClimb, new Random(1), keys, HillClimb.CLIMB_RECOMBINATION_RATE, 0.125, parents[0], parents[1], parents[2], parents[3]);
+            if (i >= warmup) total += System.nanoTime() - start;
+            }
+        return total / (double)iterations / 1000000.0;
+        }
+
+    static boolean same(Model[] a, Model[] b, int count)
+        {
+        for(int i = 0; i < count; i++)
+            {
+            for(String key : a[i].getKeys())
+                {
+                if (a[i].isString(key) ? !a[i].get(key, "").equals(b[i].get(key, "")) : a[i].get(key, 0) != b[i].get(key, 0))
+                    return false;
+                }
+            }
+        return true;
+        }
+
+    // Returns the classes of the N synth editors with the most mutation keys
+    static ArrayList<String> largest(int n)
+        {
+        final HashMap<String, Integer> sizes = new HashMap<String, Integer>();
+        ArrayList<String> classNames = new ArrayList<String>();
+        for(String className : Synth.getClassNames())
+            {
+            try
+                {
+                Synth synth = Synth.instantiate(className, true, false, null);
+                if (synth == null) continue;
+                sizes.put(className, synth.getMutationKeys().length);
+                classNames.add(className);
+                }
+            catch (Throwable ex) { }          // some editors can't be built without a window
+            }
+        Collections.sort(classNames, new Comparator<String>()
+            {
+            public int compare(String a, String b) { return sizes.get(b) - sizes.get(a); }
+            });
+        return new ArrayList<String>(classNames.subList(0, Math.min(n, classNames.size())));
+        }
+    }
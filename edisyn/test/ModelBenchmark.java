@@ -0,0 +1,151 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.util.*;
+
+/**
+   ModelBenchmark measures the basic Model operations for the largest synth editors (those with the most
+   mutable parameters) or for the given synth classes: get(String), set(String, int), the slot accessors
+   getSlotValue(int) and setSlotValue(int, int), clone(), and copy().  For comparison it also times get(String)
+   on a LinkedHashMap of key to value Nodes, which is how Model stored its values before it used slots.
+   get(String) is timed both with the Model's own key Strings (as editors usually call it, with literals)
+   and with equal but distinct copies of them.  Times are per operation.  It needs no window and no MIDI.
+*/
+
+public class ModelBenchmark
+    {
+    // How Model once stored each value
+    static class Node
+        {
+        int intValue;
+        String stringValue;
+        }
+
+    static int sink;
+
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.ModelBenchmark",
+            args,
+            "[CLASS...]",
+            new String[] { "-n", "-i", "-w" },
+            new String[] { Main.INT, Main.INT, Main.INT },
+            new String[] { "Number of Largest Editors", "Measured Passes", "Warmup Passes" },
+            "ModelBenchmark times Model's get, set, slot accessors, clone, and copy for the given synth\n" +
+            "classes, or for the N largest editors (default 5), and get on the LinkedHashMap storage\n" +
+            "Model used before slots.",
+            true);
+
+        int iterations = main.getInt("-i", 2000);
+        int warmup = main.getInt("-w", 2000);
+        ArrayList<String> classNames = new ArrayList<String>(main.getRest());
+        if (classNames.size() == 0)
+            classNames = HillClimbBenchmark.largest(main.getInt("-n", 5));
+
+        System.err.println(String.format("%-32s %6s %8s %8s %8s %8s %8s %8s %9s %9s", "Synth", "Keys",
+                "map get", "get", "get copy", "slot get", "set", "slot set", "clone us", "copy us"));
+        for(String className : classNames)
+            {
+            Synth synth = Synth.instantiate(className, true, false, null);
+            if (synth == null) { System.err.println("Could not build " + className); continue; }
+            Model model = synth.getModel().copy();          // no listeners, no fixer, no undo
+
+            // The integer keys, their slots, equal copies of them, and the old-style storage
+            ArrayList<String> k = new ArrayList<String>();
+            for(String key : model.getKeys())
+                if (model.isInteger(key)) k.add(key);
+            String[] keys = k.toArray(new String[0]);
+            String[] copies = new String[keys.length];
+            int[] slots = new int[keys.length];
+            LinkedHashMap<String, Node> storage = new LinkedHashMap<String, Node>();
+            for(int i = 0; i < keys.length; i++)
+                {
+                copies[i] = new String(keys[i]);
+                slots[i] = model.getSlot(keys[i]);
+                Node node = new Node();
+                node.intValue = model.get(keys[i]);
+                storage.put(keys[i], node);
+                }
+
+            long[] times = new long[8];
+            for(int pass = 0; pass < warmup + iterations; pass++)
+                {
+                boolean measure = (pass >= warmup);
+                long t0 = System.nanoTime();
+                mapGet(storage, keys);
+                long t1 = System.nanoTime();
+                get(model, keys);
+                long t2 = System.nanoTime();
+                get(model, copies);
+                long t3 = System.nanoTime();
+                slotGet(model, slots);
+                long t4 = System.nanoTime();
+                set(model, keys);
+                long t5 = System.nanoTime();
+                slotSet(model, slots);
+                long t6 = System.nanoTime();
+                sink += ((Model)(model.clone())).getNumSlots();
+                long t7 = System.nanoTime();
+                sink += model.copy().getNumSlots();
+                long t8 = System.nanoTime();
+                if (measure)
+                    {
+                    times[0] += t1 - t0; times[1] += t2 - t1; times[2] += t3 - t2; times[3] += t4 - t3;
+                    times[4] += t5 - t4; times[5] += t6 - t5; times[6] += t7 - t6; times[7] += t8 - t7;
+                    }
+                }
+
+            double ops = (double)iterations * keys.length;
+            System.err.println(String.format("%-32s %6d %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f %9.2f %9.2f",
+                    Synth.getSynthNameForClassName(className), keys.length,
+                    times[0] / ops, times[1] / ops, times[2] / ops, times[3] / ops, times[4] / ops, times[5] / ops,
+                    times[6] / 1000.0 / iterations, times[7] / 1000.0 / iterations));
+            }
+        System.err.println("get, set, and slot times are ns per key; clone and copy are us per Model.");
+        System.exit(0);
+        }
+
+    // As Model.get(key) once was
+    static void mapGet(LinkedHashMap<String, Node> storage, String[] keys)
+        {
+        int sum = 0;
+        for(int i = 0; i < keys.length; i++)
+            {
+            Node node = storage.get(keys[i]);
+            sum += (node == null || node.stringValue != null ? -1 : node.intValue);
+            }
+        sink += sum;
+        }
+
+    static void get(Model model, String[] keys)
+        {
+        int sum = 0;
+        for(int i = 0; i < keys.length; i++)
+            sum += model.get(keys[i]);
+        sink += sum;
+        }
+
+    static void slotGet(Model model, int[] slots)
+        {
+        int sum = 0;
+        for(int i = 0; i < slots.length; i++)
+            sum += model.getSlotValue(slots[i]);
+        sink += sum;
+        }
+
+    static void set(Model model, String[] keys)
+        {
+        for(int i = 0; i < keys.length; i++)
+            model.set(keys[i], model.get(keys[i]));
+        }
+
+    static void slotSet(Model model, int[] slots)
+        {
+        for(int i = 0; i < slots.length; i++)
+            model.setSlotValue(slots[i], model.getSlotValue(slots[i]));
+        }
+    }
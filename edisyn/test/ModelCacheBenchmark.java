@@ -0,0 +1,97 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.util.*;
+
+/**
+   ModelCacheBenchmark measures how much the Library's ModelCache saves when the same patches are
+   parsed again and again, as happens when auditioning, mixing, nudging, and morphing in the Librarian.
+   For the largest synth editors (those with the most mutable parameters) or for the given synth classes,
+   it fills a bank with random patches, asks the Library for their Models several times over, and
+   reports the time per patch of the first (cold) pass and of the later (warm) passes, along with the
+   cache's own statistics.  It also checks that every cached Model equals a fresh parse of the same
+   patch.  It needs no window and no MIDI.
+*/
+
+public class ModelCacheBenchmark
+    {
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.ModelCacheBenchmark",
+            args,
+            "[CLASS...]",
+            new String[] { "-n", "-p", "-r" },
+            new String[] { Main.INT, Main.INT, Main.INT },
+            new String[] { "Number of Largest Editors", "Patches", "Passes" },
+            "ModelCacheBenchmark times Library.getModel(...) for the given synth classes, or for the N\n" +
+            "largest editors (default 5), over P random patches (default 32, at most a bank) for R passes\n" +
+            "(default 10), the first of which fills the cache, and prints the cache's statistics.",
+            true);
+
+        int numPatches = main.getInt("-p", 32);
+        int passes = main.getInt("-r", 10);
+        ArrayList<String> classNames = new ArrayList<String>(main.getRest());
+        if (classNames.size() == 0)
+            classNames = HillClimbBenchmark.largest(main.getInt("-n", 5));
+
+        System.err.println(String.format("%-40s %8s %10s %10s %8s %s", "Synth", "Patches", "cold us", "warm us", "Speedup", "Same"));
+        for(String className : classNames)
+            {
+            Synth synth = Synth.instantiate(className, true, false, null);
+            if (synth == null) { System.err.println("Could not build " + className); continue; }
+            synth.setSendMIDI(false);
+            synth.getUndo().setWillPush(false);
+            Library library = new Library(synth);
+            int n = Math.min(numPatches, library.getBankSize());
+
+            // Fill the first bank with random patches
+            Random random = new Random(0);
+            String[] keys = synth.getMutationKeys();
+            Patch[] patches = new Patch[n];
+            for(int i = 0; i < n; i++)
+                {
+                Model model = synth.getModel().copy().mutate(random, keys, 0.5);
+                byte[] data = synth.flatten(synth.emitAll(model, false, true));
+                patches[i] = new Patch(synth.getSynthNum(), data, false);
+                patches[i].bank = 0;
+                patches[i].number = i;
+                library.setPatch(patches[i], 0, i);
+                }
+
+            long cold = 0;
+            long warm = 0;
+            for(int pass = 0; pass < passes; pass++)
+                {
+                long start = System.nanoTime();
+                for(int i = 0; i < n; i++)
+                    library.getModel(patches[i], 0, i);
+                long time = System.nanoTime() - start;
+                if (pass == 0) cold += time;
+                else warm += time;
+                }
+
+            // A cached Model must be the same as a fresh parse
+            Model[] cached = new Model[n];
+            for(int i = 0; i < n; i++)
+                cached[i] = library.getModel(patches[i], 0, i);
+            ModelCache cache = library.getModelCache();
+            String stats = cache.toString();
+            cache.clear();
+            boolean same = true;
+            for(int i = 0; i < n; i++)
+                if (!cached[i].keyEquals(library.getModel(patches[i], 0, i)))
+                    same = false;
+
+            double coldPer = cold / 1000.0 / n;
+            double warmPer = (passes > 1 ? warm / 1000.0 / n / (passes - 1) : 0.0);
+            System.err.println(String.format("%-40s %8d %10.1f %10.1f %8.1f %s", className, n, coldPer, warmPer,
+                    (warmPer == 0 ? 0.0 : coldPer / warmPer), (same ? "yes" : "NO")));
+            System.err.println("\t" + stats);
+            }
+        System.exit(0);
+        }
+    }
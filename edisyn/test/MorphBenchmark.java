@@ -0,0 +1,114 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.lang.management.*;
+import java.util.*;
+
+/**
+   MorphBenchmark measures how many morph updates per second can be done with Model.morph(...) and with
+   a precomputed MorphPlan, for the largest synth editors (those with the most mutable parameters) or
+   for the given synth classes.  Each update morphs among four sources as the joystick travels in a
+   circle, just as the Morph pane does.  It also checks that both produce exactly the same patches
+   from the same seed, and if the JVM can tell us, how many bytes each update allocates.  It needs
+   no window and no MIDI.
+*/
+
+public class MorphBenchmark
+    {
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.MorphBenchmark",
+            args,
+            "[CLASS...]",
+            new String[] { "-n", "-u", "-w", "-s" },
+            new String[] { Main.INT, Main.INT, Main.INT, Main.INT },
+            new String[] { "Number of Largest Editors", "Measured Updates", "Warmup Updates", "Categorical Strategy" },
+            "MorphBenchmark times morph updates with Model.morph(...) and with a MorphPlan for the given\n" +
+            "synth classes, or for the N largest editors (default 5).  The categorical strategy is\n" +
+            "-3 (morph, the default), -2 (strongest), -1 (current patch), or 0...3 (a given source).",
+            true);
+
+        int updates = main.getInt("-u", 20000);
+        int warmup = main.getInt("-w", 20000);
+        int strategy = main.getInt("-s", -3);
+        ArrayList<String> classNames = new ArrayList<String>(main.getRest());
+        if (classNames.size() == 0)
+            classNames = HillClimbBenchmark.largest(main.getInt("-n", 5));
+
+        System.err.println(String.format("%-40s %6s %14s %14s %8s %12s %12s %s", "Synth", "Keys", "morph()/s", "plan/s", "Speedup", "morph() B/u", "plan B/u", "Same"));
+        for(String className : classNames)
+            {
+            Synth synth = Synth.instantiate(className, true, false, null);
+            if (synth == null) { System.err.println("Could not build " + className); continue; }
+            synth.setSendMIDI(false);
+            synth.getUndo().setWillPush(false);
+            String[] keys = synth.getMutationKeys();
+
+            Random random = new Random(0);
+            Model[] sources = new Model[4];
+            for(int i = 0; i < sources.length; i++)
+                sources[i] = synth.getModel().copy().mutate(random, keys, 0.5);
+
+            Model a = synth.getModel().copy();
+            Model b = synth.getModel().copy();
+            run(synth, a, null, sources, keys, strategy, warmup);
+            MorphPlan plan = new MorphPlan(b, sources, keys);
+            run(synth, b, plan, sources, keys, strategy, warmup);
+            boolean same = a.keyEquals(b);
+
+            long allocA = allocated();
+            long startA = System.nanoTime();
+            run(synth, a, null, sources, keys, strategy, updates);
+            long timeA = System.nanoTime() - startA;
+            allocA = allocated() - allocA;
+            long allocB = allocated();
+            long startB = System.nanoTime();
+            run(synth, b, plan, sources, keys, strategy, updates);
+            long timeB = System.nanoTime() - startB;
+            allocB = allocated() - allocB;
+            same = same && a.keyEquals(b);
+
+            System.err.println(String.format("%-40s %6d %14.0f %14.0f %7.2fx %12s %12s %s", Synth.getSynthNameForClassName(className), keys.length,
+                    updates / (timeA / 1.0e9), updates / (timeB / 1.0e9), timeA / (double)timeB,
+                    (allocA < 0 ? "?" : "" + (allocA / updates)), (allocB < 0 ? "?" : "" + (allocB / updates)), same ? "yes" : "NO"));
+            }
+        System.exit(0);
+        }
+
+    // Morphs the target over the given number of updates as the joystick goes round in a circle,
+    // either with Model.morph(...) or, if the plan isn't null, with the plan.  Each run starts from the same seed.
+    static void run(Synth synth, Model target, MorphPlan plan, Model[] sources, String[] keys, int strategy, int updates)
+        {
+        Random random = new Random(1);
+        double[] weights = new double[sources.length];
+        double[] previousWeights = new double[] { 0.25, 0.25, 0.25, 0.25 };
+        for(int i = 0; i < updates; i++)
+            {
+            double angle = i * 0.01;
+            double x = (Math.cos(angle) + 1) * 0.5;
+            double y = (Math.sin(angle * 1.3) + 1) * 0.5;
+            // as in Morph.computeWeight(...)
+            weights[0] = Math.min(1 - x, 1 - y);
+            weights[1] = Math.min(x, 1 - y);
+            weights[2] = Math.min(1 - x, y);
+            weights[3] = Math.min(x, y);
+            if (plan == null)
+                target.morph(random, sources, synth.getModel(), keys, weights, previousWeights, strategy);
+            else
+                plan.morph(random, synth.getModel(), weights, previousWeights, strategy);
+            }
+        }
+
+    // Returns the bytes allocated so far by this thread, or a negative number if the JVM can't tell us
+    static long allocated()
+        {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+        }
+    }
@@ -0,0 +1,145 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.nn.*;
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+   NetworkBenchmark compares feeding vectors through a neural network one at a time with Network.feed(double[])
+   against feeding them all in one batch with Network.feedBatch(...), for several batch sizes.  In the manner of JMH,
+   each measurement is preceded by warmup iterations whose times are thrown away, and the mean and standard
+   deviation over the measured iterations are reported per vector.  It also checks that both paths produce
+   exactly the same outputs.
+
+   <p>By default it benchmarks the Yamaha DX7's encoder and decoder.  Otherwise, give it text network files,
+   which may be gzipped.
+*/
+
+public class NetworkBenchmark
+    {
+    static int warmup;
+    static int iterations;
+    static long checksum = 0;          // so the JIT can't throw our work away
+
+    public static void main(String[] args) throws IOException
+        {
+        Main main = new Main("java edisyn.test.NetworkBenchmark",
+            args,
+            "[TEXT_NETWORK_FILE...]",
+            new String[] { "-w", "-i", "-b" },
+            new String[] { Main.INT, Main.INT, Main.STRING },
+            new String[] { "Warmup Iterations", "Measured Iterations", "Batch Sizes" },
+            "NetworkBenchmark times feeding random vectors through each network one at a time versus\n" +
+            "in batches.  Batch sizes are given as a comma-separated list (default 1,32,1024).  If no\n" +
+            "network files are given, it uses the Yamaha DX7 encoder and decoder.",
+            true);
+
+        warmup = main.getInt("-w", 5);
+        iterations = main.getInt("-i", 10);
+        String sizes = main.getString("-b");
+        if (sizes == null) sizes = "1,32,1024";
+        String[] s = sizes.split(",");
+        int[] batchSizes = new int[s.length];
+        for(int i = 0; i < s.length; i++)
+            batchSizes[i] = Integer.parseInt(s[i].trim());
+
+        if (main.getRest().size() == 0)
+            {
+            benchmark("DX7 encoder", load("/edisyn/synth/yamahadx7/encoder.nn"), 225, batchSizes);
+            benchmark("DX7 decoder", load("/edisyn/synth/yamahadx7/decoder.nn"), 76, batchSizes);
+            }
+        else
+            {
+            for(String name : main.getRest())
+                {
+                File file = new File(name);
+                benchmark(name, ConvertNetwork.loadText(file), ConvertNetwork.inputLength(file), batchSizes);
+                }
+            }
+        System.err.println("(checksum " + checksum + ")");
+        }
+
+    static Network load(String resource)
+        {
+        return Network.loadFromBinaryStream(NetworkBenchmark.class.getResourceAsStream(resource));
+        }
+
+    static void benchmark(String name, Network network, int inputSize, int[] batchSizes)
+        {
+        if (inputSize <= 0)
+            {
+            System.err.println(name + ": can't determine the input size");
+            return;
+            }
+        int outputSize = network.getOutputSize(inputSize);
+        System.err.println(name + " (" + inputSize + " -> " + outputSize + ")");
+        Random random = new Random(0);
+        for(int batch : batchSizes)
+            {
+            double[][] vecs = new double[batch][inputSize];
+            double[] input = new double[batch * inputSize];
+            for(int i = 0; i < batch; i++)
+                for(int j = 0; j < inputSize; j++)
+                    input[i * inputSize + j] = vecs[i][j] = random.nextGaussian();
+            double[] output = new double[batch * outputSize];
+
+            // check
+            network.feedBatch(input, batch, inputSize, output);
+            for(int i = 0; i < batch; i++)
+                {
+                double[] out = network.feed(vecs[i]);
+                for(int j = 0; j < outputSize; j++)
+                    if (out[j] != output[i * outputSize + j])
+                        {
+                        System.err.println("    MISMATCH at vector " + i + " output " + j + ": " + out[j] + " vs. " + output[i * outputSize + j]);
+                        return;
+                        }
+                }
+
+            // enough repetitions per iteration that each takes at least a few ms
+            int reps = Math.max(1, 4096 / batch);
+            double[] single = measure(network, vecs, input, batch, inputSize, output, reps, false);
+            double[] batched = measure(network, vecs, input, batch, inputSize, output, reps, true);
+            System.err.println(String.format("    batch %5d:  per-vector %8.1f +/- %6.1f us/vector   batched %8.1f +/- %6.1f us/vector   speedup %.2fx",
+                    batch, single[0], single[1], batched[0], batched[1], single[0] / batched[0]));
+            }
+        }
+
+    // Returns the mean and standard deviation, in microseconds per vector, over the measured iterations
+    static double[] measure(Network network, double[][] vecs, double[] input, int batch, int inputSize, double[] output, int reps, boolean batched)
+        {
+        double[] times = new double[iterations];
+        for(int it = 0; it < warmup + iterations; it++)
+            {
+            long start = System.nanoTime();
+            for(int r = 0; r < reps; r++)
+                {
+                if (batched)
+                    {
+                    network.feedBatch(input, batch, inputSize, output);
+                    checksum += Double.doubleToLongBits(output[0]);
+                    }
+                else
+                    {
+                    for(int i = 0; i < batch; i++)
+                        checksum += Double.doubleToLongBits(network.feed(vecs[i])[0]);
+                    }
+                }
+            if (it >= warmup)
+                times[it - warmup] = (System.nanoTime() - start) / 1000.0 / (reps * (double)batch);
+            }
+        double mean = 0;
+        for(int i = 0; i < times.length; i++)
+            mean += times[i];
+        mean /= times.length;
+        double var = 0;
+        for(int i = 0; i < times.length; i++)
+            var += (times[i] - mean) * (times[i] - mean);
+        return new double[] { mean, Math.sqrt(var / times.length) };
+        }
+    }
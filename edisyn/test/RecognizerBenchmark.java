@@ -0,0 +1,169 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+   RecognizerBenchmark measures how long it takes to offer a sysex message to the recognizer of every synth
+   in synths.txt, as Edisyn does when it tries to identify a message, both with the cached MethodHandles in
+   Recognizer and with the reflective path Synth used before them (Class.forName(...) on the recognizer class,
+   then getMethod(...) and invoke(...), on every call).  It also checks that both agree on which recognizers
+   accept each message.  The messages are read from the given sysex files, or if none are given, are random
+   200-byte messages with common manufacturer IDs.  It needs no window and no MIDI.
+*/
+
+public class RecognizerBenchmark
+    {
+    static final int[] MANUFACTURERS = { 0x01, 0x18, 0x3E, 0x40, 0x41, 0x42, 0x43, 0x47 };
+
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.RecognizerBenchmark",
+            args,
+            "[SYSEX_FILE...]",
+            new String[] { "-m", "-l", "-i", "-w" },
+            new String[] { Main.INT, Main.INT, Main.INT, Main.INT },
+            new String[] { "Number of Random Messages", "Random Message Length", "Measured Passes", "Warmup Passes" },
+            "RecognizerBenchmark times offering each message to every synth's recognizer, through the\n" +
+            "cached MethodHandles in Recognizer versus by reflection on every call, as Synth once did.\n" +
+            "The messages come from the given sysex files, or are random (default 200 of 200 bytes).",
+            true);
+
+        int iterations = main.getInt("-i", 5);
+        int warmup = main.getInt("-w", 5);
+        ArrayList<byte[]> messages = new ArrayList<byte[]>();
+        for(String file : main.getRest())
+            messages.addAll(read(new File(file)));
+        if (messages.size() == 0)
+            messages = random(new Random(0), main.getInt("-m", 200), main.getInt("-l", 200));
+
+        // Only synths which have a recognize(byte[]) method
+        ArrayList<String> names = new ArrayList<String>();
+        for(String className : Synth.getClassNames())
+            {
+            Recognizer recognizer = Recognizer.get(className);
+            if (recognizer != null && recognizer.hasRecognize())
+                names.add(className);
+            }
+        String[] classNames = names.toArray(new String[0]);
+
+        boolean[] reflective = new boolean[messages.size() * classNames.length];
+        boolean[] cached = new boolean[messages.size() * classNames.length];
+        for(int i = 0; i < warmup; i++)
+            {
+            runReflective(classNames, messages, reflective);
+            runCached(classNames, messages, cached);
+            }
+
+        long timeReflective = 0;
+        long timeCached = 0;
+        for(int i = 0; i < iterations; i++)
+            {
+            long start = System.nanoTime();
+            runReflective(classNames, messages, reflective);
+            timeReflective += System.nanoTime() - start;
+            start = System.nanoTime();
+            runCached(classNames, messages, cached);
+            timeCached += System.nanoTime() - start;
+            }
+
+        int accepted = 0;
+        for(int i = 0; i < cached.length; i++)
+            if (cached[i]) accepted++;
+
+        double perReflective = timeReflective / 1000.0 / iterations / messages.size();
+        double perCached = timeCached / 1000.0 / iterations / messages.size();
+        System.err.println(String.format("%d messages, %d recognizers, %d acceptances", messages.size(), classNames.length, accepted));
+        System.err.println(String.format("%-12s %16s %16s %8s %s", "", "Reflective us/m", "Cached us/m", "Speedup", "Same"));
+        System.err.println(String.format("%-12s %16.1f %16.1f %7.2fx %s", "recognize", perReflective, perCached,
+                perReflective / perCached, Arrays.equals(reflective, cached) ? "yes" : "NO"));
+        System.exit(0);
+        }
+
+    // The path Synth.recognize(...) took before Recognizer
+    static void runReflective(String[] classNames, ArrayList<byte[]> messages, boolean[] results)
+        {
+        int r = 0;
+        for(byte[] message : messages)
+            for(String className : classNames)
+                {
+                boolean result;
+                try
+                    {
+                    Class recognizer = Class.forName(className + "Rec");
+                    Method method = recognizer.getMethod("recognize", new Class[] { byte[].class });
+                    Object obj = method.invoke(null, message);
+                    result = ((Boolean)obj).booleanValue();
+                    }
+                catch (Exception e)
+                    {
+                    result = false;
+                    }
+                results[r++] = result;
+                }
+        }
+
+    static void runCached(String[] classNames, ArrayList<byte[]> messages, boolean[] results)
+        {
+        int r = 0;
+        for(byte[] message : messages)
+            for(String className : classNames)
+                {
+                boolean result;
+                try
+                    {
+                    result = Recognizer.get(className).recognize(message);
+                    }
+                catch (Throwable e)
+                    {
+                    result = false;
+                    }
+                results[r++] = result;
+                }
+        }
+
+    // Random messages: 0xF0, a manufacturer ID, random data, and 0xF7
+    static ArrayList<byte[]> random(Random random, int num, int len)
+        {
+        ArrayList<byte[]> messages = new ArrayList<byte[]>();
+        for(int i = 0; i < num; i++)
+            {
+            byte[] message = new byte[Math.max(len, 3)];
+            message[0] = (byte)0xF0;
+            message[1] = (byte)MANUFACTURERS[random.nextInt(MANUFACTURERS.length)];
+            for(int j = 2; j < message.length - 1; j++)
+                message[j] = (byte)random.nextInt(128);
+            message[message.length - 1] = (byte)0xF7;
+            messages.add(message);
+            }
+        return messages;
+        }
+
+    // Splits a sysex file into its messages
+    static ArrayList<byte[]> read(File file) throws IOException
+        {
+        byte[] data = new byte[(int)file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try { in.readFully(data); }
+        finally { in.close(); }
+
+        ArrayList<byte[]> messages = new ArrayList<byte[]>();
+        int start = -1;
+        for(int i = 0; i < data.length; i++)
+            {
+            if (data[i] == (byte)0xF0) start = i;
+            else if (data[i] == (byte)0xF7 && start >= 0)
+                {
+                messages.add(Arrays.copyOfRange(data, start, i + 1));
+                start = -1;
+                }
+            }
+        return messages;
+        }
+    }
@@ -6,20 +6,83 @@
 package edisyn.test;
 import edisyn.*;
 import edisyn.util.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class SanityCheck
     {
     static boolean quiet = false;
     static boolean dump  = false;
+    static boolean report = false;
+    
+    /** Timing and size statistics for one synth (or one variant of a synth), gathered over all rounds. */
+    static class Stats
+        {
+        String name;
+        int runs;
+        int failures;
+        long emitTime;              // ns
+        long parseTime;             // ns
+        long bytes;
+        long allocated;             // bytes, or -1 if we can't measure it
+        }
+    static HashMap<String, Stats> stats = new HashMap<String, Stats>();
+    
+    // Used to measure allocation per thread, if the JVM supports it
+    static java.lang.management.ThreadMXBean threadBean = java.lang.management.ManagementFactory.getThreadMXBean();
+    
+    static long getAllocatedBytes()
+        {
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        else return -1;
+        }
+    
+    static void record(String name, boolean failed, long emitTime, long parseTime, long bytes, long allocated)
+        {
+        synchronized(stats)
+            {
+            Stats s = stats.get(name);
+            if (s == null) { s = new Stats(); s.name = name; stats.put(name, s); }
+            s.runs++;
+            if (failed) s.failures++;
+            s.emitTime += emitTime;
+            s.parseTime += parseTime;
+            s.bytes += bytes;
+            if (allocated < 0 || s.allocated < 0) s.allocated = -1;
+            else s.allocated += allocated;
+            }
+        }
+        
+    /** Prints the per-synth statistics, slowest first. */
+    static void printReport()
+        {
+        Stats[] s;
+        synchronized(stats) { s = (Stats[])(stats.values().toArray(new Stats[0])); }
+        Arrays.sort(s, new Comparator<Stats>()
+            {
+            public int compare(Stats a, Stats b) { return Long.compare(b.emitTime + b.parseTime, a.emitTime + a.parseTime); }
+            });
+        System.err.println();
+        System.err.println(String.format("%-60s %5s %5s %10s %10s %10s %12s", "Synth", "Runs", "Fail", "Emit ms", "Parse ms", "Bytes", "Alloc KB"));
+        for(int i = 0; i < s.length; i++)
+            {
+            System.err.println(String.format("%-60s %5d %5d %10.2f %10.2f %10d %12s", s[i].name, s[i].runs, s[i].failures, 
+                    s[i].emitTime / 1000000.0 / s[i].runs, s[i].parseTime / 1000000.0 / s[i].runs, s[i].bytes / s[i].runs,
+                    (s[i].allocated < 0 ? "?" : "" + (s[i].allocated / 1024 / s[i].runs))));
+            }
+        System.err.println("(Times, bytes, and allocation are averages per run.  Allocation covers mutating, emitting, and parsing.)");
+        }
         
     public static void main(String[] args) throws ClassNotFoundException
         {
         Main main = new Main("java edisyn.synth.SanityCheck", 
             args, 
             null, 
-            new String[] { "-v", "-c", "-n", "-d" }, 
-            new String[] { Main.FLAG, Main.STRING, Main.INT, Main.FLAG }, 
-            new String[] { "Verbose", "Specific Class", "Number of Times", "Dump Test Sysex on Failure" },
+            new String[] { "-v", "-c", "-n", "-d", "-t", "-r" }, 
+            new String[] { Main.FLAG, Main.STRING, Main.INT, Main.FLAG, Main.INT, Main.FLAG }, 
+            new String[] { "Verbose", "Specific Class", "Number of Times", "Dump Test Sysex on Failure", "Number of Threads", "Report Timing Per Synth" },
             "SanityCheck is essentially a fuzzing tester.\n\n" +
             "SanityCheck goes through all of the synthesizers, or a specific one, and one by one it\n" +
             "does a simple sanity check on them.  First, it creates a synthesizer, randomizes\n" +
@@ -28,11 +91,16 @@ public class SanityCheck
             "They should be identical.  Any parameters that are not identical are referred to the\n" +
             "method Synth.testVerify(...) to determine if being non-identical is acceptable.  If not, the\n" +
             "parameter is noted as [FAIL] or [NULL] (indicating that one of the parameter values is\n" +
-            "null but not the other one).",
+            "null but not the other one).\n\n" +
+            "With more than one thread, the synthesizers and rounds are tested in parallel, and\n" +
+            "each one's output is printed when it is done.  The report lists, for each synthesizer,\n" +
+            "the average time to emit and to parse, the size of the emitted data, and the memory\n" +
+            "allocated.",
             true);
                 
         quiet = !main.hasFlag("-v");
         dump = main.hasFlag("-d");
+        report = main.hasFlag("-r");
         
         System.err.println("For help, try:  java edisyn.test.SanityCheck -h");
           
@@ -40,173 +108,209 @@ public class SanityCheck
         if (main.getString("-c") != null)
             c = new String[] { main.getString("-c").trim() };
         
-        int num = main.getInt("-n", 1);
+        final int num = main.getInt("-n", 1);
         if (num < 0)
             {
             System.err.println("-n:  number must be >= 1");
             System.exit(1);
             }
-                
-        for(int n = 0; n < num; n++)
+
+        int threads = main.getInt("-t", 1);
+        if (threads < 1)
             {
-            if (num > 1) System.err.println("Round " + (n + 1) + "\n");
+            System.err.println("-t:  number must be >= 1");
+            System.exit(1);
+            }
                 
-            for(int j = 0; j < c.length; j++)
+        if (threads == 1)
+            {
+            for(int n = 0; n < num; n++)
                 {
-                Synth synth = Synth.instantiate(c[j], true, false, null);
-                Synth synth2 = Synth.instantiate(c[j], true, false, null);
-                if (synth instanceof edisyn.synth.emuproteus2000.EmuProteus2000)
-                    {
-                    System.err.println("\t[NOTE] RomIDs may fail because of duplicates.  Not sure if this is necessarily a bug.");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.casiocz.CasioCZ)
-                    {
-                    ((edisyn.synth.casiocz.CasioCZ)synth).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ101_1000, false);
-                    ((edisyn.synth.casiocz.CasioCZ)synth2).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ101_1000, false);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.casiocz.CasioCZ)synth).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ1, false);
-                    ((edisyn.synth.casiocz.CasioCZ)synth2).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ1, false);
-                    System.err.println(c[j] + " (CZ1)");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.korgwavestation.KorgWavestationSequence)
-                    {
-                    ((edisyn.synth.korgwavestation.KorgWavestationSequence)synth).setBlockSending(true);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.alesisd4.AlesisD4)
-                    {
-                    ((edisyn.synth.alesisd4.AlesisD4)synth).setDM5(false, false);
-                    ((edisyn.synth.alesisd4.AlesisD4)synth2).setDM5(false, false);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.alesisd4.AlesisD4)synth).setDM5(true, false);
-                    ((edisyn.synth.alesisd4.AlesisD4)synth2).setDM5(true, false);
-                    System.err.println(c[j] + " (DM5)");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.dsiprophet08.DSIProphet08)
-                    {
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_PROPHET_08, false);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_PROPHET_08, false);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_TETRA, false);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_TETRA, false);
-                    System.err.println(c[j] + " (Tetra)");
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO, false);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO, false);
-                    System.err.println(c[j] + " (Mopho)");
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_KEYBOARD, false);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_KEYBOARD, false);
-                    System.err.println(c[j] + " (Mopho Keyboard and SE)");
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_X4, false);
-                    ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_X4, false);
-                    System.err.println(c[j] + " (Mopho x4)");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.yamahatg33.YamahaTG33)
-                    {
-                    ((edisyn.synth.yamahatg33.YamahaTG33)synth).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_TG33, false);
-                    ((edisyn.synth.yamahatg33.YamahaTG33)synth2).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_TG33, false);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.yamahatg33.YamahaTG33)synth).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY22, false);
-                    ((edisyn.synth.yamahatg33.YamahaTG33)synth2).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY22, false);
-                    System.err.println(c[j] + " (SY22)");
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.yamahatg33.YamahaTG33)synth).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY35, false);
-                    ((edisyn.synth.yamahatg33.YamahaTG33)synth2).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY35, false);
-                    System.err.println(c[j] + " (SY35)");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.yamaha4op.Yamaha4Op)
-                    {
-                    ((edisyn.synth.yamaha4op.Yamaha4Op)synth).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_TQ5_YS100_YS200_B200, false);
-                    ((edisyn.synth.yamaha4op.Yamaha4Op)synth2).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_TQ5_YS100_YS200_B200, false);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.yamaha4op.Yamaha4Op)synth).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_V50, false);
-                    ((edisyn.synth.yamaha4op.Yamaha4Op)synth2).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_V50, false);
-                    System.err.println(c[j] + " (V50)");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)
-                    {
-                    ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth).setRev2(false, false);
-                    ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth2).setRev2(false, false);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth).setRev2(true, false);
-                    ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth2).setRev2(true, false);
-                    System.err.println(c[j] + " (Rev2)");
-                    test(synth, synth2);
-                    }
-                else if (synth instanceof edisyn.synth.maudiovenom.MAudioVenomArp)
+                if (num > 1) System.err.println("Round " + (n + 1) + "\n");
+                
+                for(int j = 0; j < c.length; j++)
                     {
-                    edisyn.synth.maudiovenom.MAudioVenomArp.truncateAndSortOnEmit = false;
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
-                    edisyn.synth.maudiovenom.MAudioVenomArp.truncateAndSortOnEmit = true;
+                    check(c[j], System.err);
                     }
-                else if (synth instanceof edisyn.synth.korgvolca.KorgVolca)
+                }
+            }
+        else
+            {
+            // Each synth class and round is a separate job.  Each job's output is gathered
+            // and printed all at once, so the jobs don't print on top of one another.
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for(int n = 0; n < num; n++)
+                {
+                final int round = n;
+                for(int j = 0; j < c.length; j++)
                     {
-                    for(int i = 0; i < edisyn.synth.korgvolca.KorgVolca.PREFIXES.length; i++)
+                    final String className = c[j];
+                    executor.submit(new Runnable()
                         {
-                        synth = Synth.instantiate(c[j], true, false, null);
-                        ((edisyn.synth.korgvolca.KorgVolca)synth).setSynthType(i, false);
-                        synth2 = Synth.instantiate(c[j], true, false, null);
-                        ((edisyn.synth.korgvolca.KorgVolca)synth2).setSynthType(i, false);
-                        System.err.println(c[j] + " " + edisyn.synth.korgvolca.KorgVolca.VOLCAS[i]);
-                        test(synth, synth2);
-                        }
-                    }
-                else
-                    {
-                    synth = Synth.instantiate(c[j], true, false, null);
-                    synth2 = Synth.instantiate(c[j], true, false, null);
-                    System.err.println(c[j]);
-                    test(synth, synth2);
+                        public void run()
+                            {
+                            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                            PrintStream out = new PrintStream(buffer);
+                            if (num > 1) out.println("[Round " + (round + 1) + "]");
+                            try { check(className, out); }
+                            catch (Throwable ex) { ex.printStackTrace(out); }
+                            out.flush();
+                            synchronized(System.err) { System.err.print(buffer.toString()); }
+                            }
+                        });
                     }
                 }
+            executor.shutdown();
+            try { executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS); }
+            catch (InterruptedException ex) { }
             }
+            
+        if (report) printReport();
         }
         
-    public static void test(Synth synth, Synth synth2)
+    /** Instantiates and tests the given synth class, including its variants, printing results to OUT. */
+    public static void check(String className, PrintStream out)
+        {
+        Synth synth = Synth.instantiate(className, true, false, null);
+        Synth synth2 = Synth.instantiate(className, true, false, null);
+        if (synth instanceof edisyn.synth.emuproteus2000.EmuProteus2000)
+            {
+            test("\t[NOTE] RomIDs may fail because of duplicates.  Not sure if this is necessarily a bug.", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.casiocz.CasioCZ)
+            {
+            ((edisyn.synth.casiocz.CasioCZ)synth).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ101_1000, false);
+            ((edisyn.synth.casiocz.CasioCZ)synth2).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ101_1000, false);
+            test(className, synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.casiocz.CasioCZ)synth).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ1, false);
+            ((edisyn.synth.casiocz.CasioCZ)synth2).setSynthType(edisyn.synth.casiocz.CasioCZ.TYPE_CZ1, false);
+            test(className + " (CZ1)", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.korgwavestation.KorgWavestationSequence)
+            {
+            ((edisyn.synth.korgwavestation.KorgWavestationSequence)synth).setBlockSending(true);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            test(className, synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.alesisd4.AlesisD4)
+            {
+            ((edisyn.synth.alesisd4.AlesisD4)synth).setDM5(false, false);
+            ((edisyn.synth.alesisd4.AlesisD4)synth2).setDM5(false, false);
+            test(className, synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.alesisd4.AlesisD4)synth).setDM5(true, false);
+            ((edisyn.synth.alesisd4.AlesisD4)synth2).setDM5(true, false);
+            test(className + " (DM5)", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.dsiprophet08.DSIProphet08)
+            {
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_PROPHET_08, false);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_PROPHET_08, false);
+            test(className, synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_TETRA, false);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_TETRA, false);
+            test(className + " (Tetra)", synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO, false);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO, false);
+            test(className + " (Mopho)", synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_KEYBOARD, false);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_KEYBOARD, false);
+            test(className + " (Mopho Keyboard and SE)", synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_X4, false);
+            ((edisyn.synth.dsiprophet08.DSIProphet08)synth2).setType(edisyn.synth.dsiprophet08.DSIProphet08.SYNTH_TYPE_MOPHO_X4, false);
+            test(className + " (Mopho x4)", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.yamahatg33.YamahaTG33)
+            {
+            ((edisyn.synth.yamahatg33.YamahaTG33)synth).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_TG33, false);
+            ((edisyn.synth.yamahatg33.YamahaTG33)synth2).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_TG33, false);
+            test(className, synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.yamahatg33.YamahaTG33)synth).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY22, false);
+            ((edisyn.synth.yamahatg33.YamahaTG33)synth2).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY22, false);
+            test(className + " (SY22)", synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.yamahatg33.YamahaTG33)synth).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY35, false);
+            ((edisyn.synth.yamahatg33.YamahaTG33)synth2).setSynthType(edisyn.synth.yamahatg33.YamahaTG33.TYPE_SY35, false);
+            test(className + " (SY35)", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.yamaha4op.Yamaha4Op)
+            {
+            ((edisyn.synth.yamaha4op.Yamaha4Op)synth).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_TQ5_YS100_YS200_B200, false);
+            ((edisyn.synth.yamaha4op.Yamaha4Op)synth2).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_TQ5_YS100_YS200_B200, false);
+            test(className, synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.yamaha4op.Yamaha4Op)synth).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_V50, false);
+            ((edisyn.synth.yamaha4op.Yamaha4Op)synth2).setSynthType(edisyn.synth.yamaha4op.Yamaha4Op.TYPE_V50, false);
+            test(className + " (V50)", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)
+            {
+            ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth).setRev2(false, false);
+            ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth2).setRev2(false, false);
+            test(className, synth, synth2, out);
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth).setRev2(true, false);
+            ((edisyn.synth.jlcoopermsbplusrev2.JLCooperMSBPlusRev2)synth2).setRev2(true, false);
+            test(className + " (Rev2)", synth, synth2, out);
+            }
+        else if (synth instanceof edisyn.synth.maudiovenom.MAudioVenomArp)
+            {
+            // truncateAndSortOnEmit is static, so only one thread may test the Venom Arp at a time
+            synchronized(edisyn.synth.maudiovenom.MAudioVenomArp.class)
+                {
+                edisyn.synth.maudiovenom.MAudioVenomArp.truncateAndSortOnEmit = false;
+                synth = Synth.instantiate(className, true, false, null);
+                synth2 = Synth.instantiate(className, true, false, null);
+                test(className, synth, synth2, out);
+                edisyn.synth.maudiovenom.MAudioVenomArp.truncateAndSortOnEmit = true;
+                }
+            }
+        else if (synth instanceof edisyn.synth.korgvolca.KorgVolca)
+            {
+            for(int i = 0; i < edisyn.synth.korgvolca.KorgVolca.PREFIXES.length; i++)
+                {
+                synth = Synth.instantiate(className, true, false, null);
+                ((edisyn.synth.korgvolca.KorgVolca)synth).setSynthType(i, false);
+                synth2 = Synth.instantiate(className, true, false, null);
+                ((edisyn.synth.korgvolca.KorgVolca)synth2).setSynthType(i, false);
+                test(className + " " + edisyn.synth.korgvolca.KorgVolca.VOLCAS[i], synth, synth2, out);
+                }
+            }
+        else
+            {
+            synth = Synth.instantiate(className, true, false, null);
+            synth2 = Synth.instantiate(className, true, false, null);
+            test(className, synth, synth2, out);
+            }
+
+        }
+        
+    public static void test(String name, Synth synth, Synth synth2, PrintStream out)
         {
         boolean failed = false;
         byte[] data = new byte[0];
+        long emitTime = 0;
+        long parseTime = 0;
+        long allocated = getAllocatedBytes();
         
+        out.println(name);
         try
             {
             // prepare so raw parsing doesn't try to push a million things on the undo stack and write stuff
@@ -219,7 +323,9 @@ public class SanityCheck
             synth.setSendMIDI(false);
             synth.doMutate(1.0);
             synth.setSendMIDI(midi);
+            long time = System.nanoTime();
             data = synth.flatten(synth.emitAll((Model)null, false, true));
+            emitTime = System.nanoTime() - time;
             
             byte[][] d = Synth.cutUpSysex(data);
             for(int i = 0; i < d.length; i++)
@@ -227,15 +333,17 @@ public class SanityCheck
                 if (!synth2.recognizeLocal(d[i]) &&
                     !synth2.testVerify(d[i]))
                     {
-                    System.err.println("\t [FAIL] Not Recognized Message " + i);
+                    out.println("\t [FAIL] Not Recognized Message " + i);
                     for(int j = 0; j < d[i].length; j++)
                         {
-                        System.err.println("" + j + " " + StringUtility.toHex(d[i][j]));
+                        out.println("" + j + " " + StringUtility.toHex(d[i][j]));
                         }
                     failed = true;
                     }
                 }
+            time = System.nanoTime();
             synth2.parse(data, true);
+            parseTime = System.nanoTime() - time;
             String[] keys = synth.getModel().getKeys();
             for(int i = 0; i < keys.length; i++)
                 {
@@ -244,33 +352,36 @@ public class SanityCheck
                 if (obj1 == null || obj2 == null)
                     {
                     boolean res = synth.testVerify(synth2, keys[i], obj1, obj2);
-                    if (!quiet || !res ) System.err.println((res ? "\t[OKAY] " : "\t[NULL] ") + keys[i] + " is " + obj1 + " vs " + obj2);
+                    if (!quiet || !res ) out.println((res ? "\t[OKAY] " : "\t[NULL] ") + keys[i] + " is " + obj1 + " vs " + obj2);
                     failed = failed || !res;
                     }
                 else if (!(obj1.equals(obj2)))
                     {
                     boolean res = synth.testVerify(synth2, keys[i], obj1, obj2);
-                    if (!quiet || !res ) System.err.println((res ? "\t[OKAY] " : "\t[FAIL] ") + keys[i] + " is [" + obj1 + "] vs [" + obj2 + "]");
+                    if (!quiet || !res ) out.println((res ? "\t[OKAY] " : "\t[FAIL] ") + keys[i] + " is [" + obj1 + "] vs [" + obj2 + "]");
                     failed = failed || !res;
                     }
                 }
             }
         catch (Exception ex)
             {
-            ex.printStackTrace();
+            ex.printStackTrace(out);
             failed = true;
             }
         
+        long allocatedAfter = getAllocatedBytes();
+        record(name, failed, emitTime, parseTime, data.length, (allocated < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocated));
+        
         if (failed && dump)
             {
-            System.err.println("DUMP");
-            System.err.println("Length: " +  data.length);
+            out.println("DUMP");
+            out.println("Length: " +  data.length);
             for(int i = 0; i < data.length; i++)
                 {
-                System.err.println("" + i + " " + StringUtility.toHex(data[i]) + " " + data[i] + " " + ((data[i] & 0xFF) < 32 ? "" : (char)(data[i] & 0xFF)));
+                out.println("" + i + " " + StringUtility.toHex(data[i]) + " " + data[i] + " " + ((data[i] & 0xFF) < 32 ? "" : (char)(data[i] & 0xFF)));
                 }
-            System.err.println("---------");
-            System.err.println();
+            out.println("---------");
+            out.println();
             }
         }
     }
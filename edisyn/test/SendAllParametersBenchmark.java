@@ -0,0 +1,171 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import java.io.*;
+import javax.sound.midi.*;
+import java.util.*;
+
+/**
+   SendAllParametersBenchmark measures how long it takes, and how many bytes are allocated, to send
+   every parameter of a patch one by one, as Edisyn does when it sends the current patch to a synth
+   which doesn't take dumps.  It compares building each parameter's messages as an Object[] with
+   emitAll(key, status), as Edisyn used to, against writing them into a ShortMessageBuffer with
+   emitTo(key, status, buffer), as sendAllParameters() does now.  It also checks that both send
+   exactly the same messages.  By default it benchmarks the largest NRPN-driven editors which don't
+   ask for a gap between MIDI messages.  Others (such as the PreenFM2) work, but are slow to benchmark, since
+   we wait for every patch to go out before sending the next.
+
+   <p>Keys which the editor can't send individually, or complains about, are left out.  The messages
+   go to a Receiver which just records them, so no MIDI device is needed, nor a window.
+   Only the sending thread's allocation is counted, not the scheduler thread's.
+*/
+
+public class SendAllParametersBenchmark
+    {
+    static final String[] DEFAULT_CLASSES = new String[]
+        {
+        "edisyn.synth.sequentialprophetrev2.SequentialProphetRev2",
+        "edisyn.synth.dsiprophet12.DSIProphet12",
+        "edisyn.synth.dsiprophet08.DSIProphet08",
+        "edisyn.synth.audiothingiesmicromonsta.AudiothingiesMicroMonsta",
+        };
+
+    // The messages the Receiver has been sent, packed as in ShortMessageBuffer
+    static int[] received = new int[1024];
+    static int numReceived = 0;
+
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.SendAllParametersBenchmark",
+            args,
+            "[CLASS...]",
+            new String[] { "-i", "-w" },
+            new String[] { Main.INT, Main.INT },
+            new String[] { "Measured Patches", "Warmup Patches" },
+            "SendAllParametersBenchmark times sending all of a patch's parameters one by one, building\n" +
+            "Object[] messages with emitAll(...) versus writing them into a ShortMessageBuffer with\n" +
+            "emitTo(...), for the given synth classes or for the largest NRPN-driven editors.",
+            true);
+
+        int iterations = main.getInt("-i", 100);
+        int warmup = main.getInt("-w", 100);
+        ArrayList<String> classNames = new ArrayList<String>(main.getRest());
+        if (classNames.size() == 0)
+            classNames.addAll(Arrays.asList(DEFAULT_CLASSES));
+
+        System.err.println(String.format("%-40s %6s %8s %12s %12s %8s %14s %14s %s", "Synth", "Keys", "Msgs", "emitAll us", "emitTo us", "Speedup", "emitAll B/p", "emitTo B/p", "Same"));
+        for(String className : classNames)
+            {
+            Synth synth = Synth.instantiate(className, true, false, null);
+            if (synth == null) { System.err.println("Could not build " + className); continue; }
+            synth.getUndo().setWillPush(false);
+            synth.setActiveSynth(true);
+            synth.setSendMIDI(true);
+            String[] keys = sendableKeys(synth);
+
+            // Check that both send the same thing, each starting with a fresh scheduler
+            connect(synth);
+            sendAll(synth, keys, false);
+            synth.waitForMIDI();
+            int[] a = Arrays.copyOf(received, numReceived);
+            connect(synth);
+            sendAll(synth, keys, true);
+            synth.waitForMIDI();
+            int[] b = Arrays.copyOf(received, numReceived);
+            boolean same = Arrays.equals(a, b);
+
+            for(int i = 0; i < warmup; i++)
+                {
+                sendAll(synth, keys, false);
+                sendAll(synth, keys, true);
+                synth.waitForMIDI();
+                numReceived = 0;
+                }
+
+            long[] timeA = new long[1];
+            long[] timeB = new long[1];
+            long allocA = 0;
+            long allocB = 0;
+            for(int i = 0; i < iterations; i++)
+                {
+                allocA += measure(synth, keys, false, timeA);
+                allocB += measure(synth, keys, true, timeB);
+                }
+
+            System.err.println(String.format("%-40s %6d %8d %12.1f %12.1f %7.2fx %14s %14s %s", Synth.getSynthNameForClassName(className), keys.length, b.length,
+                    timeA[0] / 1000.0 / iterations, timeB[0] / 1000.0 / iterations, timeA[0] / (double)timeB[0],
+                    (allocA < 0 ? "?" : "" + (allocA / iterations)), (allocB < 0 ? "?" : "" + (allocB / iterations)), same ? "yes" : "NO"));
+            }
+        System.exit(0);
+        }
+
+    // Returns the keys which the synth can send individually without complaint
+    static String[] sendableKeys(Synth synth)
+        {
+        ArrayList<String> keys = new ArrayList<String>();
+        PrintStream err = System.err;
+        ByteArrayOutputStream complaints = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(complaints));
+        for(String key : synth.getModel().getKeys())
+            {
+            complaints.reset();
+            try
+                {
+                if (synth.emitAll(key, Synth.STATUS_SENDING_ALL_PARAMETERS) != null && complaints.size() == 0)
+                    keys.add(key);
+                }
+            catch (RuntimeException ex) { }
+            }
+        System.setErr(err);
+        return keys.toArray(new String[0]);
+        }
+
+    // Gives the synth a new recording Receiver, and so a new scheduler which knows nothing about what's been sent
+    static void connect(Synth synth)
+        {
+        Midi.Tuple tuple = new Midi.Tuple();
+        tuple.outReceiver = new Receiver()
+            {
+            public void send(MidiMessage message, long timeStamp)
+                {
+                if (numReceived == received.length)
+                    received = Arrays.copyOf(received, received.length * 2);
+                received[numReceived++] = (message instanceof ShortMessage ? ShortMessageBuffer.pack((ShortMessage)message) : 0);
+                }
+            public void close() { }
+            };
+        synth.tuple = tuple;
+        numReceived = 0;
+        }
+
+    // Sends one patch and returns the bytes allocated doing so (or a negative number if the JVM can't tell us), adding to the time.
+    // Waiting for the scheduler to catch up isn't counted.
+    static long measure(Synth synth, String[] keys, boolean buffered, long[] time)
+        {
+        long alloc = MorphBenchmark.allocated();
+        long start = System.nanoTime();
+        sendAll(synth, keys, buffered);
+        time[0] += System.nanoTime() - start;
+        alloc = (alloc < 0 ? -1 : MorphBenchmark.allocated() - alloc);
+        synth.waitForMIDI();
+        numReceived = 0;
+        return alloc;
+        }
+
+    // Sends every parameter, as sendAllParameters() does, either the old way or with a ShortMessageBuffer
+    static ShortMessageBuffer buffer = new ShortMessageBuffer();
+    static void sendAll(Synth synth, String[] keys, boolean buffered)
+        {
+        for(int i = 0; i < keys.length; i++)
+            {
+            if (buffered && synth.emitTo(keys[i], Synth.STATUS_SENDING_ALL_PARAMETERS, buffer.clear()))
+                synth.tryToSendMIDI(buffer);
+            else
+                synth.tryToSendMIDI(synth.emitAll(keys[i], Synth.STATUS_SENDING_ALL_PARAMETERS));
+            }
+        }
+    }
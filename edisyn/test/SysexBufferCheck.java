@@ -0,0 +1,173 @@
+/***
+    Copyright 2026 by Sean Luke
+    Licensed under the Apache License version 2.0
+*/
+
+package edisyn.test;
+import edisyn.*;
+import javax.sound.midi.*;
+import java.util.*;
+
+/**
+   SysexBufferCheck checks that Midi.SysexBuffer, and Midi's gatherInSysexData(...), gatherKeySysexData(...),
+   and gatherKey2SysexData(...), reassemble sysex messages which arrive in fragments: the first starting with
+   0xF0 and each continuation starting with 0xF7.  It feeds complete messages, messages split into a few
+   fragments, messages much larger than the buffer's initial size split into many fragments of random sizes,
+   stray continuations, and messages which are abandoned partway through, and checks the bytes which come out.
+   It needs no MIDI device and no window.  It prints [OKAY] or [FAIL] for each check and exits with 1 if any failed.
+*/
+
+public class SysexBufferCheck
+    {
+    static boolean quiet = false;
+    static int failures = 0;
+
+    public static void main(String[] args) throws Exception
+        {
+        Main main = new Main("java edisyn.test.SysexBufferCheck",
+            args,
+            null,
+            new String[] { "-v", "-n" },
+            new String[] { Main.FLAG, Main.INT },
+            new String[] { "Verbose", "Number of Random Messages" },
+            "SysexBufferCheck feeds fragmented sysex messages to Midi.SysexBuffer and to Midi's\n" +
+            "gather...SysexData(...) methods and checks that they are reassembled correctly.",
+            true);
+        quiet = !main.hasFlag("-v");
+        int num = main.getInt("-n", 100);
+
+        Random random = new Random(0);
+        Midi.SysexBuffer buffer = new Midi.SysexBuffer();
+
+        // A complete message in one piece
+        byte[] small = message(random, 10);
+        check("Complete message", buffer.gather(small, small.length), small);
+        check("Buffer is reset after completion", !buffer.isGathering() && buffer.getLength() == 0);
+
+        // A message in three fragments
+        byte[] msg = message(random, 40);
+        List<byte[]> fragments = split(msg, new int[] { 15, 30 });
+        check("First fragment is incomplete", buffer.gather(fragments.get(0), fragments.get(0).length) == null && buffer.isGathering());
+        check("Second fragment is incomplete", buffer.gather(fragments.get(1), fragments.get(1).length) == null);
+        check("Three fragments", buffer.gather(fragments.get(2), fragments.get(2).length), msg);
+
+        // Only the first messageLen bytes of the data count
+        byte[] padded = Arrays.copyOf(small, small.length + 5);
+        check("Trailing bytes beyond messageLen are ignored", buffer.gather(padded, small.length), small);
+
+        // A continuation when we're not gathering
+        byte[] stray = new byte[] { (byte)0xF7, 0x01, 0x02, (byte)0xF7 };
+        check("Stray continuation is ignored", buffer.gather(stray, stray.length) == null && !buffer.isGathering());
+
+        // A new message abandons a partial one
+        msg = message(random, 30);
+        fragments = split(msg, new int[] { 10 });
+        buffer.gather(fragments.get(0), fragments.get(0).length);
+        check("New message replaces abandoned one", buffer.gather(small, small.length), small);
+
+        // Large messages (the buffer starts at 1K) in many fragments of random sizes, each
+        // reusing the buffer which the previous one grew
+        for(int i = 0; i < num; i++)
+            {
+            int len = 2 + random.nextInt(i % 10 == 0 ? 1000000 : 20000);
+            msg = message(random, len);
+            fragments = split(msg, cuts(random, len, 1 + random.nextInt(50)));
+            byte[] result = null;
+            boolean early = false;
+            for(int j = 0; j < fragments.size(); j++)
+                {
+                result = buffer.gather(fragments.get(j), fragments.get(j).length);
+                if (result != null && j < fragments.size() - 1) early = true;
+                }
+            check("Random message " + i + " (" + len + " bytes, " + fragments.size() + " fragments)", !early && Arrays.equals(result, msg));
+            }
+
+        // Midi's gatherers, through real SysexMessages.  The key gatherers once compared the (signed) first byte
+        // against the int 0xF0 and 0xF7, which never matched, so continuations were dropped.
+        Midi midi = new Midi();
+        msg = message(random, 5000);
+        fragments = split(msg, new int[] { 1, 1000, 1001, 4000 });
+        check("gatherInSysexData", gather(midi, 0, fragments), msg);
+        check("gatherKeySysexData", gather(midi, 1, fragments), msg);
+        check("gatherKey2SysexData", gather(midi, 2, fragments), msg);
+
+        // Data bytes above 0x7F (not legal sysex, but they arrive) must not be mistaken for 0xF0 or 0xF7
+        msg = new byte[] { (byte)0xF0, (byte)0x80, (byte)0xFF, (byte)0xF1, 0x00, (byte)0xF7 };
+        fragments = split(msg, new int[] { 3 });
+        check("High data bytes, gatherInSysexData", gather(midi, 0, fragments), msg);
+        check("High data bytes, gatherKeySysexData", gather(midi, 1, fragments), msg);
+
+        System.err.println(failures == 0 ? "All checks passed." : (failures + " checks FAILED."));
+        System.exit(failures == 0 ? 0 : 1);
+        }
+
+    // Builds a sysex message of the given length (at least 2), with random 7-bit data
+    static byte[] message(Random random, int len)
+        {
+        byte[] msg = new byte[len];
+        msg[0] = (byte)0xF0;
+        for(int i = 1; i < len - 1; i++)
+            msg[i] = (byte)random.nextInt(128);
+        msg[len - 1] = (byte)0xF7;
+        return msg;
+        }
+
+    // Returns the given number of sorted, distinct cut points strictly inside a message of length len
+    static int[] cuts(Random random, int len, int num)
+        {
+        TreeSet<Integer> set = new TreeSet<Integer>();
+        for(int i = 0; i < num && len > 2; i++)
+            set.add(1 + random.nextInt(len - 2));
+        int[] cuts = new int[set.size()];
+        int i = 0;
+        for(Integer cut : set) cuts[i++] = cut;
+        return cuts;
+        }
+
+    // Splits the message at the given (sorted) cut points, as a MIDI driver would: the first fragment is the
+    // 0xF0 and what follows, and each later fragment is 0xF7 followed by the next piece of the message
+    static List<byte[]> split(byte[] msg, int[] cuts)
+        {
+        ArrayList<byte[]> fragments = new ArrayList<byte[]>();
+        int start = 0;
+        for(int i = 0; i <= cuts.length; i++)
+            {
+            int end = (i == cuts.length ? msg.length : cuts[i]);
+            if (start == 0)
+                fragments.add(Arrays.copyOfRange(msg, 0, end));
+            else
+                {
+                byte[] fragment = new byte[end - start + 1];
+                fragment[0] = (byte)0xF7;
+                System.arraycopy(msg, start, fragment, 1, end - start);
+                fragments.add(fragment);
+                }
+            start = end;
+            }
+        return fragments;
+        }
+
+    // Feeds the fragments as SysexMessages to Midi's in (0), key (1), or key2 (2) gatherer and returns the completed message
+    static byte[] gather(Midi midi, int which, List<byte[]> fragments) throws InvalidMidiDataException
+        {
+        byte[] result = null;
+        for(byte[] fragment : fragments)
+            {
+            SysexMessage message = new SysexMessage(fragment, fragment.length);
+            result = (which == 0 ? midi.gatherInSysexData(message) :
+                which == 1 ? midi.gatherKeySysexData(message) : midi.gatherKey2SysexData(message));
+            }
+        return result;
+        }
+
+    static void check(String name, byte[] result, byte[] expected)
+        {
+        check(name, Arrays.equals(result, expected));
+        }
+
+    static void check(String name, boolean result)
+        {
+        if (!result) failures++;
+        if (!quiet || !result) System.err.println((result ? "[OKAY] " : "[FAIL] ") + name);
+        }
+    }